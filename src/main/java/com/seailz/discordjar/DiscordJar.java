@@ -5,10 +5,14 @@ import com.seailz.discordjar.action.sku.ListEntitlementRequest;
 import com.seailz.discordjar.cache.Cache;
 import com.seailz.discordjar.cache.CacheType;
 import com.seailz.discordjar.cache.JsonCache;
+import com.seailz.discordjar.cache.RawCacheFallback;
+import com.seailz.discordjar.cache.RoleIndex;
+import com.seailz.discordjar.cache.SingleFlight;
 import com.seailz.discordjar.command.Command;
 import com.seailz.discordjar.command.CommandChoice;
 import com.seailz.discordjar.command.CommandDispatcher;
 import com.seailz.discordjar.command.CommandOption;
+import com.seailz.discordjar.command.CommandSync;
 import com.seailz.discordjar.command.annotation.ContextCommandInfo;
 import com.seailz.discordjar.command.annotation.Locale;
 import com.seailz.discordjar.command.annotation.SlashCommandInfo;
@@ -16,19 +20,22 @@ import com.seailz.discordjar.command.listeners.CommandListener;
 import com.seailz.discordjar.command.listeners.MessageContextCommandListener;
 import com.seailz.discordjar.command.listeners.UserContextCommandListener;
 import com.seailz.discordjar.command.listeners.slash.SlashCommandListener;
-import com.seailz.discordjar.command.listeners.slash.SlashSubCommand;
-import com.seailz.discordjar.command.listeners.slash.SubCommandListener;
 import com.seailz.discordjar.events.DiscordListener;
 import com.seailz.discordjar.events.EventDispatcher;
 import com.seailz.discordjar.gateway.Gateway;
 import com.seailz.discordjar.gateway.GatewayTransportCompressionType;
+import com.seailz.discordjar.gateway.session.SessionStateStore;
+import com.seailz.discordjar.cache.snapshot.CacheSnapshot;
 import com.seailz.discordjar.http.HttpOnlyApplication;
+import com.seailz.discordjar.http.InteractionServer;
+import com.seailz.discordjar.model.interaction.callback.AutoDeferScheduler;
 import com.seailz.discordjar.model.api.APIRelease;
 import com.seailz.discordjar.model.api.version.APIVersion;
 import com.seailz.discordjar.model.application.Application;
 import com.seailz.discordjar.model.application.Intent;
 import com.seailz.discordjar.model.channel.*;
 import com.seailz.discordjar.model.channel.audio.VoiceRegion;
+import com.seailz.discordjar.model.channel.internal.ChannelImpl;
 import com.seailz.discordjar.model.emoji.sticker.Sticker;
 import com.seailz.discordjar.model.emoji.sticker.StickerPack;
 import com.seailz.discordjar.model.guild.Guild;
@@ -42,17 +49,19 @@ import com.seailz.discordjar.model.user.User;
 import com.seailz.discordjar.utils.Checker;
 import com.seailz.discordjar.utils.HTTPOnlyInfo;
 import com.seailz.discordjar.utils.URLS;
+import com.seailz.discordjar.utils.image.CDNClient;
 import com.seailz.discordjar.utils.permission.Permission;
+import com.seailz.discordjar.utils.permission.PermissionsUtil;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.utils.rest.DiscordResponse;
 import com.seailz.discordjar.utils.rest.ratelimit.Bucket;
+import com.seailz.discordjar.voice.VoiceConnectionManager;
 import com.seailz.discordjar.voice.model.VoiceState;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.socket.CloseStatus;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
@@ -60,8 +69,10 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import java.util.logging.Logger;
 
 /**
@@ -151,6 +162,47 @@ public class DiscordJar {
     private final List<String> memberCachingDisabledGuilds = new ArrayList<>();
     private final GatewayTransportCompressionType gatewayTransportCompressionType;
     private final APIVersion apiVersion;
+    /**
+     * Used to persist the gateway session between restarts, or null if disabled
+     */
+    private final SessionStateStore sessionStateStore;
+    /**
+     * Used to persist caches between restarts, or null if disabled
+     */
+    private final CacheSnapshot cacheSnapshot;
+    /**
+     * Whether GUILD_CREATE payloads are stored raw and only decoded when accessed
+     */
+    private final boolean lazyGuildHydration;
+    private final RawCacheFallback deferredGuilds;
+    private final RawCacheFallback deferredChannels;
+    private final Map<String, RawCacheFallback> deferredMembers = new ConcurrentHashMap<>();
+    /**
+     * The roles of every guild, so resolving a member's roles doesn't need a request
+     */
+    private final Map<String, RoleIndex> roleIndexes = new ConcurrentHashMap<>();
+    /**
+     * Computes and memoizes the effective permissions of members
+     */
+    private final PermissionsUtil permissionsUtil = new PermissionsUtil(this);
+    /**
+     * Coalesces requests for members of guilds that don't have a member cache, keyed by guild & user id
+     */
+    private final SingleFlight<Member> memberLookups = new SingleFlight<>();
+    /**
+     * Downloads and caches assets from the CDN, such as avatars and emojis
+     */
+    private CDNClient cdnClient = new CDNClient();
+    /**
+     * The lightweight interactions endpoint, if this is an HTTP-only bot using it
+     */
+    private InteractionServer interactionServer;
+    /**
+     * Tracks interaction response latency, and defers interactions that aren't responded to in time
+     */
+    private final AutoDeferScheduler autoDeferScheduler = new AutoDeferScheduler(this);
+    private final CommandSync commandSync = new CommandSync(this);
+    private final VoiceConnectionManager voiceConnectionManager = new VoiceConnectionManager();
 
     /**
      * @deprecated Use {@link DiscordJarBuilder} instead.
@@ -216,6 +268,21 @@ public class DiscordJar {
          */
         @Deprecated
     public DiscordJar(String token, EnumSet<Intent> intents, APIVersion version, boolean httpOnly, HTTPOnlyInfo httpOnlyInfo, boolean debug, int shardId, int numShards, APIRelease release, EnumSet<CacheType> cacheTypes, GatewayTransportCompressionType gwCompressionType) throws ExecutionException, InterruptedException {
+        this(token, intents, version, httpOnly, httpOnlyInfo, debug, shardId, numShards, release, cacheTypes, gwCompressionType, null, null, false);
+    }
+
+    /**
+     * Creates a new instance of the DiscordJar class.
+     * <br>See {@link #DiscordJar(String, EnumSet, APIVersion, boolean, HTTPOnlyInfo, boolean, int, int, APIRelease, EnumSet, GatewayTransportCompressionType)} for the other parameters.
+     *
+     * @param sessionStateStore Used to persist the gateway session so it can be resumed after a restart, or null to always IDENTIFY on startup.
+     * @param cacheSnapshot Used to persist guilds, channels & members so caches aren't empty after a restart, or null to disable.
+     * @param lazyGuildHydration Whether the guild, channels & members in GUILD_CREATE should only be decoded once they are accessed.
+     *
+     * @deprecated Use {@link DiscordJarBuilder} instead. This constructor will be set to protected in the future.
+     */
+    @Deprecated
+    public DiscordJar(String token, EnumSet<Intent> intents, APIVersion version, boolean httpOnly, HTTPOnlyInfo httpOnlyInfo, boolean debug, int shardId, int numShards, APIRelease release, EnumSet<CacheType> cacheTypes, GatewayTransportCompressionType gwCompressionType, @Nullable SessionStateStore sessionStateStore, @Nullable CacheSnapshot cacheSnapshot, boolean lazyGuildHydration) throws ExecutionException, InterruptedException {
         System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
         this.eventDispatcher = new EventDispatcher(this);
         this.token = token;
@@ -229,6 +296,9 @@ public class DiscordJar {
         this.buckets = new ArrayList<>();
         this.voiceStates = new HashMap<>();
         this.gatewayTransportCompressionType = gwCompressionType;
+        this.sessionStateStore = sessionStateStore;
+        this.cacheSnapshot = cacheSnapshot;
+        this.lazyGuildHydration = lazyGuildHydration;
         this.debug = debug;
         this.guildCache = new Cache<>(this, Guild.class,
                 new DiscordRequest(
@@ -260,10 +330,30 @@ public class DiscordJar {
                 RequestMethod.GET
         ), CacheType.MEMBERS);
 
+        if (lazyGuildHydration) {
+            this.deferredGuilds = new RawCacheFallback(cacheSnapshot == null ? null : cacheSnapshot.guilds());
+            this.deferredChannels = new RawCacheFallback(cacheSnapshot == null ? null : cacheSnapshot.channels());
+            guildCache.setFallback(deferredGuilds);
+            channelCache.setFallback(deferredChannels);
+        } else {
+            this.deferredGuilds = null;
+            this.deferredChannels = null;
+            if (cacheSnapshot != null) {
+                guildCache.setFallback(cacheSnapshot.guilds());
+                channelCache.setFallback(cacheSnapshot.channels());
+            }
+        }
+
         if (httpOnly) {
             if (httpOnlyInfo == null)
                 throw new IllegalArgumentException("httpOnlyInfo cannot be null if httpOnly is true!");
-            HttpOnlyApplication.init(this, httpOnlyInfo.endpoint(), httpOnlyInfo.applicationPublicKey());
+            if (httpOnlyInfo.lightweight()) {
+                try {
+                    this.interactionServer = InteractionServer.start(this, httpOnlyInfo.endpoint(), httpOnlyInfo.applicationPublicKey(), httpOnlyInfo.port(), httpOnlyInfo.executor());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to start the interaction server on port " + httpOnlyInfo.port(), e);
+                }
+            } else HttpOnlyApplication.init(this, httpOnlyInfo.endpoint(), httpOnlyInfo.applicationPublicKey());
         }
 
         if (debug) {
@@ -305,6 +395,7 @@ public class DiscordJar {
                         .setShardCount(numShards)
                         .setShardId(shardId)
                         .setTransportCompressionType(gwCompressionType)
+                        .setSessionStateStore(sessionStateStore)
                         .build();
             }
     }
@@ -362,8 +453,15 @@ public class DiscordJar {
                 throw new RuntimeException(e);
             }
             if (gatewayFactory != null) {
-                gatewayFactory.disconnect(CloseStatus.GOING_AWAY);
+                gatewayFactory.shutdown();
+            }
+            if (cacheSnapshot != null) {
+                cacheSnapshot.close();
             }
+            if (interactionServer != null) {
+                interactionServer.stop(1);
+            }
+            voiceConnectionManager.shutdown();
         }, "djar--shutdown-hook"));
     }
 
@@ -432,6 +530,7 @@ public class DiscordJar {
     public void disableMemberCachingForGuild(String guildId) {
         memberCachingDisabledGuilds.add(guildId);
         guildMemberCaches.remove(guildId);
+        deferredMembers.remove(guildId);
     }
 
     /**
@@ -548,17 +647,7 @@ public class DiscordJar {
      */
     @Nullable
     public MessagingChannel getTextChannelById(String id) {
-        Checker.isSnowflake(id, "Given id is not a snowflake");
-        JSONObject raw = null;
-        try {
-            raw = getChannelCache().getById(id).raw();
-        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-            if (e.getHttpCode() == 404) return null;
-            throw new DiscordRequest.DiscordAPIErrorException(e);
-        } catch (NullPointerException e) {
-            return null;
-        }
-        return MessagingChannel.decompile(raw, this);
+        return getChannelView(id, MessagingChannel.class, MessagingChannel::decompile);
     }
 
     /**
@@ -569,17 +658,7 @@ public class DiscordJar {
      */
     @Nullable
     public AudioChannel getAudioChannelById(String id) {
-        Checker.isSnowflake(id, "Given id is not a snowflake");
-        JSONObject raw = null;
-        try {
-            raw = getChannelCache().getById(id).raw();
-        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-            if (e.getHttpCode() == 404) return null;
-            throw new DiscordRequest.DiscordAPIErrorException(e);
-        } catch (NullPointerException e) {
-            return null;
-        }
-        return AudioChannel.decompile(raw, this);
+        return getChannelView(id, AudioChannel.class, AudioChannel::decompile);
     }
 
     /**
@@ -590,17 +669,7 @@ public class DiscordJar {
      */
     @Nullable
     public com.seailz.discordjar.model.channel.thread.Thread getThreadById(String id) {
-        Checker.isSnowflake(id, "Given id is not a snowflake");
-        JSONObject raw = null;
-        try {
-            raw = getChannelCache().getById(id).raw();
-        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-            if (e.getHttpCode() == 404) return null;
-            throw new DiscordRequest.DiscordAPIErrorException(e);
-        } catch (NullPointerException e) {
-            return null;
-        }
-        return com.seailz.discordjar.model.channel.thread.Thread.decompile(raw, this);
+        return getChannelView(id, com.seailz.discordjar.model.channel.thread.Thread.class, com.seailz.discordjar.model.channel.thread.Thread::decompile);
     }
 
     /**
@@ -611,17 +680,7 @@ public class DiscordJar {
      */
     @Nullable
     public DMChannel getDmChannelById(String id) {
-        Checker.isSnowflake(id, "Given id is not a snowflake");
-        JSONObject raw = null;
-        try {
-            raw = getChannelCache().getById(id).raw();
-        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-            if (e.getHttpCode() == 404) return null;
-            throw new DiscordRequest.DiscordAPIErrorException(e);
-        } catch (NullPointerException e) {
-            return null;
-        }
-        return DMChannel.decompile(raw, this);
+        return getChannelView(id, DMChannel.class, DMChannel::decompile);
     }
 
     /**
@@ -632,17 +691,7 @@ public class DiscordJar {
      */
     @Nullable
     public ForumChannel getForumChannelById(String id) {
-        Checker.isSnowflake(id, "Given id is not a snowflake");
-        JSONObject raw = null;
-        try {
-            raw = getChannelCache().getById(id).raw();
-        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-            if (e.getHttpCode() == 404) return null;
-            throw new DiscordRequest.DiscordAPIErrorException(e);
-        } catch (NullPointerException e) {
-            return null;
-        }
-        return ForumChannel.decompile(raw, this);
+        return getChannelView(id, ForumChannel.class, ForumChannel::decompile);
     }
 
     /**
@@ -653,15 +702,7 @@ public class DiscordJar {
      */
     @Nullable
     public MediaChannel getMediaChannelById(String id) {
-        Checker.isSnowflake(id, "Given id is not a snowflake");
-        JSONObject raw = null;
-        try {
-            raw = getChannelCache().getById(id).raw();
-        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-            if (e.getHttpCode() == 404) return null;
-            throw new DiscordRequest.DiscordAPIErrorException(e);
-        }
-        return MediaChannel.decompile(raw, this);
+        return getChannelView(id, MediaChannel.class, MediaChannel::decompile);
     }
 
     /**
@@ -672,17 +713,7 @@ public class DiscordJar {
      */
     @Nullable
     public Category getCategoryById(String id) {
-        Checker.isSnowflake(id, "Given id is not a snowflake");
-        JSONObject raw = null;
-        try {
-            raw = getChannelCache().getById(id).raw();
-        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-            if (e.getHttpCode() == 404) return null;
-            throw new DiscordRequest.DiscordAPIErrorException(e);
-        } catch (NullPointerException e) {
-            return null;
-        }
-        return Category.decompile(raw, this);
+        return getChannelView(id, Category.class, Category::decompile);
     }
 
     /**
@@ -693,18 +724,28 @@ public class DiscordJar {
      */
     @Nullable
     public VoiceChannel getVoiceChannelById(String id) {
+        return getChannelView(id, VoiceChannel.class, VoiceChannel::decompile);
+    }
+
+
+    /**
+     * Returns a channel from the channel cache as a narrower type. Each cached channel is only decoded into each type once.
+     */
+    @Nullable
+    private <T extends Channel> T getChannelView(String id, Class<T> type, BiFunction<JSONObject, DiscordJar, T> decoder) {
         Checker.isSnowflake(id, "Given id is not a snowflake");
-        JSONObject raw = null;
+        Channel channel;
         try {
-            raw = getChannelCache().getById(id).raw();
+            channel = getChannelCache().getById(id);
         } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
             if (e.getHttpCode() == 404) return null;
             throw new DiscordRequest.DiscordAPIErrorException(e);
         }
-        return VoiceChannel.decompile(raw, this);
+        if (channel == null) return null;
+        if (channel instanceof ChannelImpl impl) return impl.view(type, decoder);
+        return type.isInstance(channel) ? type.cast(channel) : decoder.apply(channel.raw(), this);
     }
 
-
     /**
      * Returns info about a {@link Guild}
      *
@@ -874,6 +915,61 @@ public class DiscordJar {
         return channelCache;
     }
 
+    @NotNull
+    public PermissionsUtil getPermissionsUtil() {
+        return permissionsUtil;
+    }
+
+    @NotNull
+    public CDNClient getCdnClient() {
+        return cdnClient;
+    }
+
+    /**
+     * Replaces the CDN client, for example to store assets in a different directory.
+     */
+    public void setCdnClient(@NotNull CDNClient cdnClient) {
+        this.cdnClient = cdnClient;
+    }
+
+    @NotNull
+    public AutoDeferScheduler getAutoDeferScheduler() {
+        return autoDeferScheduler;
+    }
+
+    @NotNull
+    public CommandSync getCommandSync() {
+        return commandSync;
+    }
+
+    /**
+     * Returns the manager that runs every voice connection of this bot.
+     */
+    @NotNull
+    public VoiceConnectionManager getVoiceConnectionManager() {
+        return voiceConnectionManager;
+    }
+
+    /**
+     * Returns the lightweight interactions endpoint, or null if it isn't being used.
+     */
+    @Nullable
+    public InteractionServer getInteractionServer() {
+        return interactionServer;
+    }
+
+    public boolean isLazyGuildHydration() {
+        return lazyGuildHydration;
+    }
+
+    /**
+     * Returns the snapshot caches are persisted to, or null if cache snapshots are disabled.
+     */
+    @Nullable
+    public CacheSnapshot getCacheSnapshot() {
+        return cacheSnapshot;
+    }
+
     @NotNull
     public Map<String, Cache<Member>> getMemberGuildCaches() {
         return guildMemberCaches;
@@ -893,6 +989,7 @@ public class DiscordJar {
      */
     public void clearMemberCaches() {
         guildMemberCaches.clear();
+        deferredMembers.clear();
         if (debug) Logger.getLogger("DiscordJar")
                         .info("[discord.jar] All member caches cleared. Current RAM usage: " + (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / 1024 / 1024 + "MB");
         System.gc();
@@ -900,6 +997,32 @@ public class DiscordJar {
                         .info("[discord.jar] Garbage collection ran. Current RAM usage: " + (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / 1024 / 1024 + "MB");
     }
 
+    /**
+     * Returns the role index of a guild, creating one if it doesn't exist yet.
+     * <br>The index is filled when the guild is received, and kept up to date by role events.
+     * <br>A new index starts out with the roles stored in the {@link CacheSnapshot}, if there are any, so a resumed session doesn't have to request them.
+     *
+     * @param guildId The id of the guild
+     */
+    @NotNull
+    public RoleIndex getRoleIndex(@NotNull String guildId) {
+        return roleIndexes.computeIfAbsent(guildId, id -> {
+            RoleIndex index = new RoleIndex();
+            JSONObject stored = cacheSnapshot == null ? null : cacheSnapshot.roles().take(id);
+            if (stored != null) index.setRaw(stored.getJSONArray("roles"));
+            return index;
+        });
+    }
+
+    /**
+     * Removes the role index of a guild, e.g. when the bot leaves it.
+     *
+     * @param guildId The id of the guild
+     */
+    public void removeRoleIndex(@NotNull String guildId) {
+        roleIndexes.remove(guildId);
+    }
+
     /**
      * Inserts a member into their appropriate cache.
      * This will check if a cache exists for the guild, and if it does, it will insert the member into that cache.
@@ -913,8 +1036,59 @@ public class DiscordJar {
      * @see #getMemberGuildCaches()
      */
     public void insertMemberCache(@NotNull String guildId, @NotNull Member member, @Nullable Guild guild) {
+        if (member.user() != null) memberLookups.forget(guildId + ":" + member.user().id());
         if (memberCachingDisabledGuilds.contains(guildId)) return;
         // First, we need to check if a cache exists for the guild
+        Cache<Member> cache = guildMemberCaches.get(guildId);
+        if (cache == null) cache = createMemberCache(guildId, guild);
+        cache.cache(member);
+        guildMemberCaches.put(guildId, cache);
+    }
+
+    /**
+     * Stores the guild, channels & members of a GUILD_CREATE payload without decoding them.
+     * <br>They are decoded the first time they're requested from their cache. Only used if lazy guild hydration is enabled.
+     *
+     * @param payload The GUILD_CREATE payload
+     */
+    public void deferGuild(@NotNull JSONObject payload) {
+        if (!lazyGuildHydration) throw new IllegalStateException("Lazy guild hydration is not enabled");
+        String guildId = payload.getString("id");
+
+        List<String> guildKeys = new ArrayList<>();
+        for (String key : payload.keySet()) {
+            if (!key.equals("channels") && !key.equals("members") && !key.equals("threads")
+                    && !key.equals("presences") && !key.equals("voice_states")) guildKeys.add(key);
+        }
+        deferredGuilds.put(guildId, new JSONObject(payload, guildKeys.toArray(new String[0])));
+        JSONArray roles = payload.optJSONArray("roles");
+        if (roles != null) getRoleIndex(guildId).setRaw(roles);
+
+        JSONArray channels = payload.optJSONArray("channels");
+        if (channels != null) {
+            for (int i = 0; i < channels.length(); i++) {
+                JSONObject channel = channels.getJSONObject(i);
+                // Channels in GUILD_CREATE don't include their guild id
+                if (!channel.has("guild_id")) channel.put("guild_id", guildId);
+                deferredChannels.put(channel.getString("id"), channel);
+            }
+        }
+
+        JSONArray members = payload.optJSONArray("members");
+        if (members == null || memberCachingDisabledGuilds.contains(guildId)) return;
+        guildMemberCaches.computeIfAbsent(guildId, id -> createMemberCache(id, null));
+        RawCacheFallback deferred = deferredMembers(guildId);
+        for (int i = 0; i < members.length(); i++) {
+            JSONObject member = members.getJSONObject(i);
+            deferred.put(member.getJSONObject("user").getString("id"), member);
+        }
+    }
+
+    private RawCacheFallback deferredMembers(@NotNull String guildId) {
+        return deferredMembers.computeIfAbsent(guildId, id -> new RawCacheFallback(cacheSnapshot == null ? null : cacheSnapshot.members(id)));
+    }
+
+    private Cache<Member> createMemberCache(@NotNull String guildId, @Nullable Guild guild) {
         Cache<Member> cache = new Cache<>(
                 this,
                 Member.class,
@@ -926,12 +1100,14 @@ public class DiscordJar {
                         URLS.GET.GUILDS.MEMBERS.GET_GUILD_MEMBER,
                         RequestMethod.GET
                 ),
-                guild == null ? this.getGuildById(guildId) : guild,
+                guildId,
+                // With lazy hydration, the guild is only decoded once it is needed
+                guild == null && !lazyGuildHydration ? this.getGuildById(guildId) : guild,
                 CacheType.MEMBERS
         );
-        if (guildMemberCaches.containsKey(guildId)) cache = guildMemberCaches.get(guildId);
-        cache.cache(member);
-        guildMemberCaches.put(guildId, cache);
+        if (lazyGuildHydration) cache.setFallback(deferredMembers(guildId));
+        else if (cacheSnapshot != null) cache.setFallback(cacheSnapshot.members(guildId));
+        return cache;
     }
 
     public void removeMemberCache(@NotNull String guildId, @NotNull String userId) {
@@ -951,11 +1127,24 @@ public class DiscordJar {
      */
     @Nullable
     public Member getMemberById(@NotNull String guildId, @NotNull String userId) {
+        if (!guildMemberCaches.containsKey(guildId) && cacheSnapshot != null && !cacheSnapshot.members(guildId).isEmpty()
+                && !memberCachingDisabledGuilds.contains(guildId)) {
+            // The guild's members were restored from a snapshot, so we'll hydrate them lazily
+            guildMemberCaches.put(guildId, createMemberCache(guildId, null));
+        }
+
         if (!guildMemberCaches.containsKey(guildId)) {
-            // The guild isn't cached, so we'll do a manual request
-            Member mem = getMemberManuallyOrNull(guildId, userId);
-            if (mem != null) insertMemberCache(guildId, mem, null);
-            return mem;
+            // The guild isn't cached, so we'll do a manual request, unless another thread already is
+            try {
+                return memberLookups.get(guildId + ":" + userId, () -> {
+                    Member mem = getMemberManuallyOrNull(guildId, userId);
+                    if (mem != null) insertMemberCache(guildId, mem, null);
+                    return mem;
+                });
+            } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
+                // Only a 404 is remembered as missing, other errors may not happen again
+                return null;
+            }
         }
 
         // We can now check the guild's cache.
@@ -974,30 +1163,26 @@ public class DiscordJar {
      *
      * @param guildId The id of the guild
      * @param userId The id of the user
-     * @return A member if one can be found, or null if one can't be found
+     * @return A member if one can be found, or null if Discord doesn't know it
+     * @throws DiscordRequest.UnhandledDiscordAPIErrorException If the request failed for any other reason than the member not existing
      */
-    private Member getMemberManuallyOrNull(@NotNull String guildId, @NotNull String userId) {
-        DiscordResponse req = null;
-        try {
-            req = new DiscordRequest(
-                    new JSONObject(),
-                    new HashMap<>(),
-                    URLS.GET.GUILDS.MEMBERS.GET_GUILD_MEMBER.replace(
-                            "{guild.id}",
-                            guildId
-                    ).replace(
-                            "{user.id}",
-                            userId
-                    ),
-                    this,
-                    URLS.GET.GUILDS.MEMBERS.GET_GUILD_MEMBER,
-                    RequestMethod.GET
-            ).invoke();
-        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-            return null;
-        }
+    private Member getMemberManuallyOrNull(@NotNull String guildId, @NotNull String userId) throws DiscordRequest.UnhandledDiscordAPIErrorException {
+        DiscordResponse req = new DiscordRequest(
+                new JSONObject(),
+                new HashMap<>(),
+                URLS.GET.GUILDS.MEMBERS.GET_GUILD_MEMBER.replace(
+                        "{guild.id}",
+                        guildId
+                ).replace(
+                        "{user.id}",
+                        userId
+                ),
+                this,
+                URLS.GET.GUILDS.MEMBERS.GET_GUILD_MEMBER,
+                RequestMethod.GET
+        ).invoke();
 
-        if (req.body() == null) return null;
+        if (req == null || req.body() == null) return null;
         try {
             return Member.decompile(
                     req.body(),
@@ -1040,6 +1225,8 @@ public class DiscordJar {
      * @param listeners The listeners/commands to register
      * @param push You still need to register commands to discord.jar each time you start up your app, but you can skip registering to Discord (if you've already registered your commands
      *             with Discord, as they are persistent throughout restarts) by setting this to false.
+     *             <br>Commands are pushed through the {@link CommandSync}, so only commands that have changed are sent to Discord.
+     * @param overwrite Whether commands registered with Discord that aren't in the list should be deleted
      * @throws IllegalArgumentException <ul>
      *                                  <li>If the command name is less than 1 character or more than 32 characters</li>
      *
@@ -1074,7 +1261,7 @@ public class DiscordJar {
             boolean canUseInDms = (ann instanceof SlashCommandInfo) ? ((SlashCommandInfo) ann).canUseInDms() : ((ContextCommandInfo) ann).canUseInDms();
             boolean nsfw = (ann instanceof SlashCommandInfo) ? ((SlashCommandInfo) ann).nsfw() : ((ContextCommandInfo) ann).nsfw();
             InteractionContextType[] contextTypes = (ann instanceof ContextCommandInfo) ? ((ContextCommandInfo) ann).contexts() : ((SlashCommandInfo) ann).contexts();
-            if (overwrite) list.add(new Command(
+            Command command = new Command(
                     name,
                     listener.getType(),
                     description,
@@ -1085,47 +1272,39 @@ public class DiscordJar {
                     canUseInDms,
                     nsfw,
                     Arrays.stream(contextTypes).toList()
-            ));
-            else {
-                new Thread(() -> {
-                    registerCommand(
-                            new Command(
-                                    name,
-                                    listener.getType(),
-                                    description,
-                                    (listener instanceof SlashCommandListener) ? ((SlashCommandListener) listener).getOptions() : new ArrayList<>(),
-                                    nameLocales,
-                                    descriptionLocales,
-                                    defaultMemberPermissions,
-                                    canUseInDms,
-                                    nsfw,
-                                    Arrays.stream(contextTypes).toList()
-                            )
-                    );
-                }, "djar--command-register").start();
-            }
+            );
+            if (push && !overwrite) validateCommand(command);
+            list.add(command);
 
+            // Also builds the routes for the command's sub commands and groups
             commandDispatcher.registerCommand(name, listener);
-
-            if (!(listener instanceof SlashCommandListener slashCommandListener)) continue  ;
-            if (slashCommandListener.getSubCommands().isEmpty()) continue;
-
-            for (SlashSubCommand subCommand : slashCommandListener.getSubCommands().keySet()) {
-                SubCommandListener subListener =
-                        slashCommandListener.getSubCommands().values().stream().toList().get(
-                                slashCommandListener.getSubCommands().keySet().stream().toList()
-                                        .indexOf(subCommand)
-                        );
-                commandDispatcher.registerSubCommand(slashCommandListener, subCommand, subListener);
-            }
         }
 
-        if (overwrite) {
-            bulkOverwriteCommands(list);
-        }
+        if (!push) return;
+        // Only the differences are sent to Discord, see CommandSync
+        new Thread(() -> commandSync.sync(list, overwrite), "djar--command-sync").start();
     }
 
     protected void registerCommand(Command command) {
+        validateCommand(command);
+
+        new Thread(() -> {
+            DiscordRequest commandReq = new DiscordRequest(
+                    command.compile(),
+                    new HashMap<>(),
+                    URLS.POST.COMMANDS.GLOBAL_COMMANDS.replace("{application.id}", getSelfInfo().id() == null ? "0" : getSelfInfo().id()),
+                    this,
+                    URLS.BASE_URL,
+                    RequestMethod.POST);
+            try {
+                commandReq.invoke();
+            } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
+                throw new DiscordRequest.DiscordAPIErrorException(e);
+            }
+        }, "djar--command-req").start();
+    }
+
+    private void validateCommand(Command command) {
         Checker.check(!(command.name().length() > 1 && command.name().length() < 32), "Command name must be within 1 and 32 characters!");
         Checker.check(!Objects.equals(command.description(), "") && !(command.description().length() > 1 && command.description().length() < 100), "Command description must be within 1 and 100 characters!");
         Checker.check(command.options().size() > 25, "Application commands can only have up to 25 options!");
@@ -1142,21 +1321,6 @@ public class DiscordJar {
                 }
             }
         }
-
-        new Thread(() -> {
-            DiscordRequest commandReq = new DiscordRequest(
-                    command.compile(),
-                    new HashMap<>(),
-                    URLS.POST.COMMANDS.GLOBAL_COMMANDS.replace("{application.id}", getSelfInfo().id() == null ? "0" : getSelfInfo().id()),
-                    this,
-                    URLS.BASE_URL,
-                    RequestMethod.POST);
-            try {
-                commandReq.invoke();
-            } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-                throw new DiscordRequest.DiscordAPIErrorException(e);
-            }
-        }, "djar--command-req").start();
     }
 
     /**
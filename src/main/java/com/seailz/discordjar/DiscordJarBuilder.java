@@ -1,8 +1,11 @@
 package com.seailz.discordjar;
 
 import com.seailz.discordjar.cache.CacheType;
+import com.seailz.discordjar.cache.snapshot.CacheSnapshot;
 import com.seailz.discordjar.gateway.GatewayTransportCompressionType;
+import com.seailz.discordjar.gateway.session.SessionStateStore;
 import com.seailz.discordjar.model.api.APIRelease;
+import com.seailz.discordjar.model.interaction.callback.AutoDeferScheduler;
 import com.seailz.discordjar.model.application.Intent;
 import com.seailz.discordjar.utils.HTTPOnlyInfo;
 import com.seailz.discordjar.utils.URLS;
@@ -12,9 +15,12 @@ import com.seailz.discordjar.model.api.version.APIVersion;
 import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * Factory class for creating a {@link DiscordJar} instance.
@@ -45,6 +51,13 @@ public class DiscordJarBuilder {
     @Deprecated(since = "1.0.0")
     private int nsfgmmPercentOfTotalMemory = 25;
     private GatewayTransportCompressionType gwCompressionType = GatewayTransportCompressionType.ZLIB_STREAM;
+    private SessionStateStore sessionStateStore = null;
+    private CacheSnapshot cacheSnapshot = null;
+    private boolean lazyGuildHydration = false;
+    private Duration autoDeferBudget = null;
+    private boolean autoDeferEphemeral = false;
+    private Executor commandExecutor = null;
+    private Path commandHashFile = null;
 
     public DiscordJarBuilder(String token) {
         this.token = token;
@@ -187,6 +200,80 @@ public class DiscordJarBuilder {
         return this;
     }
 
+    /**
+     * Enables persisting the gateway session to disk, so that after a restart the bot resumes its previous session
+     * <br>instead of identifying again and receiving every guild from scratch.
+     * <br>Use a different store (file) for each shard.
+     *
+     * @param sessionStateStore The store to use, or null to disable session persistence.
+     */
+    public DiscordJarBuilder setSessionStateStore(SessionStateStore sessionStateStore) {
+        this.sessionStateStore = sessionStateStore;
+        return this;
+    }
+
+    /**
+     * Enables persisting guilds, channels & members to a snapshot file, so caches are warm right after a restart.
+     * <br>Works best together with {@link #setSessionStateStore(SessionStateStore)}, since a resumed session doesn't receive GUILD_CREATE again.
+     * <br>The snapshot is compacted and closed when the JVM shuts down. Use a different snapshot (file) for each shard.
+     *
+     * @param cacheSnapshot The snapshot to use, or null to disable cache persistence.
+     */
+    public DiscordJarBuilder setCacheSnapshot(CacheSnapshot cacheSnapshot) {
+        this.cacheSnapshot = cacheSnapshot;
+        return this;
+    }
+
+    /**
+     * Enables lazy guild hydration. Instead of decoding every guild, channel & member as soon as GUILD_CREATE is received,
+     * <br>they are kept in a compact raw form and only decoded the first time they are requested from the cache.
+     * <br>This makes startup (and the burst of GUILD_CREATE events after READY) a lot cheaper for bots in many or large guilds,
+     * <br>and keeps memory usage down for guilds that are never touched. Voice states are still decoded straight away.
+     *
+     * @param lazyGuildHydration Whether lazy guild hydration should be enabled. Defaults to false.
+     */
+    public DiscordJarBuilder setLazyGuildHydration(boolean lazyGuildHydration) {
+        this.lazyGuildHydration = lazyGuildHydration;
+        return this;
+    }
+
+    /**
+     * Automatically defers interactions that haven't been responded to within the given budget, so slow handlers don't
+     * <br>miss Discord's 3 second window. Replies sent after that are turned into edits of the deferred response.
+     * <br>See {@link AutoDeferScheduler} for details.
+     *
+     * @param budget How long handlers may take before their interaction is deferred, for example {@link AutoDeferScheduler#DEFAULT_BUDGET}. Null disables auto-deferring.
+     * @param ephemeral Whether deferred command responses should be ephemeral
+     */
+    public DiscordJarBuilder setAutoDefer(Duration budget, boolean ephemeral) {
+        this.autoDeferBudget = budget;
+        this.autoDeferEphemeral = ephemeral;
+        return this;
+    }
+
+    /**
+     * Sets the executor command listeners are run on. Defaults to a cached thread pool.
+     * <br>A bounded executor can be used to limit how many commands are handled at once.
+     *
+     * @param commandExecutor The executor to run command listeners on
+     */
+    public DiscordJarBuilder setCommandExecutor(Executor commandExecutor) {
+        this.commandExecutor = commandExecutor;
+        return this;
+    }
+
+    /**
+     * Sets a file to store hashes of the commands registered with Discord in.
+     * <br>If the commands haven't changed since they were last registered, registering them won't make any requests.
+     * <br>See {@link com.seailz.discordjar.command.CommandSync CommandSync} for details.
+     *
+     * @param commandHashFile The file to store the hashes in
+     */
+    public DiscordJarBuilder setCommandHashFile(Path commandHashFile) {
+        this.commandHashFile = commandHashFile;
+        return this;
+    }
+
     public int getRecommendedShardCount() {
         DiscordRequest req = new DiscordRequest(
                 new JSONObject(),
@@ -210,7 +297,11 @@ public class DiscordJarBuilder {
         if (cacheTypes == null) defaultCacheTypes();
         if (httpOnly && httpOnlyInfo == null) throw new IllegalStateException("HTTPOnly is enabled but no HTTPOnlyInfo was provided.");
         try {
-            return new DiscordJar(token, intents, apiVersion, httpOnly, httpOnlyInfo, debug, shardId, numShards, apiRelease, cacheTypes, gwCompressionType);
+            DiscordJar discordJar = new DiscordJar(token, intents, apiVersion, httpOnly, httpOnlyInfo, debug, shardId, numShards, apiRelease, cacheTypes, gwCompressionType, sessionStateStore, cacheSnapshot, lazyGuildHydration);
+            discordJar.getAutoDeferScheduler().setBudget(autoDeferBudget).setEphemeral(autoDeferEphemeral);
+            if (commandExecutor != null) discordJar.getCommandDispatcher().setExecutor(commandExecutor);
+            discordJar.getCommandSync().setHashFile(commandHashFile);
+            return discordJar;
         } catch (ExecutionException | InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -6,6 +6,7 @@ import com.seailz.discordjar.utils.Checker;
 import com.seailz.discordjar.utils.URLS;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.utils.rest.DiscordResponse;
+import com.seailz.discordjar.utils.rest.Paginator;
 import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RequestMethod;
 
@@ -49,8 +50,8 @@ public class GetCurrentUserGuildsAction {
     }
 
     public GetCurrentUserGuildsAction limit(int limit) {
-        Checker.check(limit < 200, "Limit must be less than 200");
-        Checker.check(limit > 0, "Limit must be greater than 0");
+        Checker.check(limit > 200, "Limit must be less than or equal to 200");
+        Checker.check(limit <= 0, "Limit must be greater than 0");
         this.limit = limit;
         return this;
     }
@@ -84,6 +85,26 @@ public class GetCurrentUserGuildsAction {
      * @return {@link List A list of}  <b>partial</b> {@link Guild guilds}
      */
     public List<Guild> run() {
+        return request(before, after, limit);
+    }
+
+    /**
+     * Iterates over every guild the bot is in, starting after the <b>after</b> parameter if it's set.
+     * <br>Guilds are requested {@link #limit()} at a time as they are consumed, and the next page is requested in advance.
+     * <br>All guilds retrieved from this method will be cached. The <b>before</b> parameter is ignored.
+     *
+     * @return A {@link Paginator} of <b>partial</b> {@link Guild guilds}
+     */
+    public Paginator<Guild> paginate() {
+        int pageSize = limit == 0 ? 200 : limit;
+        return new Paginator<>(
+                cursor -> request(null, cursor == null ? after : cursor, pageSize),
+                Guild::id,
+                pageSize
+        );
+    }
+
+    private List<Guild> request(String before, String after, int limit) {
         String url = URLS.GET.GUILDS.GET_CURRENT_USER_GUILDS;
         if (before != null || after != null || limit != 0) {
             url += "?";
@@ -1,11 +1,12 @@
 package com.seailz.discordjar.action.guild.members;
 
 import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.gateway.chunking.MemberChunkListener;
+import com.seailz.discordjar.gateway.chunking.MemberChunkScheduler;
 import com.seailz.discordjar.model.guild.Member;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 
 public class RequestGuildMembersAction {
@@ -31,9 +32,14 @@ public class RequestGuildMembersAction {
      */
     private List<String> userIds = new ArrayList<>();
     /**
-     *  A random nonce is generated by discord.jar to identify the request.
+     *  A unique nonce is generated by discord.jar to identify the request.
+     *  <br>If the request times out and is sent again, a new nonce is used.
      */
-    private final String nonce = String.valueOf(new Random().nextInt(10000000));
+    private final String nonce = MemberChunkScheduler.nextNonce();
+    /**
+     * Notified of every received chunk.
+     */
+    private MemberChunkListener listener;
     private final DiscordJar discordJar;
 
     public RequestGuildMembersAction(String guildId, DiscordJar discordJar) {
@@ -61,6 +67,11 @@ public class RequestGuildMembersAction {
         return this;
     }
 
+    public RequestGuildMembersAction setListener(MemberChunkListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
     public String getGuildId() {
         return guildId;
     }
@@ -85,6 +96,10 @@ public class RequestGuildMembersAction {
         return nonce;
     }
 
+    public MemberChunkListener getListener() {
+        return listener;
+    }
+
     public CompletableFuture<List<Member>> run() {
         CompletableFuture<List<Member>> future = new CompletableFuture<>();
         discordJar.getGateway().requestGuildMembers(this, future);
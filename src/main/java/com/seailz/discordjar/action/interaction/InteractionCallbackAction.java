@@ -1,6 +1,7 @@
 package com.seailz.discordjar.action.interaction;
 
 import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.model.interaction.callback.AutoDeferScheduler;
 import com.seailz.discordjar.model.interaction.callback.InteractionCallbackType;
 import com.seailz.discordjar.model.interaction.callback.InteractionHandler;
 import com.seailz.discordjar.model.interaction.reply.InteractionReply;
@@ -47,6 +48,9 @@ public class InteractionCallbackAction {
     }
 
     public Response<InteractionHandler> run() {
+        AutoDeferScheduler.AutoDeferred deferred = discordJar.getAutoDeferScheduler().acknowledge(id);
+        if (deferred != null) return runAfterAutoDefer(deferred);
+
         JSONObject json = new JSONObject();
         json.put("type", this.type.getCode());
         json.put("data", this.reply.compile());
@@ -72,5 +76,39 @@ public class InteractionCallbackAction {
         return response;
     }
 
+    /**
+     * Sends this response after the interaction has already been deferred by the {@link com.seailz.discordjar.model.interaction.callback.AutoDeferScheduler}.
+     * <br>Messages become an edit of the deferred response, or a followup if a component was deferred and a new message was requested.
+     * <br>The response is sent once the deferred response has been, without blocking the caller until then.
+     */
+    private Response<InteractionHandler> runAfterAutoDefer(AutoDeferScheduler.AutoDeferred deferred) {
+        Response<InteractionHandler> response = new Response<>();
+        boolean newMessage = type == InteractionCallbackType.CHANNEL_MESSAGE_WITH_SOURCE;
+        if (!newMessage && type != InteractionCallbackType.UPDATE_MESSAGE) {
+            response.completeError(new Response.Error(40060, "Interaction has already been acknowledged, it was deferred automatically", new JSONObject()));
+            return response;
+        }
+
+        boolean followup = newMessage && deferred.type() == InteractionCallbackType.DEFERRED_UPDATE_MESSAGE;
+        String applicationId = discordJar.getSelfInfo().id();
+        DiscordRequest request = followup
+                ? new DiscordRequest(reply.compile(), new HashMap<>(),
+                        URLS.POST.INTERACTIONS.FOLLOWUP.replaceAll("application.id", applicationId).replaceAll("interaction.token", token),
+                        discordJar, URLS.POST.INTERACTIONS.FOLLOWUP, RequestMethod.POST)
+                : new DiscordRequest(reply.compile(), new HashMap<>(),
+                        URLS.PATCH.INTERACTIONS.MESSAGES.MODIFY_ORIGINAL_INTERACTION_RESPONSE.replace("{application.id}", applicationId).replace("{interaction.token}", token),
+                        discordJar, URLS.PATCH.INTERACTIONS.MESSAGES.MODIFY_ORIGINAL_INTERACTION_RESPONSE, RequestMethod.PATCH);
+        // Runs right away if the deferred response was already sent, otherwise on the thread that sent it
+        deferred.sent().thenRun(() -> {
+            try {
+                if (getReply().useFiles()) request.invokeWithFiles(getReply().getFiles().toArray(new File[0]));
+                else request.invoke();
+                response.complete(InteractionHandler.from(token, id, discordJar));
+            } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
+                response.completeError(new Response.Error(e.getCode(), e.getMessage(), e.getBody()));
+            }
+        });
+        return response;
+    }
 
 }
@@ -12,6 +12,7 @@ import com.seailz.discordjar.utils.URLS;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.utils.rest.DiscordResponse;
 import com.seailz.discordjar.utils.rest.Response;
+import com.seailz.discordjar.utils.rest.StreamingMultipartBody;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONArray;
@@ -19,6 +20,8 @@ import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RequestMethod;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -43,7 +46,7 @@ public class MessageCreateAction {
     // TODO: files
     // TODO: json payload
     private List<Attachment> attachments;
-    private List<File> fileUploads;
+    private StreamingMultipartBody.Builder fileUploads;
     private boolean supressEmbeds;
     private final String channelId;
     private final DiscordJar discordJar;
@@ -246,22 +249,39 @@ public class MessageCreateAction {
 
     public MessageCreateAction addFile(File file) {
         if (this.fileUploads == null)
-            this.fileUploads = new ArrayList<>();
-        this.fileUploads.add(file);
+            this.fileUploads = StreamingMultipartBody.builder();
+        this.fileUploads.file(file);
         return this;
     }
 
-    public MessageCreateAction addFiles(File... files) {
+    /**
+     * Attaches a file from memory, without writing it to disk first.
+     * <br>The contents of the buffer between its position and limit are sent.
+     */
+    public MessageCreateAction addFile(String fileName, ByteBuffer data) {
         if (this.fileUploads == null)
-            this.fileUploads = new ArrayList<>();
-        this.fileUploads.addAll(List.of(files));
+            this.fileUploads = StreamingMultipartBody.builder();
+        this.fileUploads.buffer(fileName, data);
         return this;
     }
 
-    public MessageCreateAction addFiles(List<File> files) {
+    /**
+     * Attaches a file from a stream, which is read while the message is sent and closed afterwards.
+     * <br>Since the stream can only be read once, the message isn't retried if it's rate limited.
+     */
+    public MessageCreateAction addFile(String fileName, InputStream data) {
         if (this.fileUploads == null)
-            this.fileUploads = new ArrayList<>();
-        this.fileUploads.addAll(files);
+            this.fileUploads = StreamingMultipartBody.builder();
+        this.fileUploads.stream(fileName, data, -1);
+        return this;
+    }
+
+    public MessageCreateAction addFiles(File... files) {
+        return addFiles(List.of(files));
+    }
+
+    public MessageCreateAction addFiles(List<File> files) {
+        files.forEach(this::addFile);
         return this;
     }
 
@@ -356,16 +376,21 @@ public class MessageCreateAction {
                     RequestMethod.POST
             );
 
-            DiscordResponse response = null;
-            if (fileUploads != null && !fileUploads.isEmpty())
-                response = request.invokeWithFiles(new ArrayList<>(fileUploads).toArray(new File[0]));
-            else {
-                try {
+            DiscordResponse response;
+            try {
+                if (fileUploads != null && !fileUploads.isEmpty())
+                    response = request.invokeMultipart(fileUploads.build(payload));
+                else
                     response = request.invoke();
-                } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
-                    future.completeError(new Response.Error(e));
-                    return;
-                }
+            } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
+                future.completeError(new Response.Error(e));
+                return;
+            }
+
+            if (response == null || (response.code() != 200 && response.code() != 201) || response.body() == null) {
+                int code = response == null ? 204 : response.code();
+                future.completeError(new Response.Error(code, "Message wasn't created (HTTP " + code + ")", response == null || response.body() == null ? new JSONObject() : response.body()));
+                return;
             }
 
             future.complete(Message.decompile(response.body(), discordJar));
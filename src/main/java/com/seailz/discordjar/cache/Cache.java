@@ -11,14 +11,15 @@ import org.springframework.web.bind.annotation.RequestMethod;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
  * Cache object used to store objects in memory
+ * <br>Objects are indexed by their id, so looking one up doesn't scan the cache.
+ * <br>The index is the only store, so adding or removing an object takes the same time no matter how large the cache is.
  *
  * @param <T> The type of object to store
  * @author Seailz
@@ -27,21 +28,44 @@ import java.util.logging.Logger;
  */
 public class Cache<T> {
 
-    private List<T> cache = new ArrayList<>();
+    private final Map<String, T> index = new ConcurrentHashMap<>();
+    private final Method idMethod;
     private final DiscordJar discordJar;
     private final Class<T> clazz;
     private final DiscordRequest discordRequest;
     private final boolean isMember;
     private final Guild guild;
+    private final String guildId;
     private final CacheType type;
+    /**
+     * Coalesces concurrent requests for the same uncached id, and remembers ids that weren't found
+     */
+    private final SingleFlight<T> lookups = new SingleFlight<>();
+    private CacheFallback fallback;
 
     public Cache(DiscordJar discordJar, Class<T> clazz, DiscordRequest request, Guild guild, CacheType type) {
+        this(discordJar, clazz, request, guild == null ? null : guild.id(), guild, type);
+    }
+
+    /**
+     * Creates a cache for objects that belong to a guild, such as members.
+     * <br>The guild itself may be null if it hasn't been decoded yet - only its id is needed to decode objects.
+     */
+    public Cache(DiscordJar discordJar, Class<T> clazz, DiscordRequest request, String guildId, Guild guild, CacheType type) {
         this.discordJar = discordJar;
         this.clazz = clazz;
         this.discordRequest = request;
         this.guild = guild;
+        this.guildId = guildId;
         isMember = clazz == Member.class;
         this.type = type;
+        Method idMethod = null;
+        if (!isMember) {
+            try {
+                idMethod = clazz.getMethod("id");
+            } catch (NoSuchMethodException ignored) {}
+        }
+        this.idMethod = idMethod;
     }
 
     public Cache(DiscordJar discordJar, Class<T> clazz, DiscordRequest request, CacheType type) {
@@ -54,51 +78,14 @@ public class Cache<T> {
      * @param t The object to add
      */
     public void cache(@NotNull T t)  {
-        if (t == null) return;
-        try {
-            if (!discordJar.getCacheTypes().contains(type) && !discordJar.getCacheTypes().contains(CacheType.ALL)) return;
-            String id;
-            try {
-                if (isMember) {
-                    id = ((Member) t).user().id();
-                } else id = (String) t.getClass().getMethod("id").invoke(t);
-            } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-                throw new RuntimeException(e);
-            }
-
-            for (T cacheMember : cache) {
-                String cacheId;
-                try {
-                    if (isMember) {
-                        cacheId = ((Member) cacheMember).user().id();
-                    } else cacheId = (String) t.getClass().getMethod("id").invoke(t);
-                } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-                    throw new RuntimeException(e);
-                }
-                if (cacheId.equals(id)) {
-                    cache.remove(cacheMember);
-                }
-            }
-        } catch (Exception e) {}
-        synchronized (cache) {
-            try {
-                if (cache.size() == -1) {
-                    if (discordJar.isDebug()) Logger.getLogger("DiscordJar").warning("[discord.jar] Failed to add obj to cache - cache size is -1");
-                    cache = new ArrayList<>();
-                    return;
-                }; // Also this seems impossible, recent exceptions prove otherwise (possibly related to this? https://bugs.openjdk.org/browse/JDK-7007540), so I'm leaving it in. Please ignore your IDE.
-                cache.add(0, t);
-            } catch (Exception e) {
-                // We can ignore this - since the cache isn't critical.
-                // We'll print the stacktrace for debugging purposes.
-                if (discordJar.isDebug()) Logger.getLogger("DiscordJar").warning("[discord.jar] Failed to add obj to cache - " + e.getMessage());
-                if (discordJar.isDebug()) e.printStackTrace();
-
-                // To avoid any further issues, we'll set the cache to a new ArrayList.
-                cache = new ArrayList<>();
-                return;
-            }
-        }
+        if (t == null || !isEnabled()) return;
+        String id = idOf(t);
+        if (id == null) return;
+
+        // A newer version than the one held by the fallback is being cached
+        if (fallback != null) fallback.discard(id);
+        lookups.forget(id);
+        index.put(id, t);
     }
 
     /**
@@ -107,20 +94,39 @@ public class Cache<T> {
      * @param t The item to remove
      */
     public void remove(T t) {
-        if (!discordJar.getCacheTypes().contains(type) && !discordJar.getCacheTypes().contains(CacheType.ALL)) return;
-        cache.remove(t);
+        if (t == null || !isEnabled()) return;
+        String id = idOf(t);
+        if (id != null) index.remove(id, t);
     }
 
     public void removeById(String id) {
-        if (!discordJar.getCacheTypes().contains(type) && !discordJar.getCacheTypes().contains(CacheType.ALL)) return;
-        remove(getFromCacheByIdOrNull(id));
+        if (!isEnabled()) return;
+        if (fallback != null) fallback.discard(id);
+        index.remove(id);
     }
 
     /**
-     * Returns the entire cache
+     * Sets a local source of raw objects that is consulted before making a request to Discord.
+     * <br>Objects are only decoded once they are requested, or when the entire cache is requested.
+     *
+     * @param fallback The fallback, or null to remove it
+     */
+    public void setFallback(CacheFallback fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns a snapshot of the entire cache, which can't be modified
      */
     public List<T> getCache() {
-        return cache;
+        CacheFallback fallback = this.fallback;
+        if (fallback != null && !fallback.isEmpty()) {
+            for (JSONObject raw : fallback.takeAll()) {
+                T t = decode(raw);
+                if (t != null) cache(t);
+            }
+        }
+        return List.copyOf(index.values());
     }
 
     /**
@@ -130,7 +136,6 @@ public class Cache<T> {
      * @return The item, or null if it is not in the cache
      */
     public T returnFromCache(String id) {
-        if (!discordJar.getCacheTypes().contains(type) && !discordJar.getCacheTypes().contains(CacheType.ALL)) return null;
         return getFromCacheByIdOrNull(id);
     }
 
@@ -138,113 +143,95 @@ public class Cache<T> {
      * Gets an item from the cache.
      * <br>If the provided ID matches no items in the cache, a request will be made to Discord to get the item.
      * <br>If the item is not in the cache, and the request to Discord fails, null will be returned.
+     * <br>Concurrent requests for the same id share one request, and an id that wasn't found is remembered for a short time.
      *
      * @param id The id of the item to get
      * @return The item
      */
     public T getById(String id) throws DiscordRequest.UnhandledDiscordAPIErrorException {
-        AtomicReference<Object> returnObject = new AtomicReference<>();
-        if (discordJar.getCacheTypes().contains(type) || discordJar.getCacheTypes().contains(CacheType.ALL)) {
-            try {
-                ArrayList<T> cacheCopy = new ArrayList<>(cache);
-                cacheCopy.forEach(t -> {
-                    String itemId;
+        T t = getFromCacheByIdOrNull(id);
+        if (t != null) return t;
+
+        // request from discord, unless another thread already is
+        return lookups.get(id, () -> {
+            DiscordResponse response = new DiscordRequest(
+                    discordRequest.body(), discordRequest.headers(), discordRequest.url().replaceAll("%s", id), discordJar, discordRequest.url(), RequestMethod.GET
+            ).invoke();
+            if (response == null || response.code() == 404 || response.body() == null) return null;
+            T decoded = decode(response.body());
+            if (decoded == null) return null;
+            cache(decoded);
+            return decoded;
+        });
+    }
+
+    private T getFromCacheByIdOrNull(String id) {
+        if (!isEnabled() || id == null) return null;
+        T t = index.get(id);
+        return t == null ? hydrate(id) : t;
+    }
+
+    private boolean isEnabled() {
+        return discordJar.getCacheTypes().contains(type) || discordJar.getCacheTypes().contains(CacheType.ALL);
+    }
 
-                    if (isMember) {
-                        itemId = ((Member) t).user().id();
-                        if (Objects.equals(itemId, id))
-                            returnObject.set(t);
-                    } else {
-                        for (Method method : clazz.getMethods()) {
-                            if (method.getName().equals("id")) {
-                                try {
-                                    itemId = (String) method.invoke(t);
-                                    if (Objects.equals(itemId, id)) {
-                                        returnObject.set(t);
-                                    }
-                                } catch (IllegalAccessException | InvocationTargetException e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                        }
-                    }
-                });
-            } catch (Exception e ) {}
+    private String idOf(T t) {
+        if (isMember) return ((Member) t).user() == null ? null : ((Member) t).user().id();
+        if (idMethod == null) return null;
+        try {
+            return (String) idMethod.invoke(t);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
         }
+    }
 
+    /**
+     * Takes the item with the given id from the fallback, if there is one, decodes it and adds it to the cache.
+     * @return The item, or null if the fallback doesn't hold it
+     */
+    private T hydrate(String id) {
+        CacheFallback fallback = this.fallback;
+        if (fallback == null || id == null) return null;
+        JSONObject raw = fallback.take(id);
+        if (raw == null) return null;
+        T t = decode(raw);
+        if (t != null) cache(t);
+        return t;
+    }
 
-        if (returnObject.get() == null) {
-            // request from discord
-            DiscordResponse response;
-                response = new DiscordRequest(
-                        discordRequest.body(), discordRequest.headers(), discordRequest.url().replaceAll("%s", id), discordJar, discordRequest.url(), RequestMethod.GET
-                ).invoke();
-            Method decompile;
+    private T decode(JSONObject obj) {
+        Method decompile;
+        try {
+            decompile = clazz.getMethod("decompile", JSONObject.class, DiscordJar.class);
+        } catch (NoSuchMethodException e) {
             try {
-                decompile = clazz.getMethod("decompile", JSONObject.class, DiscordJar.class);
-            } catch (NoSuchMethodException e) {
+                decompile = clazz.getMethod("decompile", JSONObject.class);
+            } catch (NoSuchMethodException ex) {
                 try {
-                    decompile = clazz.getMethod("decompile", JSONObject.class);
-                } catch (NoSuchMethodException ex) {
-                    try {
-                        decompile = clazz.getMethod("decompile", JSONObject.class, DiscordJar.class, String.class, Guild.class);
-                    } catch (NoSuchMethodException exx) {
-                        Logger.getLogger("DiscordJar").severe("Was unable to return object from cache, please report this to discord.jar's github!");
-                        throw new RuntimeException(exx);
-                    }
+                    decompile = clazz.getMethod("decompile", JSONObject.class, DiscordJar.class, String.class, Guild.class);
+                } catch (NoSuchMethodException exx) {
+                    Logger.getLogger("DiscordJar").severe("Was unable to return object from cache, please report this to discord.jar's github!");
+                    throw new RuntimeException(exx);
                 }
             }
+        }
 
+        try {
+            return (T) decompile.invoke(null, obj, discordJar);
+        } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException e) {
             try {
-                if (response == null) return null;
-                returnObject.set(decompile.invoke(null, response.body(), discordJar));
-            } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException e) {
+                return (T) decompile.invoke(null, obj);
+            } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException ex) {
                 try {
-                    returnObject.set(decompile.invoke(null, response.body()));
-                } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException ex) {
-                    try {
-                        if (guild != null) {
-                            returnObject.set(decompile.invoke(null, response.body(), discordJar, guild.id(), guild));
-                        } else throw new IllegalArgumentException(ex);
-                    } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException e1) {
-                        Logger.getLogger("DiscordJar").severe("Was unable to return object from cache, please report this to discord.jar's github!");
-                        return null;
-                    }
+                    if (guildId != null) {
+                        return (T) decompile.invoke(null, obj, discordJar, guildId, guild);
+                    } else throw new IllegalArgumentException(ex);
+                } catch (IllegalAccessException | InvocationTargetException | IllegalArgumentException e1) {
+                    Logger.getLogger("DiscordJar").severe("Was unable to return object from cache, please report this to discord.jar's github!");
+                    return null;
                 }
             }
         }
-
-        if (returnObject.get() != null) cache((T) returnObject.get());
-        return returnObject.get() == null ? null : (T) returnObject.get();
-    }
-
-    private T getFromCacheByIdOrNull(String id) {
-        if (!discordJar.getCacheTypes().contains(type) && !discordJar.getCacheTypes().contains(CacheType.ALL)) return null;
-        AtomicReference<Object> returnObject = new AtomicReference<>();
-        ArrayList<T> cacheCopy = new ArrayList<>(cache);
-        cacheCopy.forEach(t -> {
-            String itemId;
-
-            if (isMember) {
-                itemId = ((Member) t).user().id();
-                if (Objects.equals(itemId, id))
-                    returnObject.set(t);
-            } else {
-                for (Method method : clazz.getMethods()) {
-                    if (method.getName().equals("id")) {
-                        try {
-                            itemId = (String) method.invoke(t);
-                            if (Objects.equals(itemId, id)) {
-                                returnObject.set(t);
-                            }
-                        } catch (IllegalAccessException | InvocationTargetException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }
-            }
-        });
-        return returnObject.get() == null ? null : (T) returnObject.get();
     }
 
     public JSONObject getFresh(String id) {
@@ -260,6 +247,7 @@ public class Cache<T> {
     }
 
     public void clear() {
-        cache.clear();
+        index.clear();
+        lookups.clear();
     }
 }
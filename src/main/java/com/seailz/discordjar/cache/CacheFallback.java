@@ -0,0 +1,43 @@
+package com.seailz.discordjar.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * A local source of raw objects that a {@link Cache} consults before making a request to Discord.
+ * <br>Objects are handed over exactly once - after an object has been taken, the cache owns it, and the fallback
+ * forgets about it.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.cache.snapshot.CacheSnapshot
+ */
+public interface CacheFallback {
+
+    /**
+     * Takes the raw object with the given id, or returns null if this fallback doesn't hold it.
+     */
+    @Nullable
+    JSONObject take(@NotNull String id);
+
+    /**
+     * Forgets the object with the given id, for example because a newer version of it has been cached.
+     */
+    default void discard(@NotNull String id) {
+        take(id);
+    }
+
+    /**
+     * Takes every raw object this fallback still holds.
+     */
+    @NotNull
+    List<JSONObject> takeAll();
+
+    /**
+     * Returns true if this fallback doesn't hold any more objects.
+     */
+    boolean isEmpty();
+
+}
@@ -0,0 +1,80 @@
+package com.seailz.discordjar.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory {@link CacheFallback} holding objects that have been received but not decoded yet.
+ * <br>Objects are kept as their serialized UTF-8 bytes, which is a lot smaller than a {@link JSONObject} tree, and are only
+ * <br>parsed again when a cache asks for them.
+ *
+ * <p>Used for lazy guild hydration, where the channels & members in GUILD_CREATE are stored here instead of being decoded
+ * <br>straight away. Another fallback (such as a {@link com.seailz.discordjar.cache.snapshot.CacheSnapshot}) can be chained
+ * <br>behind it, and is consulted for anything this fallback doesn't hold.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.DiscordJarBuilder#setLazyGuildHydration(boolean)
+ */
+public class RawCacheFallback implements CacheFallback {
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final CacheFallback next;
+
+    /**
+     * @param next Consulted for objects this fallback doesn't hold, or null.
+     */
+    public RawCacheFallback(@Nullable CacheFallback next) {
+        this.next = next;
+    }
+
+    /**
+     * Stores an object, replacing any object with the same id.
+     */
+    public void put(@NotNull String id, @NotNull JSONObject object) {
+        objects.put(id, object.toString().getBytes(StandardCharsets.UTF_8));
+        if (next != null) next.discard(id);
+    }
+
+    @Override
+    public @Nullable JSONObject take(@NotNull String id) {
+        byte[] bytes = objects.remove(id);
+        if (bytes != null) return new JSONObject(new String(bytes, StandardCharsets.UTF_8));
+        return next == null ? null : next.take(id);
+    }
+
+    @Override
+    public void discard(@NotNull String id) {
+        objects.remove(id);
+        if (next != null) next.discard(id);
+    }
+
+    @Override
+    public @NotNull List<JSONObject> takeAll() {
+        List<JSONObject> taken = new ArrayList<>(objects.size());
+        for (String id : objects.keySet()) {
+            byte[] bytes = objects.remove(id);
+            if (bytes != null) taken.add(new JSONObject(new String(bytes, StandardCharsets.UTF_8)));
+        }
+        if (next != null) taken.addAll(next.takeAll());
+        return taken;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return objects.isEmpty() && (next == null || next.isEmpty());
+    }
+
+    /**
+     * Returns the amount of objects held by this fallback, not counting any chained fallback.
+     */
+    public int size() {
+        return objects.size();
+    }
+}
@@ -0,0 +1,112 @@
+package com.seailz.discordjar.cache;
+
+import com.seailz.discordjar.model.role.Role;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The roles of a single guild, indexed by their id.
+ * <br>The index is filled from the roles sent with a guild, and kept up to date by the {@code GUILD_ROLE_CREATE},
+ * <br>{@code GUILD_ROLE_UPDATE} and {@code GUILD_ROLE_DELETE} events, so looking a role up never makes a request.
+ *
+ * <p>Roles change rarely, so every change copies the index. This way reads never lock, and a role list returned by
+ * <br>{@link #roles()} is never modified afterwards.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.DiscordJar#getRoleIndex(String)
+ */
+public class RoleIndex {
+
+    private volatile Map<String, Role> roles = Map.of();
+    private volatile List<Role> list = List.of();
+    private volatile boolean populated = false;
+    /**
+     * Roles of a guild that was deferred by lazy guild hydration, decoded once they are first needed.
+     */
+    private volatile JSONArray pending;
+
+    /**
+     * Whether the index holds the guild's roles. If it doesn't, roles have to be requested.
+     */
+    public boolean isPopulated() {
+        return populated || pending != null;
+    }
+
+    /**
+     * Replaces every role in the index.
+     */
+    public synchronized void set(@NotNull Collection<Role> roles) {
+        Map<String, Role> index = new LinkedHashMap<>(roles.size() * 2);
+        for (Role role : roles) index.put(role.id(), role);
+        publish(index);
+        pending = null;
+    }
+
+    /**
+     * Replaces every role in the index with raw roles, which are decoded the first time the index is read.
+     */
+    public synchronized void setRaw(@NotNull JSONArray roles) {
+        pending = roles;
+    }
+
+    /**
+     * Adds or replaces a single role.
+     * <br>Does nothing if the index isn't populated, since an index holding only this role would look complete.
+     */
+    public synchronized void put(@NotNull Role role) {
+        decodePending();
+        if (!populated) return;
+        Map<String, Role> index = new LinkedHashMap<>(roles);
+        index.put(role.id(), role);
+        publish(index);
+    }
+
+    public synchronized void remove(@NotNull String id) {
+        decodePending();
+        if (!roles.containsKey(id)) return;
+        Map<String, Role> index = new LinkedHashMap<>(roles);
+        index.remove(id);
+        publish(index);
+    }
+
+    @Nullable
+    public Role get(@NotNull String id) {
+        if (pending != null) decodePending();
+        return roles.get(id);
+    }
+
+    /**
+     * Returns every role in the index. The list can't be modified.
+     */
+    @NotNull
+    public List<Role> roles() {
+        if (pending != null) decodePending();
+        return list;
+    }
+
+    private synchronized void decodePending() {
+        JSONArray pending = this.pending;
+        if (pending == null) return;
+        Map<String, Role> index = new LinkedHashMap<>(pending.length() * 2);
+        for (int i = 0; i < pending.length(); i++) {
+            Role role = Role.decompile(pending.getJSONObject(i));
+            index.put(role.id(), role);
+        }
+        publish(index);
+        this.pending = null;
+    }
+
+    private void publish(Map<String, Role> index) {
+        this.list = Collections.unmodifiableList(new ArrayList<>(index.values()));
+        this.roles = index;
+        this.populated = true;
+    }
+}
@@ -0,0 +1,119 @@
+package com.seailz.discordjar.cache;
+
+import com.seailz.discordjar.utils.rest.DiscordRequest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces concurrent lookups of the same key into one request.
+ * <br>While a key is being requested, any other thread asking for it waits for that request instead of sending its own, so a burst
+ * <br>of events referencing the same uncached user only makes a single request to Discord.
+ *
+ * <p>Lookups that find nothing, such as a 404, are remembered for a short time, so repeatedly asking for something that
+ * <br>doesn't exist doesn't reach Discord every time either. Lookups that fail with an exception aren't remembered.
+ * <br>Expired misses are pruned whenever the amount of remembered misses has doubled, so keys that are never asked for again don't pile up.
+ *
+ * @author Seailz
+ * @param  <T> The type of the objects looked up
+ * @see    Cache#getById(String)
+ */
+public class SingleFlight<T> {
+
+    /**
+     * How long a lookup that found nothing is remembered for, in milliseconds
+     */
+    public static final long DEFAULT_MISS_TTL = 10_000;
+    private static final int MIN_PRUNE_SIZE = 1024;
+
+    private final Map<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Long> misses = new ConcurrentHashMap<>();
+    private final long missTtl;
+    private volatile int pruneAt = MIN_PRUNE_SIZE;
+
+    public SingleFlight(long missTtl) {
+        this.missTtl = missTtl;
+    }
+
+    public SingleFlight() {
+        this(DEFAULT_MISS_TTL);
+    }
+
+    /**
+     * Returns the result of the lookup already in flight for a key, or runs the lookup on the calling thread if there isn't one.
+     *
+     * @param key The key, such as the id of the object
+     * @param lookup Returns the object, or null if it doesn't exist
+     * @return The object, or null if it doesn't exist or recently didn't exist
+     */
+    @Nullable
+    public T get(@NotNull String key, @NotNull Lookup<T> lookup) throws DiscordRequest.UnhandledDiscordAPIErrorException {
+        Long missExpires = misses.get(key);
+        if (missExpires != null) {
+            if (System.currentTimeMillis() < missExpires) return null;
+            misses.remove(key, missExpires);
+        }
+
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) return await(existing);
+
+        try {
+            T t = lookup.get();
+            if (t == null) remember(key);
+            created.complete(t);
+            return t;
+        } catch (Throwable e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * Forgets that a key wasn't found, for example because the object has just been created.
+     */
+    public void forget(@NotNull String key) {
+        misses.remove(key);
+    }
+
+    /**
+     * Forgets every key that wasn't found.
+     */
+    public void clear() {
+        misses.clear();
+    }
+
+    private void remember(String key) {
+        long now = System.currentTimeMillis();
+        misses.put(key, now + missTtl);
+        if (misses.size() < pruneAt) return;
+        synchronized (misses) {
+            if (misses.size() < pruneAt) return;
+            misses.values().removeIf(expires -> now >= expires);
+            pruneAt = Math.max(MIN_PRUNE_SIZE, misses.size() * 2);
+        }
+    }
+
+    private T await(CompletableFuture<T> future) throws DiscordRequest.UnhandledDiscordAPIErrorException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DiscordRequest.UnhandledDiscordAPIErrorException unhandled) throw unhandled;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Lookup<T> {
+        T get() throws DiscordRequest.UnhandledDiscordAPIErrorException;
+    }
+}
@@ -0,0 +1,682 @@
+package com.seailz.discordjar.cache.snapshot;
+
+import com.seailz.discordjar.cache.CacheFallback;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Persists guild, channel, member and role state to a compact binary file, so that
+ * <br>a restarted bot doesn't have to rebuild its caches from GUILD_CREATE and REST before it can serve requests.
+ * <br>Combined with {@link com.seailz.discordjar.gateway.session.SessionStateStore session resuming}, a restarted bot is
+ * <br>usable almost immediately.
+ *
+ * <p>The file is an append-only log of records. Each record is
+ * <pre>
+ *     [byte type][byte op][long guild id][long id][int length][length bytes of UTF-8 JSON]
+ * </pre>
+ * where op is either a put or a delete. Later records replace earlier records with the same key.
+ * <br>The log is compacted (rewritten with only the latest record per key) when it grows to
+ * {@link #COMPACTION_FACTOR} times its size after the last compaction, and when the snapshot is closed.
+ * <br>Compaction writes a new generation next to the file ({@code <file>.1}, {@code <file>.2}, ...) instead of replacing it,
+ * <br>since a file that is still memory-mapped can't be replaced on every platform. Older generations are deleted once
+ * <br>they're no longer needed, and the newest complete generation is the one loaded on startup.
+ *
+ * <p>On startup the file is memory-mapped and only indexed - no JSON is parsed. Objects are decoded the first time
+ * <br>they are accessed through a {@link com.seailz.discordjar.cache.Cache Cache}, which consults the snapshot (as a
+ * <br>{@link CacheFallback}) before requesting the object from Discord. Objects that are updated through the gateway
+ * <br>before they were accessed are simply dropped from the loaded index.
+ *
+ * <p>Records are written on a background thread, so storing state doesn't slow down the gateway.
+ * <br>Objects passed to the snapshot are serialized later, and must not be modified afterwards.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.DiscordJarBuilder#setCacheSnapshot(CacheSnapshot)
+ */
+public class CacheSnapshot implements Closeable {
+
+    private static final int MAGIC = 0x444A5331; // "DJS1"
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_HEADER_SIZE = 1 + 1 + 8 + 8 + 4;
+    private static final byte OP_PUT = 0;
+    private static final byte OP_DELETE = 1;
+    /**
+     * The log is compacted once it holds this many times more records than it did after the last compaction.
+     */
+    public static final int COMPACTION_FACTOR = 3;
+    private static final int MIN_COMPACTION_RECORDS = 10000;
+    /**
+     * Files are mapped in segments of this size, since a single mapping can't be larger than 2GB.
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+    /**
+     * Keys that are left out of stored guilds, as they are stored as separate records or not worth restoring.
+     */
+    private static final Set<String> STRIPPED_GUILD_KEYS = Set.of("members", "channels", "threads", "presences", "voice_states", "roles");
+
+    private final Logger logger = Logger.getLogger("CacheSnapshot");
+    private final Path file;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "djar--cache-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Records loaded from the file on startup that haven't been accessed yet, grouped by type (and guild, for members).
+     */
+    private final Map<Scope, Map<Long, Slice>> loaded = new HashMap<>();
+    private MappedFile mapped;
+    private volatile boolean closed = false;
+
+    // Only used by the writer thread once the snapshot is open
+    private DataOutputStream out;
+    private Path current;
+    private long generation = 0;
+    /**
+     * Amount of records after the last compaction (or load), and amount of records written since.
+     */
+    private long compactedRecords = 0;
+    private long totalRecords = 0;
+
+    private CacheSnapshot(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the snapshot at the given path, indexing any state that was written by a previous run.
+     * <br>If the file doesn't exist, an empty snapshot is created.
+     *
+     * @param file The snapshot file.
+     * @throws IOException If the file can't be read or created.
+     */
+    @NotNull
+    public static CacheSnapshot open(@NotNull Path file) throws IOException {
+        CacheSnapshot snapshot = new CacheSnapshot(file);
+        snapshot.load();
+        snapshot.openForAppend();
+        return snapshot;
+    }
+
+    private void load() throws IOException {
+        for (long candidate : generations()) {
+            Path path = generationPath(candidate);
+            Map<Key, Slice> index = new HashMap<>();
+            long validLength = scan(path, index);
+            if (validLength < 0) {
+                if (Files.size(path) >= HEADER_SIZE) logger.warning("[discord.jar] " + path + " is not a cache snapshot, ignoring it.");
+                continue;
+            }
+
+            if (validLength < Files.size(path)) {
+                // Drop a partially written record, otherwise everything appended after it would be unreadable.
+                // This has to happen before the file is mapped, as a mapped file can't be truncated on every platform.
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+            }
+
+            current = path;
+            generation = candidate;
+            compactedRecords = index.size();
+            totalRecords = compactedRecords;
+            dropOrphans(index);
+            index.forEach((key, slice) -> loaded.computeIfAbsent(key.scope(), s -> new HashMap<>()).put(key.id(), slice));
+            if (!loaded.isEmpty()) mapped = MappedFile.map(path, validLength);
+            logger.info("[discord.jar] Loaded cache snapshot with " + index.size() + " objects.");
+            return;
+        }
+    }
+
+    /**
+     * Reads all complete records of a file into the index, keeping the latest put for each key.
+     * @return The position after the last complete record, or -1 if the file isn't a snapshot.
+     */
+    private static long scan(Path path, Map<Key, Slice> index) throws IOException {
+        long size = Files.size(path);
+        if (size < HEADER_SIZE) return -1;
+        long position = -1;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) return -1;
+
+            position = HEADER_SIZE;
+            while (position + RECORD_HEADER_SIZE <= size) {
+                byte type = in.readByte();
+                byte op = in.readByte();
+                long guildId = in.readLong();
+                long id = in.readLong();
+                int length = in.readInt();
+                long dataStart = position + RECORD_HEADER_SIZE;
+                if (length < 0 || dataStart + length > size || type < 0 || type >= EntityType.values().length) {
+                    break; // Truncated or corrupt tail, most likely from a crash while writing.
+                }
+
+                Key key = Key.of(EntityType.values()[type], guildId, id);
+                if (op == OP_DELETE) index.remove(key);
+                else index.put(key, new Slice(dataStart, length, guildId));
+                in.skipNBytes(length);
+                position = dataStart + length;
+            }
+        } catch (EOFException e) {
+            // The file is shorter than it was when its size was read, keep the records read so far
+        }
+        return position;
+    }
+
+    /**
+     * Removes channels and members of guilds that are no longer stored.
+     */
+    private static void dropOrphans(Map<Key, Slice> index) {
+        Set<Long> guilds = new HashSet<>();
+        for (Key key : index.keySet()) {
+            if (key.scope().type() == EntityType.GUILD) guilds.add(key.id());
+        }
+        index.entrySet().removeIf(entry -> entry.getKey().scope().type() != EntityType.GUILD
+                && entry.getValue().guildId() != 0 && !guilds.contains(entry.getValue().guildId()));
+    }
+
+    private void openForAppend() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        boolean fresh = current == null;
+        if (fresh) {
+            current = file;
+            generation = 0;
+            compactedRecords = 0;
+            totalRecords = 0;
+        }
+        out = appender(current, fresh);
+        deleteStaleGenerations();
+    }
+
+    private DataOutputStream appender(Path path, boolean fresh) throws IOException {
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                fresh ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND), 1 << 16));
+        if (fresh) stream.writeInt(MAGIC);
+        return stream;
+    }
+
+    /**
+     * Returns the generations next to the file, newest first. The file itself is generation 0.
+     */
+    private List<Long> generations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        if (Files.exists(file)) generations.add(0L);
+
+        Path parent = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        if (parent != null && Files.isDirectory(parent)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent, entry -> entry.getFileName().toString().startsWith(prefix))) {
+                for (Path entry : stream) {
+                    String suffix = entry.getFileName().toString().substring(prefix.length());
+                    if (suffix.isEmpty() || suffix.length() > 18 || !suffix.chars().allMatch(Character::isDigit)) continue;
+                    generations.add(Long.parseLong(suffix));
+                }
+            }
+        }
+        generations.sort(Comparator.reverseOrder());
+        return generations;
+    }
+
+    private Path generationPath(long generation) {
+        return generation == 0 ? file : file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    /**
+     * Deletes every generation but the current one. A generation that is still mapped may not be deletable yet,
+     * <br>in which case it's deleted the next time this runs.
+     */
+    private void deleteStaleGenerations() {
+        try {
+            for (long stale : generations()) {
+                if (stale == generation) continue;
+                try {
+                    Files.deleteIfExists(generationPath(stale));
+                } catch (IOException e) {
+                    logger.fine("[discord.jar] Couldn't delete old cache snapshot generation " + stale + " yet: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.fine("[discord.jar] Couldn't list cache snapshot generations: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stores a guild, usually from a GUILD_CREATE or GUILD_UPDATE payload.
+     * <br>Members, channels and other large collections are not stored as part of the guild.
+     * <br>The guild's roles are stored as a separate record, so role events can update them without rewriting the guild.
+     */
+    public void putGuild(@NotNull JSONObject guild) {
+        List<String> keys = new ArrayList<>();
+        for (String key : guild.keySet()) {
+            if (!STRIPPED_GUILD_KEYS.contains(key)) keys.add(key);
+        }
+        JSONObject stripped = new JSONObject(guild, keys.toArray(new String[0]));
+        String id = guild.getString("id");
+        write(EntityType.GUILD, OP_PUT, parse(id), parse(id), stripped);
+        JSONArray roles = guild.optJSONArray("roles");
+        if (roles != null) putRoles(id, roles);
+    }
+
+    public void removeGuild(@NotNull String guildId) {
+        write(EntityType.GUILD, OP_DELETE, parse(guildId), parse(guildId), null);
+        write(EntityType.ROLES, OP_DELETE, parse(guildId), parse(guildId), null);
+    }
+
+    /**
+     * Stores every role of a guild, replacing the roles stored before.
+     */
+    public void putRoles(@NotNull String guildId, @NotNull JSONArray roles) {
+        write(EntityType.ROLES, OP_PUT, parse(guildId), parse(guildId), new JSONObject().put("roles", roles));
+    }
+
+    /**
+     * Stores a channel. DM channels have no guild id.
+     */
+    public void putChannel(@NotNull JSONObject channel) {
+        String guildId = channel.optString("guild_id", null);
+        write(EntityType.CHANNEL, OP_PUT, guildId == null ? 0 : parse(guildId), parse(channel.getString("id")), channel);
+    }
+
+    public void removeChannel(@NotNull String channelId) {
+        write(EntityType.CHANNEL, OP_DELETE, 0, parse(channelId), null);
+    }
+
+    /**
+     * Stores a guild member.
+     */
+    public void putMember(@NotNull String guildId, @NotNull JSONObject member) {
+        write(EntityType.MEMBER, OP_PUT, parse(guildId), parse(member.getJSONObject("user").getString("id")), member);
+    }
+
+    public void removeMember(@NotNull String guildId, @NotNull String userId) {
+        write(EntityType.MEMBER, OP_DELETE, parse(guildId), parse(userId), null);
+    }
+
+    /**
+     * Returns a {@link CacheFallback} over the stored guilds.
+     */
+    @NotNull
+    public CacheFallback guilds() {
+        return new Fallback(EntityType.GUILD, null);
+    }
+
+    /**
+     * Returns a {@link CacheFallback} over the stored roles of guilds, by guild id.
+     * <br>Each object holds the guild's roles in its {@code roles} array.
+     */
+    @NotNull
+    public CacheFallback roles() {
+        return new Fallback(EntityType.ROLES, null);
+    }
+
+    /**
+     * Returns a {@link CacheFallback} over the stored channels.
+     */
+    @NotNull
+    public CacheFallback channels() {
+        return new Fallback(EntityType.CHANNEL, null);
+    }
+
+    /**
+     * Returns a {@link CacheFallback} over the stored members of a guild.
+     */
+    @NotNull
+    public CacheFallback members(@NotNull String guildId) {
+        return new Fallback(EntityType.MEMBER, parse(guildId));
+    }
+
+    /**
+     * Rewrites the file so that it only contains the latest record for every stored object.
+     * <br>Waits for pending writes and the compaction to finish.
+     */
+    public void compact() {
+        onWriter(this::compactNow);
+    }
+
+    /**
+     * Waits for pending writes, and flushes them to disk.
+     */
+    public void flush() {
+        onWriter(() -> {
+            if (out == null) return;
+            try {
+                out.flush();
+            } catch (IOException e) {
+                logger.warning("[discord.jar] Failed to flush cache snapshot: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Writes pending records, compacts the snapshot and closes it. Nothing can be written afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            writer.execute(() -> {
+                compactNow();
+                closeOut();
+            });
+        } catch (RejectedExecutionException ignored) {}
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warning("[discord.jar] Timed out waiting for the cache snapshot to be written.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the path the snapshot was opened with. Compacted generations are stored next to it.
+     */
+    @NotNull
+    public Path getFile() {
+        return file;
+    }
+
+    private void write(EntityType type, byte op, long guildId, long id, @Nullable JSONObject data) {
+        // Whatever was loaded for this key is outdated now.
+        Key key = Key.of(type, guildId, id);
+        synchronized (this) {
+            Map<Long, Slice> scope = loaded.get(key.scope());
+            if (scope != null && scope.remove(id) != null) releaseIfDrained(key.scope(), scope);
+        }
+        if (closed) return;
+
+        try {
+            writer.execute(() -> append(type, op, guildId, id, data));
+        } catch (RejectedExecutionException ignored) {
+            // Closed in the meantime
+        }
+    }
+
+    /**
+     * Appends a record. Only called on the writer thread.
+     */
+    private void append(EntityType type, byte op, long guildId, long id, @Nullable JSONObject data) {
+        if (out == null) return;
+        byte[] bytes = data == null ? new byte[0] : data.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            out.writeByte(type.ordinal());
+            out.writeByte(op);
+            out.writeLong(guildId);
+            out.writeLong(id);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } catch (IOException e) {
+            logger.warning("[discord.jar] Failed to write to cache snapshot: " + e.getMessage());
+            return;
+        }
+
+        totalRecords++;
+        if (totalRecords > MIN_COMPACTION_RECORDS && totalRecords > compactedRecords * COMPACTION_FACTOR) compactNow();
+    }
+
+    /**
+     * Writes the latest record of every object into the next generation, and continues appending to it.
+     * <br>Only called on the writer thread, so nothing is appended while the current generation is read.
+     */
+    private void compactNow() {
+        if (out == null) return;
+        long next = generation + 1;
+        Path target = generationPath(next);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Map<Key, Slice> index = new HashMap<>();
+        try {
+            out.flush();
+            scan(current, index);
+            dropOrphans(index);
+
+            try (FileChannel source = FileChannel.open(current, StandardOpenOption.READ);
+                 FileChannel sink = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC);
+                header.flip();
+                writeFully(sink, header);
+                ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                for (Map.Entry<Key, Slice> entry : index.entrySet()) {
+                    Key key = entry.getKey();
+                    Slice slice = entry.getValue();
+                    recordHeader.clear();
+                    recordHeader.put((byte) key.scope().type().ordinal()).put(OP_PUT).putLong(slice.guildId()).putLong(key.id()).putInt(slice.length());
+                    recordHeader.flip();
+                    writeFully(sink, recordHeader);
+                    transferFully(source, slice.offset(), slice.length(), sink);
+                }
+                sink.force(false);
+            }
+            // Nothing has the new generation mapped, so it can always be moved into place
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("[discord.jar] Failed to compact cache snapshot: " + e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {}
+            return;
+        }
+
+        DataOutputStream previous = out;
+        try {
+            out = appender(target, false);
+        } catch (IOException e) {
+            logger.severe("[discord.jar] Failed to open compacted cache snapshot, no further state will be written: " + e.getMessage());
+            out = null;
+        }
+        try {
+            previous.close();
+        } catch (IOException ignored) {}
+        if (out == null) return;
+
+        current = target;
+        generation = next;
+        compactedRecords = index.size();
+        totalRecords = compactedRecords;
+        deleteStaleGenerations();
+    }
+
+    private void closeOut() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.warning("[discord.jar] Failed to close cache snapshot: " + e.getMessage());
+        }
+        out = null;
+    }
+
+    /**
+     * Runs a task on the writer thread and waits for it, so it sees every write made before.
+     */
+    private void onWriter(Runnable task) {
+        try {
+            writer.submit(task).get();
+        } catch (RejectedExecutionException ignored) {
+            // Already closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warning("[discord.jar] Cache snapshot task failed: " + e.getCause());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static void transferFully(FileChannel source, long position, long length, FileChannel target) throws IOException {
+        while (length > 0) {
+            long transferred = source.transferTo(position, length, target);
+            if (transferred <= 0) throw new IOException("Unexpected end of cache snapshot");
+            position += transferred;
+            length -= transferred;
+        }
+    }
+
+    @Nullable
+    private synchronized JSONObject take(Scope scope, long id) {
+        Map<Long, Slice> slices = loaded.get(scope);
+        if (slices == null) return null;
+        Slice slice = slices.remove(id);
+        if (slice == null) return null;
+        JSONObject object = decode(slice);
+        releaseIfDrained(scope, slices);
+        return object;
+    }
+
+    private synchronized void discard(Scope scope, long id) {
+        Map<Long, Slice> slices = loaded.get(scope);
+        if (slices == null || slices.remove(id) == null) return;
+        releaseIfDrained(scope, slices);
+    }
+
+    private synchronized List<JSONObject> takeAll(Scope scope) {
+        Map<Long, Slice> slices = loaded.remove(scope);
+        if (slices == null) return new ArrayList<>();
+        List<JSONObject> objects = new ArrayList<>(slices.size());
+        for (Slice slice : slices.values()) objects.add(decode(slice));
+        if (loaded.isEmpty()) mapped = null;
+        return objects;
+    }
+
+    private synchronized boolean isEmpty(Scope scope) {
+        return !loaded.containsKey(scope);
+    }
+
+    private JSONObject decode(Slice slice) {
+        byte[] bytes = new byte[slice.length()];
+        mapped.read(slice.offset(), bytes);
+        return new JSONObject(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Once everything loaded on startup has been accessed, the mapping is no longer needed.
+     */
+    private void releaseIfDrained(Scope scope, Map<Long, Slice> slices) {
+        if (slices.isEmpty()) loaded.remove(scope);
+        if (loaded.isEmpty()) mapped = null;
+    }
+
+    private static long parse(String snowflake) {
+        return Long.parseLong(snowflake);
+    }
+
+    private enum EntityType {
+        GUILD,
+        CHANNEL,
+        MEMBER,
+        ROLES
+    }
+
+    /**
+     * Groups stored objects. Guild and channel ids are unique on their own, members are scoped to their guild.
+     */
+    private record Scope(EntityType type, long guildId) {}
+
+    private record Key(Scope scope, long id) {
+        static Key of(EntityType type, long guildId, long id) {
+            return new Key(new Scope(type, type == EntityType.MEMBER ? guildId : 0), id);
+        }
+    }
+
+    private record Slice(long offset, int length, long guildId) {}
+
+    /**
+     * A read-only mapping of a file of any size, split into segments of at most {@link #SEGMENT_SIZE} bytes.
+     */
+    private static final class MappedFile {
+        private final MappedByteBuffer[] segments;
+
+        private MappedFile(MappedByteBuffer[] segments) {
+            this.segments = segments;
+        }
+
+        static MappedFile map(Path path, long length) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+                for (int i = 0; i < segments.length; i++) {
+                    long start = i * SEGMENT_SIZE;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, length - start));
+                }
+                return new MappedFile(segments);
+            }
+        }
+
+        /**
+         * Copies bytes starting at a position in the file, which may span two segments.
+         */
+        void read(long position, byte[] destination) {
+            int copied = 0;
+            while (copied < destination.length) {
+                long at = position + copied;
+                MappedByteBuffer segment = segments[(int) (at / SEGMENT_SIZE)];
+                int offset = (int) (at % SEGMENT_SIZE);
+                int length = Math.min(destination.length - copied, segment.limit() - offset);
+                segment.get(offset, destination, copied, length);
+                copied += length;
+            }
+        }
+    }
+
+    private class Fallback implements CacheFallback {
+        private final Scope scope;
+
+        Fallback(EntityType type, @Nullable Long guildId) {
+            this.scope = new Scope(type, guildId == null ? 0 : guildId);
+        }
+
+        @Override
+        public @Nullable JSONObject take(@NotNull String id) {
+            try {
+                return CacheSnapshot.this.take(scope, parse(id));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void discard(@NotNull String id) {
+            try {
+                CacheSnapshot.this.discard(scope, parse(id));
+            } catch (NumberFormatException ignored) {}
+        }
+
+        @Override
+        public @NotNull List<JSONObject> takeAll() {
+            return CacheSnapshot.this.takeAll(scope);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return CacheSnapshot.this.isEmpty(scope);
+        }
+    }
+}
@@ -4,14 +4,13 @@ import com.seailz.discordjar.command.annotation.Locale;
 import com.seailz.discordjar.core.Compilerable;
 import com.seailz.discordjar.model.interaction.Interaction;
 import com.seailz.discordjar.model.interaction.InteractionContextType;
-import com.seailz.discordjar.utils.flag.BitwiseUtil;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
 import com.seailz.discordjar.utils.permission.Permission;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 
@@ -60,11 +59,8 @@ public record Command(
             descriptionLocales.put(locale, descriptionLocalesMap.get(locale));
         }
 
-        int permissions = -1;
-        if (defaultMemberPermissions.length >= 1) permissions = 0;
-        for (Permission permission : defaultMemberPermissions) {
-            permissions |= (1 << permission.code());
-        }
+        long permissions = -1;
+        if (defaultMemberPermissions.length >= 1) permissions = BitwiseCodec.of(Permission.class).encode(List.of(defaultMemberPermissions));
 
         JSONObject obj = new JSONObject()
                 .put("name", name)
@@ -75,7 +71,7 @@ public record Command(
         if (nameLocales.length() > 0) obj.put("name_localizations", nameLocales);
 
         if (descriptionLocales.length() > 0) obj.put("description_localizations", descriptionLocales);
-        if (permissions != -1) obj.put("default_member_permissions", permissions);
+        if (permissions != -1) obj.put("default_member_permissions", String.valueOf(permissions));
         obj.put("dm_permission", canUseInDms);
         if (nsfw) obj.put("nsfw", true);
 
@@ -116,10 +112,9 @@ public record Command(
         }
 
         if (obj.has("default_member_permissions") && !obj.isNull("default_member_permissions")) {
-            int permissions = obj.getInt("default_member_permissions");
-            BitwiseUtil<Permission> util = new BitwiseUtil<>();
-            EnumSet<Permission> permissionsList = util.get(permissions, Permission.class);
-            defaultMemberPermissions = permissionsList.toArray(new Permission[0]);
+            // Sent as a string, since permissions don't fit in 53 bits
+            long permissions = Long.parseLong(obj.optString("default_member_permissions", "0"));
+            defaultMemberPermissions = BitwiseCodec.of(Permission.class).decode(permissions).toArray(new Permission[0]);
         }
 
         if (obj.has("dm_permission")) {
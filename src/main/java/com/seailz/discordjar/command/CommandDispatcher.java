@@ -1,22 +1,41 @@
 package com.seailz.discordjar.command;
 
 import com.seailz.discordjar.command.annotation.SlashCommandInfo;
+import com.seailz.discordjar.command.listeners.AutocompleteListener;
 import com.seailz.discordjar.command.listeners.CommandListener;
 import com.seailz.discordjar.command.listeners.slash.SlashCommandListener;
 import com.seailz.discordjar.command.listeners.slash.SlashSubCommand;
+import com.seailz.discordjar.command.listeners.slash.SubCommandGroup;
 import com.seailz.discordjar.command.listeners.slash.SubCommandListener;
-import com.seailz.discordjar.events.EventDispatcher;
+import com.seailz.discordjar.events.model.interaction.command.CommandAutocompleteInteractionEvent;
 import com.seailz.discordjar.events.model.interaction.command.CommandInteractionEvent;
 import com.seailz.discordjar.events.model.interaction.command.SlashCommandInteractionEvent;
-import com.seailz.discordjar.model.interaction.data.command.ResolvedCommandOption;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 /**
  * Simple class for dispatching commands to their respective listeners.
+ * <br>Routes are built once when a command is registered, as a tree of command name → sub command group → sub command,
+ * <br>so dispatching a command only takes a few map lookups.
+ * <br>Listeners are run on the dispatcher's {@link Executor}, which can be replaced with {@link #setExecutor(Executor)}.
+ *
+ * <p>Autocomplete interactions are routed by command path and focused option to an {@link AutocompleteListener}.
+ * <br>Those can optionally cache their results for each typed value, in which case concurrent requests for the same value
+ * <br>also share a single call to the listener.
  *
  * @author Seailz
  * @see CommandListener
@@ -24,76 +43,205 @@ import java.util.Objects;
  */
 public class CommandDispatcher {
 
-    private final HashMap<String, CommandListener> listeners = new HashMap<>();
-    private final HashMap<SlashCommandListener, ArrayList<SlashSubCommandDetails>> subListeners = new HashMap<>();
+    private static final int MAX_CACHED_AUTOCOMPLETE_RESULTS = 10_000;
+
+    private final Logger logger = Logger.getLogger("CommandDispatcher");
+    private final Map<String, CommandRoute> routes = new ConcurrentHashMap<>();
+    private final Map<String, AutocompleteRoute> autocompleteRoutes = new ConcurrentHashMap<>();
+    private final Map<String, CachedChoices> autocompleteCache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<List<CommandChoice>>> autocompleteInFlight = new ConcurrentHashMap<>();
+    private volatile Executor executor;
+
+    public CommandDispatcher() {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "djar--command-dispatch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
+    /**
+     * Registers a command, along with all of its sub commands and sub command groups if it is a {@link SlashCommandListener}.
+     */
     public void registerCommand(String name, CommandListener listener) {
-        listeners.put(name, listener);
+        CommandRoute route = new CommandRoute(listener);
+        if (listener instanceof SlashCommandListener slashCommandListener) {
+            Set<SlashSubCommand> grouped = new HashSet<>();
+            for (SubCommandGroup group : slashCommandListener.getSubCommandGroups()) {
+                Map<String, SubCommandListener> groupRoutes = route.groups.computeIfAbsent(group.getName(), k -> new ConcurrentHashMap<>());
+                group.getSubCommands().forEach((sub, subListener) -> {
+                    groupRoutes.put(sub.getName(), subListener);
+                    grouped.add(sub);
+                });
+            }
+            slashCommandListener.getSubCommands().forEach((sub, subListener) -> {
+                if (!grouped.contains(sub)) route.subCommands.put(sub.getName(), subListener);
+            });
+        }
+        routes.put(name, route);
     }
+
+    /**
+     * Registers a sub command that isn't part of a group. Sub commands of listeners passed to {@link #registerCommand(String, CommandListener)}
+     * <br>are registered automatically, so this is only needed for sub commands added afterwards.
+     */
     public void registerSubCommand(SlashCommandListener top, SlashSubCommand sub, SubCommandListener listener) {
-        if (subListeners.containsKey(top)) {
-            ArrayList<SlashSubCommandDetails> exist = subListeners.get(top);
-            exist.add(new SlashSubCommandDetails(sub, listener));
-            subListeners.put(top, exist);
+        String name = top.getClass().getAnnotation(SlashCommandInfo.class).name();
+        routes.computeIfAbsent(name, k -> new CommandRoute(top)).subCommands.put(sub.getName(), listener);
+    }
+
+    /**
+     * Registers a listener that provides suggestions for an option. Results are not cached.
+     *
+     * @param commandPath The command, followed by its sub command group and sub command if it has any, separated by spaces. For example, {@code tag edit}.
+     * @param option The name of the option
+     * @param listener The listener
+     */
+    public void registerAutocomplete(String commandPath, String option, AutocompleteListener listener) {
+        registerAutocomplete(commandPath, option, listener, null);
+    }
+
+    /**
+     * Registers a listener that provides suggestions for an option.
+     * <br>If a cache duration is given, the choices returned for a typed value are reused for that long, and requests for a value
+     * <br>that is already being looked up wait for that lookup instead of calling the listener again.
+     * <br>Only use a cache if the choices depend on nothing but the typed value, since they are shared between users and guilds.
+     *
+     * @param commandPath The command, followed by its sub command group and sub command if it has any, separated by spaces. For example, {@code tag edit}.
+     * @param option The name of the option
+     * @param listener The listener
+     * @param cacheDuration How long results should be cached for, or null to disable caching
+     */
+    public void registerAutocomplete(String commandPath, String option, AutocompleteListener listener, Duration cacheDuration) {
+        autocompleteRoutes.put(autocompleteKey(commandPath, option), new AutocompleteRoute(listener, cacheDuration == null ? 0 : cacheDuration.toNanos()));
+    }
+
+    /**
+     * Sets the executor commands are dispatched on.
+     * <br>By default, a cached thread pool is used.
+     */
+    public void setExecutor(@NotNull Executor executor) {
+        this.executor = executor;
+    }
+
+    @NotNull
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void dispatch(String name, CommandInteractionEvent event) {
+        Class<? extends CommandInteractionEvent> eventClass = (event instanceof SlashCommandInteractionEvent ? SlashCommandInteractionEvent.class : CommandInteractionEvent.class);
+        executor.execute(() -> event.getBot().getEventDispatcher().dispatchEvent(event, eventClass, event.getBot()));
+
+        CommandRoute route = routes.get(name);
+        if (route == null) {
+            logger.warning("[discord.jar] Received command " + name + ", but no listener is registered for it.");
             return;
         }
-        ArrayList<SlashSubCommandDetails> list = new ArrayList<>();
-        list.add(new SlashSubCommandDetails(sub, listener));
-        subListeners.put(top, list);
+
+        SubCommandListener subListener = event instanceof SlashCommandInteractionEvent ? route.resolve(event.getJson()) : null;
+        if (subListener != null) {
+            executor.execute(() -> subListener.onCommand(event));
+        } else {
+            executor.execute(() -> route.listener.onCommand(event));
+        }
     }
 
-    public void dispatch(String name, CommandInteractionEvent event) {
-        new Thread(() -> {
-            Class<? extends CommandInteractionEvent> eventClass = (event instanceof SlashCommandInteractionEvent ? SlashCommandInteractionEvent.class : CommandInteractionEvent.class);
-            event.getBot().getEventDispatcher().dispatchEvent(event, eventClass, event.getBot());
-            if ((event instanceof SlashCommandInteractionEvent) && ((SlashCommandInteractionEvent) event).getOptionsInternal() != null && !((SlashCommandInteractionEvent) event).getOptionsInternal().isEmpty()) {
-                for (ResolvedCommandOption option : ((SlashCommandInteractionEvent) event).getOptionsInternal()) {
-                    if (option.type() == CommandOptionType.SUB_COMMAND) {
-                        for (ArrayList<SlashSubCommandDetails> detailsList : subListeners.values()) {
-                            for (SlashSubCommandDetails details : detailsList) {
-                                if (details.sub.getName().equals(option.name())) {
-                                    SlashCommandListener top = subListeners.keySet().stream().toList()
-                                            .get(subListeners.values().stream().toList().indexOf(detailsList));
-
-                                    if (Objects.equals(name, top.getClass().getAnnotation(SlashCommandInfo.class).name())) {
-                                        new Thread(() -> details.listener().onCommand(event), "djar--command-dispatch").start();
-                                    }
-                                    return;
-                            /*if (event.getName().startsWith(top.getClass().getAnnotation(SlashCommandInfo.class).name())) {
-                            }*/
-                                }
-                            }
-                        }
-                    } else if (option.type() == CommandOptionType.SUB_COMMAND_GROUP) {
-                        List<ResolvedCommandOption> subOptions = new ArrayList<>();
-
-                        for (int i = 1; i < option.options().size(); i++) {
-                            subOptions.add(option.options().get(i));
-                        }
-
-                        for (ResolvedCommandOption subs : option.options()) {
-                            for (ArrayList<SlashSubCommandDetails> detailsList : subListeners.values()) {
-                                for (SlashSubCommandDetails details : detailsList) {
-                                    if (details.sub.getName().equals(subs.name())) {
-                                        SlashCommandListener top = subListeners.keySet().stream().toList()
-                                                .get(subListeners.values().stream().toList().indexOf(detailsList));
-
-                                        if (Objects.equals(name, top.getClass().getAnnotation(SlashCommandInfo.class).name())) {
-                                            new Thread(() -> details.listener().onCommand(event), "djar--command-dispatch").start();
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
+    public void dispatchAutocomplete(CommandAutocompleteInteractionEvent event) {
+        executor.execute(() -> event.getBot().getEventDispatcher().dispatchEvent(event, CommandAutocompleteInteractionEvent.class, event.getBot()));
+        if (event.getFocusedOption() == null) return;
+
+        String routeKey = autocompleteKey(event.getCommandPath(), event.getFocusedOption());
+        AutocompleteRoute route = autocompleteRoutes.get(routeKey);
+        if (route == null) return;
+
+        choices(route, routeKey + '\0' + event.getFocusedValue(), event)
+                .thenAcceptAsync(choices -> event.reply(choices).run(), executor)
+                .exceptionally(e -> {
+                    logger.warning("[discord.jar] Autocomplete listener for " + event.getCommandPath() + " threw an exception: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    private CompletableFuture<List<CommandChoice>> choices(AutocompleteRoute route, String key, CommandAutocompleteInteractionEvent event) {
+        if (route.cacheNanos <= 0) return CompletableFuture.supplyAsync(() -> route.listener.onAutocomplete(event), executor);
+
+        CachedChoices cached = autocompleteCache.get(key);
+        if (cached != null) {
+            if (System.nanoTime() - cached.cachedAt < route.cacheNanos) return CompletableFuture.completedFuture(cached.choices);
+            autocompleteCache.remove(key, cached);
+        }
+
+        CompletableFuture<List<CommandChoice>> lookup = new CompletableFuture<>();
+        CompletableFuture<List<CommandChoice>> existing = autocompleteInFlight.putIfAbsent(key, lookup);
+        if (existing != null) return existing;
+
+        executor.execute(() -> {
+            try {
+                List<CommandChoice> choices = List.copyOf(route.listener.onAutocomplete(event));
+                if (autocompleteCache.size() >= MAX_CACHED_AUTOCOMPLETE_RESULTS) evictAutocompleteCache();
+                autocompleteCache.put(key, new CachedChoices(choices, System.nanoTime()));
+                lookup.complete(choices);
+            } catch (Exception e) {
+                lookup.completeExceptionally(e);
+            } finally {
+                autocompleteInFlight.remove(key, lookup);
             }
-            new Thread(() -> listeners.get(name).onCommand(event), "djar--command-dispatch").start();
-        }, "djar--Command Dispatcher (discord.jar)").start();
+        });
+        return lookup;
     }
 
-    record SlashSubCommandDetails(
-            SlashSubCommand sub,
-            SubCommandListener listener
-    ) {}
+    /**
+     * Removes expired results, or everything if that doesn't free up enough space.
+     */
+    private void evictAutocompleteCache() {
+        long now = System.nanoTime();
+        autocompleteCache.entrySet().removeIf(entry -> {
+            AutocompleteRoute route = autocompleteRoutes.get(entry.getKey().substring(0, entry.getKey().lastIndexOf('\0')));
+            return route == null || now - entry.getValue().cachedAt >= route.cacheNanos;
+        });
+        if (autocompleteCache.size() >= MAX_CACHED_AUTOCOMPLETE_RESULTS) autocompleteCache.clear();
+    }
+
+    private static String autocompleteKey(String commandPath, String option) {
+        return commandPath + '\0' + option;
+    }
+
+    private record AutocompleteRoute(AutocompleteListener listener, long cacheNanos) {}
+
+    private record CachedChoices(List<CommandChoice> choices, long cachedAt) {}
+
+    /**
+     * A node in the routing tree for a single top-level command.
+     */
+    private static class CommandRoute {
+        private final CommandListener listener;
+        private final Map<String, SubCommandListener> subCommands = new ConcurrentHashMap<>();
+        private final Map<String, Map<String, SubCommandListener>> groups = new ConcurrentHashMap<>();
+
+        CommandRoute(CommandListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Finds the sub command listener for an interaction payload, without decoding its options.
+         */
+        @Nullable
+        SubCommandListener resolve(JSONObject payload) {
+            if (subCommands.isEmpty() && groups.isEmpty()) return null;
+            JSONArray options = payload.getJSONObject("d").getJSONObject("data").optJSONArray("options");
+            if (options == null || options.isEmpty()) return null;
+
+            JSONObject option = options.getJSONObject(0);
+            int type = option.getInt("type");
+            if (type == CommandOptionType.SUB_COMMAND.getCode()) return subCommands.get(option.getString("name"));
+            if (type != CommandOptionType.SUB_COMMAND_GROUP.getCode()) return null;
+
+            Map<String, SubCommandListener> group = groups.get(option.getString("name"));
+            JSONArray groupOptions = option.optJSONArray("options");
+            if (group == null || groupOptions == null || groupOptions.isEmpty()) return null;
+            return group.get(groupOptions.getJSONObject(0).getString("name"));
+        }
+    }
 }
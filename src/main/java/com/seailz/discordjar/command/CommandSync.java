@@ -0,0 +1,338 @@
+package com.seailz.discordjar.command;
+
+import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.utils.URLS;
+import com.seailz.discordjar.utils.rest.DiscordRequest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the commands registered with Discord in sync with the commands registered with discord.jar, using as few requests as possible.
+ * <br>The existing commands are fetched once and compared structurally (options, localizations, permissions and contexts),
+ * <br>and only the differences are sent:
+ * <ul>
+ *     <li>Nothing is sent if every command is unchanged,</li>
+ *     <li>A single change is sent as a create, edit or delete,</li>
+ *     <li>Anything more is sent as one bulk overwrite, which Discord only counts against the daily creation limit for commands that changed.</li>
+ * </ul>
+ * If a hash file is set with {@link #setHashFile(Path)}, a hash of every synced set of commands is stored in it, and a set that hasn't
+ * <br>changed since the last sync skips the network entirely. Delete the file to force a sync, for example after editing commands elsewhere.
+ *
+ * @author Seailz
+ * @see DiscordJar#registerCommands(boolean, boolean, com.seailz.discordjar.command.listeners.CommandListener...)
+ */
+public class CommandSync {
+
+    private static final String GLOBAL_SCOPE = "global";
+
+    private final Logger logger = Logger.getLogger("CommandSync");
+    private final DiscordJar discordJar;
+    private volatile Path hashFile;
+
+    public CommandSync(@NotNull DiscordJar discordJar) {
+        this.discordJar = discordJar;
+    }
+
+    /**
+     * Sets the file used to remember which sets of commands have already been synced.
+     * @param hashFile The file, or null to always compare against Discord
+     */
+    public CommandSync setHashFile(@Nullable Path hashFile) {
+        this.hashFile = hashFile;
+        return this;
+    }
+
+    @Nullable
+    public Path getHashFile() {
+        return hashFile;
+    }
+
+    /**
+     * Syncs the global commands of this app.
+     *
+     * @param commands The commands that should be registered
+     * @param deleteMissing Whether commands registered with Discord that aren't in the list should be deleted
+     */
+    public Result sync(@NotNull List<Command> commands, boolean deleteMissing) {
+        return sync(commands, null, deleteMissing);
+    }
+
+    /**
+     * Syncs the commands of this app.
+     *
+     * @param commands The commands that should be registered
+     * @param guildId The guild to sync the commands of, or null for global commands
+     * @param deleteMissing Whether commands registered with Discord that aren't in the list should be deleted
+     */
+    public Result sync(@NotNull List<Command> commands, @Nullable String guildId, boolean deleteMissing) {
+        String applicationId = discordJar.getSelfInfo().id();
+        String scope = applicationId + "." + (guildId == null ? GLOBAL_SCOPE : guildId) + (deleteMissing ? ".overwrite" : "");
+
+        Map<String, JSONObject> desired = new HashMap<>();
+        for (Command command : commands) {
+            JSONObject compiled = command.compile();
+            desired.put(key(compiled), compiled);
+        }
+
+        String hash = hash(desired);
+        if (hash.equals(readHash(scope))) {
+            if (discordJar.isDebug()) logger.info("[discord.jar] Commands for " + scope + " haven't changed since the last sync, skipping");
+            return new Result(0, 0, 0, desired.size(), false, true);
+        }
+
+        Map<String, JSONObject> existing = new HashMap<>();
+        for (Object o : fetch(applicationId, guildId)) {
+            JSONObject command = (JSONObject) o;
+            existing.put(key(command), command);
+        }
+
+        List<JSONObject> creates = new ArrayList<>();
+        Map<String, JSONObject> edits = new HashMap<>();
+        List<String> deletes = new ArrayList<>();
+        desired.forEach((key, command) -> {
+            JSONObject current = existing.get(key);
+            if (current == null) creates.add(command);
+            else if (!normalizeCommand(command).similar(normalizeCommand(current))) edits.put(current.getString("id"), command);
+        });
+        boolean unknownCommands = false;
+        for (Map.Entry<String, JSONObject> entry : existing.entrySet()) {
+            if (desired.containsKey(entry.getKey())) continue;
+            if (deleteMissing) deletes.add(entry.getValue().getString("id"));
+            else unknownCommands = true;
+        }
+
+        int changes = creates.size() + edits.size() + deletes.size();
+        int unchanged = desired.size() - creates.size() - edits.size();
+        // A bulk overwrite would delete commands we don't know about, so it can only be used if those should be deleted anyway
+        boolean bulk = changes > 1 && !unknownCommands;
+        try {
+            if (bulk) {
+                JSONArray all = new JSONArray();
+                desired.values().forEach(all::put);
+                request(RequestMethod.PUT, commandsUrl(applicationId, guildId), null, all);
+            } else {
+                for (JSONObject command : creates) request(RequestMethod.POST, commandsUrl(applicationId, guildId), command, null);
+                for (Map.Entry<String, JSONObject> edit : edits.entrySet())
+                    request(RequestMethod.PATCH, commandsUrl(applicationId, guildId) + "/" + edit.getKey(), edit.getValue(), null);
+                for (String id : deletes) request(RequestMethod.DELETE, commandsUrl(applicationId, guildId) + "/" + id, null, null);
+            }
+        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
+            throw new DiscordRequest.DiscordAPIErrorException(e);
+        }
+
+        writeHash(scope, hash);
+        if (discordJar.isDebug()) logger.info("[discord.jar] Synced commands for " + scope + ": " + creates.size() + " created, " + edits.size() + " edited, "
+                + deletes.size() + " deleted, " + unchanged + " unchanged" + (bulk ? " (bulk overwrite)" : ""));
+        return new Result(creates.size(), edits.size(), deletes.size(), unchanged, bulk, false);
+    }
+
+    private JSONArray fetch(String applicationId, @Nullable String guildId) {
+        try {
+            return new DiscordRequest(
+                    new JSONObject(),
+                    new HashMap<>(),
+                    commandsUrl(applicationId, guildId) + "?with_localizations=true",
+                    discordJar,
+                    guildId == null ? URLS.GET.APPLICATION.COMMANDS.GET_GLOBAL_APPLICATION_COMMANDS : URLS.GET.APPLICATION.COMMANDS.GET_GUILD_APPLICATION_COMMANDS,
+                    RequestMethod.GET
+            ).invoke().arr();
+        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
+            throw new DiscordRequest.DiscordAPIErrorException(e);
+        }
+    }
+
+    private void request(RequestMethod method, String url, @Nullable JSONObject body, @Nullable JSONArray arr) throws DiscordRequest.UnhandledDiscordAPIErrorException {
+        DiscordRequest request = new DiscordRequest(
+                body == null ? new JSONObject() : body,
+                new HashMap<>(),
+                url,
+                discordJar,
+                URLS.BASE_URL,
+                method
+        );
+        if (arr != null) request.invoke(arr);
+        else request.invoke();
+    }
+
+    private static String commandsUrl(String applicationId, @Nullable String guildId) {
+        return guildId == null
+                ? URLS.POST.COMMANDS.GLOBAL_COMMANDS.replace("{application.id}", applicationId)
+                : URLS.POST.COMMANDS.GUILD_COMMANDS.replace("{application.id}", applicationId).replace("{guild.id}", guildId);
+    }
+
+    /**
+     * Commands are identified by their type and name.
+     */
+    private static String key(JSONObject command) {
+        return command.optInt("type", 1) + ":" + command.getString("name");
+    }
+
+    /**
+     * Reduces a command to the fields that are compared, filling in the defaults Discord leaves out or sends as null.
+     */
+    private static JSONObject normalizeCommand(JSONObject command) {
+        JSONObject normalized = new JSONObject()
+                .put("type", command.optInt("type", 1))
+                .put("name", command.getString("name"))
+                .put("description", command.optString("description", ""))
+                .put("name_localizations", objectOrEmpty(command, "name_localizations"))
+                .put("description_localizations", objectOrEmpty(command, "description_localizations"))
+                .put("default_member_permissions", command.isNull("default_member_permissions") ? "" : String.valueOf(command.get("default_member_permissions")))
+                .put("nsfw", command.optBoolean("nsfw"))
+                .put("contexts", arrayOrEmpty(command, "contexts"))
+                .put("options", normalizeOptions(arrayOrEmpty(command, "options")));
+        return normalized;
+    }
+
+    private static JSONArray normalizeOptions(JSONArray options) {
+        JSONArray normalized = new JSONArray();
+        for (Object o : options) {
+            JSONObject option = (JSONObject) o;
+            JSONArray choices = new JSONArray();
+            for (Object c : arrayOrEmpty(option, "choices")) {
+                JSONObject choice = (JSONObject) c;
+                choices.put(new JSONObject()
+                        .put("name", choice.getString("name"))
+                        .put("value", String.valueOf(choice.get("value")))
+                        .put("name_localizations", objectOrEmpty(choice, "name_localizations")));
+            }
+
+            normalized.put(new JSONObject()
+                    .put("type", option.getInt("type"))
+                    .put("name", option.getString("name"))
+                    .put("description", option.optString("description", ""))
+                    .put("name_localizations", objectOrEmpty(option, "name_localizations"))
+                    .put("description_localizations", objectOrEmpty(option, "description_localizations"))
+                    .put("required", option.optBoolean("required"))
+                    .put("autocomplete", option.optBoolean("autocomplete"))
+                    .put("choices", choices)
+                    .put("channel_types", arrayOrEmpty(option, "channel_types"))
+                    .put("min_value", number(option, "min_value"))
+                    .put("max_value", number(option, "max_value"))
+                    .put("min_length", number(option, "min_length"))
+                    .put("max_length", number(option, "max_length"))
+                    .put("options", normalizeOptions(arrayOrEmpty(option, "options"))));
+        }
+        return normalized;
+    }
+
+    private static JSONObject objectOrEmpty(JSONObject obj, String key) {
+        JSONObject value = obj.optJSONObject(key);
+        return value == null ? new JSONObject() : value;
+    }
+
+    private static JSONArray arrayOrEmpty(JSONObject obj, String key) {
+        JSONArray value = obj.optJSONArray(key);
+        return value == null ? new JSONArray() : value;
+    }
+
+    /**
+     * Numbers are compared as strings so that 1 and 1.0 are equal.
+     */
+    private static String number(JSONObject obj, String key) {
+        if (!obj.has(key) || obj.isNull(key)) return "";
+        return new BigDecimal(String.valueOf(obj.get(key))).stripTrailingZeros().toPlainString();
+    }
+
+    private static String hash(Map<String, JSONObject> commands) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            commands.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    // The normalized form has a fixed key order, so equal commands always produce equal strings
+                    .forEach(entry -> digest.update(canonical(normalizeCommand(entry.getValue())).getBytes(StandardCharsets.UTF_8)));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes JSON with sorted keys, since {@link JSONObject#toString()} doesn't guarantee an order.
+     */
+    private static String canonical(Object value) {
+        if (value instanceof JSONObject obj) {
+            StringBuilder builder = new StringBuilder("{");
+            obj.keySet().stream().sorted().forEach(key -> builder.append(JSONObject.quote(key)).append(':').append(canonical(obj.get(key))).append(','));
+            return builder.append('}').toString();
+        }
+        if (value instanceof JSONArray arr) {
+            StringBuilder builder = new StringBuilder("[");
+            for (Object item : arr) builder.append(canonical(item)).append(',');
+            return builder.append(']').toString();
+        }
+        return value instanceof String str ? JSONObject.quote(str) : String.valueOf(value);
+    }
+
+    @Nullable
+    private synchronized String readHash(String scope) {
+        Path hashFile = this.hashFile;
+        if (hashFile == null || !Files.exists(hashFile)) return null;
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(hashFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warning("[discord.jar] Failed to read command hash file: " + e.getMessage());
+            return null;
+        }
+        return properties.getProperty(scope);
+    }
+
+    private synchronized void writeHash(String scope, String hash) {
+        Path hashFile = this.hashFile;
+        if (hashFile == null) return;
+        Properties properties = new Properties();
+        try {
+            if (Files.exists(hashFile)) {
+                try (InputStream in = Files.newInputStream(hashFile)) {
+                    properties.load(in);
+                }
+            }
+            properties.setProperty(scope, hash);
+            try (OutputStream out = Files.newOutputStream(hashFile)) {
+                properties.store(out, "discord.jar command hashes");
+            }
+        } catch (IOException e) {
+            logger.warning("[discord.jar] Failed to write command hash file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The outcome of a sync.
+     *
+     * @param created The amount of commands that were created
+     * @param edited The amount of commands that were edited
+     * @param deleted The amount of commands that were deleted
+     * @param unchanged The amount of commands that were already up to date
+     * @param bulkOverwrite Whether the changes were sent as a single bulk overwrite
+     * @param skipped Whether Discord wasn't contacted at all because the hash file showed nothing had changed
+     */
+    public record Result(
+            int created,
+            int edited,
+            int deleted,
+            int unchanged,
+            boolean bulkOverwrite,
+            boolean skipped
+    ) {}
+}
@@ -0,0 +1,29 @@
+package com.seailz.discordjar.command.listeners;
+
+import com.seailz.discordjar.command.CommandChoice;
+import com.seailz.discordjar.events.model.interaction.command.CommandAutocompleteInteractionEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Provides suggestions for a command option that has autocomplete enabled.
+ * <br>The returned choices are sent back to Discord by the {@link com.seailz.discordjar.command.CommandDispatcher CommandDispatcher},
+ * so implementations should not reply to the event themselves.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.command.CommandDispatcher#registerAutocomplete(String, String, AutocompleteListener)
+ */
+@FunctionalInterface
+public interface AutocompleteListener {
+
+    /**
+     * Called when a user types into the option.
+     *
+     * @param event The event that was fired. {@link CommandAutocompleteInteractionEvent#getFocusedValue()} is what the user has typed so far.
+     * @return The suggested choices. Only the first 25 are sent.
+     */
+    @NotNull
+    List<CommandChoice> onAutocomplete(@NotNull CommandAutocompleteInteractionEvent event);
+
+}
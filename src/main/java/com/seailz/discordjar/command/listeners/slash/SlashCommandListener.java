@@ -15,6 +15,7 @@ public abstract class SlashCommandListener implements CommandListener {
 
     private final List<CommandOption> options = new ArrayList<>();
     private final HashMap<SlashSubCommand, SubCommandListener> subCommands = new HashMap<>();
+    private final List<SubCommandGroup> subCommandGroups = new ArrayList<>();
 
     public void addSubCommandGroup(SubCommandGroup group) {
         options.add(new CommandOption(
@@ -33,6 +34,7 @@ public abstract class SlashCommandListener implements CommandListener {
                 false
         ));
         subCommands.putAll(group.getSubCommands());
+        subCommandGroups.add(group);
     }
 
     public void addSubCommand(SlashSubCommand subCommand, SubCommandListener listener) {
@@ -84,7 +86,14 @@ public abstract class SlashCommandListener implements CommandListener {
         return this;
     }
 
+    /**
+     * Returns every sub command of this command, including the ones inside of sub command groups.
+     */
     public HashMap<SlashSubCommand, SubCommandListener> getSubCommands() {
         return subCommands;
     }
+
+    public List<SubCommandGroup> getSubCommandGroups() {
+        return subCommandGroups;
+    }
 }
@@ -17,7 +17,11 @@ import com.seailz.discordjar.events.model.guild.GuildUpdateEvent;
 import com.seailz.discordjar.events.model.guild.member.GuildMemberAddEvent;
 import com.seailz.discordjar.events.model.guild.member.GuildMemberRemoveEvent;
 import com.seailz.discordjar.events.model.guild.member.GuildMemberUpdateEvent;
+import com.seailz.discordjar.events.model.guild.role.GuildRoleCreateEvent;
+import com.seailz.discordjar.events.model.guild.role.GuildRoleDeleteEvent;
+import com.seailz.discordjar.events.model.guild.role.GuildRoleUpdateEvent;
 import com.seailz.discordjar.events.model.interaction.button.ButtonInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.command.CommandAutocompleteInteractionEvent;
 import com.seailz.discordjar.events.model.interaction.command.SlashCommandInteractionEvent;
 import com.seailz.discordjar.events.model.interaction.modal.ModalInteractionEvent;
 import com.seailz.discordjar.events.model.interaction.select.StringSelectMenuInteractionEvent;
@@ -102,6 +106,16 @@ public abstract class DiscordListener {
     public void onGuildMemberRemove(@NotNull GuildMemberRemoveEvent event) {
     }
 
+    // Guild Role Events
+    public void onGuildRoleCreate(@NotNull GuildRoleCreateEvent event) {
+    }
+
+    public void onGuildRoleUpdate(@NotNull GuildRoleUpdateEvent event) {
+    }
+
+    public void onGuildRoleDelete(@NotNull GuildRoleDeleteEvent event) {
+    }
+
     // Channel Events
     public void onChannelCreate(@NotNull ChannelCreateEvent event) {
     }
@@ -150,6 +164,10 @@ public abstract class DiscordListener {
     public void onModalInteractionEvent(@NotNull ModalInteractionEvent event) {
     }
 
+    // Autocomplete Events
+    public void onCommandAutocompleteInteraction(@NotNull CommandAutocompleteInteractionEvent event) {
+    }
+
 
     // Automod
     public void onAutoModRuleCreate(@NotNull AutoModRuleCreateEvent event) {
@@ -0,0 +1,35 @@
+package com.seailz.discordjar.events.model.guild.role;
+
+import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.events.model.guild.GuildEvent;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONObject;
+
+/**
+ * Sent when a role is deleted from a guild.
+ * <br><B>Requires the {@code GUILDS} intent.</B>
+ *
+ * @author Seailz
+ * @see    com.seailz.discordjar.model.role.Role Role
+ */
+public class GuildRoleDeleteEvent extends GuildEvent {
+    public GuildRoleDeleteEvent(@NotNull DiscordJar bot, long sequence, @NotNull JSONObject data) {
+        super(bot, sequence, data);
+    }
+
+    /**
+     * Returns the id of the role that was deleted.
+     */
+    @NotNull
+    public String getRoleId() {
+        return getJson().getJSONObject("d").getString("role_id");
+    }
+
+    /**
+     * Returns the id of the guild the role was deleted from.
+     */
+    @NotNull
+    public String getGuildId() {
+        return getJson().getJSONObject("d").getString("guild_id");
+    }
+}
@@ -0,0 +1,36 @@
+package com.seailz.discordjar.events.model.guild.role;
+
+import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.events.model.guild.GuildEvent;
+import com.seailz.discordjar.model.role.Role;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONObject;
+
+/**
+ * Sent when a role in a guild is updated.
+ * <br><B>Requires the {@code GUILDS} intent.</B>
+ *
+ * @author Seailz
+ * @see    Role
+ */
+public class GuildRoleUpdateEvent extends GuildEvent {
+    public GuildRoleUpdateEvent(@NotNull DiscordJar bot, long sequence, @NotNull JSONObject data) {
+        super(bot, sequence, data);
+    }
+
+    /**
+     * Returns the {@link Role} as it is after the update.
+     */
+    @NotNull
+    public Role getRole() {
+        return Role.decompile(getJson().getJSONObject("d").getJSONObject("role"));
+    }
+
+    /**
+     * Returns the id of the guild the role is in.
+     */
+    @NotNull
+    public String getGuildId() {
+        return getJson().getJSONObject("d").getString("guild_id");
+    }
+}
@@ -0,0 +1,112 @@
+package com.seailz.discordjar.events.model.interaction.command;
+
+import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.action.interaction.InteractionCallbackAction;
+import com.seailz.discordjar.command.CommandChoice;
+import com.seailz.discordjar.command.CommandOptionType;
+import com.seailz.discordjar.events.model.interaction.InteractionEvent;
+import com.seailz.discordjar.model.interaction.callback.InteractionCallbackType;
+import com.seailz.discordjar.model.interaction.reply.InteractionAutocompleteResponse;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Fired when a user is typing into a command option that has autocomplete enabled.
+ * <br>Discord sends one of these for every keystroke, so they should be answered quickly with {@link #reply(List)}.
+ * <br>Most bots should register an {@link com.seailz.discordjar.command.listeners.AutocompleteListener AutocompleteListener}
+ * with the {@link com.seailz.discordjar.command.CommandDispatcher CommandDispatcher} instead, which can cache results.
+ *
+ * <p>The command path and focused option are read straight from the payload, without decoding the whole interaction.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.command.CommandDispatcher#registerAutocomplete(String, String, com.seailz.discordjar.command.listeners.AutocompleteListener)
+ */
+public class CommandAutocompleteInteractionEvent extends InteractionEvent {
+
+    private final String commandPath;
+    private final String focusedOption;
+    private final String focusedValue;
+
+    public CommandAutocompleteInteractionEvent(@NotNull DiscordJar bot, long sequence, @NotNull JSONObject data) {
+        super(bot, sequence, data);
+        JSONObject commandData = data.getJSONObject("d").getJSONObject("data");
+
+        StringBuilder path = new StringBuilder(commandData.getString("name"));
+        JSONArray options = commandData.optJSONArray("options");
+        // Walk down through the sub command group and sub command, if there are any
+        while (options != null && !options.isEmpty()) {
+            JSONObject first = options.getJSONObject(0);
+            int type = first.getInt("type");
+            if (type != CommandOptionType.SUB_COMMAND.getCode() && type != CommandOptionType.SUB_COMMAND_GROUP.getCode()) break;
+            path.append(' ').append(first.getString("name"));
+            options = first.optJSONArray("options");
+        }
+        this.commandPath = path.toString();
+
+        String focusedOption = null;
+        String focusedValue = null;
+        if (options != null) {
+            for (int i = 0; i < options.length(); i++) {
+                JSONObject option = options.getJSONObject(i);
+                if (!option.optBoolean("focused")) continue;
+                focusedOption = option.getString("name");
+                focusedValue = String.valueOf(option.opt("value"));
+                break;
+            }
+        }
+        this.focusedOption = focusedOption;
+        this.focusedValue = focusedValue == null ? "" : focusedValue;
+    }
+
+    /**
+     * Returns the name of the top-level command.
+     */
+    @NotNull
+    public String getCommandName() {
+        return getJson().getJSONObject("d").getJSONObject("data").getString("name");
+    }
+
+    /**
+     * Returns the full path of the command, separated by spaces.
+     * <br>For example, {@code tag edit} for the {@code edit} sub command of {@code /tag}.
+     */
+    @NotNull
+    public String getCommandPath() {
+        return commandPath;
+    }
+
+    /**
+     * Returns the name of the option the user is currently typing into.
+     */
+    @Nullable
+    public String getFocusedOption() {
+        return focusedOption;
+    }
+
+    /**
+     * Returns what the user has typed into the focused option so far.
+     * <br>This is an empty string if nothing has been typed yet.
+     */
+    @NotNull
+    public String getFocusedValue() {
+        return focusedValue;
+    }
+
+    /**
+     * Responds with a list of suggested choices. Only the first 25 choices are sent.
+     */
+    @NotNull
+    public InteractionCallbackAction reply(@NotNull List<CommandChoice> choices) {
+        return new InteractionCallbackAction(
+                InteractionCallbackType.APPLICATION_COMMAND_AUTOCOMPLETE_RESULT,
+                new InteractionAutocompleteResponse(choices),
+                getJson().getJSONObject("d").getString("token"),
+                getJson().getJSONObject("d").getString("id"),
+                getBot()
+        );
+    }
+}
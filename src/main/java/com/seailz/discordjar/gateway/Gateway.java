@@ -3,10 +3,12 @@ package com.seailz.discordjar.gateway;
 import com.seailz.discordjar.DiscordJar;
 import com.seailz.discordjar.action.guild.members.RequestGuildMembersAction;
 import com.seailz.discordjar.events.model.Event;
-import com.seailz.discordjar.events.model.interaction.command.CommandInteractionEvent;
 import com.seailz.discordjar.gateway.events.DispatchedEvents;
 import com.seailz.discordjar.gateway.events.GatewayEvents;
 import com.seailz.discordjar.gateway.heartbeat.HeartLogic;
+import com.seailz.discordjar.gateway.chunking.MemberChunkScheduler;
+import com.seailz.discordjar.gateway.queue.GatewaySendQueue;
+import com.seailz.discordjar.gateway.session.SessionStateStore;
 import com.seailz.discordjar.model.api.version.APIVersion;
 import com.seailz.discordjar.model.application.Intent;
 import com.seailz.discordjar.model.guild.Member;
@@ -44,6 +46,7 @@ import java.util.logging.Logger;
  * <p>For more information on the Gateway, see the <a href="https://discord.com/developers/docs/topics/gateway">Discord API docs</a>.
  * @see <a href="https://discord.com/developers/docs/topics/gateway">Discord API docs</a>
  * @see HeartLogic
+ * @see GatewaySendQueue
  * @see DispatchedEvents
  * @see GatewayEvents
  * @see GatewayTransportCompressionType
@@ -61,11 +64,17 @@ public class Gateway {
     private WebSocket socket;
     private boolean resumedConnection = false;
     private boolean reconnecting = false;
+    /**
+     * Set once {@link #shutdown()} is called, so the disconnect it causes doesn't reconnect
+     */
+    private volatile boolean shuttingDown = false;
     private ReconnectInfo resumeInfo;
     public static long lastSequenceNumber = -1;
     private boolean readyForMessages = false;
     private boolean receivedReady = false;
     private HeartLogic heartbeatManager;
+    private final GatewaySendQueue sendQueue;
+    private final SessionStateStore sessionStore;
     public static Date lastHeartbeatSent = new Date();
 
     public static List<Long> pingHistoryMs = new ArrayList<>();
@@ -77,22 +86,78 @@ public class Gateway {
 
     private final List<Consumer<VoiceState>> onVoiceStateUpdateListeners = new ArrayList<>();
     private final List<Consumer<VoiceServerUpdate>> onVoiceServerUpdateListeners = new ArrayList<>();
-    public final HashMap<String, Gateway.MemberChunkStorageWrapper> memberRequestChunks = new HashMap<>();
+    private final MemberChunkScheduler memberChunkScheduler;
     private Status status = null;
 
-    protected Gateway(DiscordJar bot, int shardCount, int shardId, GatewayTransportCompressionType compressionType) {
+    protected Gateway(DiscordJar bot, int shardCount, int shardId, GatewayTransportCompressionType compressionType, @Nullable SessionStateStore sessionStore) {
         this.bot = bot;
         this.shardCount = shardCount;
         this.shardId = shardId;
         this.compressionType = compressionType;
+        this.sendQueue = new GatewaySendQueue(bot.isDebug());
+        this.sessionStore = sessionStore;
+        this.memberChunkScheduler = new MemberChunkScheduler(this, bot);
+
+        if (!resumeStoredSession()) connectionFlow();
+    }
+
+    /**
+     * Attempts to resume a session that was persisted by a previous run of the bot.
+     * @return true if a resume is being attempted, false if there was no session to resume.
+     */
+    private boolean resumeStoredSession() {
+        if (sessionStore == null) return false;
+        SessionStateStore.SessionState state = sessionStore.load(shardId, shardCount);
+        if (state == null) return false;
+
+        logger.info("[Gateway] Found a stored session, attempting to resume it...");
+        resumeInfo = new ReconnectInfo(state.sessionId(), bot.getToken(), state.resumeUrl());
+        lastSequenceNumber = state.sequence();
+        resumeFlow();
+        return true;
+    }
 
-        connectionFlow();
+    /**
+     * Writes the current session to the {@link SessionStateStore}, if one is set and READY has been received.
+     */
+    public void saveSessionState() {
+        if (sessionStore == null || resumeInfo == null) return;
+        sessionStore.save(new SessionStateStore.SessionState(
+                resumeInfo.sessionId(),
+                resumeInfo.url(),
+                lastSequenceNumber,
+                shardId,
+                shardCount,
+                System.currentTimeMillis()
+        ));
+    }
+
+    /**
+     * Closes the connection because the bot is shutting down.
+     * <br>If a {@link SessionStateStore} is set, the session is saved first and the connection is closed with a code that
+     * keeps the session resumable (closing with 1000 or 1001 would invalidate it).
+     * <br>The gateway can't be used anymore afterwards.
+     */
+    public void shutdown() {
+        shuttingDown = true;
+        try {
+            if (sessionStore != null && resumeInfo != null) {
+                saveSessionState();
+                disconnect(new CloseStatus(4000, "Restarting"));
+            } else {
+                disconnect(CloseStatus.GOING_AWAY);
+            }
+        } finally {
+            // Stops the send queue's thread
+            sendQueue.shutdown();
+        }
     }
 
     /**
      * Flow for connecting to the Gateway.
      */
     private void connectionFlow() {
+        resumedConnection = false;
         String gatewayUrl;
         try {
             gatewayUrl = getGatewayUrl();
@@ -127,7 +192,13 @@ public class Gateway {
      */
     public void disconnectFlow(@NotNull CloseStatus closeStatus) {
         setReceivedReady(false);
-        heartbeatManager.stop(); // Stop attempting heartbeats to avoid broken pipe errors
+        if (heartbeatManager != null) heartbeatManager.stop(); // Stop attempting heartbeats to avoid broken pipe errors
+        sendQueue.disconnected();
+        if (shuttingDown) {
+            // The close code of a resumable shutdown would otherwise make us reconnect
+            if (bot.isDebug()) logger.info("[Gateway] Connection closed for shutdown, won't reconnect.");
+            return;
+        }
         CloseCode closeCode = CloseCode.fromCode(closeStatus.getCode());
         readyForMessages = false;
         boolean attemptReconnect = closeCode.shouldReconnect();
@@ -187,12 +258,15 @@ public class Gateway {
 
         switch (event) {
             case HELLO:
+                sendQueue.connected(socket);
                 handleHello(payload);
-                if (!resumedConnection) sendIdentify();
+                if (resumedConnection) sendResume();
+                else sendIdentify();
                 readyForMessages = true;
+                sendQueue.setState(GatewaySendQueue.State.HELLO_RECEIVED);
 
                 if (bot.isDebug()) {
-                    logger.info("[Gateway] Received HELLO event. Heartbeat cycle has been started. If this isn't a resume, IDENTIFY has been sent.");
+                    logger.info("[Gateway] Received HELLO event. Heartbeat cycle has been started. IDENTIFY or RESUME has been queued.");
                 }
                 break;
             case HEARTBEAT_REQUEST:
@@ -213,6 +287,12 @@ public class Gateway {
                 break;
             case INVALID_SESSION:
                 logger.info("[Gateway] Gateway requested a reconnect (invalid session), reconnecting...");
+                if (!payload.optBoolean("d", false)) {
+                    // The session can't be resumed, so the next HELLO has to be followed by a fresh IDENTIFY.
+                    resumedConnection = false;
+                    lastSequenceNumber = -1;
+                    if (sessionStore != null) sessionStore.clear();
+                }
                 disconnect(CloseStatus.SESSION_NOT_RELIABLE);
                 break;
             case HEARTBEAT_ACK:
@@ -247,7 +327,7 @@ public class Gateway {
         if (bot.isDebug()) {
             logger.info("[Gateway] Event class: " + eventClass.getName());
         }
-        if (eventClass.equals(CommandInteractionEvent.class)) return;
+        if (eventClass == DispatchedEvents.AlreadyDispatched.class) return;
 
         Class<? extends Event> finalEventClass = eventClass;
         new Thread(() -> {
@@ -283,6 +363,7 @@ public class Gateway {
                     payload.getJSONObject("d").getString("resume_gateway_url")
             );
             readyForMessages = true;
+            saveSessionState();
 
             if (bot.getStatus() != null) {
                 JSONObject json = new JSONObject();
@@ -304,6 +385,7 @@ public class Gateway {
             return;
         }
         heartbeatManager = new HeartLogic(socket, payload.getJSONObject("d").getInt("heartbeat_interval"));
+        heartbeatManager.setSendQueue(sendQueue);
         heartbeatManager.start();
     }
 
@@ -334,7 +416,21 @@ public class Gateway {
         data.put("properties", new JSONObject().put("os", os).put("browser", "discord.jar").put("device", "discord.jar"));
         data.put("intents", intents.get());
         payload.put("d", data);
-        socket.send(payload.toString());
+        sendQueue.enqueue(payload.toString(), GatewaySendQueue.Priority.HANDSHAKE);
+    }
+
+    /**
+     * Sends a RESUME payload to the gateway.
+     */
+    private void sendResume() {
+        JSONObject resumeObject = new JSONObject();
+        resumeObject.put("op", OpCodes.RESUME.opCode);
+        resumeObject.put("d", new JSONObject()
+                .put("token", bot.getToken())
+                .put("session_id", resumeInfo.sessionId())
+                .put("seq", lastSequenceNumber)
+        );
+        sendQueue.enqueue(resumeObject.toString(), GatewaySendQueue.Priority.HANDSHAKE);
     }
 
     /**
@@ -349,18 +445,7 @@ public class Gateway {
                 })
                 .onSuccess((v) -> {
                     logger.info("[Gateway] Connection established successfully. ⚡");
-
-                    if (resuming) {
-                        JSONObject resumeObject = new JSONObject();
-                        resumeObject.put("op", OpCodes.RESUME.opCode);
-                        resumeObject.put("d", new JSONObject()
-                                .put("token", bot.getToken())
-                                .put("session_id", resumeInfo.sessionId())
-                                .put("seq", lastSequenceNumber)
-                        );
-
-                        queueMessage(resumeObject);
-                    }
+                    // If resuming, RESUME is sent once HELLO has been received.
                 });
         return socket;
     }
@@ -404,70 +489,50 @@ public class Gateway {
 
     /**
      * Queues a message to be sent to the gateway.
-     * <br>Messages will be sent after the HELLO event is received.
+     * <br>Messages will be sent after the HELLO event is received. If the gateway isn't connected, the message is buffered
+     * until it is. All messages are subject to the gateway's send limit - see {@link GatewaySendQueue}.
      * @param payload {@link JSONObject} containing the payload to send
      */
     public void queueMessage(@NotNull JSONObject payload) {
         if (bot.isDebug()) logger.info("[Gateway] Queued message: " + payload);
-        while (readyForMessages) {
-            socket.send(payload.toString());
-            if (bot.isDebug()) {
-                logger.info("[Gateway] Sent message: " + payload);
-            }
-            break;
-        }
+        sendQueue.enqueue(payload.toString(), GatewaySendQueue.Priority.NORMAL);
     }
 
     /**
      * Queues a message to be sent to the gateway.
-     * <br>Messages will be sent after the READY event is received.
+     * <br>Messages will be sent after the READY (or RESUMED) event is received. Until then, they are buffered.
+     * All messages are subject to the gateway's send limit - see {@link GatewaySendQueue}.
      * @param payload {@link JSONObject} containing the payload to send
      */
     public void queueMessageUntilReady(@NotNull JSONObject payload) {
         if (bot.isDebug()) logger.info("[Gateway] Queued message: " + payload);
-        while (receivedReady) {
-            socket.send(payload.toString());
-            if (bot.isDebug()) {
-                logger.info("[Gateway] Sent message: " + payload);
-            }
-            break;
-        }
+        sendQueue.enqueue(payload.toString(), GatewaySendQueue.Priority.AFTER_READY);
+    }
+
+    /**
+     * Returns the outbound queue of this connection.
+     */
+    @NotNull
+    public GatewaySendQueue getSendQueue() {
+        return sendQueue;
     }
 
     /**
      * Sends a request to the gateway to request guild members.
+     * <br>The request is queued by the {@link MemberChunkScheduler}, see there for details.
      * @param action {@link RequestGuildMembersAction} containing extra information about the request
      * @param future {@link CompletableFuture} that will be completed when the request is completed
      */
     public void requestGuildMembers(@NotNull RequestGuildMembersAction action, @NotNull CompletableFuture<List<Member>> future) {
-        if (action.getQuery() == null & action.getUserIds() == null) {
-            throw new IllegalArgumentException("You must provide either a query or a list of user ids");
-        }
-
-        if (bot.isDebug()) {
-            logger.info("[Gateway] Requesting guild members...");
-        }
-
-        JSONObject payload = new JSONObject();
-        JSONObject dPayload = new JSONObject();
-        dPayload.put("guild_id", action.getGuildId());
-        if (action.getQuery() != null) {
-            dPayload.put("query", action.getQuery());
-        }
-
-        if (action.getUserIds() != null && !action.getUserIds().isEmpty()) {
-            dPayload.put("user_ids", action.getUserIds());
-        }
-
-        dPayload.put("limit", action.getLimit());
-        if (action.isPresences()) dPayload.put("presences", true);
-        dPayload.put("nonce", action.getNonce());
-        payload.put("op", OpCodes.REQUEST_GUILD_MEMBERS.opCode);
-        payload.put("d", dPayload);
-
-        queueMessage(payload);
+        memberChunkScheduler.submit(action, future);
+    }
 
-        memberRequestChunks.put(action.getNonce(), new Gateway.MemberChunkStorageWrapper(new ArrayList<>(), future));
+    /**
+     * Returns the scheduler that REQUEST_GUILD_MEMBERS requests for this connection go through.
+     */
+    @NotNull
+    public MemberChunkScheduler getMemberChunkScheduler() {
+        return memberChunkScheduler;
     }
 
     public void sendVoicePayload(String guildId, String channelId, boolean selfMute, boolean selfDeaf) {
@@ -539,6 +604,7 @@ public class Gateway {
 
     public void setReceivedReady(boolean receivedReady) {
         this.receivedReady = receivedReady;
+        if (receivedReady) sendQueue.setState(GatewaySendQueue.State.READY);
     }
 
     /**
@@ -549,6 +615,14 @@ public class Gateway {
         return resumeInfo;
     }
 
+    /**
+     * Returns the store used to persist the session between restarts, or null if session persistence is disabled.
+     */
+    @Nullable
+    public SessionStateStore getSessionStateStore() {
+        return sessionStore;
+    }
+
     /**
      * Returns when the last heartbeat was sent, or null if none were sent yet.
      */
@@ -654,15 +728,6 @@ public class Gateway {
         }
     }
     public record ReconnectInfo(String sessionId, String token, String url) {}
-    public record MemberChunkStorageWrapper(List<Member> members, CompletableFuture<List<Member>> future) {
-        public void addMember(Member member) {
-            members.add(member);
-        }
-
-        public void complete() {
-            future.complete(members);
-        }
-    }
 
     @Contract(value = "_ -> new", pure = true)
     public static @NotNull Builder builder(DiscordJar bot) {
@@ -674,12 +739,14 @@ public class Gateway {
         Gateway.Builder setShardCount(int shardCount);
         Gateway.Builder setShardId(int shardId);
         Gateway.Builder setTransportCompressionType(GatewayTransportCompressionType compressionType);
+        Gateway.Builder setSessionStateStore(SessionStateStore sessionStore);
     }
     private static class GatewayBuilder implements Builder {
         private final DiscordJar bot;
         private int shardCount = 1;
         private int shardId = -1;
         private GatewayTransportCompressionType compressionType = GatewayTransportCompressionType.ZLIB_STREAM;
+        private SessionStateStore sessionStore = null;
 
         public GatewayBuilder(DiscordJar bot) {
             this.bot = bot;
@@ -687,7 +754,7 @@ public class Gateway {
 
         @Override
         public Gateway build() {
-            return new Gateway(bot, shardCount, shardId, compressionType);
+            return new Gateway(bot, shardCount, shardId, compressionType, sessionStore);
         }
 
         @Override
@@ -707,6 +774,12 @@ public class Gateway {
             this.compressionType = compressionType;
             return this;
         }
+
+        @Override
+        public Gateway.Builder setSessionStateStore(SessionStateStore sessionStore) {
+            this.sessionStore = sessionStore;
+            return this;
+        }
     }
 
 
@@ -0,0 +1,52 @@
+package com.seailz.discordjar.gateway.chunking;
+
+import com.seailz.discordjar.model.guild.Member;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Receives progress updates for member requests made through the {@link MemberChunkScheduler}.
+ * <br>All methods are optional. They are called from gateway or scheduler threads, so they should return quickly.
+ *
+ * @author Seailz
+ * @see MemberChunkScheduler
+ */
+public interface MemberChunkListener {
+
+    /**
+     * Called for every chunk that is received, after its members have been added to the member cache.
+     *
+     * @param guildId The id of the guild the chunk belongs to
+     * @param members The members in this chunk
+     * @param chunkIndex The index of this chunk
+     * @param chunkCount The total amount of chunks for this request
+     */
+    default void onChunk(@NotNull String guildId, @NotNull List<Member> members, int chunkIndex, int chunkCount) {}
+
+    /**
+     * Called once every chunk for a guild has been received.
+     *
+     * @param guildId The id of the guild
+     * @param memberCount The total amount of members received
+     */
+    default void onComplete(@NotNull String guildId, int memberCount) {}
+
+    /**
+     * Called when a request for a guild has timed out and ran out of retries.
+     *
+     * @param guildId The id of the guild
+     * @param error The reason the request failed
+     */
+    default void onFailure(@NotNull String guildId, @NotNull Throwable error) {}
+
+    /**
+     * Called by {@link MemberChunkScheduler#requestAll(java.util.Collection, MemberChunkListener)} every time a guild has finished,
+     * whether it completed or failed.
+     *
+     * @param finished The amount of guilds that have finished
+     * @param total The amount of guilds that were requested
+     */
+    default void onProgress(int finished, int total) {}
+
+}
@@ -0,0 +1,359 @@
+package com.seailz.discordjar.gateway.chunking;
+
+import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.action.guild.members.RequestGuildMembersAction;
+import com.seailz.discordjar.gateway.Gateway;
+import com.seailz.discordjar.gateway.queue.GatewaySendQueue;
+import com.seailz.discordjar.model.guild.Member;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Schedules REQUEST_GUILD_MEMBERS requests for a single Gateway connection.
+ * <br>Requests are queued and sent a few at a time, so that member loading for thousands of guilds can be started at once
+ * <br>without using up the connection's send limit, or flooding Discord with more requests than it can answer.
+ *
+ * <p>Every request gets a unique nonce. Each GUILD_MEMBERS_CHUNK is decoded and added to the member cache as soon as it
+ * <br>arrives, instead of being held back until the last chunk. If no chunk arrives for a request within the timeout
+ * <br>(for example because the connection dropped), it is sent again, up to a maximum amount of retries.
+ *
+ * <pre>{@code
+ * discordJar.getGateway().getMemberChunkScheduler().requestAll(guildIds, new MemberChunkListener() {
+ *     public void onProgress(int finished, int total) {
+ *         System.out.println("Loaded members for " + finished + "/" + total + " guilds");
+ *     }
+ * });
+ * }</pre>
+ *
+ * @author Seailz
+ * @see <a href="https://discord.com/developers/docs/topics/gateway-events#request-guild-members">Request Guild Members</a>
+ */
+public class MemberChunkScheduler {
+
+    /**
+     * Amount of requests that may be awaiting chunks at the same time.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 5;
+    /**
+     * Amount of requests that may be sent per minute. This is half of the connection's send limit, so other payloads
+     * <br>(presence updates, voice state updates, ...) are never delayed by a large amount of member requests.
+     */
+    public static final int DEFAULT_REQUESTS_PER_MINUTE = 60;
+    /**
+     * How long to wait for the next chunk of a request before it is sent again.
+     */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * How many times a request is sent again after timing out, before it fails.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 2;
+
+    private static final int REQUEST_GUILD_MEMBERS = 8;
+    private static final AtomicLong NONCES = new AtomicLong();
+
+    private final Logger logger = Logger.getLogger("MemberChunkScheduler");
+    private final Gateway gateway;
+    private final DiscordJar bot;
+    private final ArrayDeque<PendingRequest> queue = new ArrayDeque<>();
+    private final Map<String, PendingRequest> inFlight = new HashMap<>();
+    private final ArrayDeque<Long> recentSends = new ArrayDeque<>();
+    private ScheduledExecutorService timer;
+
+    private volatile int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private volatile int requestsPerMinute = DEFAULT_REQUESTS_PER_MINUTE;
+    private volatile Duration timeout = DEFAULT_TIMEOUT;
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+
+    public MemberChunkScheduler(@NotNull Gateway gateway, @NotNull DiscordJar bot) {
+        this.gateway = gateway;
+        this.bot = bot;
+    }
+
+    /**
+     * Generates a nonce that is unique for the lifetime of this JVM.
+     */
+    @NotNull
+    public static String nextNonce() {
+        return "djar-" + Long.toString(NONCES.incrementAndGet(), 36);
+    }
+
+    /**
+     * Queues the request described by the given action.
+     *
+     * @param action The request
+     * @param future Completed with every received member once all chunks have been received
+     */
+    public void submit(@NotNull RequestGuildMembersAction action, @NotNull CompletableFuture<List<Member>> future) {
+        if (action.getQuery() == null && (action.getUserIds() == null || action.getUserIds().isEmpty())) {
+            throw new IllegalArgumentException("You must provide either a query or a list of user ids");
+        }
+
+        JSONObject data = new JSONObject();
+        data.put("guild_id", action.getGuildId());
+        if (action.getUserIds() != null && !action.getUserIds().isEmpty()) data.put("user_ids", action.getUserIds());
+        else data.put("query", action.getQuery());
+        data.put("limit", action.getLimit());
+        if (action.isPresences()) data.put("presences", true);
+
+        enqueue(new PendingRequest(action.getGuildId(), data, action.getNonce(), true, action.getListener(), future));
+    }
+
+    /**
+     * Queues a request for every member of each of the given guilds. Received members are added to the member cache,
+     * <br>but are not collected, so this can be used to warm the member caches of a large amount of guilds.
+     * <br>Requires the <b>GUILD_MEMBERS</b> intent.
+     *
+     * @param guildIds The guilds to load the members of. They must belong to this shard.
+     * @param listener Notified of the progress, or null
+     * @return A future that is completed once every guild has either completed or failed
+     */
+    @NotNull
+    public CompletableFuture<Void> requestAll(@NotNull Collection<String> guildIds, @Nullable MemberChunkListener listener) {
+        int total = guildIds.size();
+        if (total == 0) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Void> all = new CompletableFuture<>();
+        AtomicInteger finished = new AtomicInteger();
+        for (String guildId : guildIds) {
+            JSONObject data = new JSONObject()
+                    .put("guild_id", guildId)
+                    .put("query", "")
+                    .put("limit", 0);
+            CompletableFuture<List<Member>> future = new CompletableFuture<>();
+            future.whenComplete((members, error) -> {
+                int done = finished.incrementAndGet();
+                if (listener != null) listener.onProgress(done, total);
+                if (done == total) all.complete(null);
+            });
+            enqueue(new PendingRequest(guildId, data, null, false, listener, future));
+        }
+        return all;
+    }
+
+    /**
+     * Handles a GUILD_MEMBERS_CHUNK dispatch.
+     * @param payload The "d" field of the dispatch
+     */
+    public void handleChunk(@NotNull JSONObject payload) {
+        String nonce = payload.optString("nonce", null);
+        if (nonce == null) {
+            logger.warning("[discord.jar] Received a GUILD_MEMBER_CHUNK event with no nonce. This is extremely unusual - please report this " +
+                    "on our GitHub page.");
+            return;
+        }
+
+        PendingRequest request;
+        synchronized (this) {
+            request = inFlight.get(nonce);
+        }
+        if (request == null) {
+            // Most likely a late chunk for a request that has already been sent again
+            if (bot.isDebug()) logger.info("[discord.jar] Received member chunk with unknown nonce: " + nonce);
+            return;
+        }
+
+        String guildId = payload.getString("guild_id");
+        JSONArray array = payload.getJSONArray("members");
+        List<Member> members = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject raw = array.getJSONObject(i);
+            Member member = Member.decompile(raw, bot, guildId, null);
+            members.add(member);
+            bot.insertMemberCache(guildId, member, null);
+            if (bot.getCacheSnapshot() != null) bot.getCacheSnapshot().putMember(guildId, raw);
+        }
+
+        int chunkIndex = payload.getInt("chunk_index");
+        int chunkCount = payload.getInt("chunk_count");
+        boolean complete;
+        synchronized (this) {
+            if (inFlight.get(nonce) != request) return; // timed out while decoding
+            request.received.set(chunkIndex);
+            request.chunkCount = chunkCount;
+            request.memberCount += members.size();
+            request.sent = true;
+            request.deadline = System.nanoTime() + timeout.toNanos();
+            if (request.collect) request.members.addAll(members);
+            complete = request.received.cardinality() >= chunkCount;
+            if (complete) inFlight.remove(nonce);
+        }
+
+        if (request.listener != null) request.listener.onChunk(guildId, members, chunkIndex, chunkCount);
+        if (complete) {
+            if (request.listener != null) request.listener.onComplete(guildId, request.memberCount);
+            request.future.complete(request.members);
+            pump();
+        }
+    }
+
+    /**
+     * Returns the amount of requests that are waiting to be sent.
+     */
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the amount of requests that have been sent and are awaiting chunks.
+     */
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public MemberChunkScheduler setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be at least 1");
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    public MemberChunkScheduler setRequestsPerMinute(int requestsPerMinute) {
+        if (requestsPerMinute < 1 || requestsPerMinute > GatewaySendQueue.DEFAULT_LIMIT - GatewaySendQueue.DEFAULT_HEARTBEAT_RESERVE)
+            throw new IllegalArgumentException("requestsPerMinute must be between 1 and the gateway's send limit");
+        this.requestsPerMinute = requestsPerMinute;
+        return this;
+    }
+
+    public MemberChunkScheduler setTimeout(@NotNull Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public MemberChunkScheduler setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    private void enqueue(PendingRequest request) {
+        synchronized (this) {
+            queue.addLast(request);
+            if (timer == null) {
+                timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "djar--member-chunk-scheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                timer.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+            }
+        }
+        pump();
+    }
+
+    /**
+     * Sends as many queued requests as the in-flight and per-minute limits allow.
+     */
+    private synchronized void pump() {
+        long now = System.nanoTime();
+        long minuteAgo = now - TimeUnit.MINUTES.toNanos(1);
+        while (!recentSends.isEmpty() && recentSends.peekFirst() <= minuteAgo) recentSends.pollFirst();
+
+        while (!queue.isEmpty() && inFlight.size() < maxInFlight && recentSends.size() < requestsPerMinute) {
+            PendingRequest request = queue.pollFirst();
+            request.attempts++;
+            boolean useInitial = request.attempts == 1 && request.initialNonce != null && !inFlight.containsKey(request.initialNonce);
+            request.nonce = useInitial ? request.initialNonce : nextNonce();
+            request.reset();
+            inFlight.put(request.nonce, request);
+            recentSends.addLast(now);
+
+            request.data.put("nonce", request.nonce);
+            JSONObject payload = new JSONObject().put("op", REQUEST_GUILD_MEMBERS).put("d", request.data);
+            if (bot.isDebug()) logger.info("[Gateway] Requesting guild members for " + request.guildId + " (attempt " + request.attempts + ")");
+            // The timeout only starts once the payload has actually been written to the socket
+            gateway.getSendQueue().enqueue(payload.toString(), GatewaySendQueue.Priority.AFTER_READY, () -> sent(request));
+        }
+    }
+
+    private synchronized void sent(PendingRequest request) {
+        if (request.sent) return;
+        request.sent = true;
+        request.deadline = System.nanoTime() + timeout.toNanos();
+    }
+
+    private void tick() {
+        try {
+            List<PendingRequest> failed = new ArrayList<>();
+            synchronized (this) {
+                long now = System.nanoTime();
+                List<PendingRequest> expired = new ArrayList<>();
+                for (PendingRequest request : inFlight.values()) {
+                    if (request.sent && request.deadline - now < 0) expired.add(request);
+                }
+                for (PendingRequest request : expired) {
+                    inFlight.remove(request.nonce);
+                    if (request.attempts <= maxRetries) {
+                        logger.warning("[discord.jar] Member request for guild " + request.guildId + " timed out, retrying...");
+                        queue.addFirst(request);
+                    } else failed.add(request);
+                }
+            }
+
+            for (PendingRequest request : failed) {
+                TimeoutException error = new TimeoutException("Member request for guild " + request.guildId + " timed out after " + request.attempts + " attempts");
+                logger.warning("[discord.jar] " + error.getMessage());
+                if (request.listener != null) request.listener.onFailure(request.guildId, error);
+                request.future.completeExceptionally(error);
+            }
+            pump();
+        } catch (Exception e) {
+            logger.warning("[discord.jar] Member chunk scheduler failed: " + e.getMessage());
+            if (bot.isDebug()) e.printStackTrace();
+        }
+    }
+
+    private static class PendingRequest {
+        private final String guildId;
+        private final JSONObject data;
+        private final String initialNonce;
+        private final boolean collect;
+        private final MemberChunkListener listener;
+        private final CompletableFuture<List<Member>> future;
+        private final List<Member> members = new ArrayList<>();
+        private final BitSet received = new BitSet();
+        private String nonce;
+        private int attempts = 0;
+        private int chunkCount = -1;
+        private int memberCount = 0;
+        private boolean sent = false;
+        private long deadline = 0;
+
+        PendingRequest(String guildId, JSONObject data, String initialNonce, boolean collect, MemberChunkListener listener, CompletableFuture<List<Member>> future) {
+            this.guildId = guildId;
+            this.data = data;
+            this.initialNonce = initialNonce;
+            this.collect = collect;
+            this.listener = listener;
+            this.future = future;
+        }
+
+        /**
+         * Forgets everything received by a previous attempt. Members already added to the cache stay there.
+         */
+        void reset() {
+            members.clear();
+            received.clear();
+            chunkCount = -1;
+            memberCount = 0;
+            sent = false;
+            deadline = 0;
+        }
+    }
+}
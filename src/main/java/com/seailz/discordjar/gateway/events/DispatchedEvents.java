@@ -1,6 +1,8 @@
 package com.seailz.discordjar.gateway.events;
 
 import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.cache.RoleIndex;
+import com.seailz.discordjar.cache.snapshot.CacheSnapshot;
 import com.seailz.discordjar.events.model.Event;
 import com.seailz.discordjar.events.model.automod.AutoModExecutionEvent;
 import com.seailz.discordjar.events.model.automod.rule.AutoModRuleCreateEvent;
@@ -19,7 +21,11 @@ import com.seailz.discordjar.events.model.guild.GuildUpdateEvent;
 import com.seailz.discordjar.events.model.guild.member.GuildMemberAddEvent;
 import com.seailz.discordjar.events.model.guild.member.GuildMemberRemoveEvent;
 import com.seailz.discordjar.events.model.guild.member.GuildMemberUpdateEvent;
+import com.seailz.discordjar.events.model.guild.role.GuildRoleCreateEvent;
+import com.seailz.discordjar.events.model.guild.role.GuildRoleDeleteEvent;
+import com.seailz.discordjar.events.model.guild.role.GuildRoleUpdateEvent;
 import com.seailz.discordjar.events.model.interaction.button.ButtonInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.command.CommandAutocompleteInteractionEvent;
 import com.seailz.discordjar.events.model.interaction.command.CommandInteractionEvent;
 import com.seailz.discordjar.events.model.interaction.command.MessageContextCommandInteractionEvent;
 import com.seailz.discordjar.events.model.interaction.command.SlashCommandInteractionEvent;
@@ -38,6 +44,7 @@ import com.seailz.discordjar.command.CommandType;
 import com.seailz.discordjar.model.channel.Channel;
 import com.seailz.discordjar.model.component.ComponentType;
 import com.seailz.discordjar.model.guild.Guild;
+import com.seailz.discordjar.model.role.Role;
 import com.seailz.discordjar.model.guild.Member;
 import com.seailz.discordjar.model.interaction.InteractionType;
 import com.seailz.discordjar.model.interaction.callback.InteractionCallbackType;
@@ -46,6 +53,7 @@ import com.seailz.discordjar.utils.URLS;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.voice.model.VoiceServerUpdate;
 import com.seailz.discordjar.voice.model.VoiceState;
+import org.jetbrains.annotations.NotNull;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -75,7 +83,11 @@ public enum DispatchedEvents {
         g.setReceivedReady(true);
         return ReadyEvent.class;
     }),
-    RESUMED((p, d, g) -> GatewayResumedEvent.class),
+    RESUMED((p, g, d) -> {
+        // Anything held back until READY can be sent again once the session has been resumed.
+        g.setReceivedReady(true);
+        return GatewayResumedEvent.class;
+    }),
 
     /* COMMANDS */
     APPLICATION_COMMAND_PERMISSIONS_UPDATE((p, g, d) -> CommandPermissionUpdateEvent.class),
@@ -91,6 +103,7 @@ public enum DispatchedEvents {
         // cache
         Channel channel = Channel.decompile(p.getJSONObject("d"), d);
         d.getChannelCache().cache(channel);
+        if (d.getCacheSnapshot() != null) d.getCacheSnapshot().putChannel(p.getJSONObject("d"));
 
         return ChannelCreateEvent.class;
     }),
@@ -98,13 +111,20 @@ public enum DispatchedEvents {
         // modify cached channel, if it exists
         Channel channel = Channel.decompile(p.getJSONObject("d"), d);
         d.getChannelCache().cache(channel);
+        if (d.getCacheSnapshot() != null) d.getCacheSnapshot().putChannel(p.getJSONObject("d"));
+        // its overwrites may have changed
+        if (p.getJSONObject("d").has("guild_id"))
+            d.getPermissionsUtil().invalidateChannel(p.getJSONObject("d").getString("guild_id"), channel.id());
 
         return ChannelUpdateEvent.class;
     }),
     CHANNEL_DELETE((p, g, d) -> {
         // remove cached channel, if it exists
         Channel channel = Channel.decompile(p.getJSONObject("d"), d);
-        d.getChannelCache().remove(channel);
+        d.getChannelCache().removeById(channel.id());
+        if (d.getCacheSnapshot() != null) d.getCacheSnapshot().removeChannel(channel.id());
+        if (p.getJSONObject("d").has("guild_id"))
+            d.getPermissionsUtil().invalidateChannel(p.getJSONObject("d").getString("guild_id"), channel.id());
 
         return ChannelDeleteEvent.class;
     }),
@@ -118,13 +138,43 @@ public enum DispatchedEvents {
         if (p.getJSONObject("d").has("unavailable") && p.getJSONObject("d").getBoolean("unavailable"))
             // Guild is unavailable, don't cache it
             return GuildCreateEvent.class;
+
+        CacheSnapshot snapshot = g.getCacheSnapshot();
+        if (snapshot != null) snapshot.putGuild(p.getJSONObject("d"));
+
+        if (g.isLazyGuildHydration()) {
+            String guildId = p.getJSONObject("d").getString("id");
+            if (snapshot != null) {
+                JSONArray channels = p.getJSONObject("d").getJSONArray("channels");
+                for (int i = 0; i < channels.length(); i++) {
+                    JSONObject obj = channels.getJSONObject(i);
+                    if (!obj.has("guild_id")) obj.put("guild_id", guildId);
+                    snapshot.putChannel(obj);
+                }
+                p.getJSONObject("d").getJSONArray("members").forEach(o -> snapshot.putMember(guildId, (JSONObject) o));
+            }
+            // Everything is decoded on first access
+            g.deferGuild(p.getJSONObject("d"));
+            cacheVoiceStates(p.getJSONObject("d").getJSONArray("voice_states"), guildId, g);
+            return GuildCreateEvent.class;
+        }
+
         Guild guild = Guild.decompile(p.getJSONObject("d"), g, true);
         g.getGuildCache().cache(guild);
+        // Only GUILD_CREATE and GUILD_UPDATE fill the role index, other payloads of the guild may be outdated
+        JSONArray roles = p.getJSONObject("d").optJSONArray("roles");
+        if (roles != null) g.getRoleIndex(guild.id()).setRaw(roles);
 
         JSONArray arr = p.getJSONObject("d").getJSONArray("channels");
-        arr.forEach(o -> g.getChannelCache().cache(
-                Channel.decompile((JSONObject) o, g)
-        ));
+        arr.forEach(o -> {
+            JSONObject obj = (JSONObject) o;
+            g.getChannelCache().cache(Channel.decompile(obj, g));
+            if (snapshot != null) {
+                // Channels in GUILD_CREATE don't include their guild id
+                if (!obj.has("guild_id")) obj.put("guild_id", guild.id());
+                snapshot.putChannel(obj);
+            }
+        });
 
         // Cache all members
         arr = p.getJSONObject("d").getJSONArray("members");
@@ -139,17 +189,11 @@ public enum DispatchedEvents {
                     ),
                     guild
             );
+            if (snapshot != null) snapshot.putMember(guild.id(), (JSONObject) o);
         });
         if (g.isDebug()) Logger.getLogger("DiscordJar").log(Level.INFO, "Took " + (System.currentTimeMillis() - start) + "ms to cache all members");
 
-        arr = p.getJSONObject("d").getJSONArray("voice_states");
-        arr.forEach(o -> {
-            JSONObject obj = (JSONObject) o;
-            obj.put("guild_id", guild.id());
-            g.addVoiceState(
-                    VoiceState.decompile(obj, g)
-            );
-        });
+        cacheVoiceStates(p.getJSONObject("d").getJSONArray("voice_states"), guild.id(), g);
 
         return GuildCreateEvent.class;
     }),
@@ -157,13 +201,23 @@ public enum DispatchedEvents {
         // modify cached guild, if it exists
         Guild guild = Guild.decompile(p.getJSONObject("d"), d, true);
         d.getGuildCache().cache(guild);
+        JSONArray roles = p.getJSONObject("d").optJSONArray("roles");
+        if (roles != null) d.getRoleIndex(guild.id()).setRaw(roles);
+        if (d.getCacheSnapshot() != null) d.getCacheSnapshot().putGuild(p.getJSONObject("d"));
+        // the owner may have changed
+        d.getPermissionsUtil().invalidateGuild(guild.id());
 
         return GuildUpdateEvent.class;
     }),
     GUILD_DELETE((p, g, d) -> {
         // remove cached guild, if it exists
         Guild guild = Guild.decompile(p.getJSONObject("d"), d, true);
-        d.getGuildCache().remove(guild);
+        d.getGuildCache().removeById(guild.id());
+        // An unavailable guild is only temporarily gone (outage), so it stays in the snapshot
+        if (d.getCacheSnapshot() != null && !p.getJSONObject("d").optBoolean("unavailable", false))
+            d.getCacheSnapshot().removeGuild(guild.id());
+        if (!p.getJSONObject("d").optBoolean("unavailable", false)) d.removeRoleIndex(guild.id());
+        d.getPermissionsUtil().invalidateGuild(guild.id());
 
         return GuildDeleteEvent.class;
     }),
@@ -176,11 +230,14 @@ public enum DispatchedEvents {
                 guildId,
                 d.getGuildById(guildId)
         ), d.getGuildById(guildId));
+        if (d.getCacheSnapshot() != null) d.getCacheSnapshot().putMember(guildId, p.getJSONObject("d"));
         return GuildMemberAddEvent.class;
     }),
     GUILD_MEMBER_REMOVE((p, g, d) -> {
         String guildId = p.getJSONObject("d").getString("guild_id");
         d.removeMemberCache(guildId, p.getJSONObject("d").getJSONObject("user").getString("id"));
+        if (d.getCacheSnapshot() != null) d.getCacheSnapshot().removeMember(guildId, p.getJSONObject("d").getJSONObject("user").getString("id"));
+        d.getPermissionsUtil().invalidateMember(guildId, p.getJSONObject("d").getJSONObject("user").getString("id"));
         return GuildMemberRemoveEvent.class;
     }),
     GUILD_MEMBER_UPDATE((p, g, d) -> {
@@ -191,43 +248,36 @@ public enum DispatchedEvents {
                 guildId,
                 d.getGuildById(guildId)
         ), d.getGuildById(guildId));
+        if (d.getCacheSnapshot() != null) d.getCacheSnapshot().putMember(guildId, p.getJSONObject("d"));
+        d.getPermissionsUtil().invalidateMember(guildId, p.getJSONObject("d").getJSONObject("user").getString("id"));
         return GuildMemberUpdateEvent.class;
     }),
     GUILD_MEMBERS_CHUNK((p, g, d) -> {
-        JSONObject payload = p.getJSONObject("d");
-        String nonce = payload.getString("nonce");
-
-        if (nonce == null) {
-            Logger.getLogger("DispatchedEvents").warning(
-                    "[discord.jar] Received a GUILD_MEMBER_CHUNK event with no nonce. This is extremely unusual - please report this " +
-                            "on our GitHub page.");
-            return null;
-        }
-
-        Gateway.MemberChunkStorageWrapper wrapper = g.memberRequestChunks.get(nonce);
-        if (wrapper == null) {
-            Logger.getLogger("DispatchedEvents").warning("[discord.jar] Received member chunk with unknown nonce: " + nonce);
-            return null;
-        }
-
-        JSONArray members = payload.getJSONArray("members");
-        members.forEach(member -> {
-            wrapper.addMember(Member.decompile((JSONObject) member, d, payload.getString("guild_id"), d.getGuildById(payload.getString("guild_id"))));
-        });
-
-        int chunkCount = payload.getInt("chunk_count") - 1;
-        int chunkIndex = payload.getInt("chunk_index");
-
-        if (chunkCount == chunkIndex) {
-            g.memberRequestChunks.get(nonce).complete();
-            g.memberRequestChunks.remove(nonce);
-        }
+        g.getMemberChunkScheduler().handleChunk(p.getJSONObject("d"));
         return null;
     }),
+    GUILD_ROLE_CREATE((p, g, d) -> {
+        d.getRoleIndex(p.getJSONObject("d").getString("guild_id")).put(Role.decompile(p.getJSONObject("d").getJSONObject("role")));
+        storeRoles(p.getJSONObject("d").getString("guild_id"), d);
+        return GuildRoleCreateEvent.class;
+    }),
+    GUILD_ROLE_UPDATE((p, g, d) -> {
+        d.getRoleIndex(p.getJSONObject("d").getString("guild_id")).put(Role.decompile(p.getJSONObject("d").getJSONObject("role")));
+        storeRoles(p.getJSONObject("d").getString("guild_id"), d);
+        d.getPermissionsUtil().invalidateGuild(p.getJSONObject("d").getString("guild_id"));
+        return GuildRoleUpdateEvent.class;
+    }),
+    GUILD_ROLE_DELETE((p, g, d) -> {
+        d.getRoleIndex(p.getJSONObject("d").getString("guild_id")).remove(p.getJSONObject("d").getString("role_id"));
+        storeRoles(p.getJSONObject("d").getString("guild_id"), d);
+        d.getPermissionsUtil().invalidateGuild(p.getJSONObject("d").getString("guild_id"));
+        return GuildRoleDeleteEvent.class;
+    }),
     // TODO: other guild events
 
     /* INTERACTIONS */
     INTERACTION_CREATE((p, g, d) -> {
+        d.getAutoDeferScheduler().track(p.getJSONObject("d"), System.nanoTime());
         switch (InteractionType.getType(p.getJSONObject("d").getInt("type"))) {
             case PING -> {
                 Logger.getLogger("EventDispatcher")
@@ -264,7 +314,7 @@ public enum DispatchedEvents {
 
                 d.getCommandDispatcher().dispatch(p.getJSONObject("d").getJSONObject("data").getString("name"),
                         event);
-                return CommandInteractionEvent.class;
+                return AlreadyDispatched.class;
             }
             case MESSAGE_COMPONENT -> {
                 switch (ComponentType.getType(p.getJSONObject("d").getJSONObject("data").getInt("component_type"))) {
@@ -287,7 +337,9 @@ public enum DispatchedEvents {
                 }
             }
             case APPLICATION_COMMAND_AUTOCOMPLETE -> {
-
+                d.getCommandDispatcher().dispatchAutocomplete(new CommandAutocompleteInteractionEvent(d, Gateway.lastSequenceNumber, p));
+                // Dispatched to listeners by the command dispatcher
+                return AlreadyDispatched.class;
             }
             case MODAL_SUBMIT -> {
                 return ModalInteractionEvent.class;
@@ -362,4 +414,37 @@ public enum DispatchedEvents {
         return UNKNOWN;
     }
 
+    /**
+     * Returned for events that discord.jar has already dispatched to their listeners itself, such as commands and autocomplete
+     * <br>interactions, which go through the {@link com.seailz.discordjar.command.CommandDispatcher CommandDispatcher}.
+     * <br>The gateway doesn't dispatch these again. This is never instantiated.
+     */
+    public static final class AlreadyDispatched extends Event {
+        private AlreadyDispatched(@NotNull DiscordJar bot, long sequence, @NotNull JSONObject data) {
+            super(bot, sequence, data);
+        }
+    }
+
+    /**
+     * Writes the roles of a guild to the cache snapshot after a role event, so they're up to date after a restart.
+     */
+    private static void storeRoles(String guildId, DiscordJar discordJar) {
+        CacheSnapshot snapshot = discordJar.getCacheSnapshot();
+        if (snapshot == null) return;
+        RoleIndex index = discordJar.getRoleIndex(guildId);
+        if (!index.isPopulated()) return;
+        JSONArray roles = new JSONArray();
+        for (Role role : index.roles()) roles.put(role.compile());
+        snapshot.putRoles(guildId, roles);
+    }
+
+    private static void cacheVoiceStates(JSONArray voiceStates, String guildId, DiscordJar discordJar) {
+        voiceStates.forEach(o -> {
+            JSONObject obj = (JSONObject) o;
+            obj.put("guild_id", guildId);
+            discordJar.addVoiceState(
+                    VoiceState.decompile(obj, discordJar)
+            );
+        });
+    }
 }
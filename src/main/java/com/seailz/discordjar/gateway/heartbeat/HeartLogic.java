@@ -1,6 +1,7 @@
 package com.seailz.discordjar.gateway.heartbeat;
 
 import com.seailz.discordjar.gateway.Gateway;
+import com.seailz.discordjar.gateway.queue.GatewaySendQueue;
 import com.seailz.discordjar.ws.WSPayloads;
 import com.seailz.discordjar.ws.WebSocket;
 import org.json.JSONObject;
@@ -19,6 +20,7 @@ import java.util.UUID;
 public class HeartLogic {
 
     private WebSocket socket;
+    private GatewaySendQueue sendQueue;
     private long interval;
     private long lastSequence = -1;
     private final Map<UUID, Boolean> isInstanceStillRunning = new HashMap<>();
@@ -58,10 +60,26 @@ public class HeartLogic {
         this.socket = socket;
     }
 
+    /**
+     * If set, heartbeats are sent through the given queue instead of directly through the socket,
+     * <br>so they count towards (and are protected by) the Gateway's send limit.
+     */
+    public void setSendQueue(GatewaySendQueue sendQueue) {
+        this.sendQueue = sendQueue;
+    }
+
     public void forceHeartbeat() {
-        socket.send(
-            WSPayloads.HEARBEAT.fill(lastSequence == -1 ? JSONObject.NULL : lastSequence).toString()
-        );
+        sendHeartbeat();
+    }
+
+    private void sendHeartbeat() {
+        String payload = WSPayloads.HEARBEAT.fill(lastSequence == -1 ? JSONObject.NULL : lastSequence).toString();
+        if (sendQueue != null) {
+            sendQueue.enqueue(payload, GatewaySendQueue.Priority.HEARTBEAT, () -> Gateway.lastHeartbeatSent = new Date());
+            return;
+        }
+        socket.send(payload);
+        Gateway.lastHeartbeatSent = new Date();
     }
 
     public void start() {
@@ -76,10 +94,7 @@ public class HeartLogic {
                     continue;
                 }
                 try {
-                    socket.send(
-                        WSPayloads.HEARBEAT.fill(lastSequence == -1 ? JSONObject.NULL : lastSequence).toString()
-                    );
-                    Gateway.lastHeartbeatSent = new Date();
+                    sendHeartbeat();
                     Thread.sleep(interval);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
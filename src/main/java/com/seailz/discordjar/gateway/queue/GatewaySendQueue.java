@@ -0,0 +1,317 @@
+package com.seailz.discordjar.gateway.queue;
+
+import com.seailz.discordjar.ws.WebSocket;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Outbound queue for a single Gateway connection.
+ * <br>Every payload sent to the Gateway goes through this queue, which makes sure that:
+ * <ul>
+ *     <li>Discord's send limit (120 payloads per 60 seconds, per connection) is never exceeded,</li>
+ *     <li>a small part of that limit is reserved for heartbeats, so a burst of other payloads can't starve them,</li>
+ *     <li>IDENTIFY and RESUME are sent before anything else that is waiting,</li>
+ *     <li>payloads that can't be sent yet are buffered until the connection reaches the required {@link State} instead of being dropped.</li>
+ * </ul>
+ *
+ * <p>Payloads are sent from a single thread in the order of their {@link Priority}, and in the order they were queued within the same priority.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.gateway.Gateway
+ * @see <a href="https://discord.com/developers/docs/topics/gateway#rate-limiting">Gateway rate limiting</a>
+ */
+public class GatewaySendQueue {
+
+    /**
+     * Maximum amount of payloads Discord allows to be sent per window.
+     */
+    public static final int DEFAULT_LIMIT = 120;
+    /**
+     * Length of a rate limit window in milliseconds.
+     */
+    public static final long DEFAULT_WINDOW_MS = 60000;
+    /**
+     * Amount of sends per window that only heartbeats are allowed to use.
+     * <br>The heartbeat interval is usually around 41 seconds, so this leaves room for forced heartbeats as well.
+     */
+    public static final int DEFAULT_HEARTBEAT_RESERVE = 3;
+
+    private final Logger logger = Logger.getLogger("GatewaySendQueue");
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<Priority, ArrayDeque<QueuedPayload>> lanes = new EnumMap<>(Priority.class);
+    private final SendWindow window;
+    private final boolean debug;
+    private WebSocket socket;
+    private State state = State.DISCONNECTED;
+    private volatile boolean running = true;
+
+    public GatewaySendQueue(boolean debug) {
+        this(DEFAULT_LIMIT, DEFAULT_WINDOW_MS, DEFAULT_HEARTBEAT_RESERVE, debug);
+    }
+
+    public GatewaySendQueue(int limit, long windowMs, int heartbeatReserve, boolean debug) {
+        if (heartbeatReserve >= limit) throw new IllegalArgumentException("Heartbeat reserve must be lower than the send limit");
+        for (Priority priority : Priority.values()) lanes.put(priority, new ArrayDeque<>());
+        this.window = new SendWindow(limit, heartbeatReserve, TimeUnit.MILLISECONDS.toNanos(windowMs));
+        this.debug = debug;
+
+        Thread thread = new Thread(this::sendLoop, "djar--gateway-send-queue");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a payload to be sent to the Gateway.
+     * @param payload The serialized payload.
+     * @param priority The priority, which also decides when the payload is allowed to be sent.
+     */
+    public void enqueue(@NotNull String payload, @NotNull Priority priority) {
+        enqueue(payload, priority, null);
+    }
+
+    /**
+     * Queues a payload to be sent to the Gateway.
+     * @param payload The serialized payload.
+     * @param priority The priority, which also decides when the payload is allowed to be sent.
+     * @param onSent Ran on the sending thread right after the payload has been written to the socket, or null.
+     */
+    public void enqueue(@NotNull String payload, @NotNull Priority priority, @Nullable Runnable onSent) {
+        lock.lock();
+        try {
+            lanes.get(priority).addLast(new QueuedPayload(payload, onSent));
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called when a new connection has been opened.
+     * <br>The send limit is per connection, so the window is reset.
+     */
+    public void connected(@NotNull WebSocket socket) {
+        lock.lock();
+        try {
+            this.socket = socket;
+            this.state = State.CONNECTED;
+            window.reset();
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the connection to a new state, releasing any payloads that were waiting for it.
+     */
+    public void setState(@NotNull State state) {
+        lock.lock();
+        try {
+            this.state = state;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called when the connection has been lost.
+     * <br>Heartbeats and handshakes belong to the old connection, so they are discarded. Everything else stays buffered
+     * and will be sent once the next connection is ready for it.
+     */
+    public void disconnected() {
+        lock.lock();
+        try {
+            this.state = State.DISCONNECTED;
+            this.socket = null;
+            lanes.get(Priority.HEARTBEAT).clear();
+            lanes.get(Priority.HANDSHAKE).clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the sending thread. Anything still queued is discarded.
+     */
+    public void shutdown() {
+        running = false;
+        lock.lock();
+        try {
+            lanes.values().forEach(ArrayDeque::clear);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the amount of payloads that are waiting to be sent.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            int size = 0;
+            for (ArrayDeque<QueuedPayload> lane : lanes.values()) size += lane.size();
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @NotNull
+    public State getState() {
+        return state;
+    }
+
+    private void sendLoop() {
+        while (running) {
+            QueuedPayload next;
+            WebSocket target;
+            lock.lock();
+            try {
+                next = pollSendable();
+                if (next == null) {
+                    long waitNanos = window.nanosUntilReset();
+                    if (waitNanos > 0 && hasSendableIgnoringLimit()) changed.awaitNanos(waitNanos);
+                    else changed.await();
+                    continue;
+                }
+                target = socket;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                target.send(next.payload());
+                if (debug) logger.info("[Gateway] Sent message: " + next.payload());
+                if (next.onSent() != null) next.onSent().run();
+            } catch (Exception e) {
+                logger.warning("[Gateway] Failed to send queued payload: " + e.getMessage());
+                if (debug) e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns the next payload that is allowed to be sent right now, and takes a send from the window for it.
+     * <br>Must be called while holding the lock.
+     */
+    private QueuedPayload pollSendable() {
+        if (socket == null) return null;
+        for (Priority priority : Priority.values()) {
+            ArrayDeque<QueuedPayload> lane = lanes.get(priority);
+            if (lane.isEmpty() || !state.allows(priority)) continue;
+            if (!window.tryAcquire(priority == Priority.HEARTBEAT)) return null;
+            return lane.pollFirst();
+        }
+        return null;
+    }
+
+    private boolean hasSendableIgnoringLimit() {
+        if (socket == null) return false;
+        for (Priority priority : Priority.values()) {
+            if (!lanes.get(priority).isEmpty() && state.allows(priority)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Priority of a queued payload. Payloads with a higher priority are always sent first.
+     */
+    public enum Priority {
+        /**
+         * Heartbeats. These may use the reserved part of the send limit.
+         */
+        HEARTBEAT(State.HELLO_RECEIVED),
+        /**
+         * IDENTIFY & RESUME.
+         */
+        HANDSHAKE(State.CONNECTED),
+        /**
+         * Regular commands, sent once HELLO has been received.
+         */
+        NORMAL(State.HELLO_RECEIVED),
+        /**
+         * Regular commands that are held back until READY (or RESUMED) has been received.
+         */
+        AFTER_READY(State.READY),
+        ;
+
+        private final State requiredState;
+
+        Priority(State requiredState) {
+            this.requiredState = requiredState;
+        }
+
+        public State getRequiredState() {
+            return requiredState;
+        }
+    }
+
+    /**
+     * State of the connection the queue is sending to.
+     */
+    public enum State {
+        DISCONNECTED,
+        CONNECTED,
+        HELLO_RECEIVED,
+        READY,
+        ;
+
+        public boolean allows(Priority priority) {
+            return ordinal() >= priority.getRequiredState().ordinal();
+        }
+    }
+
+    private record QueuedPayload(String payload, Runnable onSent) {}
+
+    /**
+     * Fixed window of sends. The window starts with the first send after it was reset or expired.
+     * <br>Must only be used while holding the queue's lock.
+     */
+    private static class SendWindow {
+        private final int limit;
+        private final int heartbeatReserve;
+        private final long windowNanos;
+        private int used = 0;
+        private long windowStart = 0;
+
+        SendWindow(int limit, int heartbeatReserve, long windowNanos) {
+            this.limit = limit;
+            this.heartbeatReserve = heartbeatReserve;
+            this.windowNanos = windowNanos;
+        }
+
+        boolean tryAcquire(boolean heartbeat) {
+            long now = System.nanoTime();
+            if (used > 0 && now - windowStart >= windowNanos) used = 0;
+            int available = heartbeat ? limit : limit - heartbeatReserve;
+            if (used >= available) return false;
+            if (used == 0) windowStart = now;
+            used++;
+            return true;
+        }
+
+        long nanosUntilReset() {
+            if (used == 0) return 0;
+            return Math.max(0, windowNanos - (System.nanoTime() - windowStart));
+        }
+
+        void reset() {
+            used = 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.seailz.discordjar.gateway.session;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Persists the state needed to resume a Gateway session to local disk, so that a restarted bot can send RESUME
+ * <br>instead of a fresh IDENTIFY. Resuming means Discord only replays the events that were missed, rather than
+ * <br>sending a GUILD_CREATE for every guild again.
+ *
+ * <p>The bot token is never written to disk - only the session id, resume URL, last sequence number and shard.
+ *
+ * <p>A session can only be resumed for a short time after the connection was closed, and only if it was not closed
+ * <br>with code 1000 or 1001. States older than {@link #getMaxAge()} are ignored, and if Discord rejects the resume the
+ * <br>Gateway falls back to a normal IDENTIFY.
+ *
+ * <p>Since a resumed session doesn't receive GUILD_CREATE again, caches start out empty and are filled lazily
+ * <br>(through REST) unless they are restored from a {@link com.seailz.discordjar.cache.snapshot.CacheSnapshot}.
+ *
+ * <p>Use one file per shard.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.DiscordJarBuilder#setSessionStateStore(SessionStateStore)
+ */
+public class SessionStateStore {
+
+    private final Logger logger = Logger.getLogger("SessionStateStore");
+    private final Path file;
+    private final Duration maxAge;
+
+    /**
+     * @param file The file to store the session state in.
+     */
+    public SessionStateStore(@NotNull Path file) {
+        this(file, Duration.ofMinutes(3));
+    }
+
+    /**
+     * @param file The file to store the session state in.
+     * @param maxAge How old a stored state may be for a resume to still be attempted.
+     */
+    public SessionStateStore(@NotNull Path file, @NotNull Duration maxAge) {
+        this.file = file;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Writes the given state to disk, replacing any previously stored state.
+     */
+    public void save(@NotNull SessionState state) {
+        Properties properties = new Properties();
+        properties.setProperty("session_id", state.sessionId());
+        properties.setProperty("resume_url", state.resumeUrl());
+        properties.setProperty("sequence", String.valueOf(state.sequence()));
+        properties.setProperty("shard_id", String.valueOf(state.shardId()));
+        properties.setProperty("shard_count", String.valueOf(state.shardCount()));
+        properties.setProperty("saved_at", String.valueOf(state.savedAt()));
+
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "discord.jar gateway session");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("[discord.jar] Failed to save gateway session state to " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the stored state, if there is one that can still be resumed for the given shard.
+     * @return The stored state, or null if there is none, it is too old, or it belongs to a different shard.
+     */
+    @Nullable
+    public SessionState load(int shardId, int shardCount) {
+        if (!Files.exists(file)) return null;
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warning("[discord.jar] Failed to read gateway session state from " + file + ": " + e.getMessage());
+            return null;
+        }
+
+        SessionState state;
+        try {
+            state = new SessionState(
+                    properties.getProperty("session_id"),
+                    properties.getProperty("resume_url"),
+                    Long.parseLong(properties.getProperty("sequence")),
+                    Integer.parseInt(properties.getProperty("shard_id")),
+                    Integer.parseInt(properties.getProperty("shard_count")),
+                    Long.parseLong(properties.getProperty("saved_at"))
+            );
+        } catch (NumberFormatException | NullPointerException e) {
+            logger.warning("[discord.jar] Ignoring malformed gateway session state in " + file);
+            return null;
+        }
+
+        if (state.sessionId() == null || state.resumeUrl() == null) return null;
+        if (state.shardId() != shardId || state.shardCount() != shardCount) return null;
+        if (System.currentTimeMillis() - state.savedAt() > maxAge.toMillis()) return null;
+        return state;
+    }
+
+    /**
+     * Deletes the stored state, for example after Discord has invalidated the session.
+     */
+    public void clear() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warning("[discord.jar] Failed to delete gateway session state " + file + ": " + e.getMessage());
+        }
+    }
+
+    @NotNull
+    public Path getFile() {
+        return file;
+    }
+
+    @NotNull
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * The information needed to resume a Gateway session.
+     * @param sessionId The session id received in READY.
+     * @param resumeUrl The resume_gateway_url received in READY.
+     * @param sequence The last sequence number received.
+     * @param shardId The shard id the session was identified with.
+     * @param shardCount The shard count the session was identified with.
+     * @param savedAt When the state was saved, in epoch milliseconds.
+     */
+    public record SessionState(
+            String sessionId,
+            String resumeUrl,
+            long sequence,
+            int shardId,
+            int shardCount,
+            long savedAt
+    ) {}
+}
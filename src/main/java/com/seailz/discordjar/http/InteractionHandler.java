@@ -0,0 +1,124 @@
+package com.seailz.discordjar.http;
+
+import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.command.CommandType;
+import com.seailz.discordjar.events.model.interaction.button.ButtonInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.command.CommandAutocompleteInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.command.CommandInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.command.MessageContextCommandInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.command.SlashCommandInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.command.UserContextCommandInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.modal.ModalInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.select.StringSelectMenuInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.select.entity.ChannelSelectMenuInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.select.entity.RoleSelectMenuInteractionEvent;
+import com.seailz.discordjar.events.model.interaction.select.entity.UserSelectMenuInteractionEvent;
+import com.seailz.discordjar.gateway.Gateway;
+import com.seailz.discordjar.model.component.ComponentType;
+import com.seailz.discordjar.model.interaction.InteractionType;
+import org.apache.commons.codec.DecoderException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+/**
+ * Verifies and dispatches interactions received over HTTP.
+ * <br>Shared by the Spring based {@link HttpOnlyManager} and the lightweight {@link InteractionServer}.
+ *
+ * <p>The request body is parsed exactly once, and every event is created from that same object.
+ *
+ * @author Seailz
+ */
+public class InteractionHandler {
+
+    private static final String PONG = "{\"type\": 1}";
+
+    private final DiscordJar discordJar;
+    private final SecurityManager securityManager;
+
+    public InteractionHandler(DiscordJar discordJar, String applicationPublicKey) {
+        this.discordJar = discordJar;
+        try {
+            this.securityManager = new SecurityManager(applicationPublicKey);
+        } catch (DecoderException e) {
+            throw new IllegalArgumentException("Invalid application public key", e);
+        }
+    }
+
+    /**
+     * Handles an interaction request.
+     *
+     * @param body The raw request body
+     * @param signature The X-Signature-Ed25519 header
+     * @param timestamp The X-Signature-Timestamp header
+     * @return The response to send back to Discord
+     */
+    public Response handle(byte[] body, String signature, String timestamp) {
+        long receivedAt = System.nanoTime();
+        if (!securityManager.verify(signature, timestamp, body)) {
+            // The signature is invalid
+            return new Response(401, null);
+        }
+
+        JSONObject payload;
+        try {
+            payload = new JSONObject(new String(body, StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            return new Response(400, null);
+        }
+        // Events expect the same shape as a gateway dispatch
+        JSONObject wrapped = new JSONObject().put("d", payload);
+        discordJar.getAutoDeferScheduler().track(payload, receivedAt);
+
+        switch (InteractionType.getType(payload.getInt("type"))) {
+            case PING -> {
+                return new Response(200, PONG);
+            }
+            case APPLICATION_COMMAND -> {
+                JSONObject data = payload.getJSONObject("data");
+                CommandInteractionEvent event = null;
+                switch (CommandType.fromCode(data.getInt("type"))) {
+                    case SLASH_COMMAND -> event = new SlashCommandInteractionEvent(discordJar, Gateway.lastSequenceNumber, wrapped);
+                    case USER -> event = new UserContextCommandInteractionEvent(discordJar, Gateway.lastSequenceNumber, wrapped);
+                    case MESSAGE -> event = new MessageContextCommandInteractionEvent(discordJar, Gateway.lastSequenceNumber, wrapped);
+                }
+
+                discordJar.getCommandDispatcher().dispatch(data.getString("name"), event);
+            }
+            case MESSAGE_COMPONENT -> {
+                switch (ComponentType.getType(payload.getJSONObject("data").getInt("component_type"))) {
+                    case BUTTON -> discordJar.getEventDispatcher().dispatchEvent(
+                            new ButtonInteractionEvent(discordJar, 0L, wrapped), ButtonInteractionEvent.class, discordJar);
+                    case STRING_SELECT -> discordJar.getEventDispatcher().dispatchEvent(
+                            new StringSelectMenuInteractionEvent(discordJar, 0L, wrapped), StringSelectMenuInteractionEvent.class, discordJar);
+                    case ROLE_SELECT -> discordJar.getEventDispatcher().dispatchEvent(
+                            new RoleSelectMenuInteractionEvent(discordJar, 0L, wrapped), RoleSelectMenuInteractionEvent.class, discordJar);
+                    case USER_SELECT -> discordJar.getEventDispatcher().dispatchEvent(
+                            new UserSelectMenuInteractionEvent(discordJar, 0L, wrapped), UserSelectMenuInteractionEvent.class, discordJar);
+                    case CHANNEL_SELECT -> discordJar.getEventDispatcher().dispatchEvent(
+                            new ChannelSelectMenuInteractionEvent(discordJar, 0L, wrapped), ChannelSelectMenuInteractionEvent.class, discordJar);
+                }
+            }
+            case APPLICATION_COMMAND_AUTOCOMPLETE -> discordJar.getCommandDispatcher().dispatchAutocomplete(
+                    new CommandAutocompleteInteractionEvent(discordJar, Gateway.lastSequenceNumber, wrapped));
+            case MODAL_SUBMIT -> discordJar.getEventDispatcher().dispatchEvent(
+                    new ModalInteractionEvent(discordJar, 0L, wrapped), ModalInteractionEvent.class, discordJar);
+            case UNKNOWN -> {
+                Logger.getLogger("DispatchedEvents").warning(
+                        "[discord.jar] Unknown interaction type: " + payload.getInt("type") + ". This is usually because of an outdated framework version. Please update discord.jar");
+                return new Response(400, null);
+            }
+        }
+
+        return new Response(200, PONG);
+    }
+
+    /**
+     * A response to an interaction request.
+     * @param status The HTTP status code
+     * @param body The JSON body, or null for an empty body
+     */
+    public record Response(int status, String body) {}
+}
@@ -0,0 +1,127 @@
+package com.seailz.discordjar.http;
+
+import com.seailz.discordjar.DiscordJar;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Lightweight interactions endpoint built on the JDK's HTTP server, as an alternative to {@link HttpOnlyApplication}.
+ * <br>It starts in milliseconds, doesn't need a Spring context, and hands each request straight to an {@link InteractionHandler}.
+ *
+ * <p>Requests are handled on the given {@link Executor}. Handling a request only verifies, parses and dispatches it, so
+ * <br>a small pool is enough. On Java 21+, {@code Executors.newVirtualThreadPerTaskExecutor()} can be passed in as well.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.utils.HTTPOnlyInfo#lightweight(String, String, int)
+ */
+public class InteractionServer {
+
+    private final Logger logger = Logger.getLogger("InteractionServer");
+    private final HttpServer server;
+    private final InteractionHandler handler;
+    private final String endpoint;
+    private final ExecutorService ownedExecutor;
+
+    private InteractionServer(HttpServer server, InteractionHandler handler, String endpoint, ExecutorService ownedExecutor) {
+        this.server = server;
+        this.handler = handler;
+        this.endpoint = endpoint;
+        this.ownedExecutor = ownedExecutor;
+    }
+
+    /**
+     * Starts a server listening for interactions.
+     *
+     * @param discordJar The bot
+     * @param endpoint The path Discord sends interactions to, for example {@code /interactions}
+     * @param applicationPublicKey The application's public key, used to verify requests
+     * @param port The port to listen on
+     * @param executor The executor requests are handled on, or null to use a small pool owned by the server
+     */
+    @NotNull
+    public static InteractionServer start(@NotNull DiscordJar discordJar, @NotNull String endpoint, @NotNull String applicationPublicKey,
+                                          int port, @Nullable Executor executor) throws IOException {
+        String path = endpoint.startsWith("/") ? endpoint : "/" + endpoint;
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+
+        ExecutorService owned = null;
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            owned = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()), r -> {
+                Thread thread = new Thread(r, "djar--interaction-server-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor = owned;
+        }
+
+        InteractionServer interactionServer = new InteractionServer(server, new InteractionHandler(discordJar, applicationPublicKey), path, owned);
+        server.createContext(path, interactionServer::handle);
+        server.setExecutor(executor);
+        server.start();
+        interactionServer.logger.info("[discord.jar] Listening for interactions on port " + port + " at " + path);
+        return interactionServer;
+    }
+
+    /**
+     * Stops the server, giving requests that are being handled up to the given amount of seconds to finish.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        if (ownedExecutor != null) ownedExecutor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestURI().getPath().equals(endpoint)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().add("Allow", "POST");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+
+            InteractionHandler.Response response = handler.handle(
+                    body,
+                    exchange.getRequestHeaders().getFirst("X-Signature-Ed25519"),
+                    exchange.getRequestHeaders().getFirst("X-Signature-Timestamp")
+            );
+
+            if (response.body() == null) {
+                exchange.sendResponseHeaders(response.status(), -1);
+                return;
+            }
+            byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(response.status(), bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (RuntimeException e) {
+            logger.warning("[discord.jar] Failed to handle interaction request: " + e.getMessage());
+            if (exchange.getResponseCode() == -1) exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+}
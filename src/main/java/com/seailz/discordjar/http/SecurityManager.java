@@ -5,13 +5,56 @@ import org.apache.commons.codec.binary.Hex;
 import software.pando.crypto.nacl.Crypto;
 
 import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
 
+/**
+ * Verifies the Ed25519 signatures Discord attaches to interaction requests.
+ * <br>An instance decodes the application's public key once, so it doesn't have to be hex-decoded for every request.
+ */
 public class SecurityManager {
 
+    private final PublicKey publicKey;
+
+    /**
+     * @param publicKey The application's public key, hex encoded
+     */
+    public SecurityManager(String publicKey) throws DecoderException {
+        this.publicKey = Crypto.signingPublicKey(Hex.decodeHex(publicKey));
+    }
+
+    /**
+     * Verifies a request.
+     *
+     * @param signature The X-Signature-Ed25519 header
+     * @param timestamp The X-Signature-Timestamp header
+     * @param body The raw request body
+     * @return Whether the signature is valid. Missing or malformed headers are treated as invalid.
+     */
+    public boolean verify(String signature, String timestamp, byte[] body) {
+        if (signature == null || timestamp == null) return false;
+        byte[] signatureBytes;
+        try {
+            signatureBytes = Hex.decodeHex(signature);
+        } catch (DecoderException e) {
+            return false;
+        }
+
+        byte[] timestampBytes = timestamp.getBytes(StandardCharsets.UTF_8);
+        byte[] message = new byte[timestampBytes.length + body.length];
+        System.arraycopy(timestampBytes, 0, message, 0, timestampBytes.length);
+        System.arraycopy(body, 0, message, timestampBytes.length, body.length);
+        try {
+            return Crypto.signVerify(publicKey, message, signatureBytes);
+        } catch (IllegalArgumentException e) {
+            // Signature has the wrong length
+            return false;
+        }
+    }
+
     public static boolean verify(String publicKey, String signature, String timestamp, String body) throws DecoderException {
         return Crypto.signVerify(
                 Crypto.signingPublicKey(Hex.decodeHex(publicKey)),
                 (timestamp + body).getBytes(StandardCharsets.UTF_8),
                 Hex.decodeHex(signature));
     }
-}
\ No newline at end of file
+}
@@ -13,7 +13,7 @@ import com.seailz.discordjar.utils.flag.Bitwiseable;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.utils.rest.DiscordResponse;
 import com.seailz.discordjar.utils.Snowflake;
-import com.seailz.discordjar.utils.flag.BitwiseUtil;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONArray;
@@ -249,7 +249,7 @@ public record Application(
 
         try {
             flagsRaw = obj.getInt("flags");
-            flags = flags = new BitwiseUtil<Flag>().get(flagsRaw, Flag.class);
+            flags = BitwiseCodec.of(Flag.class).decode(flagsRaw);
         } catch (JSONException e) {
             flagsRaw = 0;
         }
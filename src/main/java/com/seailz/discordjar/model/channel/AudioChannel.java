@@ -12,6 +12,7 @@ import com.seailz.discordjar.model.message.Message;
 import com.seailz.discordjar.model.permission.PermissionOverwrite;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.voice.model.provider.VoiceProvider;
+import com.seailz.discordjar.voice.model.receiver.VoiceReceiver;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -38,6 +39,15 @@ public interface AudioChannel extends GuildChannel, CategoryMember, Typeable, Me
      */
     void connect(VoiceProvider vp, boolean mute, boolean deafen);
 
+    /**
+     * Connects the current user to the voice channel, and receives the audio of other users in it.
+     * @param vp The {@link VoiceProvider} to use.
+     * @param receiver The {@link VoiceReceiver} to pass received audio to.
+     * @param mute Whether the user should be muted.
+     * @param deafen Whether the user should be deafened. Deafened users don't receive audio.
+     */
+    void connect(VoiceProvider vp, VoiceReceiver receiver, boolean mute, boolean deafen);
+
     /**
      * Returns the ID of the last {@link Message} sent in the text section
      * <br>of the voice channel.
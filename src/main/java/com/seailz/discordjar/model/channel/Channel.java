@@ -77,6 +77,7 @@ public interface Channel extends Compilerable, Resolvable, Mentionable, Snowflak
     @Nullable
     default GuildChannel asGuildChannel() {
         try {
+            if (this instanceof ChannelImpl impl) return impl.view(GuildChannel.class, GuildChannel::decompile);
             return GuildChannel.decompile(raw(), djv());
         } catch (Exception e) {
             Checker.check(true, "This channel is not a guild channel");
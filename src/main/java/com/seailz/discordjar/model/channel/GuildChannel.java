@@ -2,6 +2,7 @@ package com.seailz.discordjar.model.channel;
 
 import com.seailz.discordjar.DiscordJar;
 import com.seailz.discordjar.action.channel.invites.CreateChannelInviteAction;
+import com.seailz.discordjar.model.channel.internal.ChannelImpl;
 import com.seailz.discordjar.model.channel.internal.GuildChannelImpl;
 import com.seailz.discordjar.model.channel.utils.ChannelType;
 import com.seailz.discordjar.model.guild.Guild;
@@ -95,6 +96,7 @@ public interface GuildChannel extends Channel {
     @Nullable
     default MessagingChannel asMessagingChannel() {
         try {
+            if (this instanceof ChannelImpl impl) return impl.view(MessagingChannel.class, MessagingChannel::decompile);
             return MessagingChannel.decompile(raw(), discordJv());
         } catch (Exception e) {
             Checker.check(true, "This channel is not a messaging channel");
@@ -6,6 +6,7 @@ import com.seailz.discordjar.utils.Checker;
 import com.seailz.discordjar.utils.URLS;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.utils.rest.DiscordResponse;
+import com.seailz.discordjar.utils.rest.Paginator;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -174,25 +175,36 @@ public interface MessageRetrievable extends Channel {
      * @return
      */
     default List<Message> get500Messages() {
-        List<Message> messages = new ArrayList<>();
-        String lastMessageId = null;
-        for (Message m : messages(100)) {
-            messages.add(m);
-            lastMessageId = m.id();
-        }
-
-        if (messages.size() == 0) {
-            return messages;
+        try (Paginator<Message> history = history(500)) {
+            return history.stream().toList();
         }
+    }
 
-        for (int i = 0; i < 4; i++) {
-            for (Message m : messagesBefore(lastMessageId, 100)) {
-                messages.add(m);
-                lastMessageId = m.id();
-            }
-        }
+    /**
+     * Iterates over the whole history of the channel, from the newest message to the oldest.
+     * <br>Messages are requested 100 at a time as the history is consumed, so only two pages are held in memory at once.
+     * <br>If the history isn't consumed until the end, the paginator should be closed.
+     *
+     * @return A {@link Paginator} of the channel's messages
+     */
+    default Paginator<Message> history() {
+        return history(Integer.MAX_VALUE);
+    }
 
-        return messages;
+    /**
+     * Iterates over the last {@code limit} messages of the channel, from the newest message to the oldest.
+     * <br>No page is requested once {@code limit} messages have been received, so {@code history(500)} makes exactly 5 requests.
+     *
+     * @param limit The maximum number of messages to iterate over
+     * @return A {@link Paginator} of the channel's messages
+     */
+    default Paginator<Message> history(int limit) {
+        return new Paginator<>(
+                before -> before == null ? messages(100) : messagesBefore(before, 100),
+                Message::id,
+                100,
+                limit
+        );
     }
 
     default Message getMessageById(String id) {
@@ -9,6 +9,7 @@ import com.seailz.discordjar.model.channel.utils.ChannelType;
 import com.seailz.discordjar.model.guild.Guild;
 import com.seailz.discordjar.model.permission.PermissionOverwrite;
 import com.seailz.discordjar.voice.model.provider.VoiceProvider;
+import com.seailz.discordjar.voice.model.receiver.VoiceReceiver;
 import com.seailz.discordjar.voice.ws.VoiceGatewayFactory;
 import lombok.SneakyThrows;
 import org.json.JSONObject;
@@ -38,9 +39,14 @@ public class AudioChannelImpl extends GuildChannelImpl implements AudioChannel {
         connect(vp, false, false);
     }
 
-    @SneakyThrows
     @Override
     public void connect(VoiceProvider vp, boolean mute, boolean deafen) {
+        connect(vp, null, mute, deafen);
+    }
+
+    @SneakyThrows
+    @Override
+    public void connect(VoiceProvider vp, VoiceReceiver receiver, boolean mute, boolean deafen) {
         Gateway gateway = discordJv().getGateway();
         gateway.sendVoicePayload(guild().id(), id(), mute, deafen);
 
@@ -77,7 +83,7 @@ public class AudioChannelImpl extends GuildChannelImpl implements AudioChannel {
                 if (receivedVoiceServerUpdate.get() && receivedVoiceStateUpdate.get()) {
                     System.out.println("Establishing Voice WS Connection");
                     try {
-                        VoiceGatewayFactory voiceGateway = new VoiceGatewayFactory(guild().id(), discordJv().getSelfUser().id(), sessionId.get(), token.get(), endpoint.get(), vp);
+                        VoiceGatewayFactory voiceGateway = new VoiceGatewayFactory(guild().id(), discordJv().getSelfUser().id(), sessionId.get(), token.get(), endpoint.get(), vp, discordJv().getVoiceConnectionManager(), receiver);
                         break;
                     } catch (ExecutionException | InterruptedException e) {
                         throw new RuntimeException(e);
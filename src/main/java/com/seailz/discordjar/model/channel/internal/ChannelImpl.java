@@ -10,18 +10,23 @@ import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.function.BiFunction;
 
 /**
  * Impl of {@link Channel}
  */
 public class ChannelImpl implements Channel {
 
+    private static final Channel[] NO_VIEWS = new Channel[0];
+
     private final String id;
     private final ChannelType type;
     private final String name;
     private final JSONObject raw;
     private final DiscordJar discordJar;
+    private volatile Channel[] views = NO_VIEWS;
 
     public ChannelImpl(String id, ChannelType type, String name, JSONObject raw, DiscordJar discordJar) {
         this.id = id;
@@ -85,6 +90,30 @@ public class ChannelImpl implements Channel {
         return response;
     }
 
+    /**
+     * Returns this channel as a narrower type, such as {@link com.seailz.discordjar.model.channel.MessagingChannel MessagingChannel}.
+     * <br>The raw channel is only decoded into each type once, later calls return the same object. Since a channel in the cache
+     * <br>is replaced whenever it is updated, the views are never stale.
+     *
+     * @param type The type to return
+     * @param decoder Decodes the raw channel into the type, if no view of that type exists yet
+     */
+    @NotNull
+    public <T extends Channel> T view(@NotNull Class<T> type, @NotNull BiFunction<JSONObject, DiscordJar, T> decoder) {
+        if (type.isInstance(this)) return type.cast(this);
+        for (Channel view : views) {
+            if (type.isInstance(view)) return type.cast(view);
+        }
+
+        T view = decoder.apply(raw, discordJar);
+        synchronized (this) {
+            Channel[] views = Arrays.copyOf(this.views, this.views.length + 1);
+            views[views.length - 1] = view;
+            this.views = views;
+        }
+        return view;
+    }
+
     @NotNull
     @Override
     public DiscordJar djv() {
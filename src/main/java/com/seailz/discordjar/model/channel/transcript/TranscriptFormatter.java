@@ -78,6 +78,10 @@ public class TranscriptFormatter {
         return newText;
     }
 
+    public static String toHex(int rgb) {
+        return String.format("%06x", rgb & 0xffffff);
+    }
+
     public static String toHex(Color color) {
         String hex = Integer.toHexString(color.getRGB() & 0xffffff);
         while (hex.length() < 6) {
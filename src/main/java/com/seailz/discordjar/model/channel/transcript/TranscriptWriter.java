@@ -0,0 +1,556 @@
+package com.seailz.discordjar.model.channel.transcript;
+
+import com.seailz.discordjar.model.channel.interfaces.MessageRetrievable;
+import com.seailz.discordjar.model.embed.Embed;
+import com.seailz.discordjar.model.embed.EmbedField;
+import com.seailz.discordjar.model.message.Attachment;
+import com.seailz.discordjar.model.message.Message;
+import com.seailz.discordjar.model.user.User;
+import com.seailz.discordjar.utils.rest.Paginator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Writes an HTML transcript of a channel to a {@link Writer}, one message at a time.
+ * <br>Unlike building the whole document, only the message being rendered is held in memory, so channels with hundreds of
+ * <br>thousands of messages can be exported. The history is paged through with a {@link Paginator}, which requests the next
+ * <br>page while the current one is rendered.
+ *
+ * <p>The template is parsed once and shared between transcripts. A {@code template.html} in the working directory is used
+ * <br>if there is one, otherwise the one bundled with discord.jar.
+ *
+ * <p>Original author: https://github.com/Ryzeon
+ * <br>Modified for use in discord.jar by Seailz
+ *
+ * @author Seailz
+ * @see    com.seailz.discordjar.model.channel.interfaces.Transcriptable Transcriptable
+ */
+public class TranscriptWriter {
+
+    private static final Set<String> IMAGE_FORMATS = Set.of("png", "jpg", "jpeg", "gif");
+    private static final Set<String> VIDEO_FORMATS = Set.of("mp4", "webm", "mkv", "avi", "mov", "flv", "wmv", "mpg", "mpeg");
+    private static final Set<String> AUDIO_FORMATS = Set.of("mp3", "wav", "ogg", "flac");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    /**
+     * Marks where the messages are written in the rendered template
+     */
+    private static final String CHATLOG_MARKER = "djar-transcript-chatlog";
+
+    private static volatile Document template;
+
+    private final MessageRetrievable channel;
+    private Consumer<Attachment> attachmentListener;
+
+    public TranscriptWriter(@NotNull MessageRetrievable channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Called with every attachment in the transcript, e.g. to archive them alongside it.
+     */
+    public TranscriptWriter onAttachment(@Nullable Consumer<Attachment> attachmentListener) {
+        this.attachmentListener = attachmentListener;
+        return this;
+    }
+
+    /**
+     * Writes the whole history of the channel, from the oldest message to the newest, as UTF-8.
+     * <br>The stream isn't closed.
+     */
+    public void write(@NotNull OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        write(writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the whole history of the channel, from the oldest message to the newest.
+     * <br>The writer isn't closed.
+     */
+    public void write(@NotNull Writer out) throws IOException {
+        try (Paginator<Message> history = new Paginator<>(this::page, Message::id, 100)) {
+            write(out, history);
+        }
+    }
+
+    /**
+     * Writes the given messages, which must already be in the order they should appear in.
+     * <br>The writer isn't closed.
+     */
+    public void write(@NotNull Writer out, @NotNull Iterator<Message> messages) throws IOException {
+        Document document = template().clone();
+        document.outputSettings().indentAmount(0).prettyPrint(true);
+        Element guildIcon = document.getElementsByClass("preamble__guild-icon").first();
+        if (guildIcon != null) guildIcon.attr("src", "https://cdn.discordapp.com/icons/" + "" + "/" + "" + ".png"); // set guild icon
+        document.getElementById("transcriptTitle").text(channel.name()); // set title
+        document.getElementById("guildname").text(""); // set guild name
+        document.getElementById("ticketname").text(channel.name()); // set channel name
+
+        Element chatLog = document.getElementById("chatlog");
+        chatLog.appendText(CHATLOG_MARKER);
+        String html = document.outerHtml();
+        int marker = html.indexOf(CHATLOG_MARKER);
+
+        out.write(html, 0, marker);
+        while (messages.hasNext()) {
+            // Rendered elements aren't attached to the document, so they can be collected once written
+            out.write(renderMessage(document, messages.next()).outerHtml());
+        }
+        out.write(html, marker + CHATLOG_MARKER.length(), html.length() - marker - CHATLOG_MARKER.length());
+    }
+
+    /**
+     * Requests the 100 messages after a message, oldest first. Discord returns them newest first.
+     */
+    private List<Message> page(@Nullable String after) {
+        List<Message> page = new ArrayList<>(channel.messagesAfter(after == null ? "0" : after, 100));
+        page.sort(Comparator.comparingLong(message -> Long.parseLong(message.id())));
+        return page;
+    }
+
+    private static Document template() throws IOException {
+        Document template = TranscriptWriter.template;
+        if (template != null) return template;
+        synchronized (TranscriptWriter.class) {
+            if (TranscriptWriter.template != null) return TranscriptWriter.template;
+            File file = new File("template.html");
+            if (file.exists()) {
+                template = Jsoup.parse(file, "UTF-8");
+            } else {
+                try (InputStream in = TranscriptWriter.class.getResourceAsStream("/template.html")) {
+                    if (in == null) throw new IOException("template.html could not be found");
+                    template = Jsoup.parse(in, "UTF-8", "");
+                }
+            }
+            TranscriptWriter.template = template;
+            return template;
+        }
+    }
+
+    private Element renderMessage(Document document, Message message) {
+        // create message group
+        Element messageGroup = document.createElement("div");
+        messageGroup.addClass("chatlog__message-group");
+
+        // message reference
+        if (message.referencedMessage() != null) { // preguntar si es eso
+            // message.reference?.messageId
+            // create symbol
+            Element referenceSymbol = document.createElement("div");
+            referenceSymbol.addClass("chatlog__reference-symbol");
+
+            // create reference
+            Element reference = document.createElement("div");
+            reference.addClass("chatlog__reference");
+
+            Message referenceMessage = message.referencedMessage();
+            String referenceText = referenceMessage.getFormattedText();
+            User author = referenceMessage.author();
+            String color = "#ffffff";
+
+            reference.html("<img class=\"chatlog__reference-avatar\" src=\""
+                    + author.imageUrl() + "\" alt=\"Avatar\" loading=\"lazy\">" +
+                    "<span class=\"chatlog__reference-name\" title=\"" + author.username()
+                    + "\" style=\"color: " + color + "\">" + author.username() + "\"</span>" +
+                    "<div class=\"chatlog__reference-content\">" +
+                    " <span class=\"chatlog__reference-link\" onclick=\"scrollToMessage(event, '"
+                    + referenceMessage.id() + "')\">" +
+                    "<em>" +
+                    (referenceText != null && !referenceText.isEmpty()
+                            ? referenceText.length() > 42 ? referenceText.substring(0, 42) + "..." : referenceText
+                            : "Click to see attachment") +
+                    "</em>" +
+                    "</span>" +
+                    "</div>");
+
+            messageGroup.appendChild(referenceSymbol);
+            messageGroup.appendChild(reference);
+        }
+
+        User author = message.author();
+
+        Element authorElement = document.createElement("div");
+        authorElement.addClass("chatlog__author-avatar-container");
+
+        Element authorAvatar = document.createElement("img");
+        authorAvatar.addClass("chatlog__author-avatar");
+        authorAvatar.attr("src", author.imageUrl());
+        authorAvatar.attr("alt", "Avatar");
+        authorAvatar.attr("loading", "lazy");
+
+        authorElement.appendChild(authorAvatar);
+        messageGroup.appendChild(authorElement);
+
+        // message content
+        Element content = document.createElement("div");
+        content.addClass("chatlog__messages");
+        // message author name
+        Element authorName = document.createElement("span");
+        authorName.addClass("chatlog__author-name");
+        // authorName.attr("title", author.getName()); // author.name
+        authorName.attr("title", author.getAsMention());
+        authorName.text(author.username());
+        authorName.attr("data-user-id", author.id());
+        content.appendChild(authorName);
+
+        if (author.bot()) {
+            Element botTag = document.createElement("span");
+            botTag.addClass("chatlog__bot-tag").text("BOT");
+            content.appendChild(botTag);
+        }
+
+        // timestamp
+        Element timestamp = document.createElement("span");
+        timestamp.addClass("chatlog__timestamp");
+        timestamp
+                .text(message.timestampAsOffsetDateTime().format(TIME));
+
+        content.appendChild(timestamp);
+
+        Element messageContent = document.createElement("div");
+        messageContent.addClass("chatlog__message");
+        messageContent.attr("data-message-id", message.id());
+        messageContent.attr("id", "message-" + message.id());
+        messageContent.attr("title", "Message sent: "
+                + message.timestampAsOffsetDateTime().format(TIME));
+
+        String text = message.getFormattedText();
+        if (text != null && !text.isEmpty()) {
+            Element messageContentContent = document.createElement("div");
+            messageContentContent.addClass("chatlog__content");
+
+            Element messageContentContentMarkdown = document.createElement("div");
+            messageContentContentMarkdown.addClass("markdown");
+
+            Element messageContentContentMarkdownSpan = document.createElement("span");
+            messageContentContentMarkdownSpan.addClass("preserve-whitespace");
+            messageContentContentMarkdownSpan
+                    .html(TranscriptFormatter.format(text));
+
+            messageContentContentMarkdown.appendChild(messageContentContentMarkdownSpan);
+            messageContentContent.appendChild(messageContentContentMarkdown);
+            messageContent.appendChild(messageContentContent);
+        }
+
+        // messsage attachments
+        if (!(message.attachments() == null) && message.attachments().length > 0) {
+            for (Attachment attach : message.attachments()) {
+                if (attachmentListener != null) attachmentListener.accept(attach);
+                Element attachmentsDiv = document.createElement("div");
+                attachmentsDiv.addClass("chatlog__attachment");
+
+                String attachmentType = attach.fileName().substring(attach.fileName().lastIndexOf(".") + 1);
+                if (IMAGE_FORMATS.contains(attachmentType)) {
+                    Element attachmentLink = document.createElement("a");
+
+                    Element attachmentImage = document.createElement("img");
+                    attachmentImage.addClass("chatlog__attachment-media");
+                    attachmentImage.attr("src", attach.url());
+                    attachmentImage.attr("alt", "Image attachment");
+                    attachmentImage.attr("loading", "lazy");
+                    attachmentImage.attr("title",
+                            "Image: " + attach.fileName() + TranscriptFormatter.formatBytes(attach.size()));
+
+                    attachmentLink.appendChild(attachmentImage);
+                    attachmentsDiv.appendChild(attachmentLink);
+                } else if (VIDEO_FORMATS.contains(attachmentType)) {
+                    Element attachmentVideo = document.createElement("video");
+                    attachmentVideo.addClass("chatlog__attachment-media");
+                    attachmentVideo.attr("src", attach.url());
+                    attachmentVideo.attr("alt", "Video attachment");
+                    attachmentVideo.attr("controls", true);
+                    attachmentVideo.attr("title",
+                            "Video: " + attach.fileName() + TranscriptFormatter.formatBytes(attach.size()));
+
+                    attachmentsDiv.appendChild(attachmentVideo);
+                } else if (AUDIO_FORMATS.contains(attachmentType)) {
+                    Element attachmentAudio = document.createElement("audio");
+                    attachmentAudio.addClass("chatlog__attachment-media");
+                    attachmentAudio.attr("src", attach.url());
+                    attachmentAudio.attr("alt", "Audio attachment");
+                    attachmentAudio.attr("controls", true);
+                    attachmentAudio.attr("title",
+                            "Audio: " + attach.size() + TranscriptFormatter.formatBytes(attach.size()));
+
+                    attachmentsDiv.appendChild(attachmentAudio);
+                } else {
+                    Element attachmentGeneric = document.createElement("div");
+                    attachmentGeneric.addClass("chatlog__attachment-generic");
+
+                    Element attachmentGenericIcon = document.createElement("svg");
+                    attachmentGenericIcon.addClass("chatlog__attachment-generic-icon");
+
+                    Element attachmentGenericIconUse = document.createElement("use");
+                    attachmentGenericIconUse.attr("xlink:href", "#icon-attachment");
+
+                    attachmentGenericIcon.appendChild(attachmentGenericIconUse);
+                    attachmentGeneric.appendChild(attachmentGenericIcon);
+
+                    Element attachmentGenericName = document.createElement("div");
+                    attachmentGenericName.addClass("chatlog__attachment-generic-name");
+
+                    Element attachmentGenericNameLink = document.createElement("a");
+                    attachmentGenericNameLink.attr("href", attach.url());
+                    attachmentGenericNameLink.text(attach.fileName());
+
+                    attachmentGenericName.appendChild(attachmentGenericNameLink);
+                    attachmentGeneric.appendChild(attachmentGenericName);
+
+                    Element attachmentGenericSize = document.createElement("div");
+                    attachmentGenericSize.addClass("chatlog__attachment-generic-size");
+
+                    attachmentGenericSize.text(TranscriptFormatter.formatBytes(attach.size()));
+                    attachmentGeneric.appendChild(attachmentGenericSize);
+
+                    attachmentsDiv.appendChild(attachmentGeneric);
+                }
+
+                messageContent.appendChild(attachmentsDiv);
+            }
+        }
+
+        content.appendChild(messageContent);
+
+        if (message.embeds() != null && message.embeds().length > 0) {
+            for (Embed embed : message.embeds()) {
+                if (embed == null) {
+                    continue;
+                }
+                Element embedDiv = document.createElement("div");
+                embedDiv.addClass("chatlog__embed");
+
+                // embed color
+                Element embedColorPill = document.createElement("div");
+                embedColorPill.addClass("chatlog__embed-color-pill");
+                embedColorPill.attr("style",
+                        "background-color: #" + TranscriptFormatter.toHex(embed.color()));
+
+                embedDiv.appendChild(embedColorPill);
+
+                Element embedContentContainer = document.createElement("div");
+                embedContentContainer.addClass("chatlog__embed-content-container");
+
+                Element embedContent = document.createElement("div");
+                embedContent.addClass("chatlog__embed-content");
+
+                Element embedText = document.createElement("div");
+                embedText.addClass("chatlog__embed-text");
+
+                // embed author
+                if (embed.author() != null && embed.author().name() != null) {
+                    Element embedAuthor = document.createElement("div");
+                    embedAuthor.addClass("chatlog__embed-author");
+
+                    if (embed.author().iconUrl() != null) {
+                        Element embedAuthorIcon = document.createElement("img");
+                        embedAuthorIcon.addClass("chatlog__embed-author-icon");
+                        embedAuthorIcon.attr("src", embed.author().iconUrl());
+                        embedAuthorIcon.attr("alt", "Author icon");
+                        embedAuthorIcon.attr("loading", "lazy");
+
+                        embedAuthor.appendChild(embedAuthorIcon);
+                    }
+
+                    Element embedAuthorName = document.createElement("span");
+                    embedAuthorName.addClass("chatlog__embed-author-name");
+
+                    if (embed.author().url() != null) {
+                        Element embedAuthorNameLink = document.createElement("a");
+                        embedAuthorNameLink.addClass("chatlog__embed-author-name-link");
+                        embedAuthorNameLink.attr("href", embed.author().url());
+                        embedAuthorNameLink.text(embed.author().url());
+
+                        embedAuthorName.appendChild(embedAuthorNameLink);
+                    } else {
+                        try {
+                            embedAuthorName.text(embed.author().url());
+                        } catch (Exception e) {
+                        }
+                    }
+
+                    embedAuthor.appendChild(embedAuthorName);
+                    embedText.appendChild(embedAuthor);
+                }
+
+                // embed title
+                if (embed.title() != null) {
+                    Element embedTitle = document.createElement("div");
+                    embedTitle.addClass("chatlog__embed-title");
+
+                    if (embed.url() != null) {
+                        Element embedTitleLink = document.createElement("a");
+                        embedTitleLink.addClass("chatlog__embed-title-link");
+                        embedTitleLink.attr("href", embed.url());
+
+                        Element embedTitleMarkdown = document.createElement("div");
+                        embedTitleMarkdown.addClass("markdown preserve-whitespace")
+                                .html(TranscriptFormatter.format(embed.title()));
+
+                        embedTitleLink.appendChild(embedTitleMarkdown);
+                        embedTitle.appendChild(embedTitleLink);
+                    } else {
+                        Element embedTitleMarkdown = document.createElement("div");
+                        embedTitleMarkdown.addClass("markdown preserve-whitespace")
+                                .html(TranscriptFormatter.format(embed.title()));
+
+                        embedTitle.appendChild(embedTitleMarkdown);
+                    }
+                    embedText.appendChild(embedTitle);
+                }
+
+                // embed description
+                if (embed.description() != null) {
+                    Element embedDescription = document.createElement("div");
+                    embedDescription.addClass("chatlog__embed-description");
+
+                    Element embedDescriptionMarkdown = document.createElement("div");
+                    embedDescriptionMarkdown.addClass("markdown preserve-whitespace");
+                    embedDescriptionMarkdown
+                            .html(TranscriptFormatter.format(embed.description()));
+
+                    embedDescription.appendChild(embedDescriptionMarkdown);
+                    embedText.appendChild(embedDescription);
+                }
+
+                // embed fields
+                if (embed.fields() != null && !(embed.fields().length == 0)) {
+                    Element embedFields = document.createElement("div");
+                    embedFields.addClass("chatlog__embed-fields");
+
+                    for (EmbedField field : embed.fields()) {
+                        Element embedField = document.createElement("div");
+                        embedField.addClass(field.inline() ? "chatlog__embed-field-inline"
+                                : "chatlog__embed-field");
+
+                        // Field nmae
+                        Element embedFieldName = document.createElement("div");
+                        embedFieldName.addClass("chatlog__embed-field-name");
+
+                        Element embedFieldNameMarkdown = document.createElement("div");
+                        embedFieldNameMarkdown.addClass("markdown preserve-whitespace");
+                        embedFieldNameMarkdown.html(field.name());
+
+                        embedFieldName.appendChild(embedFieldNameMarkdown);
+                        embedField.appendChild(embedFieldName);
+
+
+                        // Field value
+                        Element embedFieldValue = document.createElement("div");
+                        embedFieldValue.addClass("chatlog__embed-field-value");
+
+                        Element embedFieldValueMarkdown = document.createElement("div");
+                        embedFieldValueMarkdown.addClass("markdown preserve-whitespace");
+                        embedFieldValueMarkdown
+                                .html(TranscriptFormatter.format(field.value()));
+
+                        embedFieldValue.appendChild(embedFieldValueMarkdown);
+                        embedField.appendChild(embedFieldValue);
+
+                        embedFields.appendChild(embedField);
+                    }
+
+                    embedText.appendChild(embedFields);
+                }
+
+                embedContent.appendChild(embedText);
+
+                // embed thumbnail
+                if (embed.thumbnail() != null) {
+                    Element embedThumbnail = document.createElement("div");
+                    embedThumbnail.addClass("chatlog__embed-thumbnail-container");
+
+                    Element embedThumbnailLink = document.createElement("a");
+                    embedThumbnailLink.addClass("chatlog__embed-thumbnail-link");
+                    embedThumbnailLink.attr("href", embed.thumbnail().url());
+
+                    Element embedThumbnailImage = document.createElement("img");
+                    embedThumbnailImage.addClass("chatlog__embed-thumbnail");
+                    embedThumbnailImage.attr("src", embed.thumbnail().url());
+                    embedThumbnailImage.attr("alt", "Thumbnail");
+                    embedThumbnailImage.attr("loading", "lazy");
+
+                    embedThumbnailLink.appendChild(embedThumbnailImage);
+                    embedThumbnail.appendChild(embedThumbnailLink);
+
+                    embedContent.appendChild(embedThumbnail);
+                }
+
+                embedContentContainer.appendChild(embedContent);
+
+                // embed image
+                if (embed.image() != null) {
+                    Element embedImage = document.createElement("div");
+                    embedImage.addClass("chatlog__embed-image-container");
+
+                    Element embedImageLink = document.createElement("a");
+                    embedImageLink.addClass("chatlog__embed-image-link");
+                    embedImageLink.attr("href", embed.image().url());
+
+                    Element embedImageImage = document.createElement("img");
+                    embedImageImage.addClass("chatlog__embed-image");
+                    embedImageImage.attr("src", embed.image().url());
+                    embedImageImage.attr("alt", "Image");
+                    embedImageImage.attr("loading", "lazy");
+
+                    embedImageLink.appendChild(embedImageImage);
+                    embedImage.appendChild(embedImageLink);
+
+                    embedContentContainer.appendChild(embedImage);
+                }
+
+                // embed footer
+                if (embed.footer() != null) {
+                    Element embedFooter = document.createElement("div");
+                    embedFooter.addClass("chatlog__embed-footer");
+
+                    if (embed.footer().iconUrl() != null) {
+                        Element embedFooterIcon = document.createElement("img");
+                        embedFooterIcon.addClass("chatlog__embed-footer-icon");
+                        embedFooterIcon.attr("src", embed.footer().iconUrl());
+                        embedFooterIcon.attr("alt", "Footer icon");
+                        embedFooterIcon.attr("loading", "lazy");
+
+                        embedFooter.appendChild(embedFooterIcon);
+                    }
+
+                    Element embedFooterText = document.createElement("span");
+                    embedFooterText.addClass("chatlog__embed-footer-text");
+                    embedFooterText.text(embed.timestamp() != null
+                            ? embed.footer().text() + " • " + OffsetDateTime.parse(embed.timestamp())
+                            .format(TIME)
+                            : embed.footer().text());
+
+                    embedFooter.appendChild(embedFooterText);
+
+                    embedContentContainer.appendChild(embedFooter);
+                }
+
+                embedDiv.appendChild(embedContentContainer);
+                content.appendChild(embedDiv);
+            }
+        }
+
+        messageGroup.appendChild(content);
+        return messageGroup;
+    }
+}
@@ -1,11 +1,14 @@
 package com.seailz.discordjar.model.channel.utils;
 
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
+import com.seailz.discordjar.utils.flag.Bitwiseable;
+
 import java.util.EnumSet;
 
 /**
  * Represents the flags of a channel
  */
-public enum ChannelFlags {
+public enum ChannelFlags implements Bitwiseable<ChannelFlags> {
 
     PINNED(1), // 	   this thread is pinned to the top of its parent GUILD_FORUM channel
     REQUIRE_TAG(4); // whether a tag is required to be specified when creating a thread in a GUILD_FORUM channel. Tags are specified in the applied_tags field.
@@ -17,18 +20,17 @@ public enum ChannelFlags {
         this.id = id;
     }
 
+    @Override
     public int getLeftShiftId() {
         return 1 << id;
     }
 
+    @Override
+    public int id() {
+        return id;
+    }
+
     public static EnumSet<ChannelFlags> getChannelFlagsByInt(int flags) {
-        EnumSet<ChannelFlags> set = EnumSet.noneOf(ChannelFlags.class);
-        if (flags == 0)
-            return set;
-        for (ChannelFlags flag : ChannelFlags.values()) {
-            if ((flag.getLeftShiftId() & flags) == flag.getLeftShiftId())
-                set.add(flag);
-        }
-        return set;
+        return BitwiseCodec.of(ChannelFlags.class).decode(flags);
     }
 }
@@ -10,7 +10,9 @@ import com.seailz.discordjar.action.guild.scheduledevents.ModifyScheduledEventAc
 import com.seailz.discordjar.action.guild.onboarding.ModifyOnboardingGuild;
 import com.seailz.discordjar.action.sticker.ModifyStickerAction;
 import com.seailz.discordjar.cache.JsonCache;
+import com.seailz.discordjar.cache.RoleIndex;
 import com.seailz.discordjar.core.Compilerable;
+import com.seailz.discordjar.model.application.Intent;
 import com.seailz.discordjar.model.automod.AutomodRule;
 import com.seailz.discordjar.model.channel.Channel;
 import com.seailz.discordjar.model.channel.GuildChannel;
@@ -34,6 +36,7 @@ import com.seailz.discordjar.model.user.User;
 import com.seailz.discordjar.utils.*;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.utils.rest.DiscordResponse;
+import com.seailz.discordjar.utils.rest.Paginator;
 import com.seailz.discordjar.utils.rest.Response;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
@@ -64,6 +67,7 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
     private final String discoverySplash;
     private final boolean isOwner;
     private final User owner;
+    private final String ownerId;
     private final String permissions;
     private final Channel afkChannel;
     private final int afkTimeout;
@@ -113,6 +117,7 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
             String discoverySplash,
             boolean isOwner,
             User owner,
+            String ownerId,
             String permissions,
             Channel afkChannel,
             int afkTimeout,
@@ -157,6 +162,7 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
         this.discoverySplash = discoverySplash;
         this.isOwner = isOwner;
         this.owner = owner;
+        this.ownerId = ownerId;
         this.permissions = permissions;
         this.afkChannel = afkChannel;
         this.afkTimeout = afkTimeout;
@@ -227,6 +233,10 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
         return owner;
     }
 
+    public String ownerId() {
+        return ownerId;
+    }
+
     public String permissions() {
         return permissions;
     }
@@ -357,7 +367,7 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
                 .put("splash", splash)
                 .put("discovery_splash", discoverySplash)
                 .put("owner", isOwner)
-                .put("owner_id", owner)
+                .put("owner_id", ownerId)
                 .put("permissions", permissions)
                 .put("afk_channel_id", afkChannel.id())
                 .put("afk_timeout", afkTimeout)
@@ -408,6 +418,7 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
         String discoverySplash;
         boolean isOwner;
         User owner;
+        String ownerId;
         String permissions;
         Channel afkChannel;
         int afkTimeout;
@@ -440,245 +451,90 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
         boolean premiumProgressBarEnabled;
         String safetyAlertsChannelId = null;
 
-        try {
-            id = obj.getString("id");
-        } catch (JSONException e) {
-            id = null;
-        }
-
-        try {
-            name = obj.getString("name");
-        } catch (JSONException e) {
-            name = null;
-        }
-
-        try {
-            icon = obj.getString("icon");
-        } catch (JSONException e) {
-            icon = null;
-        }
-
-        try {
-            iconHash = obj.getString("icon_hash");
-        } catch (JSONException e) {
-            iconHash = null;
-        }
-
-        try {
-            splash = obj.getString("splash");
-        } catch (JSONException e) {
-            splash = null;
-        }
-
-        try {
-            discoverySplash = obj.getString("discovery_splash");
-        } catch (JSONException e) {
-            discoverySplash = null;
-        }
-
-        try {
-            isOwner = obj.getBoolean("owner");
-        } catch (JSONException e) {
-            isOwner = false;
-        }
-
-        try {
-            owner = User.decompile(obj.getJSONObject("owner"), discordJar);
-        } catch (JSONException e) {
-            owner = null;
-        }
-
-        try {
-            permissions = obj.getString("permissions");
-        } catch (JSONException e) {
-            permissions = null;
-        }
-
-        try {
-            afkChannel = Channel.decompile(obj.getJSONObject("afk_channel"), discordJar);
-        } catch (JSONException e) {
-            afkChannel = null;
-        }
-
-        try {
-            afkTimeout = obj.getInt("afk_timeout");
-        } catch (JSONException e) {
-            afkTimeout = 0;
-        }
-
-        try {
-            isWidgetEnabled = obj.getBoolean("widget_enabled");
-        } catch (JSONException e) {
-            isWidgetEnabled = false;
-        }
-
-        try {
-            widgetChannelId =obj.getString("widget_channel_id");
-        } catch (JSONException e) {
-            widgetChannelId = null;
-        }
-
-        try {
-            verificationLevel = VerificationLevel.getVerificationLevel(obj.getInt("verification_level"));
-        } catch (JSONException e) {
-            verificationLevel = null;
-        }
-
-        try {
-            defaultMessageNotificationLevel = DefaultMessageNotificationLevel.getDefaultMessageNotificationLevel(obj.getInt("default_message_notifications"));
-        } catch (JSONException e) {
-            defaultMessageNotificationLevel = null;
-        }
-
-        try {
-            explicitContentFilterLevel = ExplicitContentFilterLevel.getExplicitContentFilterLevel(obj.getInt("explicit_content_filter"));
-        } catch (JSONException e) {
-            explicitContentFilterLevel = null;
-        }
-
-        try {
-            JSONArray rolesArray = obj.getJSONArray("roles");
-            roles = new ArrayList<>();
-            for (int i = 0; i < rolesArray.length(); i++) {
-                roles.add(Role.decompile(rolesArray.getJSONObject(i)));
+        id = obj.optString("id", null);
+        name = obj.optString("name", null);
+        icon = obj.optString("icon", null);
+        iconHash = obj.optString("icon_hash", null);
+        splash = obj.optString("splash", null);
+        discoverySplash = obj.optString("discovery_splash", null);
+        isOwner = obj.optBoolean("owner");
+        owner = JsonDecoding.decodeOrNull(obj.optJSONObject("owner"), json -> User.decompile(json, discordJar));
+        ownerId = obj.optString("owner_id", owner == null ? null : owner.id());
+        permissions = obj.optString("permissions", null);
+        afkChannel = JsonDecoding.decodeOrNull(obj.optJSONObject("afk_channel"), json -> Channel.decompile(json, discordJar));
+        afkTimeout = obj.optInt("afk_timeout");
+        isWidgetEnabled = obj.optBoolean("widget_enabled");
+        widgetChannelId = obj.optString("widget_channel_id", null);
+        verificationLevel = obj.isNull("verification_level") ? null : VerificationLevel.getVerificationLevel(obj.getInt("verification_level"));
+        defaultMessageNotificationLevel = obj.isNull("default_message_notifications") ? null : DefaultMessageNotificationLevel.getDefaultMessageNotificationLevel(obj.getInt("default_message_notifications"));
+        explicitContentFilterLevel = obj.isNull("explicit_content_filter") ? null : ExplicitContentFilterLevel.getExplicitContentFilterLevel(obj.getInt("explicit_content_filter"));
+
+        JSONArray rolesArray = obj.optJSONArray("roles");
+        roles = null;
+        if (rolesArray != null) {
+            try {
+                roles = new ArrayList<>(rolesArray.length());
+                for (int i = 0; i < rolesArray.length(); i++) {
+                    roles.add(Role.decompile(rolesArray.getJSONObject(i)));
+                }
+            } catch (JSONException e) {
+                roles = null;
             }
-        } catch (JSONException e) {
-            roles = null;
         }
 
-        try {
-            JSONArray emojisArray = obj.getJSONArray("emojis");
-            emojis = new ArrayList<>();
-            for (int i = 0; i < emojisArray.length(); i++) {
-                emojis.add(Emoji.decompile(emojisArray.getJSONObject(i), discordJar));
+        JSONArray emojisArray = obj.optJSONArray("emojis");
+        emojis = null;
+        if (emojisArray != null) {
+            try {
+                emojis = new ArrayList<>(emojisArray.length());
+                for (int i = 0; i < emojisArray.length(); i++) {
+                    emojis.add(Emoji.decompile(emojisArray.getJSONObject(i), discordJar));
+                }
+            } catch (JSONException e) {
+                emojis = null;
             }
-        } catch (JSONException e) {
-            emojis = null;
         }
 
-        try {
-            features = GuildFeature.getGuildFeatures(obj.getJSONArray("features").toList().toArray(new String[0]));
-        } catch (JSONException e) {
+        JSONArray featuresArray = obj.optJSONArray("features");
+        if (featuresArray != null) {
+            String[] featureNames = new String[featuresArray.length()];
+            for (int i = 0; i < featureNames.length; i++) featureNames[i] = featuresArray.getString(i);
+            features = GuildFeature.getGuildFeatures(featureNames);
+        } else {
             features = null;
         }
 
-        try {
-            mfaLevel = MFALevel.getMFALevel(obj.getInt("mfa_level"));
-        } catch (JSONException e) {
-            mfaLevel = null;
-        }
-
-        try {
-            applicationId = obj.getString("application_id");
-        } catch (JSONException e) {
-            applicationId = null;
-        }
-
-        try {
-            systemChannelId = obj.getString("system_channel_id");
-        } catch (IllegalArgumentException | JSONException e) {
-            systemChannelId = null;
-        }
-
-        try {
-            maxPresences = obj.getInt("max_presences");
-        } catch (JSONException e) {
-            maxPresences = 0;
-        }
-
-        try {
-            maxMembers = obj.getInt("max_members");
-        } catch (JSONException e) {
-            maxMembers = 0;
-        }
-
-        try {
-            vanityUrlCode = obj.getString("vanity_url_code");
-        } catch (JSONException e) {
-            vanityUrlCode = null;
-        }
-
-        try {
-            description = obj.getString("description");
-        } catch (JSONException e) {
-            description = null;
-        }
-
-        try {
-            banner = obj.getString("banner");
-        } catch (JSONException e) {
-            banner = null;
-        }
-
-        try {
-            premiumTier = PremiumTier.getPremiumTier(obj.getInt("premium_tier"));
-        } catch (JSONException e) {
-            premiumTier = null;
-        }
-
-        try {
-            premiumSubscriptionCount = obj.getInt("premium_subscription_count");
-        } catch (JSONException e) {
-            premiumSubscriptionCount = 0;
-        }
-
-        try {
-            preferredLocale = obj.getString("preferred_locale");
-        } catch (JSONException e) {
-            preferredLocale = null;
-        }
-
-        try {
-            publicUpdatesChannelId = obj.getString("public_updates_channel_id");
-        } catch (Exception e) {
-            publicUpdatesChannelId = null;
-        }
-
-        try {
-            maxVideoChannelUsers = obj.getInt("max_video_channel_users");
-        } catch (JSONException e) {
-            maxVideoChannelUsers = 0;
-        }
-        
-        try {
-            approximateMemberCount = obj.getInt("approximate_member_count");
-        } catch (JSONException e) {
-            approximateMemberCount = 0;
-        }
-
-        try {
-            approximateMemberCount = obj.getInt("approximate_member_count");
-        } catch (JSONException e) {
-            approximateMemberCount = 0;
-        }
-
-        try {
-            approximatePresenceCount = obj.getInt("approximate_presence_count");
-        } catch (JSONException e) {
-            approximatePresenceCount = 0;
-        }
-
-        try {
-            welcomeScreen = WelcomeScreen.decompile(obj.getJSONObject("welcome_screen"), discordJar);
-        } catch (JSONException e) {
-            welcomeScreen = null;
-        }
-
-        try {
-            JSONArray stickersArray = obj.getJSONArray("stickers");
-            stickers = new ArrayList<>();
-            for (int i = 0; i < stickersArray.length(); i++) {
-                stickers.add(Sticker.decompile(stickersArray.getJSONObject(i), discordJar));
+        mfaLevel = obj.isNull("mfa_level") ? null : MFALevel.getMFALevel(obj.getInt("mfa_level"));
+        applicationId = obj.optString("application_id", null);
+        systemChannelId = obj.optString("system_channel_id", null);
+        maxPresences = obj.optInt("max_presences");
+        maxMembers = obj.optInt("max_members");
+        vanityUrlCode = obj.optString("vanity_url_code", null);
+        description = obj.optString("description", null);
+        banner = obj.optString("banner", null);
+        premiumTier = obj.isNull("premium_tier") ? null : PremiumTier.getPremiumTier(obj.getInt("premium_tier"));
+        premiumSubscriptionCount = obj.optInt("premium_subscription_count");
+        preferredLocale = obj.optString("preferred_locale", null);
+        publicUpdatesChannelId = obj.optString("public_updates_channel_id", null);
+        maxVideoChannelUsers = obj.optInt("max_video_channel_users");
+        approximateMemberCount = obj.optInt("approximate_member_count");
+        approximatePresenceCount = obj.optInt("approximate_presence_count");
+        welcomeScreen = JsonDecoding.decodeOrNull(obj.optJSONObject("welcome_screen"), json -> WelcomeScreen.decompile(json, discordJar));
+
+        JSONArray stickersArray = obj.optJSONArray("stickers");
+        stickers = null;
+        if (stickersArray != null) {
+            try {
+                stickers = new ArrayList<>(stickersArray.length());
+                for (int i = 0; i < stickersArray.length(); i++) {
+                    stickers.add(Sticker.decompile(stickersArray.getJSONObject(i), discordJar));
+                }
+            } catch (JSONException e) {
+                stickers = null;
             }
-        } catch (JSONException e) {
-            stickers = null;
         }
 
-        try {
-            premiumProgressBarEnabled = obj.getBoolean("premium_progress_bar_enabled");
-        } catch (JSONException e) {
-            premiumProgressBarEnabled = false;
-        }
+        premiumProgressBarEnabled = obj.optBoolean("premium_progress_bar_enabled");
 
         if (obj.has("safety_alerts_channel_id") && !obj.isNull("safety_alerts_channel_id")) {
             safetyAlertsChannelId = obj.getString("safety_alerts_channel_id");
@@ -695,6 +551,7 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
                 discoverySplash,
                 isOwner,
                 owner,
+                ownerId,
                 permissions,
                 afkChannel,
                 afkTimeout,
@@ -992,6 +849,17 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
         return members;
     }
 
+    /**
+     * Iterates over every member of the guild, in order of their user ids. Requires the {@code GUILD_MEMBERS} intent.
+     * <br>Members are requested 1000 at a time as the list is consumed, so even the largest guilds are processed in constant memory.
+     * <br>If the list isn't consumed until the end, the paginator should be closed.
+     *
+     * @return A {@link Paginator} of the guild's members
+     */
+    public Paginator<Member> members() {
+        return new Paginator<>(after -> getMembers(1000, after), member -> member.user().id(), 1000);
+    }
+
     public List<Member> getMembers() {
         JSONArray arr = null;
         try {
@@ -1106,11 +974,15 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
 
     /**
      * Retrieves all the roles of a guild.
-     * This method uses caching, the cache will reset every 1 minute.
+     * <br>If the bot receives guild events, the roles are taken from the guild's {@link RoleIndex role index}, which is kept up to date
+     * <br>by role events. Otherwise, this method uses caching, the cache will reset every 1 minute.
      *
      * @return
      */
     public List<Role> roles() {
+        RoleIndex index = liveRoleIndex();
+        if (index != null && index.isPopulated()) return new ArrayList<>(index.roles());
+
         if (roleCache != null && !roleCache.isEmpty()) {
             List<Role> roles = new ArrayList<>();
             roleCache.get().getJSONArray("data").forEach(
@@ -1142,6 +1014,7 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
         }
 
         res.forEach(o -> roles.add(Role.decompile((JSONObject) o)));
+        if (index != null) index.set(roles);
 
         if (roleCache != null) {
             roleCache.update(new JSONObject().put("data", res));
@@ -1183,14 +1056,13 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
      * <br>nothing can be found, returns null.
      * <p>
      * Discord assigns the {@link Guild guild} id to the <b>@everyone</b> {@link Role role} id,
-     * <br>so this method loops through all the roles of the guild and checks if the id matches
-     * <br>using Java Streams.
+     * <br>so this method looks up the role with the id of the guild.
      *
      * @return {@link Role role} or <b>null</b>
      */
     @Nullable
     public Role getEveryoneRole() {
-        return roles().stream().filter(r -> r.id().equals(id())).findFirst().orElse(null);
+        return getRoleById(id());
     }
 
     public CreateGuildChannelAction createChannel(String name, ChannelType type) {
@@ -1285,12 +1157,26 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
      * @return The role if it exists, {@code null} if it does not.
      */
     public Role getRoleById(String id) {
+        RoleIndex index = liveRoleIndex();
+        if (index != null) {
+            if (!index.isPopulated()) roles();
+            return index.get(id);
+        }
         for (Role r : roles()) {
             if (r.id().equals(id)) return r;
         }
         return null;
     }
 
+    /**
+     * Returns the guild's role index, or null if it isn't kept up to date because the bot doesn't receive role events.
+     */
+    @Nullable
+    RoleIndex liveRoleIndex() {
+        if (!discordJar.getIntents().contains(Intent.GUILDS)) return null;
+        return discordJar.getRoleIndex(id);
+    }
+
     /**
      * Gets a list of roles from the guild with the given name.
      * @param name A name to find.
@@ -1346,6 +1232,45 @@ public class Guild implements Compilerable, Snowflake, CDNAble {
         return bans;
     }
 
+    /**
+     * Gets a page of the bans on the guild, in order of the banned users' ids. Requires the {@code BAN_MEMBERS} permission.
+     * @param limit The number of bans to return, between 1 and 1000
+     * @param after The id of the user to start after, or {@code null} to start from the beginning
+     * @return Up to {@code limit} guild bans
+     */
+    public List<GuildBan> getBans(int limit, String after) {
+        Checker.check(limit <= 0, "Limit must be greater than 0");
+        Checker.check(limit > 1000, "Limit must be less than or equal to 1000");
+        DiscordResponse response;
+        try {
+            response = new DiscordRequest(
+                    new JSONObject(),
+                    new HashMap<>(),
+                    URLS.GET.GUILDS.BANS.replace("{guild.id}", id) + "?limit=" + limit + (after == null ? "" : "&after=" + after),
+                    discordJar,
+                    URLS.GET.GUILDS.BANS,
+                    RequestMethod.GET
+            ).invoke();
+        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
+            throw new DiscordRequest.DiscordAPIErrorException(e);
+        }
+
+        List<GuildBan> bans = new ArrayList<>();
+        if (response == null || response.arr() == null) return bans;
+        response.arr().forEach((object) -> bans.add(GuildBan.decompile((JSONObject) object, discordJar)));
+        return bans;
+    }
+
+    /**
+     * Iterates over every ban on the guild, requesting them 1000 at a time. Requires the {@code BAN_MEMBERS} permission.
+     * <br>If the bans aren't consumed until the end, the paginator should be closed.
+     *
+     * @return A {@link Paginator} of the guild's bans
+     */
+    public Paginator<GuildBan> bans() {
+        return new Paginator<>(after -> getBans(1000, after), ban -> ban.user().id(), 1000);
+    }
+
     /**
      * Gets a ban on a user in the guild. Returns {@code null} if no ban could be found. Requires the {@code BAN_MEMBERS} permission.
      * @param userId The id of the banned user
@@ -1,6 +1,8 @@
 package com.seailz.discordjar.model.guild;
 
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 
 public enum GuildFeature {
 
@@ -65,14 +67,17 @@ public enum GuildFeature {
 
     UNKNOWN;
 
+    // Looked up instead of using valueOf, since Discord adds features often and unknown ones would otherwise throw
+    private static final Map<String, GuildFeature> BY_NAME = new HashMap<>();
+
+    static {
+        for (GuildFeature feature : values()) BY_NAME.put(feature.name(), feature);
+    }
+
     public static EnumSet<GuildFeature> getGuildFeatures(String[] features) {
         EnumSet<GuildFeature> guildFeatures = EnumSet.noneOf(GuildFeature.class);
         for (String feature : features) {
-            try {
-                guildFeatures.add(GuildFeature.valueOf(feature.toUpperCase()));
-            } catch (IllegalArgumentException e) {
-                guildFeatures.add(GuildFeature.UNKNOWN);
-            }
+            guildFeatures.add(BY_NAME.getOrDefault(feature.toUpperCase(), UNKNOWN));
         }
         return guildFeatures;
     }
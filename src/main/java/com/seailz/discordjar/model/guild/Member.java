@@ -1,19 +1,23 @@
 package com.seailz.discordjar.model.guild;
 
 import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.cache.RoleIndex;
 import com.seailz.discordjar.core.Compilerable;
+import com.seailz.discordjar.model.application.Intent;
+import com.seailz.discordjar.model.channel.GuildChannel;
 import com.seailz.discordjar.model.resolve.Resolvable;
 import com.seailz.discordjar.model.role.Role;
 import com.seailz.discordjar.model.user.User;
 import com.seailz.discordjar.utils.Checker;
 import com.seailz.discordjar.utils.URLS;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
-import com.seailz.discordjar.utils.flag.BitwiseUtil;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
+import com.seailz.discordjar.utils.flag.FlagSet;
 import com.seailz.discordjar.utils.permission.Permission;
 import com.seailz.discordjar.voice.model.VoiceState;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
-import org.json.JSONException;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.lang.NonNull;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -30,21 +34,27 @@ public class Member implements Compilerable, Resolvable {
     private User user;
     private String nick;
     private String avatar;
-    private Role[] roles;
     private List<String> roleIds;
     private String joinedAt;
     private String premiumSince;
     private boolean deaf;
     private boolean mute;
     private boolean pending;
-    private List<Permission> permissions;
+    private Collection<Permission> permissions;
     private String communicationDisabledUntil;
     private String guildId;
-    private List<MemberFlags> flags;
+    private Collection<MemberFlags> flags;
     private int flagsRaw;
     private DiscordJar discordJar;
+    // Decoded flags are kept as views of their bits, and only copied into lists if those are asked for
+    private List<Permission> permissionsList;
+    private List<MemberFlags> flagsList;
 
     public Member(User user, String nick, String avatar, List<String> roles, String joinedAt, String premiumSince, boolean deaf, boolean mute, boolean pending, List<Permission> permissions, String communicationDisabledUntil, String guildId, List<MemberFlags> flags, int flagsRaw, DiscordJar discordJar) {
+        this(user, nick, avatar, roles, joinedAt, premiumSince, deaf, mute, pending, (Collection<Permission>) permissions, communicationDisabledUntil, guildId, (Collection<MemberFlags>) flags, flagsRaw, discordJar);
+    }
+
+    private Member(User user, String nick, String avatar, List<String> roles, String joinedAt, String premiumSince, boolean deaf, boolean mute, boolean pending, Collection<Permission> permissions, String communicationDisabledUntil, String guildId, Collection<MemberFlags> flags, int flagsRaw, DiscordJar discordJar) {
         this.user = user;
         this.nick = nick;
         this.avatar = avatar;
@@ -64,10 +74,6 @@ public class Member implements Compilerable, Resolvable {
 
     @Override
     public JSONObject compile() {
-        int permissions = 0;
-        for (Permission permission : this.permissions) {
-            permissions += permission.getLeftShiftId();
-        }
         JSONObject obj = new JSONObject();
         obj.put("user", user.compile());
         obj.put("nick", nick);
@@ -78,7 +84,7 @@ public class Member implements Compilerable, Resolvable {
         obj.put("deaf", deaf);
         obj.put("mute", mute);
         obj.put("pending", pending);
-        obj.put("permissions", permissions);
+        if (permissions != null) obj.put("permissions", String.valueOf(BitwiseCodec.of(Permission.class).encode(permissions)));
         obj.put("communication_disabled_until", communicationDisabledUntil);
         obj.put("flags", flagsRaw);
         return obj;
@@ -104,53 +110,63 @@ public class Member implements Compilerable, Resolvable {
         boolean deaf = false;
         boolean mute = false;
         boolean pending = false;
-        List<MemberFlags> flags = null;
+        FlagSet<MemberFlags> flags = null;
         int flagsRaw = 0;
-        List<Permission> permissions = null;
+        FlagSet<Permission> permissions = null;
         String communicationDisabledUntil = null;
 
-        if (obj.has("user") && obj.get("user") != JSONObject.NULL) user = User.decompile(obj.getJSONObject("user"), discordJar);
-        if (obj.has("nick") && obj.get("nick") != JSONObject.NULL) nick = obj.getString("nick");
-        if (obj.has("avatar") && obj.get("avatar") != JSONObject.NULL) avatar = obj.getString("avatar");
-        if (obj.has("roles")) {
-                List<String> rolesList = new ArrayList<>();
-                for (Object o : obj.getJSONArray("roles")) {
-                    rolesList.add((String) o);
-                }
-                roles = rolesList;
+        JSONObject userJson = obj.optJSONObject("user");
+        if (userJson != null) user = User.decompile(userJson, discordJar);
+        nick = obj.optString("nick", null);
+        avatar = obj.optString("avatar", null);
+        JSONArray rolesArray = obj.optJSONArray("roles");
+        if (rolesArray != null) {
+            List<String> rolesList = new ArrayList<>(rolesArray.length());
+            for (int i = 0; i < rolesArray.length(); i++) {
+                rolesList.add(rolesArray.getString(i));
+            }
+            roles = rolesList;
         }
-        if (obj.has("joined_at") && obj.get("joined_at") != JSONObject.NULL) joinedAt = obj.getString("joined_at");
-        if (obj.has("premium_since") && obj.get("premium_since") != JSONObject.NULL) premiumSince = obj.getString("premium_since");
-        if (obj.has("deaf") && obj.get("deaf") != JSONObject.NULL) deaf = obj.getBoolean("deaf");
-        if (obj.has("mute") && obj.get("mute") != JSONObject.NULL) mute = obj.getBoolean("mute");
-        if (obj.has("pending") && obj.get("pending") != JSONObject.NULL) pending = obj.getBoolean("pending");
-
-        try {
-            BitwiseUtil<Permission> bitwiseUtil = new BitwiseUtil<>();
-            List<Permission> permissionsList = new ArrayList<>(bitwiseUtil.get(
-                    Long.parseLong(obj.getString("permissions")), Permission.class));
-            permissions = permissionsList;
-        } catch (JSONException e) {
-            permissions = null;
+        joinedAt = obj.optString("joined_at", null);
+        premiumSince = obj.optString("premium_since", null);
+        deaf = obj.optBoolean("deaf");
+        mute = obj.optBoolean("mute");
+        pending = obj.optBoolean("pending");
+
+        // Only sent in interactions, so checked for rather than caught
+        String permissionsRaw = obj.optString("permissions", null);
+        if (permissionsRaw != null) {
+            permissions = BitwiseCodec.of(Permission.class).view(Long.parseLong(permissionsRaw));
         }
 
-        if (obj.has("flags")) {
+        if (!obj.isNull("flags")) {
             flagsRaw = obj.getInt("flags");
-            BitwiseUtil<MemberFlags> bitwiseUtil = new BitwiseUtil<>();
-            flags = new ArrayList<>(bitwiseUtil.get(flagsRaw, MemberFlags.class));
+            flags = BitwiseCodec.of(MemberFlags.class).view(flagsRaw);
         }
 
-        if (obj.has("communication_disabled_until") && obj.get("communication_disabled_until") != JSONObject.NULL)
-            communicationDisabledUntil = obj.getString("communication_disabled_until");
+        communicationDisabledUntil = obj.optString("communication_disabled_until", null);
         return new Member(user, nick, avatar, roles, joinedAt, premiumSince, deaf, mute, pending, permissions, communicationDisabledUntil, guildId, flags, flagsRaw, discordJar);
     }
 
     public Role[] roles() {
         if (this.roleIds == null) return null;
-        if (this.roles != null) return this.roles;
-        Role[] roles = discordJar.getGuildById(guildId).roles().stream().filter(role -> roleIds.contains(role.id())).toArray(Role[]::new);
-        this.roles = roles;
-        return roles;
+        // The index is only kept up to date with the GUILDS intent, otherwise the guild has to be asked for its roles
+        RoleIndex index = discordJar.getIntents().contains(Intent.GUILDS) ? discordJar.getRoleIndex(guildId) : null;
+        if (index == null || !index.isPopulated()) {
+            Guild guild = discordJar.getGuildById(guildId);
+            if (index == null) return guild.roles().stream().filter(role -> roleIds.contains(role.id())).toArray(Role[]::new);
+            // Fills the index
+            guild.roles();
+        }
+
+        Role[] roles = new Role[roleIds.size()];
+        int found = 0;
+        for (String roleId : roleIds) {
+            Role role = index.get(roleId);
+            // The role may have been deleted after the member was cached
+            if (role != null) roles[found++] = role;
+        }
+        return found == roles.length ? roles : Arrays.copyOf(roles, found);
     }
 
     public boolean hasRole(@NotNull String roleId) {
@@ -265,8 +281,20 @@ public class Member implements Compilerable, Resolvable {
         }
     }
 
+    /**
+     * Checks whether the member has a permission in the guild.
+     * <br>Members received with an interaction carry their permissions, otherwise they are computed from the member's roles.
+     */
     public boolean hasPermission(Permission perm) {
-        return permissions.contains(perm);
+        if (permissions != null) return permissions.contains(perm);
+        return discordJar.getPermissionsUtil().hasPermission(this, perm);
+    }
+
+    /**
+     * Checks whether the member has a permission in a channel, taking the channel's overwrites into account.
+     */
+    public boolean hasPermission(@NotNull GuildChannel channel, @NotNull Permission perm) {
+        return discordJar.getPermissionsUtil().hasPermission(this, channel, perm);
     }
 
     public String guildId() {
@@ -282,11 +310,15 @@ public class Member implements Compilerable, Resolvable {
     }
 
     public List<MemberFlags> flags() {
-        return flags;
+        if (flags == null || flags instanceof List<MemberFlags>) return (List<MemberFlags>) flags;
+        if (flagsList == null) flagsList = List.copyOf(flags);
+        return flagsList;
     }
 
     public List<Permission> permissions() {
-        return permissions;
+        if (permissions == null || permissions instanceof List<Permission>) return (List<Permission>) permissions;
+        if (permissionsList == null) permissionsList = List.copyOf(permissions);
+        return permissionsList;
     }
 
     public String avatar() {
@@ -9,7 +9,7 @@ import com.seailz.discordjar.model.guild.Member;
 import com.seailz.discordjar.model.message.Message;
 import com.seailz.discordjar.model.monetization.Entitlement;
 import com.seailz.discordjar.model.user.User;
-import com.seailz.discordjar.utils.flag.BitwiseUtil;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
 import com.seailz.discordjar.utils.permission.Permission;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import org.jetbrains.annotations.NotNull;
@@ -84,8 +84,7 @@ public class Interaction implements Compilerable {
         this.version = version;
         this.message = message;
         if (appPermissions != null) {
-            BitwiseUtil<Permission> bitwiseUtil = new BitwiseUtil<>();
-            this.appPermissions = bitwiseUtil.get(Long.parseLong(appPermissions), Permission.class);
+            this.appPermissions = BitwiseCodec.of(Permission.class).decode(Long.parseLong(appPermissions));
         } else {
             this.appPermissions = EnumSet.noneOf(Permission.class);
         }
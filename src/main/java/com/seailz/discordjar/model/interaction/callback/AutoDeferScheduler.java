@@ -0,0 +1,321 @@
+package com.seailz.discordjar.model.interaction.callback;
+
+import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.model.interaction.InteractionType;
+import com.seailz.discordjar.utils.URLS;
+import com.seailz.discordjar.utils.rest.DiscordRequest;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONObject;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Tracks when every interaction was received, and how long it took until it was responded to.
+ * <br>Discord only accepts an initial response within 3 seconds of an interaction being created. If a budget is set with
+ * <br>{@link #setBudget(Duration)}, any interaction that hasn't been responded to within that budget is deferred automatically:
+ * <ul>
+ *     <li>Commands and modal submissions receive {@link InteractionCallbackType#DEFERRED_CHANNEL_MESSAGE_WITH_SOURCE},</li>
+ *     <li>Components receive {@link InteractionCallbackType#DEFERRED_UPDATE_MESSAGE}.</li>
+ * </ul>
+ * When the handler replies after that, discord.jar turns the reply into an edit of the deferred response (or a followup
+ * <br>for a component that replied with a new message), so handlers don't have to know whether they were deferred.
+ * <br>Modals can't be shown after an interaction has been deferred, so those responses fail.
+ *
+ * <p>Interactions are only tracked while auto-deferring is enabled, so latency metrics are only collected then, and nothing is
+ * <br>tracked or scheduled otherwise. An interaction is forgotten as soon as it has been responded to.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.DiscordJarBuilder#setAutoDefer(Duration, boolean)
+ */
+public class AutoDeferScheduler {
+
+    /**
+     * A budget that leaves enough of the 3 second window for the deferred response to reach Discord.
+     */
+    public static final Duration DEFAULT_BUDGET = Duration.ofMillis(2000);
+    private static final long TOKEN_LIFETIME_NANOS = TimeUnit.MINUTES.toNanos(15);
+
+    private final Logger logger = Logger.getLogger("AutoDeferScheduler");
+    private final DiscordJar discordJar;
+    private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+    private final List<Consumer<InteractionLatency>> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder autoDeferred = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private final AtomicLong totalHandlerNanos = new AtomicLong();
+    private final AtomicLong maxHandlerNanos = new AtomicLong();
+    private volatile Duration budget = null;
+    private volatile boolean ephemeral = false;
+    private ScheduledExecutorService timer;
+
+    public AutoDeferScheduler(@NotNull DiscordJar discordJar) {
+        this.discordJar = discordJar;
+    }
+
+    /**
+     * Starts tracking an interaction.
+     *
+     * @param interaction The interaction payload
+     * @param receivedAtNanos When the interaction was received, from {@link System#nanoTime()}
+     */
+    public void track(@NotNull JSONObject interaction, long receivedAtNanos) {
+        Duration budget = this.budget;
+        if (budget == null) return;
+        InteractionType type = InteractionType.getType(interaction.getInt("type"));
+        // Autocomplete interactions can't be deferred
+        if (type == InteractionType.PING || type == InteractionType.UNKNOWN || type == InteractionType.APPLICATION_COMMAND_AUTOCOMPLETE) return;
+
+        Tracked entry = new Tracked(interaction.getString("id"), interaction.getString("token"), type, receivedAtNanos);
+        tracked.put(entry.id, entry);
+        long delay = budget.toNanos() - (System.nanoTime() - receivedAtNanos);
+        entry.task = timer().schedule(() -> autoDefer(entry), Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Called right before an initial response is sent for an interaction.
+     *
+     * @param interactionId The id of the interaction
+     * @return null if the caller should send its initial response, or how the interaction has already been automatically
+     * deferred, in which case the response must be sent as an edit or followup once {@link AutoDeferred#sent()} completes.
+     * <br>This doesn't wait for the deferred response to be sent.
+     */
+    @Nullable
+    public AutoDeferred acknowledge(@NotNull String interactionId) {
+        if (tracked.isEmpty()) return null;
+        Tracked entry = tracked.remove(interactionId);
+        if (entry == null) return null;
+
+        long handlerNanos = System.nanoTime() - entry.receivedAt;
+        if (entry.state.compareAndSet(State.PENDING, State.ACKNOWLEDGED)) {
+            if (entry.task != null) entry.task.cancel(false);
+            finish(entry, handlerNanos);
+            return null;
+        }
+
+        finish(entry, handlerNanos);
+        return new AutoDeferred(entry.deferType, entry.deferSent);
+    }
+
+    /**
+     * Registers a listener that is called with the latency of every interaction once it has been responded to,
+     * or once its token has expired without a response.
+     */
+    public void addLatencyListener(@NotNull Consumer<InteractionLatency> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeLatencyListener(@NotNull Consumer<InteractionLatency> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns aggregated latency metrics since the bot was started.
+     */
+    @NotNull
+    public Stats getStats() {
+        long count = handled.sum();
+        return new Stats(
+                count,
+                autoDeferred.sum(),
+                missed.sum(),
+                count == 0 ? Duration.ZERO : Duration.ofNanos(totalHandlerNanos.get() / count),
+                Duration.ofNanos(maxHandlerNanos.get())
+        );
+    }
+
+    /**
+     * Sets how long a handler may take to respond before the interaction is deferred automatically.
+     * @param budget The budget, or null to disable auto-deferring
+     */
+    public AutoDeferScheduler setBudget(@Nullable Duration budget) {
+        if (budget != null && (budget.isNegative() || budget.toMillis() >= 3000))
+            throw new IllegalArgumentException("The budget must be less than 3 seconds");
+        this.budget = budget;
+        return this;
+    }
+
+    /**
+     * Sets whether automatically deferred command responses should be ephemeral.
+     */
+    public AutoDeferScheduler setEphemeral(boolean ephemeral) {
+        this.ephemeral = ephemeral;
+        return this;
+    }
+
+    @Nullable
+    public Duration getBudget() {
+        return budget;
+    }
+
+    public boolean isEphemeral() {
+        return ephemeral;
+    }
+
+    private void autoDefer(Tracked entry) {
+        // Set before the state changes, so it's visible to whoever sees the interaction as deferred
+        entry.deferLatency = System.nanoTime() - entry.receivedAt;
+        if (!entry.state.compareAndSet(State.PENDING, State.AUTO_DEFERRED)) return;
+        autoDeferred.increment();
+
+        JSONObject body = new JSONObject().put("type", entry.deferType.getCode());
+        if (entry.deferType == InteractionCallbackType.DEFERRED_CHANNEL_MESSAGE_WITH_SOURCE)
+            body.put("data", new JSONObject().put("flags", ephemeral ? 64 : 0));
+
+        try {
+            new DiscordRequest(
+                    body,
+                    new HashMap<>(),
+                    URLS.POST.INTERACTIONS.CALLBACK.replace("{interaction.id}", entry.id).replace("{interaction.token}", entry.token),
+                    discordJar,
+                    URLS.POST.INTERACTIONS.CALLBACK,
+                    RequestMethod.POST
+            ).invoke();
+            if (discordJar.isDebug()) logger.info("[discord.jar] Automatically deferred interaction " + entry.id + " after " + TimeUnit.NANOSECONDS.toMillis(entry.deferLatency) + "ms");
+        } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
+            logger.warning("[discord.jar] Failed to automatically defer interaction " + entry.id + ": " + e.getMessage());
+        } finally {
+            entry.deferSent.complete(null);
+        }
+    }
+
+    private void finish(Tracked entry, long handlerNanos) {
+        handled.increment();
+        totalHandlerNanos.addAndGet(handlerNanos);
+        maxHandlerNanos.accumulateAndGet(handlerNanos, Math::max);
+        publish(entry, Duration.ofNanos(handlerNanos));
+    }
+
+    private void publish(Tracked entry, @Nullable Duration handlerLatency) {
+        if (listeners.isEmpty()) return;
+        InteractionLatency latency = new InteractionLatency(
+                entry.id,
+                entry.type,
+                handlerLatency,
+                entry.state.get() == State.AUTO_DEFERRED ? Duration.ofNanos(entry.deferLatency) : null
+        );
+        for (Consumer<InteractionLatency> listener : listeners) {
+            try {
+                listener.accept(latency);
+            } catch (Exception e) {
+                logger.warning("[discord.jar] Interaction latency listener threw an exception: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Forgets interactions whose token has expired.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        for (Tracked entry : tracked.values()) {
+            if (now - entry.receivedAt < TOKEN_LIFETIME_NANOS) continue;
+            if (!tracked.remove(entry.id, entry)) continue;
+            if (entry.state.get() == State.PENDING) missed.increment();
+            publish(entry, null);
+        }
+    }
+
+    private synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            AtomicInteger count = new AtomicInteger();
+            // Deferring makes a blocking request, so more than one thread is used to keep deadlines from queueing up
+            timer = Executors.newScheduledThreadPool(2, r -> {
+                Thread thread = new Thread(r, "djar--auto-defer-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.scheduleAtFixedRate(this::sweep, 1, 1, TimeUnit.MINUTES);
+        }
+        return timer;
+    }
+
+    private enum State {
+        PENDING,
+        ACKNOWLEDGED,
+        AUTO_DEFERRED
+    }
+
+    private static class Tracked {
+        private final String id;
+        private final String token;
+        private final InteractionType type;
+        private final long receivedAt;
+        private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+        private final CompletableFuture<Void> deferSent = new CompletableFuture<>();
+        private final InteractionCallbackType deferType;
+        private volatile ScheduledFuture<?> task;
+        private volatile long deferLatency;
+
+        Tracked(String id, String token, InteractionType type, long receivedAt) {
+            this.id = id;
+            this.token = token;
+            this.type = type;
+            this.receivedAt = receivedAt;
+            this.deferType = type == InteractionType.MESSAGE_COMPONENT
+                    ? InteractionCallbackType.DEFERRED_UPDATE_MESSAGE
+                    : InteractionCallbackType.DEFERRED_CHANNEL_MESSAGE_WITH_SOURCE;
+        }
+    }
+
+    /**
+     * How an interaction was automatically deferred.
+     *
+     * @param type The type the interaction was deferred with
+     * @param sent Completes once the deferred response has been sent, after which the handler's response can be sent
+     */
+    public record AutoDeferred(InteractionCallbackType type, CompletableFuture<Void> sent) {}
+
+    /**
+     * Response latency of a single interaction.
+     *
+     * @param interactionId The id of the interaction
+     * @param type The type of the interaction
+     * @param handlerLatency How long it took until the handler responded, or null if it never did
+     * @param autoDeferLatency How long it took until the interaction was automatically deferred, or null if it wasn't
+     */
+    public record InteractionLatency(
+            String interactionId,
+            InteractionType type,
+            @Nullable Duration handlerLatency,
+            @Nullable Duration autoDeferLatency
+    ) {
+        public boolean autoDeferred() {
+            return autoDeferLatency != null;
+        }
+    }
+
+    /**
+     * Aggregated interaction latency metrics.
+     *
+     * @param handled The amount of interactions a handler responded to
+     * @param autoDeferred The amount of interactions that were automatically deferred
+     * @param missed The amount of interactions that were never responded to or deferred
+     * @param averageHandlerLatency The average time until a handler responded
+     * @param maxHandlerLatency The longest time until a handler responded
+     */
+    public record Stats(
+            long handled,
+            long autoDeferred,
+            long missed,
+            Duration averageHandlerLatency,
+            Duration maxHandlerLatency
+    ) {}
+}
@@ -12,6 +12,7 @@ import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RequestMethod;
 
 import java.util.HashMap;
+import java.util.logging.Logger;
 
 public class InteractionHandlerImpl implements InteractionHandler {
 
@@ -124,6 +125,8 @@ public class InteractionHandlerImpl implements InteractionHandler {
 
     @Override
     public void defer(boolean ephemeral) {
+        // Already deferred automatically
+        if (discordJar.getAutoDeferScheduler().acknowledge(id) != null) return;
         try {
             new DiscordRequest(
                     new JSONObject().put("type", 5).put("data", new JSONObject().put("flags", ephemeral ? 64 : 0)),
@@ -140,6 +143,10 @@ public class InteractionHandlerImpl implements InteractionHandler {
 
     @Override
     public void requirePremium(boolean ephemeral) {
+        if (discordJar.getAutoDeferScheduler().acknowledge(id) != null) {
+            Logger.getLogger("InteractionHandler").warning("[discord.jar] Can't respond with PREMIUM_REQUIRED to interaction " + id + ", it has already been deferred automatically");
+            return;
+        }
         try {
             new DiscordRequest(
                     new JSONObject().put("type", InteractionCallbackType.PREMIUM_REQUIRED.getCode()).put("data",new JSONObject().put("flags", ephemeral ? 64 : 0)),
@@ -156,6 +163,8 @@ public class InteractionHandlerImpl implements InteractionHandler {
 
     @Override
     public void deferEdit() {
+        // Already deferred automatically
+        if (discordJar.getAutoDeferScheduler().acknowledge(id) != null) return;
         try {
             new DiscordRequest(
                     new JSONObject().put("type", 6),
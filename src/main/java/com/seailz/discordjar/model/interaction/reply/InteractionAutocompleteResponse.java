@@ -0,0 +1,53 @@
+package com.seailz.discordjar.model.interaction.reply;
+
+import com.seailz.discordjar.command.CommandChoice;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Represents a {@link com.seailz.discordjar.model.interaction.callback.InteractionCallbackType InteractionCallbackType} 8 interaction response.
+ * This includes the suggested choices for an autocomplete interaction.
+ * <p>
+ * Note: This is an internal class and should not be used by the end user.
+ *
+ * @author Seailz
+ * @see InteractionReply
+ * @since 1.0
+ */
+public class InteractionAutocompleteResponse implements InteractionReply {
+
+    /**
+     * Discord only accepts up to 25 choices.
+     */
+    public static final int MAX_CHOICES = 25;
+
+    private final List<CommandChoice> choices;
+
+    public InteractionAutocompleteResponse(List<CommandChoice> choices) {
+        this.choices = choices.size() > MAX_CHOICES ? choices.subList(0, MAX_CHOICES) : choices;
+    }
+
+    public List<CommandChoice> getChoices() {
+        return choices;
+    }
+
+    @Override
+    public JSONObject compile() {
+        JSONArray choicesJson = new JSONArray();
+        choices.forEach(choice -> choicesJson.put(choice.compile()));
+        return new JSONObject().put("choices", choicesJson);
+    }
+
+    @Override
+    public boolean useFiles() {
+        return false;
+    }
+
+    @Override
+    public List<File> getFiles() {
+        return null;
+    }
+}
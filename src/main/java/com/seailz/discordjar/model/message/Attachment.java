@@ -2,7 +2,7 @@ package com.seailz.discordjar.model.message;
 
 import com.seailz.discordjar.core.Compilerable;
 import com.seailz.discordjar.model.resolve.Resolvable;
-import com.seailz.discordjar.utils.flag.BitwiseUtil;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
 import com.seailz.discordjar.utils.flag.Bitwiseable;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -152,7 +152,7 @@ public record Attachment(
 
         try {
             flagsRaw = obj.getInt("flags");
-            flags = new BitwiseUtil<Flag>().get(flagsRaw, Flag.class);
+            flags = BitwiseCodec.of(Flag.class).decode(flagsRaw);
         } catch (JSONException e) {
             flagsRaw = 0;
         }
@@ -19,6 +19,7 @@ import com.seailz.discordjar.model.resolve.Resolvable;
 import com.seailz.discordjar.model.role.Role;
 import com.seailz.discordjar.model.user.User;
 import com.seailz.discordjar.utils.Snowflake;
+import com.seailz.discordjar.utils.JsonDecoding;
 import com.seailz.discordjar.utils.URLS;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.utils.rest.DiscordResponse;
@@ -39,6 +40,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public record Message(
         // The snowflake ID of the message
@@ -104,6 +107,11 @@ public record Message(
         DiscordJar discordJar
 ) implements Compilerable, Resolvable, Snowflake {
 
+    /**
+     * Matches user ({@code <@id>}, {@code <@!id>}) and role ({@code <@&id>}) mentions
+     */
+    private static final Pattern MENTION = Pattern.compile("<@([!&]?)(\\d+)>");
+
     @NonNull
     public static Message decompile(JSONObject obj, DiscordJar discordJar) {
         String id;
@@ -138,46 +146,15 @@ public record Message(
         RoleSubscriptionData roleSubscriptionData = null;
         MessageInteractionMetadataObject interactionMetadata = null;
 
-        try {
-            id = obj.getString("id");
-        } catch (JSONException e) {
-            id = null;
-        }
-        try {
-            channelId = obj.getString("channel_id");
-        } catch (JSONException e) {
-            channelId = null;
-        }
-        try {
-            author = User.decompile(obj.getJSONObject("author"), discordJar);
-        } catch (JSONException e) {
-            author = null;
-        }
-        try {
-            content = obj.getString("content");
-        } catch (JSONException e) {
-            content = null;
-        }
-        try {
-            timestamp = obj.getString("timestamp");
-        } catch (JSONException e) {
-            timestamp = null;
-        }
-        try {
-            editedTimestamp = obj.getString("edited_timestamp");
-        } catch (JSONException e) {
-            editedTimestamp = null;
-        }
-        try {
-            tts = obj.getBoolean("tts");
-        } catch (JSONException e) {
-            tts = false;
-        }
-        try {
-            mentionEveryone = obj.getBoolean("mention_everyone");
-        } catch (JSONException e) {
-            mentionEveryone = false;
-        }
+        // Missing fields are checked for rather than caught, but a nested object that can't be decoded is still left out
+        id = obj.optString("id", null);
+        channelId = obj.optString("channel_id", null);
+        author = JsonDecoding.decodeOrNull(obj.optJSONObject("author"), json -> User.decompile(json, discordJar));
+        content = obj.optString("content", null);
+        timestamp = obj.optString("timestamp", null);
+        editedTimestamp = obj.optString("edited_timestamp", null);
+        tts = obj.optBoolean("tts");
+        mentionEveryone = obj.optBoolean("mention_everyone");
 
         /*try {
             JSONArray componentsJson = obj.getJSONArray("components");
@@ -191,146 +168,114 @@ public record Message(
             e.printStackTrace();
         }*/
 
-        try {
-            JSONArray mentionsArray = obj.getJSONArray("mentions");
-            mentions = new User[mentionsArray.length()];
-            for (int i = 0; i < mentionsArray.length(); i++) {
-                mentions[i] = User.decompile(mentionsArray.getJSONObject(i), discordJar);
-            }
-        } catch (JSONException e) {
-            mentions = null;
-        }
-        try {
-            JSONArray mentionRolesArray = obj.getJSONArray("mention_roles");
-            mentionRoles = new Role[mentionRolesArray.length()];
-            for (int i = 0; i < mentionRolesArray.length(); i++) {
-                mentionRoles[i] = Role.decompile(mentionRolesArray.getJSONObject(i));
+        JSONArray mentionsArray = obj.optJSONArray("mentions");
+        mentions = null;
+        if (mentionsArray != null) {
+            try {
+                mentions = new User[mentionsArray.length()];
+                for (int i = 0; i < mentionsArray.length(); i++) {
+                    mentions[i] = User.decompile(mentionsArray.getJSONObject(i), discordJar);
+                }
+            } catch (JSONException e) {
+                mentions = null;
             }
-        } catch (JSONException e) {
-            mentionRoles = null;
         }
-        try {
-            JSONArray mentionChannelsArray = obj.getJSONArray("mention_channels");
-            ArrayList<ChannelMention> mentionChannelsDecompiled = new ArrayList<>();
 
-            for (int i = 0; i < mentionChannelsArray.length(); i++) {
-                mentionChannelsDecompiled.add(ChannelMention.decompile(mentionChannelsArray.getJSONObject(i)));
+        JSONArray mentionRolesArray = obj.optJSONArray("mention_roles");
+        mentionRoles = null;
+        if (mentionRolesArray != null) {
+            try {
+                mentionRoles = new Role[mentionRolesArray.length()];
+                for (int i = 0; i < mentionRolesArray.length(); i++) {
+                    JSONObject role = mentionRolesArray.optJSONObject(i);
+                    // Discord sends role ids here, which can't be decompiled into roles
+                    if (role == null) {
+                        mentionRoles = null;
+                        break;
+                    }
+                    mentionRoles[i] = Role.decompile(role);
+                }
+            } catch (JSONException e) {
+                mentionRoles = null;
             }
-            mentionChannels = mentionChannelsDecompiled.toArray(new ChannelMention[0]);
-        } catch (JSONException e) {
-            mentionChannels = null;
         }
 
-        try {
-            JSONArray attachmentsArray = obj.getJSONArray("attachments");
-            attachments = new Attachment[attachmentsArray.length()];
-            for (int i = 0; i < attachmentsArray.length(); i++) {
-                attachments[i] = Attachment.decompile(attachmentsArray.getJSONObject(i));
+        JSONArray mentionChannelsArray = obj.optJSONArray("mention_channels");
+        mentionChannels = null;
+        if (mentionChannelsArray != null) {
+            try {
+                mentionChannels = new ChannelMention[mentionChannelsArray.length()];
+                for (int i = 0; i < mentionChannelsArray.length(); i++) {
+                    mentionChannels[i] = ChannelMention.decompile(mentionChannelsArray.getJSONObject(i));
+                }
+            } catch (JSONException e) {
+                mentionChannels = null;
             }
-        } catch (JSONException e) {
-            attachments = null;
         }
 
-        try {
-            JSONArray embedsArray = obj.getJSONArray("embeds");
-            embeds = new Embed[embedsArray.length()];
-            for (int i = 0; i < embedsArray.length(); i++) {
-                embeds[i] = Embed.decompile(embedsArray.getJSONObject(i));
+        JSONArray attachmentsArray = obj.optJSONArray("attachments");
+        attachments = null;
+        if (attachmentsArray != null) {
+            try {
+                attachments = new Attachment[attachmentsArray.length()];
+                for (int i = 0; i < attachmentsArray.length(); i++) {
+                    attachments[i] = Attachment.decompile(attachmentsArray.getJSONObject(i));
+                }
+            } catch (JSONException e) {
+                attachments = null;
             }
-        } catch (JSONException e) {
-            embeds = null;
         }
 
-        try {
-            JSONArray reactionsArray = obj.getJSONArray("reactions");
-            reactions = new Reaction[reactionsArray.length()];
-            for (int i = 0; i < reactionsArray.length(); i++) {
-                reactions[i] = Reaction.decompile(reactionsArray.getJSONObject(i), discordJar);
+        JSONArray embedsArray = obj.optJSONArray("embeds");
+        embeds = null;
+        if (embedsArray != null) {
+            try {
+                embeds = new Embed[embedsArray.length()];
+                for (int i = 0; i < embedsArray.length(); i++) {
+                    embeds[i] = Embed.decompile(embedsArray.getJSONObject(i));
+                }
+            } catch (JSONException e) {
+                embeds = null;
             }
-        } catch (JSONException e) {
-            reactions = null;
         }
 
-        try {
-            nonce = obj.getString("nonce");
-        } catch (JSONException e) {
-            nonce = null;
-        }
-
-        try {
-            pinned = obj.getBoolean("pinned");
-        } catch (JSONException e) {
-            pinned = false;
-        }
-
-        try {
-            webhookId = obj.getString("webhook_id");
-        } catch (JSONException e) {
-            webhookId = null;
-        }
-
-        try {
-            type = MessageType.fromCode(obj.getInt("type"));
-        } catch (JSONException e) {
-            type = null;
-        }
-
-        try {
-            activity = MessageActivity.decompile(obj.getJSONObject("activity"));
-        } catch (JSONException e) {
-            activity = null;
-        }
-
-        try {
-            application = Application.decompile(obj.getJSONObject("application"), discordJar);
-        } catch (JSONException e) {
-            application = null;
-        }
-
-        try {
-            applicationId = obj.getString("application_id");
-        } catch (JSONException e) {
-            applicationId = null;
-        }
-
-        try {
-            messageReference = MessageReference.decompile(obj.getJSONObject("message_reference"));
-        } catch (JSONException e) {
-            messageReference = null;
+        JSONArray reactionsArray = obj.optJSONArray("reactions");
+        reactions = null;
+        if (reactionsArray != null) {
+            try {
+                reactions = new Reaction[reactionsArray.length()];
+                for (int i = 0; i < reactionsArray.length(); i++) {
+                    reactions[i] = Reaction.decompile(reactionsArray.getJSONObject(i), discordJar);
+                }
+            } catch (JSONException e) {
+                reactions = null;
+            }
         }
 
-        try {
-            ArrayList<MessageFlag> flagsDecompiled = new ArrayList<>(MessageFlag.getFlagsByInt(obj.getInt("flags")));
-            flags = flagsDecompiled.toArray(new MessageFlag[0]);
-        } catch (JSONException e) {
-            flags = null;
-        }
+        // Can be an integer or a string
+        nonce = obj.optString("nonce", null);
+        pinned = obj.optBoolean("pinned");
+        webhookId = obj.optString("webhook_id", null);
+        type = obj.isNull("type") ? null : MessageType.fromCode(obj.getInt("type"));
+        activity = JsonDecoding.decodeOrNull(obj.optJSONObject("activity"), MessageActivity::decompile);
+        application = JsonDecoding.decodeOrNull(obj.optJSONObject("application"), json -> Application.decompile(json, discordJar));
+        applicationId = obj.optString("application_id", null);
+        messageReference = JsonDecoding.decodeOrNull(obj.optJSONObject("message_reference"), MessageReference::decompile);
+        flags = obj.isNull("flags") ? null : MessageFlag.getFlagsByInt(obj.getInt("flags")).toArray(new MessageFlag[0]);
+        referencedMessage = JsonDecoding.decodeOrNull(obj.optJSONObject("referenced_message"), json -> Message.decompile(json, discordJar));
 
+        JSONObject interactionJson = obj.optJSONObject("interaction");
         try {
-            referencedMessage = Message.decompile(obj.getJSONObject("referenced_message"), discordJar);
-        } catch (JSONException e) {
-            referencedMessage = null;
-        }
-
-        try {
-            interaction = Interaction.decompile(obj.getJSONObject("interaction"), discordJar);
+            interaction = interactionJson == null ? null : Interaction.decompile(interactionJson, discordJar);
         } catch (JSONException e) {
             interaction = null;
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
+        } catch (InvocationTargetException | NoSuchMethodException | IllegalAccessException e) {
             throw new RuntimeException(e);
         } catch (DiscordRequest.UnhandledDiscordAPIErrorException e) {
             throw new DiscordRequest.DiscordAPIErrorException(e);
         }
 
-        try {
-            thread = Thread.decompile(obj.getJSONObject("thread"), discordJar);
-        } catch (JSONException e) {
-            thread = null;
-        }
+        thread = JsonDecoding.decodeOrNull(obj.optJSONObject("thread"), json -> Thread.decompile(json, discordJar));
 
         if (obj.has("sticker_items") && !obj.isNull("sticker_items")) {
             JSONArray stickerItemsArray = obj.getJSONArray("sticker_items");
@@ -339,10 +284,10 @@ public record Message(
             });
         }
 
-        if (obj.has("position")) position = obj.getInt("position");
-        if (obj.has("role_subscription_data")) roleSubscriptionData = RoleSubscriptionData.decompile(obj.getJSONObject("role_subscription_data"));
+        position = obj.optInt("position");
+        if (!obj.isNull("role_subscription_data")) roleSubscriptionData = RoleSubscriptionData.decompile(obj.getJSONObject("role_subscription_data"));
 
-        if (obj.has("interaction_metadata")) {
+        if (!obj.isNull("interaction_metadata")) {
             interactionMetadata = MessageInteractionMetadataObject.decompile(obj.getJSONObject("interaction_metadata"));
         }
 
@@ -458,21 +403,34 @@ public record Message(
     }
 
     /**
-     * Returns the text of the message as how you would see it in the client.
+     * Returns the content of the message, with user and role mentions replaced by their names.
+     * <br>The content is scanned once for mentions, instead of once per mentioned user or role.
      */
     public String getFormattedText() {
-        String formatted = content;
-
-        if (mentions != null) {
-            for (User user : mentions)
-                formatted = formatted.replaceAll("<@" + user.id() + ">", "@" + user.username());
-        }
+        if (content == null || content.indexOf('<') == -1) return content;
+        boolean hasUsers = mentions != null && mentions.length > 0;
+        boolean hasRoles = mentionRoles != null && mentionRoles.length > 0;
+        if (!hasUsers && !hasRoles) return content;
+
+        Matcher matcher = MENTION.matcher(content);
+        StringBuilder formatted = null;
+        int last = 0;
+        while (matcher.find()) {
+            String id = matcher.group(2);
+            String name = null;
+            if (matcher.group(1).equals("&")) {
+                if (hasRoles) for (Role role : mentionRoles) if (id.equals(role.id())) name = role.name();
+            } else if (hasUsers) {
+                for (User user : mentions) if (id.equals(user.id())) name = user.username();
+            }
+            if (name == null) continue;
 
-        if (mentionRoles != null) {
-            for (Role role : mentionRoles)
-                formatted = formatted.replaceAll("<@&" + role.id() + ">", "@" + role.name());
+            if (formatted == null) formatted = new StringBuilder(content.length());
+            formatted.append(content, last, matcher.start()).append('@').append(name);
+            last = matcher.end();
         }
-        return formatted;
+        if (formatted == null) return content;
+        return formatted.append(content, last, content.length()).toString();
     }
 
     public record StickerItem(
@@ -1,5 +1,8 @@
 package com.seailz.discordjar.model.message;
 
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
+import com.seailz.discordjar.utils.flag.Bitwiseable;
+
 import java.util.EnumSet;
 
 /**
@@ -8,7 +11,7 @@ import java.util.EnumSet;
  * @author Seailz
  * @since 1.0
  */
-public enum MessageFlag {
+public enum MessageFlag implements Bitwiseable<MessageFlag> {
 
     // this message has been published to subscribed channels (via Channel Following)
     CROSSPOSTED(0, false),
@@ -41,22 +44,21 @@ public enum MessageFlag {
         this.canBeSent = canBeSent;
     }
 
+    @Override
     public int getLeftShiftId() {
         return 1 << id;
     }
 
+    @Override
+    public int id() {
+        return id;
+    }
+
     public boolean canBeSent() {
         return canBeSent;
     }
 
     public static EnumSet<MessageFlag> getFlagsByInt(int flags) {
-        EnumSet<MessageFlag> set = EnumSet.noneOf(MessageFlag.class);
-        if (flags == 0)
-            return set;
-        for (MessageFlag flag : MessageFlag.values()) {
-            if ((flag.getLeftShiftId() & flags) == flag.getLeftShiftId())
-                set.add(flag);
-        }
-        return set;
+        return BitwiseCodec.of(MessageFlag.class).decode(flags);
     }
 }
@@ -3,6 +3,8 @@ package com.seailz.discordjar.model.monetization;
 import com.seailz.discordjar.DiscordJar;
 import com.seailz.discordjar.action.sku.ListEntitlementRequest;
 import com.seailz.discordjar.core.Compilerable;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
+import com.seailz.discordjar.utils.flag.FlagSet;
 import com.seailz.discordjar.utils.flag.Bitwiseable;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
@@ -19,10 +21,11 @@ public class SKU implements Compilerable {
     private String applicationId;
     private String name;
     private String slug;
-    private List<Flag> flags;
+    private FlagSet<Flag> flags;
+    private List<Flag> flagsList;
     private DiscordJar discordJar;
 
-    private SKU(String id, Type type, String applicationId, String name, String slug, List<Flag> flags, DiscordJar discordJar) {
+    private SKU(String id, Type type, String applicationId, String name, String slug, FlagSet<Flag> flags, DiscordJar discordJar) {
         this.id = id;
         this.type = type;
         this.applicationId = applicationId;
@@ -77,7 +80,9 @@ public class SKU implements Compilerable {
      */
     @NotNull
     public List<Flag> flags() {
-        return flags;
+        // Only copied into a list if it's asked for, checking a flag reads the bits directly
+        if (flagsList == null) flagsList = List.copyOf(flags);
+        return flagsList;
     }
 
     public boolean isGuildSubscription() {
@@ -115,11 +120,7 @@ public class SKU implements Compilerable {
         object.put("name", name);
         object.put("slug", slug);
 
-        int flags = 0;
-        for (Flag flag : this.flags) {
-            flags |= flag.getLeftShiftId();
-        }
-        object.put("flags", flags);
+        object.put("flags", BitwiseCodec.of(Flag.class).encode(flags));
         return object;
     }
 
@@ -132,7 +133,7 @@ public class SKU implements Compilerable {
                 obj.getString("application_id"),
                 obj.getString("name"),
                 obj.getString("slug"),
-                (List<Flag>) Flag.UNKNOWN.decode(obj.getInt("flags")),
+                BitwiseCodec.of(Flag.class).view(obj.getInt("flags")),
                 discordJar
         );
     }
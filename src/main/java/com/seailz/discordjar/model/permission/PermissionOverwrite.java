@@ -2,94 +2,92 @@ package com.seailz.discordjar.model.permission;
 
 import com.seailz.discordjar.core.Compilerable;
 import com.seailz.discordjar.utils.Snowflake;
-import com.seailz.discordjar.utils.flag.BitwiseUtil;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
 import com.seailz.discordjar.utils.permission.Permission;
 import org.json.JSONObject;
 import org.springframework.lang.NonNull;
 
 import java.util.EnumSet;
 
+/**
+ * A permission overwrite of a channel, for a role or a member.
+ * <br>The allowed and denied permissions are also held as bitsets, computed once when the overwrite is created, since
+ * <br>computing permissions reads them for every overwrite of a channel.
+ *
+ * @param allow The allowed permissions. Use {@link #allow(Permission)} instead of modifying them, so {@link #allowRaw()} stays the same.
+ * @param deny The denied permissions. Use {@link #deny(Permission)} instead of modifying them, so {@link #denyRaw()} stays the same.
+ * @param allowRaw The allowed permissions as a bitset
+ * @param denyRaw The denied permissions as a bitset
+ */
 public record PermissionOverwrite(
         String id,
         OverwriteType type,
         EnumSet<Permission> allow,
-        EnumSet<Permission> deny
+        EnumSet<Permission> deny,
+        long allowRaw,
+        long denyRaw
 ) implements Compilerable, Snowflake {
 
+    public PermissionOverwrite(String id, OverwriteType type, EnumSet<Permission> allow, EnumSet<Permission> deny) {
+        this(id, type, allow, deny, toRaw(allow), toRaw(deny));
+    }
+
     public PermissionOverwrite(String id, OverwriteType type) {
         this(id, type, EnumSet.noneOf(Permission.class), EnumSet.noneOf(Permission.class));
     }
 
     @Override
     public JSONObject compile() {
-        int allowInt = 0;
-        int denyInt = 0;
-
-        for (Permission permission : allow) {
-            allowInt += permission.getLeftShiftId();
-        }
-
-        for (Permission permission : deny) {
-            denyInt += permission.getLeftShiftId();
-        }
-
         JSONObject obj = new JSONObject();
         obj.put("id", id);
         obj.put("type", type.getCode());
-        obj.put("allow", allowInt);
-        obj.put("deny", denyInt);
+        // Permissions are serialized as strings, since they don't fit in 53 bits
+        obj.put("allow", String.valueOf(allowRaw));
+        obj.put("deny", String.valueOf(denyRaw));
         return obj;
     }
 
+    private static long toRaw(EnumSet<Permission> permissions) {
+        return BitwiseCodec.of(Permission.class).encode(permissions);
+    }
+
     @NonNull
     public static PermissionOverwrite decompile(JSONObject obj) {
-        String id;
-        OverwriteType type;
-        int allow;
-        int deny;
-
-        try {
-            id = obj.getString("id");
-        } catch (Exception e) {
-            id = null;
-        }
+        String id = obj.optString("id", null);
+        OverwriteType type = obj.has("type") ? OverwriteType.fromCode(obj.optInt("type")) : null;
+        long allow = parseRaw(obj.optString("allow", "0"));
+        long deny = parseRaw(obj.optString("deny", "0"));
 
-        try {
-            type = OverwriteType.fromCode(obj.getInt("type"));
-        } catch (Exception e) {
-            type = null;
-        }
+        return new PermissionOverwrite(id, type, fromRaw(allow), fromRaw(deny), allow, deny);
+    }
 
-        try {
-            allow = obj.getInt("allow");
-        } catch (Exception e) {
-            allow = 0;
-        }
+    private static EnumSet<Permission> fromRaw(long raw) {
+        return BitwiseCodec.of(Permission.class).decode(raw);
+    }
 
+    private static long parseRaw(String raw) {
         try {
-            deny = obj.getInt("deny");
-        } catch (Exception e) {
-            deny = 0;
+            return Long.parseLong(raw);
+        } catch (NumberFormatException e) {
+            return 0;
         }
-
-        EnumSet<Permission> allowList = null;
-        EnumSet<Permission> denyList = null;
-
-        BitwiseUtil<Permission> bitwiseUtil = new BitwiseUtil<>();
-        allowList = bitwiseUtil.get(allow, Permission.class);
-        denyList = bitwiseUtil.get(deny, Permission.class);
-
-
-        return new PermissionOverwrite(id, type, allowList, denyList);
     }
 
+    /**
+     * Returns a copy of this overwrite that also allows a permission.
+     */
     public PermissionOverwrite allow(Permission permission) {
+        EnumSet<Permission> allow = EnumSet.copyOf(this.allow);
         allow.add(permission);
-        return this;
+        return new PermissionOverwrite(id, type, allow, EnumSet.copyOf(deny), allowRaw | permission.bit(), denyRaw);
     }
 
+    /**
+     * Returns a copy of this overwrite that also denies a permission.
+     */
     public PermissionOverwrite deny(Permission permission) {
+        EnumSet<Permission> deny = EnumSet.copyOf(this.deny);
         deny.add(permission);
-        return this;
+        return new PermissionOverwrite(id, type, EnumSet.copyOf(allow), deny, allowRaw, denyRaw | permission.bit());
     }
 }
@@ -4,7 +4,7 @@ import com.seailz.discordjar.core.Compilerable;
 import com.seailz.discordjar.model.application.Application;
 import com.seailz.discordjar.model.resolve.Resolvable;
 import com.seailz.discordjar.utils.Mentionable;
-import com.seailz.discordjar.utils.flag.BitwiseUtil;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
 import com.seailz.discordjar.utils.flag.Bitwiseable;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -21,10 +21,11 @@ import java.util.List;
  * @param hoist       Whether the role is pinned in the user listing.
  * @param icon        The role's icon.
  * @param position    The role's position.
- * @param permissions The role's permissions.
+ * @param permissions The role's permissions. Only holds the lower 32 bits, use {@link #permissionsRaw()} instead.
  * @param managed     Whether the role is managed by an integration.
  * @param mentionable Whether the role is mentionable.
  * @param tags        The role's tags.
+ * @param permissionsRaw The role's permissions, as a bitset.
  */
 public record Role(
         String id,
@@ -38,8 +39,24 @@ public record Role(
         boolean mentionable,
         RoleTag tags,
         EnumSet<Flag> flags,
-        int flagsRaw
+        int flagsRaw,
+        long permissionsRaw
 ) implements Compilerable, Resolvable, Mentionable {
+
+    public Role(String id, String name, int color, boolean hoist, String icon, int position, int permissions, boolean managed,
+                boolean mentionable, RoleTag tags, EnumSet<Flag> flags, int flagsRaw) {
+        this(id, name, color, hoist, icon, position, permissions, managed, mentionable, tags, flags, flagsRaw, Integer.toUnsignedLong(permissions));
+    }
+
+    /**
+     * @deprecated Permissions don't fit in an int, use {@link #permissionsRaw()} instead.
+     */
+    @Deprecated
+    @Override
+    public int permissions() {
+        return permissions;
+    }
+
     public static Role decompile(JSONObject obj) {
         String id;
         String name;
@@ -47,7 +64,7 @@ public record Role(
         boolean hoist;
         String icon;
         int position;
-        int permissions;
+        long permissions;
         boolean managed;
         boolean mentionable;
         RoleTag tags;
@@ -90,9 +107,10 @@ public record Role(
             position = 0;
         }
 
+        // Permissions are sent as a string, since they don't fit in 53 bits
         try {
-            permissions = obj.getInt("permissions");
-        } catch (JSONException e) {
+            permissions = Long.parseLong(obj.optString("permissions", "0"));
+        } catch (NumberFormatException e) {
             permissions = 0;
         }
 
@@ -116,12 +134,12 @@ public record Role(
 
         try {
             flagsRaw = obj.getInt("flags");
-            flags = new BitwiseUtil<Role.Flag>().get(flagsRaw, Role.Flag.class);
+            flags = BitwiseCodec.of(Role.Flag.class).decode(flagsRaw);
         } catch (JSONException e) {
             flagsRaw = 0;
         }
 
-        return new Role(id, name, color, hoist, icon, position, permissions, managed, mentionable, tags, flags, flagsRaw);
+        return new Role(id, name, color, hoist, icon, position, (int) permissions, managed, mentionable, tags, flags, flagsRaw, permissions);
     }
 
     @Override
@@ -133,11 +151,11 @@ public record Role(
         obj.put("hoist", hoist);
         obj.put("icon", icon);
         obj.put("position", position);
-        obj.put("permissions", permissions);
+        obj.put("permissions", String.valueOf(permissionsRaw));
         obj.put("managed", managed);
         obj.put("mentionable", mentionable);
-        obj.put("tags", tags.compile());
-        obj.put("flags", flags);
+        if (tags != null) obj.put("tags", tags.compile());
+        obj.put("flags", flagsRaw);
         return obj;
     }
 
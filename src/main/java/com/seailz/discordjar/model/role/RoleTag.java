@@ -13,12 +13,20 @@ public record RoleTag(
         boolean guildConnections // whether this role is a guild's linked role
 ) implements Compilerable {
 
+    /**
+     * Compiles the tags the way Discord sends them, so they can be decompiled again.
+     * <br>Boolean tags are present with a null value if they're true, and missing if they're false.
+     */
     @Override
     public JSONObject compile() {
-        return new JSONObject()
+        JSONObject obj = new JSONObject()
                 .put("bot_id", botId)
                 .put("integration_id", integrationId)
-                .put("is_premium_subscriber", isPremiumSubscriber);
+                .put("subscription_listing_id", subscriptionListingId);
+        if (isPremiumSubscriber) obj.put("premium_subscriber", JSONObject.NULL);
+        if (availableForPurchase) obj.put("available_for_purchase", JSONObject.NULL);
+        if (guildConnections) obj.put("guild_connections", JSONObject.NULL);
+        return obj;
     }
 
     @NonNull
@@ -1,7 +1,7 @@
 package com.seailz.discordjar.model.scopes;
 
 import com.seailz.discordjar.core.Compilerable;
-import com.seailz.discordjar.utils.flag.BitwiseUtil;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
 import com.seailz.discordjar.utils.permission.Permission;
 import jakarta.el.MethodReference;
 import org.json.JSONArray;
@@ -58,8 +58,7 @@ public record InstallParams(EnumSet<Scope> scopes, EnumSet<Permission> permissio
         }
 
         if (obj.has("permissions") && !obj.isNull("permissions")) {
-            BitwiseUtil<Permission> bitwiseUtil = new BitwiseUtil<>();
-            permissions = bitwiseUtil.get(Long.parseLong(obj.getString("permissions")), Permission.class);
+            permissions = BitwiseCodec.of(Permission.class).decode(Long.parseLong(obj.getString("permissions")));
         }
 
         return new InstallParams(scopes, permissions);
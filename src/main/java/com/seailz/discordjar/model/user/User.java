@@ -11,7 +11,7 @@ import com.seailz.discordjar.utils.URLS;
 import com.seailz.discordjar.utils.image.ImageUtils;
 import com.seailz.discordjar.utils.rest.DiscordRequest;
 import com.seailz.discordjar.utils.rest.DiscordResponse;
-import com.seailz.discordjar.utils.flag.BitwiseUtil;
+import com.seailz.discordjar.utils.flag.BitwiseCodec;
 import com.seailz.discordjar.voice.model.VoiceState;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
@@ -186,7 +186,7 @@ public record User(
         }
 
         try {
-            flags = new BitwiseUtil<UserFlag>().get(obj.getInt("flags"), UserFlag.class);
+            flags = BitwiseCodec.of(UserFlag.class).decode(obj.getInt("flags"));
             flagsRaw = obj.getInt("flags");
         } catch (JSONException e) {
             flags = null;
@@ -199,7 +199,7 @@ public record User(
         }
 
         try {
-            publicFlags = flags = new BitwiseUtil<UserFlag>().get(obj.getInt("public_flags"), UserFlag.class);
+            publicFlags = BitwiseCodec.of(UserFlag.class).decode(obj.getInt("public_flags"));
             publicFlagsRaw = obj.getInt("public_flags");
         } catch (JSONException e) {
             publicFlags = null;
@@ -1,15 +1,45 @@
 package com.seailz.discordjar.utils;
 
 import com.seailz.discordjar.DiscordJar;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.Executor;
 
 /**
  * POJO that contains information for discord.jar about
  * <br>initializing an HTTP-Only (Interaction-only) bot.
  * <p>
  * See {@link DiscordJar#DiscordJar(String, boolean, HTTPOnlyInfo)} for more information.
+ *
+ * @param endpoint The path Discord sends interactions to
+ * @param applicationPublicKey The application's public key, used to verify requests
+ * @param lightweight Whether to use the lightweight {@link com.seailz.discordjar.http.InteractionServer} instead of Spring Boot
+ * @param port The port the lightweight server listens on. Spring Boot uses its own configuration ({@code server.port}).
+ * @param executor The executor the lightweight server handles requests on, or null for a default pool
  */
 public record HTTPOnlyInfo(
         String endpoint,
-        String applicationPublicKey
+        String applicationPublicKey,
+        boolean lightweight,
+        int port,
+        @Nullable Executor executor
 ) {
+
+    public HTTPOnlyInfo(String endpoint, String applicationPublicKey) {
+        this(endpoint, applicationPublicKey, false, 8080, null);
+    }
+
+    /**
+     * Uses the lightweight {@link com.seailz.discordjar.http.InteractionServer}, which doesn't start Spring Boot.
+     */
+    public static HTTPOnlyInfo lightweight(String endpoint, String applicationPublicKey, int port) {
+        return new HTTPOnlyInfo(endpoint, applicationPublicKey, true, port, null);
+    }
+
+    /**
+     * Uses the lightweight {@link com.seailz.discordjar.http.InteractionServer}, handling requests on the given executor.
+     */
+    public static HTTPOnlyInfo lightweight(String endpoint, String applicationPublicKey, int port, Executor executor) {
+        return new HTTPOnlyInfo(endpoint, applicationPublicKey, true, port, executor);
+    }
 }
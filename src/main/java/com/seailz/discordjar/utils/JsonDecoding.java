@@ -0,0 +1,36 @@
+package com.seailz.discordjar.utils;
+
+import com.seailz.discordjar.utils.annotation.UtilityClass;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.function.Function;
+
+/**
+ * A utility class for decoding optional fields of a payload.
+ *
+ * @author Seailz
+ */
+@UtilityClass
+public class JsonDecoding {
+
+    /**
+     * Decodes a nested object, such as a message's author.
+     * <br>A nested object that can't be decoded is left out, instead of failing to decode the whole payload.
+     *
+     * @param json The nested object, or null if it's missing
+     * @param decoder Decodes the object
+     * @return The decoded object, or null if it's missing or couldn't be decoded
+     */
+    @Nullable
+    public static <T> T decodeOrNull(@Nullable JSONObject json, @NotNull Function<JSONObject, T> decoder) {
+        if (json == null) return null;
+        try {
+            return decoder.apply(json);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+}
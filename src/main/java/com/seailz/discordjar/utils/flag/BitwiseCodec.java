@@ -0,0 +1,105 @@
+package com.seailz.discordjar.utils.flag;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Array;
+import java.util.EnumSet;
+
+/**
+ * Decodes raw flags into the constants of a {@link Bitwiseable} enum, and encodes them back.
+ * <br>Codecs are created once per enum, with a table from bit position to constant, so decoding only visits the bits that are set
+ * <br>instead of every constant of the enum.
+ *
+ * <p>Constants with an id outside of 0-63, such as {@code UNKNOWN(-1)}, are never decoded.
+ *
+ * @author Seailz
+ * @param  <T> The enum, such as {@link com.seailz.discordjar.utils.permission.Permission Permission}
+ * @see    FlagSet
+ */
+public final class BitwiseCodec<T extends Enum<T> & Bitwiseable> {
+
+    private static final ClassValue<BitwiseCodec<?>> CODECS = new ClassValue<>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected BitwiseCodec<?> computeValue(Class<?> type) {
+            return new BitwiseCodec(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final T[] byBit;
+    private final long mask;
+
+    @SuppressWarnings("unchecked")
+    private BitwiseCodec(Class<T> type) {
+        this.type = type;
+        this.byBit = (T[]) Array.newInstance(type, 64);
+        long mask = 0;
+        for (T constant : type.getEnumConstants()) {
+            int id = constant.id();
+            if (id < 0 || id > 63 || byBit[id] != null) continue;
+            byBit[id] = constant;
+            mask |= 1L << id;
+        }
+        this.mask = mask;
+    }
+
+    /**
+     * Returns the codec of an enum.
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public static <T extends Enum<T> & Bitwiseable> BitwiseCodec<T> of(@NotNull Class<T> type) {
+        return (BitwiseCodec<T>) CODECS.get(type);
+    }
+
+    /**
+     * Returns the bits of every known constant.
+     */
+    public long mask() {
+        return mask;
+    }
+
+    /**
+     * Decodes raw flags into a new, modifiable set. Unknown bits are ignored.
+     */
+    @NotNull
+    public EnumSet<T> decode(long flags) {
+        EnumSet<T> set = EnumSet.noneOf(type);
+        long bits = flags & mask;
+        while (bits != 0) {
+            set.add(byBit[Long.numberOfTrailingZeros(bits)]);
+            bits &= bits - 1;
+        }
+        return set;
+    }
+
+    /**
+     * Returns an immutable view of raw flags. Unlike {@link #decode(long)}, this doesn't copy anything.
+     */
+    @NotNull
+    public FlagSet<T> view(long flags) {
+        return new FlagSet<>(this, flags & mask);
+    }
+
+    /**
+     * Encodes constants into raw flags.
+     */
+    public long encode(@NotNull Iterable<T> flags) {
+        if (flags instanceof FlagSet<?> set) return set.raw();
+        long raw = 0;
+        for (T flag : flags) raw |= flag.bit();
+        return raw;
+    }
+
+    /**
+     * Returns the constant of a bit position, or null if there isn't one.
+     */
+    T constant(int bit) {
+        return byBit[bit];
+    }
+
+    Class<T> type() {
+        return type;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.EnumSet;
 /**
  * BitwiseUtil is a utility class for bitwise operations.
  * It allows you to retrieve things like {@link com.seailz.discordjar.model.user.UserFlag UserFlags} from a raw int.
+ * <br>Decoding is done by the enum's {@link BitwiseCodec}, which should be used directly where possible.
  *
  * @author Seailz
  * @since  1.0
@@ -12,15 +13,9 @@ import java.util.EnumSet;
  */
 public class BitwiseUtil<T extends Enum<T> & Bitwiseable> {
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public EnumSet<T> get(long flags, Class<? extends Bitwiseable> clazz) {
-        EnumSet<T> set = EnumSet.noneOf((Class<T>) clazz);
-        if (flags == 0)
-            return set;
-        for (Bitwiseable flag : clazz.getEnumConstants()) {
-            if ((flag.getLeftShiftId() & flags) == flag.getLeftShiftId())
-                set.add((T) flag);
-        }
-        return set;
+        return BitwiseCodec.of((Class) clazz).decode(flags);
     }
 
     public EnumSet<T> get(int flags, Class<T> clazz) {
@@ -1,16 +1,24 @@
 package com.seailz.discordjar.utils.flag;
 
 import java.util.EnumSet;
-import java.util.List;
 
 public interface Bitwiseable<T extends Enum<T> & Bitwiseable> {
 
     int getLeftShiftId();
     int id();
 
+    /**
+     * @return The bit of the flag in a raw value. Unlike {@link #getLeftShiftId()}, this works for flags above bit 30.
+     *         <br>Flags with an id outside of 0-63, such as {@code UNKNOWN(-1)}, don't have a bit, so 0 is returned.
+     */
+    default long bit() {
+        int id = id();
+        return id < 0 || id > 63 ? 0 : 1L << id;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
     default EnumSet<T> decode(long val) {
-        return new BitwiseUtil<T>()
-                .get(val, this.getClass());
+        return BitwiseCodec.of((Class) ((Enum<?>) this).getDeclaringClass()).decode(val);
     }
 
 }
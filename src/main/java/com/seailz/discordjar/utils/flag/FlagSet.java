@@ -0,0 +1,83 @@
+package com.seailz.discordjar.utils.flag;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of flags, backed by their raw value.
+ * <br>Checking whether a flag is set is a single bitwise operation, and the set doesn't hold any constants until it's iterated.
+ *
+ * @author Seailz
+ * @param  <T> The enum of the flags
+ * @see    BitwiseCodec#view(long)
+ */
+public final class FlagSet<T extends Enum<T> & Bitwiseable> extends AbstractSet<T> {
+
+    private final BitwiseCodec<T> codec;
+    private final long raw;
+
+    FlagSet(BitwiseCodec<T> codec, long raw) {
+        this.codec = codec;
+        this.raw = raw;
+    }
+
+    /**
+     * Returns the raw value of the flags.
+     */
+    public long raw() {
+        return raw;
+    }
+
+    /**
+     * Checks whether a flag is set, without boxing or iterating.
+     */
+    public boolean has(@NotNull T flag) {
+        long bit = flag.bit();
+        return bit != 0 && (raw & bit) == bit;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return codec.type().isInstance(o) && has(codec.type().cast(o));
+    }
+
+    @Override
+    public int size() {
+        return Long.bitCount(raw);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return raw == 0;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private long remaining = raw;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public T next() {
+                if (remaining == 0) throw new NoSuchElementException();
+                T flag = codec.constant(Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+                return flag;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof FlagSet<?> other && other.codec == codec) return other.raw == raw;
+        return super.equals(o);
+    }
+}
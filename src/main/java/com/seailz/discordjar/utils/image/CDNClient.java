@@ -0,0 +1,483 @@
+package com.seailz.discordjar.utils.image;
+
+import com.seailz.discordjar.utils.CDNAble;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads assets, such as avatars, emojis and stickers, from the Discord CDN, and caches them.
+ * <br>Assets are stored on disk under the SHA-256 of their URL, which contains the asset's hash, so a changed avatar is a new entry
+ * <br>and an unchanged one is never downloaded twice, even across restarts. Recently used assets are also kept in memory.
+ * <br>The URL includes the format and size, and the CDN serves different bytes for each, so every format and size of an asset is
+ * <br>its own entry. {@link #url(ImageUtils.ImageType, String, Format, int, String...)} rounds sizes to powers of two to keep those few.
+ *
+ * <p>The disk cache is bounded too. Once it's larger than its budget, the least recently used assets are deleted. Their last
+ * <br>modified time is updated whenever they're used, so the order survives restarts.
+ *
+ * <p>Once an entry is older than the {@code max-age} the CDN sent with it, it's revalidated with a conditional request
+ * <br>({@code If-None-Match}/{@code If-Modified-Since}), so an unchanged asset isn't downloaded again.
+ * <br>Concurrent requests for the same asset share one download.
+ *
+ * <p>This doesn't go through the rate limiter, since the CDN isn't rate limited like the API.
+ *
+ * @author Seailz
+ * @see    ImageUtils#getUrl(String, ImageUtils.ImageType, String...)
+ */
+public class CDNClient {
+
+    private static final OkHttpClient CLIENT = new OkHttpClient();
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ExecutorService FETCHER = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "djar--cdn-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    /**
+     * Used if the CDN doesn't send a {@code max-age}
+     */
+    private static final long DEFAULT_MAX_AGE = 3600;
+    public static final long DEFAULT_MEMORY_BYTES = 32L * 1024 * 1024;
+    public static final long DEFAULT_DISK_BYTES = 256L * 1024 * 1024;
+
+    private final Path directory;
+    private final MemoryCache memory;
+    private final DiskIndex disk;
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory The directory assets are stored in. It's created if it doesn't exist.
+     * @param memoryBytes The total size of the assets kept in memory
+     * @param diskBytes The total size of the assets kept on disk
+     */
+    public CDNClient(@NotNull Path directory, long memoryBytes, long diskBytes) {
+        this.directory = directory;
+        this.memory = new MemoryCache(memoryBytes);
+        this.disk = new DiskIndex(directory, diskBytes);
+    }
+
+    /**
+     * Creates a client keeping up to 256 MiB of assets on disk.
+     * @param directory The directory assets are stored in. It's created if it doesn't exist.
+     * @param memoryBytes The total size of the assets kept in memory
+     */
+    public CDNClient(@NotNull Path directory, long memoryBytes) {
+        this(directory, memoryBytes, DEFAULT_DISK_BYTES);
+    }
+
+    /**
+     * Creates a client storing assets in {@code discord.jar-cdn} in the temporary directory, and keeping up to 32 MiB in memory
+     * <br>and 256 MiB on disk.
+     */
+    public CDNClient() {
+        this(Path.of(System.getProperty("java.io.tmpdir"), "discord.jar-cdn"), DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES);
+    }
+
+    /**
+     * Builds the URL of an asset, choosing a format and size the CDN can serve.
+     * <br>Animated assets, whose hash starts with {@code a_}, are only served as GIF if it was requested, and GIF is
+     * <br>replaced with PNG for assets that aren't animated. The size is rounded up to a power of two between 16 and 4096.
+     *
+     * @param size The size in pixels, or 0 for the original size
+     */
+    @NotNull
+    public static String url(@NotNull ImageUtils.ImageType type, @NotNull String hash, @NotNull Format format, int size, String... params) {
+        boolean animated = hash.startsWith("a_");
+        if (format == Format.GIF && !animated) format = Format.PNG;
+
+        String url = ImageUtils.getUrl(hash, type, params) + "." + format.extension();
+        if (size > 0) {
+            int clamped = Math.max(16, Math.min(4096, size));
+            int rounded = Integer.highestOneBit(clamped);
+            if (rounded < clamped) rounded <<= 1;
+            url += "?size=" + rounded;
+        }
+        return url;
+    }
+
+    /**
+     * Returns the contents of an asset, downloading it if it isn't cached.
+     * <br>The returned array is shared with the cache, so it shouldn't be modified.
+     *
+     * @return The asset, or null if it doesn't exist
+     */
+    @Nullable
+    public byte[] fetch(@NotNull String url) {
+        try {
+            return fetchAsync(url).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+
+    /**
+     * @see #fetch(String)
+     */
+    @Nullable
+    public byte[] fetch(@NotNull ImageUtils.ImageType type, @NotNull String hash, @NotNull Format format, int size, String... params) {
+        return fetch(url(type, hash, format, size, params));
+    }
+
+    /**
+     * Returns the image of an entity, such as a user's avatar, or null if it doesn't have one.
+     */
+    @Nullable
+    public byte[] fetch(@NotNull CDNAble asset) {
+        String url = asset.imageUrl();
+        return url == null ? null : fetch(url);
+    }
+
+    /**
+     * Returns the contents of an asset on a CDN thread. If the asset is already being downloaded, the same future is returned.
+     */
+    @NotNull
+    public CompletableFuture<byte[]> fetchAsync(@NotNull String url) {
+        String key = key(url);
+        byte[] cached = memory.get(key);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<byte[]> created = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) return existing;
+
+        FETCHER.execute(() -> {
+            try {
+                created.complete(load(key, url));
+            } catch (IOException e) {
+                created.completeExceptionally(new UncheckedIOException(e));
+            } catch (Throwable t) {
+                created.completeExceptionally(t);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Removes every asset from memory and from disk.
+     */
+    public void clear() {
+        memory.clear();
+        disk.clear();
+        if (!Files.isDirectory(directory)) return;
+        try (var files = Files.walk(directory)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {}
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] load(String key, String url) throws IOException {
+        Path data = directory.resolve(key.substring(0, 2)).resolve(key);
+        Path metaFile = data.resolveSibling(key + ".meta");
+        Properties meta = readMeta(metaFile);
+
+        byte[] cached = null;
+        if (meta != null && Files.exists(data)) {
+            try {
+                cached = Files.readAllBytes(data);
+                disk.used(key, data);
+            } catch (IOException e) {
+                // Possibly evicted while it was being read
+                meta = null;
+            }
+        }
+
+        if (cached != null) {
+            long expires = parseLong(meta.getProperty("expires"));
+            if (System.currentTimeMillis() < expires) {
+                memory.put(key, cached, expires);
+                return cached;
+            }
+        }
+
+        Request.Builder request = new Request.Builder().url(url).get();
+        request.addHeader("User-Agent", "DiscordBot (https://github.com/discord-jar/, 1.0.0)");
+        if (cached != null) {
+            if (meta.getProperty("etag") != null) request.addHeader("If-None-Match", meta.getProperty("etag"));
+            if (meta.getProperty("last-modified") != null) request.addHeader("If-Modified-Since", meta.getProperty("last-modified"));
+        }
+
+        try (Response response = CLIENT.newCall(request.build()).execute()) {
+            if (response.code() == 304 && cached != null) {
+                long expires = expiry(response);
+                meta.setProperty("expires", String.valueOf(expires));
+                writeMeta(metaFile, meta);
+                memory.put(key, cached, expires);
+                return cached;
+            }
+            if (response.code() == 404) return null;
+            if (!response.isSuccessful()) {
+                throw new IOException("CDN returned " + response.code() + " for " + url);
+            }
+
+            ResponseBody body = response.body();
+            byte[] bytes = body == null ? new byte[0] : body.bytes();
+
+            long expires = expiry(response);
+            Properties updated = new Properties();
+            updated.setProperty("url", url);
+            updated.setProperty("expires", String.valueOf(expires));
+            if (response.header("ETag") != null) updated.setProperty("etag", response.header("ETag"));
+            if (response.header("Last-Modified") != null) updated.setProperty("last-modified", response.header("Last-Modified"));
+
+            try {
+                Files.createDirectories(data.getParent());
+                Path temp = Files.createTempFile(data.getParent(), key, ".tmp");
+                Files.write(temp, bytes);
+                Files.move(temp, data, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                writeMeta(metaFile, updated);
+                disk.added(key, bytes.length);
+            } catch (IOException e) {
+                // The asset was downloaded, so it's still returned
+                Logger.getLogger("CDN").warning("[discord.jar] Couldn't write " + url + " to the CDN cache: " + e.getMessage());
+            }
+
+            memory.put(key, bytes, expires);
+            return bytes;
+        }
+    }
+
+    private long expiry(Response response) {
+        long maxAge = DEFAULT_MAX_AGE;
+        String cacheControl = response.header("Cache-Control");
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) maxAge = Long.parseLong(matcher.group(1));
+        }
+        return System.currentTimeMillis() + maxAge * 1000;
+    }
+
+    private long parseLong(String value) {
+        try {
+            return value == null ? 0 : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Nullable
+    private Properties readMeta(Path file) {
+        if (!Files.exists(file)) return null;
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            meta.load(in);
+            return meta;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void writeMeta(Path file, Properties meta) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            meta.store(out, null);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The formats the CDN can serve. Not every format is available for every asset, see
+     * <br><a href="https://discord.com/developers/docs/reference#image-formatting">Image Formatting</a>.
+     */
+    public enum Format {
+        PNG("png"),
+        JPEG("jpg"),
+        WEBP("webp"),
+        GIF("gif"),
+        LOTTIE("json");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    /**
+     * A least recently used cache, bounded by the total size of its entries. Expired entries are treated as missing,
+     * <br>so they're revalidated from disk.
+     */
+    private static class MemoryCache {
+        private record Entry(byte[] data, long expires) {}
+
+        private final long capacity;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long size = 0;
+
+        private MemoryCache(long capacity) {
+            this.capacity = capacity;
+        }
+
+        private synchronized byte[] get(String key) {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (System.currentTimeMillis() >= entry.expires()) {
+                entries.remove(key);
+                size -= entry.data().length;
+                return null;
+            }
+            return entry.data();
+        }
+
+        private synchronized void put(String key, byte[] data, long expires) {
+            if (data.length > capacity) return;
+            Entry previous = entries.put(key, new Entry(data, expires));
+            if (previous != null) size -= previous.data().length;
+            size += data.length;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (size > capacity && eldest.hasNext()) {
+                size -= eldest.next().data().length;
+                eldest.remove();
+            }
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * Tracks the assets on disk in least recently used order, and deletes the eldest once they're larger than the budget.
+     * <br>The directory is only scanned the first time it's needed, ordered by the files' last modified times.
+     */
+    private static class DiskIndex {
+        private final Path directory;
+        private final long capacity;
+        private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long size = 0;
+        private boolean loaded = false;
+
+        private DiskIndex(Path directory, long capacity) {
+            this.directory = directory;
+            this.capacity = capacity;
+        }
+
+        private void used(String key, Path data) {
+            synchronized (this) {
+                load();
+                entries.get(key);
+            }
+            try {
+                Files.setLastModifiedTime(data, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException ignored) {}
+        }
+
+        private synchronized void added(String key, long length) {
+            load();
+            Long previous = entries.put(key, length);
+            if (previous != null) size -= previous;
+            size += length;
+
+            Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            while (size > capacity && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                // The asset that was just added stays, even if it's larger than the budget on its own
+                if (entry.getKey().equals(key)) continue;
+                size -= entry.getValue();
+                eldest.remove();
+                delete(entry.getKey());
+            }
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            size = 0;
+            loaded = false;
+        }
+
+        private void delete(String key) {
+            Path data = directory.resolve(key.substring(0, 2)).resolve(key);
+            try {
+                Files.deleteIfExists(data.resolveSibling(key + ".meta"));
+                Files.deleteIfExists(data);
+            } catch (IOException e) {
+                Logger.getLogger("CDN").warning("[discord.jar] Couldn't delete " + data + " from the CDN cache: " + e.getMessage());
+            }
+        }
+
+        private void load() {
+            if (loaded) return;
+            loaded = true;
+            if (!Files.isDirectory(directory)) return;
+
+            List<Path> files;
+            try (var walk = Files.walk(directory, 2)) {
+                files = walk.filter(Files::isRegularFile).filter(file -> {
+                    String name = file.getFileName().toString();
+                    return !name.endsWith(".meta") && !name.endsWith(".tmp");
+                }).toList();
+            } catch (IOException e) {
+                Logger.getLogger("CDN").warning("[discord.jar] Couldn't read the CDN cache directory: " + e.getMessage());
+                return;
+            }
+
+            record Found(String key, long size, long lastUsed) {}
+            List<Found> found = new ArrayList<>(files.size());
+            for (Path file : files) {
+                try {
+                    found.add(new Found(file.getFileName().toString(), Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+                } catch (IOException ignored) {}
+            }
+            found.sort(Comparator.comparingLong(Found::lastUsed));
+            for (Found file : found) {
+                entries.put(file.key(), file.size());
+                size += file.size();
+            }
+        }
+    }
+}
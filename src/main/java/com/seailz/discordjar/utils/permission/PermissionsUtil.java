@@ -1,4 +1,291 @@
 package com.seailz.discordjar.utils.permission;
 
+import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.model.channel.GuildChannel;
+import com.seailz.discordjar.model.guild.Guild;
+import com.seailz.discordjar.model.guild.Member;
+import com.seailz.discordjar.model.permission.OverwriteType;
+import com.seailz.discordjar.model.permission.PermissionOverwrite;
+import com.seailz.discordjar.model.role.Role;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes the effective permissions of members, as raw bitsets.
+ * <br>Permissions are computed using Discord's algorithm: the base permissions of a member come from the <b>@everyone</b> role
+ * <br>and the member's roles, and channel permissions apply the channel's {@link PermissionOverwrite overwrites} on top of those.
+ *
+ * <p>Results are memoized per guild, member and channel. A memoized result is only used while the member still has the same roles
+ * <br>and the channel the same overwrites it was computed from, and the gateway invalidates results when roles or the guild are updated.
+ * <br>So results stay correct even without the GUILD_MEMBERS intent, which is needed to be told about member updates.
+ * <br>The amount of memoized members per guild and channels per member is bounded, the least recently used ones are dropped first.
+ *
+ * @author Seailz
+ * @see <a href="https://discord.com/developers/docs/topics/permissions#permission-overwrites">Permission Overwrites</a>
+ * @see DiscordJar#getPermissionsUtil()
+ */
 public class PermissionsUtil {
+
+    /**
+     * Every permission.
+     */
+    public static final long ALL;
+    /**
+     * Permissions which are implicitly denied if a member can't send messages in a channel.
+     */
+    private static final long SEND_DEPENDENT = Permission.SEND_TTS_MESSAGES.bit() | Permission.MENTION_EVERYONE.bit()
+            | Permission.EMBED_LINKS.bit() | Permission.ATTACH_FILES.bit();
+    public static final int DEFAULT_MAX_MEMBERS_PER_GUILD = 5000;
+    public static final int DEFAULT_MAX_CHANNELS_PER_MEMBER = 50;
+
+    static {
+        long all = 0;
+        for (Permission permission : Permission.values()) all |= permission.bit();
+        ALL = all;
+    }
+
+    private final DiscordJar discordJar;
+    private final Map<String, GuildPermissions> guilds = new ConcurrentHashMap<>();
+    private final int maxMembersPerGuild;
+    private final int maxChannelsPerMember;
+
+    public PermissionsUtil(@NotNull DiscordJar discordJar) {
+        this(discordJar, DEFAULT_MAX_MEMBERS_PER_GUILD, DEFAULT_MAX_CHANNELS_PER_MEMBER);
+    }
+
+    /**
+     * @param maxMembersPerGuild The amount of members whose permissions are memoized per guild
+     * @param maxChannelsPerMember The amount of channels whose permissions are memoized per member
+     */
+    public PermissionsUtil(@NotNull DiscordJar discordJar, int maxMembersPerGuild, int maxChannelsPerMember) {
+        this.discordJar = discordJar;
+        this.maxMembersPerGuild = maxMembersPerGuild;
+        this.maxChannelsPerMember = maxChannelsPerMember;
+    }
+
+    /**
+     * Checks whether a bitset contains a permission.
+     * <br>{@link Permission#ADMINISTRATOR} isn't taken into account, since computed permissions already include every permission for administrators.
+     */
+    public static boolean has(long permissions, @NotNull Permission permission) {
+        long bit = permission.bit();
+        return (permissions & bit) == bit;
+    }
+
+    /**
+     * Computes the base permissions of a member, which apply to the whole guild.
+     *
+     * @param owner Whether the member owns the guild
+     * @param everyone The permissions of the <b>@everyone</b> role
+     * @param roles The permissions of the member's roles, combined
+     */
+    public static long computeBasePermissions(boolean owner, long everyone, long roles) {
+        if (owner) return ALL;
+        long permissions = everyone | roles;
+        if (has(permissions, Permission.ADMINISTRATOR)) return ALL;
+        return permissions;
+    }
+
+    /**
+     * Applies the overwrites of a channel to the base permissions of a member.
+     * <br>The <b>@everyone</b> overwrite is applied first, then the overwrites of the member's roles together, and then the member's own overwrite.
+     *
+     * @param base The base permissions of the member
+     * @param guildId The id of the guild, which is also the id of the <b>@everyone</b> role
+     * @param memberId The id of the member
+     * @param roleIds The ids of the member's roles
+     * @param overwrites The overwrites of the channel
+     */
+    public static long computeOverwrites(long base, @NotNull String guildId, @NotNull String memberId,
+                                         @NotNull Collection<String> roleIds, @Nullable List<PermissionOverwrite> overwrites) {
+        if (has(base, Permission.ADMINISTRATOR)) return ALL;
+        long permissions = base;
+
+        if (overwrites != null) {
+            PermissionOverwrite everyone = null;
+            PermissionOverwrite member = null;
+            long allow = 0;
+            long deny = 0;
+            for (PermissionOverwrite overwrite : overwrites) {
+                if (overwrite.id() == null) continue;
+                if (overwrite.id().equals(guildId)) everyone = overwrite;
+                else if (overwrite.type() == OverwriteType.MEMBER) {
+                    if (overwrite.id().equals(memberId)) member = overwrite;
+                } else if (roleIds.contains(overwrite.id())) {
+                    allow |= overwrite.allowRaw();
+                    deny |= overwrite.denyRaw();
+                }
+            }
+
+            if (everyone != null) permissions = (permissions & ~everyone.denyRaw()) | everyone.allowRaw();
+            permissions = (permissions & ~deny) | allow;
+            if (member != null) permissions = (permissions & ~member.denyRaw()) | member.allowRaw();
+        }
+
+        // A member who can't view a channel can't do anything in it
+        if (!has(permissions, Permission.VIEW_CHANNEL)) return 0;
+        if (!has(permissions, Permission.SEND_MESSAGES)) permissions &= ~SEND_DEPENDENT;
+        return permissions;
+    }
+
+    /**
+     * Returns the base permissions of a member in their guild.
+     */
+    public long getPermissions(@NotNull Member member) {
+        return memberEntry(member).base;
+    }
+
+    /**
+     * Returns the permissions of a member in a channel.
+     */
+    public long getPermissions(@NotNull Member member, @NotNull GuildChannel channel) {
+        MemberPermissions entry = memberEntry(member);
+        List<PermissionOverwrite> overwrites = channel.permissionOverwrites();
+        ChannelPermissions cached = entry.channels.get(channel.id());
+        if (cached != null && Objects.equals(cached.overwrites(), overwrites)) return cached.permissions();
+
+        long permissions = computeOverwrites(entry.base, member.guildId(), member.user().id(), entry.roleIds, overwrites);
+        entry.channels.put(channel.id(), new ChannelPermissions(overwrites, permissions));
+        return permissions;
+    }
+
+    /**
+     * Checks whether a member has a permission in their guild.
+     */
+    public boolean hasPermission(@NotNull Member member, @NotNull Permission permission) {
+        return has(getPermissions(member), permission);
+    }
+
+    /**
+     * Checks whether a member has a permission in a channel.
+     */
+    public boolean hasPermission(@NotNull Member member, @NotNull GuildChannel channel, @NotNull Permission permission) {
+        return has(getPermissions(member, channel), permission);
+    }
+
+    /**
+     * Forgets every computed permission in a guild, e.g. when a role is updated.
+     */
+    public void invalidateGuild(@NotNull String guildId) {
+        GuildPermissions guild = guilds.remove(guildId);
+        if (guild != null) guild.version.incrementAndGet();
+    }
+
+    /**
+     * Forgets the computed permissions of every member in a channel, e.g. when its overwrites are updated.
+     */
+    public void invalidateChannel(@NotNull String guildId, @NotNull String channelId) {
+        GuildPermissions guild = guilds.get(guildId);
+        if (guild == null) return;
+        for (MemberPermissions member : guild.members.values()) member.channels.remove(channelId);
+    }
+
+    /**
+     * Forgets the computed permissions of a member, e.g. when their roles are updated.
+     */
+    public void invalidateMember(@NotNull String guildId, @NotNull String memberId) {
+        GuildPermissions guild = guilds.get(guildId);
+        if (guild == null) return;
+        guild.members.remove(memberId);
+    }
+
+    /**
+     * Returns the memoized permissions of a member, computing them again if their roles or the guild changed since.
+     */
+    private MemberPermissions memberEntry(Member member) {
+        GuildPermissions guild = guilds.computeIfAbsent(member.guildId(), id -> new GuildPermissions(maxMembersPerGuild));
+        List<String> roleIds = member.getRoleIds() == null ? List.of() : member.getRoleIds();
+        String userId = member.user().id();
+        int version = guild.version.get();
+
+        MemberPermissions entry = guild.members.get(userId);
+        if (entry != null && entry.version == version && entry.roleIds.equals(roleIds)) return entry;
+
+        // The version is read before computing, so a result that raced with an invalidation is recomputed on the next call
+        entry = new MemberPermissions(version, List.copyOf(roleIds), computeBase(member, roleIds), maxChannelsPerMember);
+        guild.members.put(userId, entry);
+        return entry;
+    }
+
+    private long computeBase(Member member, List<String> roleIds) {
+        Guild guild = discordJar.getGuildById(member.guildId());
+        if (guild == null) return 0;
+
+        Role everyone = guild.getEveryoneRole();
+        long roles = 0;
+        for (String roleId : roleIds) {
+            Role role = guild.getRoleById(roleId);
+            if (role != null) roles |= role.permissionsRaw();
+        }
+        boolean owner = member.user().id().equals(guild.ownerId());
+        return computeBasePermissions(owner, everyone == null ? 0 : everyone.permissionsRaw(), roles);
+    }
+
+    private static class GuildPermissions {
+        /**
+         * Incremented when roles or the guild are updated, so results computed before aren't used anymore.
+         */
+        private final AtomicInteger version = new AtomicInteger();
+        private final LruMap<String, MemberPermissions> members;
+
+        private GuildPermissions(int maxMembers) {
+            this.members = new LruMap<>(maxMembers);
+        }
+    }
+
+    private static class MemberPermissions {
+        private final int version;
+        private final List<String> roleIds;
+        private final long base;
+        private final LruMap<String, ChannelPermissions> channels;
+
+        private MemberPermissions(int version, List<String> roleIds, long base, int maxChannels) {
+            this.version = version;
+            this.roleIds = roleIds;
+            this.base = base;
+            this.channels = new LruMap<>(maxChannels);
+        }
+    }
+
+    private record ChannelPermissions(List<PermissionOverwrite> overwrites, long permissions) {}
+
+    /**
+     * A thread safe map that drops its least recently used entry once it's full.
+     */
+    private static class LruMap<K, V> {
+        private final LinkedHashMap<K, V> map;
+
+        private LruMap(int capacity) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        private synchronized V get(K key) {
+            return map.get(key);
+        }
+
+        private synchronized void put(K key, V value) {
+            map.put(key, value);
+        }
+
+        private synchronized void remove(K key) {
+            map.remove(key);
+        }
+
+        private synchronized List<V> values() {
+            return List.copyOf(map.values());
+        }
+    }
 }
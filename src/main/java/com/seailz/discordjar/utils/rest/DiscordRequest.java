@@ -14,21 +14,16 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.net.URL;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
-import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 public class DiscordRequest {
 
+    /**
+     * Shared by every request, so connections and threads are pooled instead of being created for each request.
+     */
+    private static final OkHttpClient CLIENT = new OkHttpClient();
 
     private JSONObject body;
     private final HashMap<String, String> headers;
@@ -37,6 +32,10 @@ public class DiscordRequest {
     private final String baseUrl;
     private final RequestMethod requestMethod;
     private JSONArray aBody;
+    /**
+     * Sent instead of the JSON body if set, such as a {@link StreamingMultipartBody}.
+     */
+    private RequestBody customBody;
     // HashMap of endpoint to whether or not it can be requested (rate limited)
     private static HashMap<String, Boolean> canRequest = new HashMap<>();
 
@@ -80,8 +79,6 @@ public class DiscordRequest {
         assert djv == null;
         try {
             String url = URLS.BASE_URL + this.url;
-            OkHttpClient client = new OkHttpClient();
-
             Request.Builder requestBuilder = new Request.Builder().url(url);
 
             String s = body != null ? body.toString() : aBody.toString();
@@ -114,7 +111,7 @@ public class DiscordRequest {
             headers.forEach(requestBuilder::addHeader);
 
             Request request = requestBuilder.build();
-            Response response = client.newCall(request).execute();
+            Response response = CLIENT.newCall(request).execute();
 
             int responseCode = response.code();
             String sb = response.body().string();
@@ -206,18 +203,19 @@ public class DiscordRequest {
                 System.out.println("Cleared for launch");
             }
 
-            OkHttpClient client = new OkHttpClient();
-
             Request.Builder requestBuilder = new Request.Builder().url(url);
 
-            String s = body != null ? body.toString() : aBody.toString();
+            String s = body != null ? String.valueOf(body) : String.valueOf(aBody);
             RequestBody requestBody;
-
-            if (contentType == null) {
+            if (customBody != null) {
+                contentType = String.valueOf(customBody.contentType());
+            } else if (contentType == null) {
                 contentType = "application/json";
             }
 
-            if (requestMethod == RequestMethod.POST) {
+            if (customBody != null) {
+                requestBuilder.method(requestMethod.name(), customBody);
+            } else if (requestMethod == RequestMethod.POST) {
                 requestBody = RequestBody.create(MediaType.parse(contentType), s);
                 requestBuilder.post(requestBody);
             } else if (requestMethod == RequestMethod.PATCH) {
@@ -246,7 +244,7 @@ public class DiscordRequest {
             headers.forEach((key, value) -> requestBuilder.addHeader(key, value));
 
             Request request = requestBuilder.build();
-            Response response = client.newCall(request).execute();
+            Response response = CLIENT.newCall(request).execute();
             canRequest.put(url, true);
 
             int responseCode = response.code();
@@ -314,6 +312,12 @@ public class DiscordRequest {
                     bucket.await((long) (retryAfter * 1000));
                 }
 
+                if (customBody != null && customBody.isOneShot()) {
+                    // The stream has already been read, so the request can't be sent again
+                    Logger.getLogger("RateLimit").warning("[RATE LIMIT] Upload from a stream was rate limited and can't be retried.");
+                    return new DiscordResponse(429, body, headers, null);
+                }
+
                 return queueRequest(retryAfter, url, auth, contentType);
             }
 
@@ -389,101 +393,47 @@ public class DiscordRequest {
         return invoke(null, true);
     }
 
+    /**
+     * Sends the request with the given files attached, along with the JSON body as {@code payload_json}.
+     * <br>The files are streamed from disk while the request is sent, instead of being read into memory first.
+     *
+     * @throws DiscordAPIErrorException If the Discord API returns an error
+     */
     public DiscordResponse invokeWithFiles(File... files) {
+        StreamingMultipartBody.Builder builder = StreamingMultipartBody.builder();
         try {
-            String url = URLS.BASE_URL + this.url;
-            URL obj = new URL(url);
-
-            HttpRequest.Builder con = HttpRequest.newBuilder();
-
-            con.uri(obj.toURI());
-
-            String boundary = "---1234567890";
-            String crlf = "\r\n";
-            List<byte[]> bodyParts = new ArrayList<>();
-            bodyParts.add("--".getBytes(StandardCharsets.UTF_8));
-            bodyParts.add(boundary.getBytes(StandardCharsets.UTF_8));
-
-// Add JSON payload
-            bodyParts.add((crlf + "Content-Disposition: form-data; name=\"payload_json\"" + crlf + "Content-Type: application/json" + crlf + crlf + this.body + crlf).getBytes(StandardCharsets.UTF_8));
-
-// Add file attachments
-            for (int i = 0; i < files.length; i++) {
-                File file = files[i];
-                byte[] fileContent = Files.readAllBytes(file.toPath());
-                bodyParts.add("--".getBytes(StandardCharsets.UTF_8));
-                bodyParts.add(boundary.getBytes(StandardCharsets.UTF_8));
-                bodyParts.add((crlf + "Content-Disposition: form-data; name=\"files[" + i + "]\"; filename=\"" + file.getName() + "\"" + crlf + "Content-Type: " + Files.probeContentType(file.toPath()) + crlf + crlf).getBytes(StandardCharsets.UTF_8));
-                bodyParts.add(fileContent);
-                bodyParts.add(crlf.getBytes(StandardCharsets.UTF_8));
-            }
-
-            bodyParts.add("--".getBytes(StandardCharsets.UTF_8));
-            bodyParts.add(boundary.getBytes(StandardCharsets.UTF_8));
-            bodyParts.add("--".getBytes(StandardCharsets.UTF_8));
-
-            byte[] body = new byte[bodyParts.stream().mapToInt(part -> part.length).sum()];
-            int offset = 0;
-            for (byte[] part : bodyParts) {
-                System.arraycopy(part, 0, body, offset, part.length);
-                offset += part.length;
-            }
-
-            if (requestMethod == RequestMethod.POST) {
-                con.POST(HttpRequest.BodyPublishers.ofByteArray(body));
-            } else if (requestMethod == RequestMethod.PATCH) {
-                con.method("PATCH", HttpRequest.BodyPublishers.ofByteArray(body));
-            } else if (requestMethod == RequestMethod.PUT) {
-                con.method("PUT", HttpRequest.BodyPublishers.ofByteArray(body));
-            } else if (requestMethod == RequestMethod.DELETE) {
-                con.method("DELETE", HttpRequest.BodyPublishers.ofByteArray(body));
-            } else if (requestMethod == RequestMethod.GET) {
-                con.GET();
-            } else {
-                con.method(requestMethod.name(), HttpRequest.BodyPublishers.ofByteArray(body));
-            }
-
-            con.header("User-Agent", "DiscordBot (https://github.com/discord-jar/discord.jar, 1.0.0)");
-            con.header("Authorization", "Bot " + djv.getToken());
-            con.header("Content-Type", "multipart/form-data; boundary=" + boundary);
-
-
-            HttpRequest request = con.build();
-            HttpClient client = HttpClient.newHttpClient();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-
-            int responseCode = response.statusCode();
-
-            HashMap<String, String> headers = new HashMap<>();
-            response.headers().map().forEach((key, value) -> headers.put(key, value.get(0)));
-
-
-            if (responseCode == 200 || responseCode == 201) {
-
-                var bodyResponse = new Object();
-
-                if (response.body().startsWith("[")) {
-                    bodyResponse = new JSONArray(response.body());
-                } else {
-                    bodyResponse = new JSONObject(response.body());
-                }
-
-                return new DiscordResponse(responseCode, (bodyResponse instanceof JSONObject) ? (JSONObject) bodyResponse : null, headers, (bodyResponse instanceof JSONArray) ? (JSONArray) bodyResponse : null);
-            }
-            if (responseCode == 204) return null;
-
-
-            JSONObject error = new JSONObject(response.body());
+            for (File file : files) builder.file(file);
+        } catch (UncheckedIOException e) {
+            throw new DiscordUnexpectedError(e.getCause());
+        }
 
-            throw new UnhandledDiscordAPIErrorException(error, responseCode);
-        } catch (Exception e) {
-            e.printStackTrace();
+        try {
+            return invokeMultipart(builder.build(body));
+        } catch (UnhandledDiscordAPIErrorException e) {
+            throw new DiscordAPIErrorException(e);
         }
-        return null;
     }
 
+    /**
+     * Sends the request with a multipart body, such as a message with attachments.
+     * <br>The request goes through the same rate limiting as any other request, but a body containing a stream
+     * <br>is only sent once, so if it's rate limited it isn't retried.
+     *
+     * @param body The body to send instead of the JSON body
+     * @return The {@link DiscordResponse} from the Discord API
+     * @throws UnhandledDiscordAPIErrorException If Discord didn't accept the request, including when it was rate limited
+     */
+    public DiscordResponse invokeMultipart(StreamingMultipartBody body) throws UnhandledDiscordAPIErrorException {
+        this.customBody = body;
+        DiscordResponse response = invoke(null, true);
+        if (response == null || response.code() == 200 || response.code() == 201) return response;
+
+        // invoke() returns rate limits & missing resources instead of throwing, which would look like a successful upload
+        JSONObject error = response.body() == null ? new JSONObject() : new JSONObject(response.body().toString());
+        if (!error.has("code")) error.put("code", 0);
+        if (!error.has("message")) error.put("message", "Upload failed with HTTP " + response.code());
+        throw new UnhandledDiscordAPIErrorException(error, response.code());
+    }
 
     public static class DiscordAPIErrorException extends RuntimeException {
         public DiscordAPIErrorException(UnhandledDiscordAPIErrorException e) {
@@ -0,0 +1,231 @@
+package com.seailz.discordjar.utils.rest;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over a paginated endpoint, such as the messages of a channel or the members of a guild, one page at a time.
+ * <br>Only the current page and the next one are held in memory, so a whole channel history or member list can be processed
+ * <br>in constant memory.
+ *
+ * <p>While the caller works through a page, the next one is already being requested. Pages are requested with
+ * <br>{@link DiscordRequest}, so they wait for their rate limit bucket like any other request, and at most one request is in flight.
+ *
+ * <p>A paginator can only be iterated once. It can be consumed as an {@link Iterator}, a {@link #stream() Stream} or a
+ * <br>{@link #publisher() Flow.Publisher}. If it isn't consumed until the end, it should be {@link #close() closed},
+ * <br>so the prefetched page is discarded.
+ *
+ * @author Seailz
+ * @param  <T> The type of the items
+ */
+public class Paginator<T> implements Iterator<T>, AutoCloseable {
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ExecutorService PREFETCHER = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "djar--paginator-" + THREADS.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Function<String, List<T>> fetcher;
+    private final Function<T, String> cursor;
+    private final int pageSize;
+    private final int limit;
+
+    private List<T> page = List.of();
+    private int fetched = 0;
+    private int index = 0;
+    private CompletableFuture<List<T>> next;
+    private boolean last = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param fetcher Requests a page. It's given the cursor of the last item of the previous page, or null for the first page.
+     * @param cursor Returns the cursor of an item, usually its id
+     * @param pageSize The number of items requested per page. A page with fewer items is the last one.
+     */
+    public Paginator(@NotNull Function<String, List<T>> fetcher, @NotNull Function<T, String> cursor, int pageSize) {
+        this(fetcher, cursor, pageSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a paginator that stops after {@code limit} items.
+     * <br>Unlike {@link Stream#limit(long)} on {@link #stream()}, no page past the limit is prefetched, so no request is wasted.
+     *
+     * @param fetcher Requests a page. It's given the cursor of the last item of the previous page, or null for the first page.
+     * @param cursor Returns the cursor of an item, usually its id
+     * @param pageSize The number of items requested per page. A page with fewer items is the last one.
+     * @param limit The maximum number of items to iterate over
+     */
+    public Paginator(@NotNull Function<String, List<T>> fetcher, @NotNull Function<T, String> cursor, int pageSize, int limit) {
+        this.fetcher = fetcher;
+        this.cursor = cursor;
+        this.pageSize = pageSize;
+        this.limit = limit;
+        if (limit > 0) this.next = request(null);
+        else this.last = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (index < page.size()) return true;
+        if (last || closed) return false;
+
+        List<T> page = await(next);
+        boolean full = page.size() >= pageSize;
+        if (page.size() > limit - fetched) page = page.subList(0, limit - fetched);
+        fetched += page.size();
+        this.page = page;
+        this.index = 0;
+        if (!full || fetched >= limit) {
+            last = true;
+            next = null;
+        } else {
+            // Prefetch the next page while this one is consumed
+            next = request(cursor.apply(page.get(page.size() - 1)));
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return page.get(index++);
+    }
+
+    /**
+     * Returns a sequential stream of the remaining items. Closing the stream closes the paginator.
+     */
+    @NotNull
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Returns a publisher of the remaining items, which requests pages as its subscriber signals demand.
+     * <br>Items are delivered on a paginator thread. Only one subscriber is accepted.
+     */
+    @NotNull
+    public Flow.Publisher<T> publisher() {
+        AtomicBoolean subscribed = new AtomicBoolean();
+        return subscriber -> {
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {}
+
+                    @Override
+                    public void cancel() {}
+                });
+                subscriber.onError(new IllegalStateException("A paginator can only be subscribed to once"));
+                return;
+            }
+            subscriber.onSubscribe(new PaginatorSubscription(subscriber));
+        };
+    }
+
+    /**
+     * Stops the iteration, and discards the page being prefetched.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        CompletableFuture<List<T>> next = this.next;
+        if (next != null) next.cancel(false);
+    }
+
+    private CompletableFuture<List<T>> request(@Nullable String after) {
+        return CompletableFuture.supplyAsync(() -> fetcher.apply(after), PREFETCHER);
+    }
+
+    private List<T> await(CompletableFuture<List<T>> future) {
+        try {
+            List<T> page = future.join();
+            return page == null ? List.of() : page;
+        } catch (CancellationException e) {
+            return List.of();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw e;
+        }
+    }
+
+    private class PaginatorSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        /**
+         * Counts the calls to {@link #request(long)} that haven't been drained yet, so only one thread delivers items at a time.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled = false;
+
+        private PaginatorSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) return;
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Demand must be positive"));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            if (pending.getAndIncrement() == 0) PREFETCHER.execute(this::drain);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            close();
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                long requested = demand.get();
+                long emitted = 0;
+                while (emitted != requested && !cancelled) {
+                    T item;
+                    try {
+                        if (!hasNext()) {
+                            cancelled = true;
+                            subscriber.onComplete();
+                            return;
+                        }
+                        item = next();
+                    } catch (RuntimeException e) {
+                        cancel();
+                        subscriber.onError(e);
+                        return;
+                    }
+                    subscriber.onNext(item);
+                    emitted++;
+                }
+                if (cancelled) return;
+                if (requested != Long.MAX_VALUE) demand.addAndGet(-emitted);
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.seailz.discordjar.utils.rest;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A {@code multipart/form-data} body for uploading files, which streams every part while the request is written.
+ * <br>Files are read from disk in small segments and in-memory attachments are written from their {@link ByteBuffer}, so uploading
+ * <br>a large file doesn't need as much heap as the file is large, and attachments don't have to be written to temporary files.
+ *
+ * <p>The JSON payload is sent as {@code payload_json}, and attachments as {@code files[n]} in the order they were added.
+ * <br>A body with an {@link InputStream} part can only be sent once, since the stream can't be rewound.
+ *
+ * @author Seailz
+ * @see    DiscordRequest#invokeMultipart(StreamingMultipartBody)
+ */
+public class StreamingMultipartBody extends RequestBody {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] DASHES = {'-', '-'};
+
+    private final String boundary;
+    private final MediaType contentType;
+    private final String payload;
+    private final List<Part> parts;
+    private final long contentLength;
+
+    private StreamingMultipartBody(String payload, List<Part> parts) {
+        // Random, so it can't appear in the files being uploaded
+        this.boundary = "djar-" + UUID.randomUUID().toString().replace("-", "");
+        this.contentType = MediaType.parse("multipart/form-data; boundary=" + boundary);
+        this.payload = payload;
+        this.parts = parts;
+        this.contentLength = computeContentLength();
+    }
+
+    @NotNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public boolean isOneShot() {
+        for (Part part : parts) if (part.stream != null) return true;
+        return false;
+    }
+
+    @Override
+    public void writeTo(@NotNull BufferedSink sink) throws IOException {
+        byte[] boundary = this.boundary.getBytes(StandardCharsets.UTF_8);
+        if (payload != null) {
+            writeHeader(sink, boundary, payloadHeader());
+            sink.writeUtf8(payload);
+            sink.write(CRLF);
+        }
+
+        for (int i = 0; i < parts.size(); i++) {
+            Part part = parts.get(i);
+            writeHeader(sink, boundary, part.header(i));
+            if (part.file != null) {
+                try (Source source = Okio.source(part.file.toPath())) {
+                    sink.writeAll(source);
+                }
+            } else if (part.buffer != null) {
+                // Duplicated, so the body can be written again if the request is retried
+                sink.write(part.buffer.duplicate());
+            } else {
+                try (Source source = Okio.source(part.stream)) {
+                    sink.writeAll(source);
+                }
+            }
+            sink.write(CRLF);
+        }
+
+        sink.write(DASHES).write(boundary).write(DASHES).write(CRLF);
+    }
+
+    private void writeHeader(BufferedSink sink, byte[] boundary, String header) throws IOException {
+        sink.write(DASHES).write(boundary).write(CRLF);
+        sink.writeUtf8(header);
+    }
+
+    private String payloadHeader() {
+        return "Content-Disposition: form-data; name=\"payload_json\"\r\nContent-Type: application/json\r\n\r\n";
+    }
+
+    /**
+     * Computes the length of the body, or -1 if a part's length isn't known, in which case the body is sent chunked.
+     */
+    private long computeContentLength() {
+        long boundaryLength = boundary.getBytes(StandardCharsets.UTF_8).length;
+        long length = 0;
+        if (payload != null) {
+            length += 2 + boundaryLength + 2 + payloadHeader().getBytes(StandardCharsets.UTF_8).length
+                    + payload.getBytes(StandardCharsets.UTF_8).length + 2;
+        }
+        for (int i = 0; i < parts.size(); i++) {
+            long partLength = parts.get(i).length();
+            if (partLength < 0) return -1;
+            length += 2 + boundaryLength + 2 + parts.get(i).header(i).getBytes(StandardCharsets.UTF_8).length + partLength + 2;
+        }
+        return length + 2 + boundaryLength + 2 + 2;
+    }
+
+    private static class Part {
+        private final String fileName;
+        private final String contentType;
+        private final File file;
+        private final ByteBuffer buffer;
+        private final InputStream stream;
+        private final long length;
+
+        private Part(String fileName, String contentType, File file, ByteBuffer buffer, InputStream stream, long length) {
+            this.fileName = fileName;
+            this.contentType = contentType == null ? "application/octet-stream" : contentType;
+            this.file = file;
+            this.buffer = buffer;
+            this.stream = stream;
+            this.length = length;
+        }
+
+        private long length() {
+            return length;
+        }
+
+        private String header(int index) {
+            // Quotes would end the file name early
+            String name = fileName.replace("\"", "%22").replace("\r", "").replace("\n", "");
+            return "Content-Disposition: form-data; name=\"files[" + index + "]\"; filename=\"" + name + "\"\r\n"
+                    + "Content-Type: " + contentType + "\r\n\r\n";
+        }
+    }
+
+    public static class Builder {
+        private final List<Part> parts = new ArrayList<>();
+
+        /**
+         * Adds a file, which is read from disk while the request is sent.
+         */
+        @NotNull
+        public Builder file(@NotNull File file) {
+            String contentType;
+            long length;
+            try {
+                contentType = Files.probeContentType(file.toPath());
+                length = Files.size(file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            parts.add(new Part(file.getName(), contentType, file, null, null, length));
+            return this;
+        }
+
+        /**
+         * Adds an attachment from memory. The buffer's contents between its position and limit are sent, and the buffer itself isn't modified.
+         */
+        @NotNull
+        public Builder buffer(@NotNull String fileName, @NotNull ByteBuffer data) {
+            parts.add(new Part(fileName, URLConnection.guessContentTypeFromName(fileName), null, data, null, data.remaining()));
+            return this;
+        }
+
+        /**
+         * Adds an attachment from a stream, which is read while the request is sent and closed afterwards.
+         *
+         * @param length The number of bytes in the stream, or -1 if it isn't known
+         */
+        @NotNull
+        public Builder stream(@NotNull String fileName, @NotNull InputStream data, long length) {
+            parts.add(new Part(fileName, URLConnection.guessContentTypeFromName(fileName), null, null, data, length));
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return parts.isEmpty();
+        }
+
+        /**
+         * @param payload The JSON payload sent along with the attachments, or null
+         */
+        @NotNull
+        public StreamingMultipartBody build(@Nullable JSONObject payload) {
+            return new StreamingMultipartBody(payload == null ? null : payload.toString(), List.copyOf(parts));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.seailz.discordjar.voice;
+
+import com.seailz.discordjar.voice.udp.VoiceEventLoop;
+import com.seailz.discordjar.voice.udp.VoiceReceiveHandler;
+import com.seailz.discordjar.voice.udp.VoiceReceiveLoop;
+import com.seailz.discordjar.voice.udp.VoiceSender;
+import com.seailz.discordjar.voice.ws.VoiceGatewayFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares resources between all voice connections of a bot, so that a bot in many voice channels doesn't need several threads per connection.
+ * <ul>
+ *     <li>Audio for every connection is sent by a small, fixed pool of {@link VoiceEventLoop}s,</li>
+ *     <li>Audio is received for every connection by a single {@link VoiceReceiveLoop},</li>
+ *     <li>Voice gateway heartbeats and other small gateway tasks run on one shared timer,</li>
+ *     <li>Every voice gateway connection uses the same websocket client.</li>
+ * </ul>
+ * The manager also keeps track of each connection's round trip time and packet loss, see {@link #getStats(String)}.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.DiscordJar#getVoiceConnectionManager()
+ */
+public class VoiceConnectionManager {
+
+    private static VoiceConnectionManager defaultManager;
+
+    private final int eventLoopCount;
+    private final Map<String, VoiceGatewayFactory> connections = new ConcurrentHashMap<>();
+    private final Map<VoiceSender, VoiceEventLoop> senders = new ConcurrentHashMap<>();
+    private VoiceEventLoop[] eventLoops;
+    private VoiceReceiveLoop receiveLoop;
+    private ScheduledExecutorService timer;
+    private WebSocketClient webSocketClient;
+
+    public VoiceConnectionManager() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * @param eventLoopCount The amount of threads audio is sent on. Threads are only started once the first connection starts sending.
+     */
+    public VoiceConnectionManager(int eventLoopCount) {
+        if (eventLoopCount < 1) throw new IllegalArgumentException("There must be at least one event loop");
+        this.eventLoopCount = eventLoopCount;
+    }
+
+    /**
+     * Returns the manager used by voice connections that weren't given one.
+     */
+    @NotNull
+    public static synchronized VoiceConnectionManager getDefault() {
+        if (defaultManager == null) defaultManager = new VoiceConnectionManager();
+        return defaultManager;
+    }
+
+    /**
+     * Starts sending audio for a sender on the event loop with the fewest connections.
+     */
+    public synchronized void register(@NotNull VoiceSender sender) {
+        if (eventLoops == null) {
+            eventLoops = new VoiceEventLoop[eventLoopCount];
+            for (int i = 0; i < eventLoopCount; i++) eventLoops[i] = new VoiceEventLoop("djar--voice-loop-" + (i + 1));
+        }
+
+        VoiceEventLoop loop = eventLoops[0];
+        for (VoiceEventLoop candidate : eventLoops) {
+            if (candidate.size() < loop.size()) loop = candidate;
+        }
+        senders.put(sender, loop);
+        loop.add(sender);
+    }
+
+    public void unregister(@NotNull VoiceSender sender) {
+        VoiceEventLoop loop = senders.remove(sender);
+        if (loop != null) loop.remove(sender);
+    }
+
+    /**
+     * Starts receiving audio for a connection.
+     */
+    public synchronized void registerReceiver(@NotNull VoiceReceiveHandler handler) {
+        if (receiveLoop == null) {
+            try {
+                receiveLoop = new VoiceReceiveLoop("djar--voice-receive");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        receiveLoop.add(handler);
+    }
+
+    /**
+     * Stops receiving audio for a connection.
+     */
+    public synchronized void unregisterReceiver(@NotNull VoiceReceiveHandler handler) {
+        if (receiveLoop != null) receiveLoop.remove(handler);
+    }
+
+    /**
+     * Schedules a voice gateway heartbeat on the shared timer.
+     */
+    @NotNull
+    public ScheduledFuture<?> scheduleHeartbeat(@NotNull Runnable heartbeat, long initialDelay, long interval) {
+        return timer().scheduleAtFixedRate(heartbeat, initialDelay, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a short task on the shared timer after a delay.
+     * @param delay The delay in milliseconds
+     */
+    @NotNull
+    public ScheduledFuture<?> schedule(@NotNull Runnable task, long delay) {
+        return timer().schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a short task, such as sending a gateway payload, on the shared timer.
+     */
+    public void execute(@NotNull Runnable task) {
+        timer().execute(task);
+    }
+
+    @NotNull
+    public synchronized WebSocketClient getWebSocketClient() {
+        if (webSocketClient == null) webSocketClient = new StandardWebSocketClient();
+        return webSocketClient;
+    }
+
+    public void addConnection(@NotNull String guildId, @NotNull VoiceGatewayFactory connection) {
+        connections.put(guildId, connection);
+    }
+
+    public void removeConnection(@NotNull String guildId, @NotNull VoiceGatewayFactory connection) {
+        connections.remove(guildId, connection);
+    }
+
+    /**
+     * Returns the voice connection for a guild, or null if there isn't one.
+     */
+    @Nullable
+    public VoiceGatewayFactory getConnection(@NotNull String guildId) {
+        return connections.get(guildId);
+    }
+
+    /**
+     * Returns the statistics of the voice connection in a guild, or null if there isn't one.
+     */
+    @Nullable
+    public VoiceConnectionStats getStats(@NotNull String guildId) {
+        VoiceGatewayFactory connection = connections.get(guildId);
+        return connection == null ? null : connection.getStats();
+    }
+
+    /**
+     * Returns the statistics of every voice connection, keyed by guild id.
+     */
+    @NotNull
+    public Map<String, VoiceConnectionStats> getStats() {
+        Map<String, VoiceConnectionStats> stats = new HashMap<>();
+        connections.forEach((guildId, connection) -> stats.put(guildId, connection.getStats()));
+        return stats;
+    }
+
+    public synchronized void shutdown() {
+        if (eventLoops != null) {
+            for (VoiceEventLoop loop : eventLoops) loop.shutdown();
+            eventLoops = null;
+        }
+        if (receiveLoop != null) {
+            receiveLoop.shutdown();
+            receiveLoop = null;
+        }
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    private synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "djar--voice-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timer;
+    }
+}
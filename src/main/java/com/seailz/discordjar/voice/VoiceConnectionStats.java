@@ -0,0 +1,35 @@
+package com.seailz.discordjar.voice;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+/**
+ * Statistics of a single voice connection.
+ *
+ * @param rtt The round trip time of the last voice gateway heartbeat, or null if no heartbeat has been acknowledged yet
+ * @param packetsSent The amount of audio packets that were sent
+ * @param packetsLost The amount of audio packets that couldn't be sent, or were skipped because sending fell behind
+ * @param underruns How often the provider had no audio ready while speaking
+ * @param packetsReceived The amount of audio packets that were received, if audio is being received
+ * @param packetsMissed The amount of received audio packets that never arrived or arrived too late to be played
+ * @author Seailz
+ * @see VoiceConnectionManager#getStats(String)
+ */
+public record VoiceConnectionStats(
+        @Nullable Duration rtt,
+        long packetsSent,
+        long packetsLost,
+        long underruns,
+        long packetsReceived,
+        long packetsMissed
+) {
+
+    /**
+     * Returns the fraction of packets that were lost, between 0 and 1.
+     */
+    public double packetLoss() {
+        long total = packetsSent + packetsLost;
+        return total == 0 ? 0 : (double) packetsLost / total;
+    }
+}
@@ -8,6 +8,11 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+/**
+ * An RTP audio packet.
+ * @deprecated Allocates new buffers and a new cipher for every packet. Audio is sent by {@link com.seailz.discordjar.voice.udp.VoiceSender} instead.
+ */
+@Deprecated
 public class AudioPacket {
 
     private byte[] data;
@@ -0,0 +1,37 @@
+package com.seailz.discordjar.voice.model.receiver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implement this interface to receive audio from a voice channel.
+ * <br>Methods are called from the thread that receives audio for many voice connections, so they should return quickly.
+ *
+ * @author Seailz
+ * @see com.seailz.discordjar.model.channel.AudioChannel#connect(com.seailz.discordjar.voice.model.provider.VoiceProvider, VoiceReceiver, boolean, boolean)
+ */
+public interface VoiceReceiver {
+
+    /**
+     * Called for every 20ms Opus frame that is received, in order.
+     * <br>The buffer is reused once this method returns, so its contents must be copied if they are needed afterwards.
+     *
+     * @param userId The id of the user who sent the audio, or null if it isn't known yet
+     * @param ssrc The SSRC the audio was sent with
+     * @param timestamp The RTP timestamp of the frame
+     * @param opus The Opus frame, between the buffer's position and limit
+     */
+    void onAudio(@Nullable String userId, int ssrc, int timestamp, @NotNull ByteBuffer opus);
+
+    /**
+     * Called when a user starts or stops speaking.
+     *
+     * @param userId The id of the user
+     * @param ssrc The SSRC the user sends audio with
+     * @param speaking Whether the user is speaking
+     */
+    default void onSpeaking(@NotNull String userId, int ssrc, boolean speaking) {}
+
+}
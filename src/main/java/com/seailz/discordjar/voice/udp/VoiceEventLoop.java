@@ -0,0 +1,84 @@
+package com.seailz.discordjar.voice.udp;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A thread that sends audio for many voice connections.
+ * <br>Each pass sends a frame for every {@link VoiceSender} that is due, then parks until the next one is.
+ * <br>A sender that throws, for example because its provider did, is stopped so the other connections keep playing.
+ * <br>This is an internal class, use {@link com.seailz.discordjar.voice.VoiceConnectionManager VoiceConnectionManager} instead.
+ *
+ * @author Seailz
+ */
+public class VoiceEventLoop {
+
+    private final Logger logger = Logger.getLogger("VoiceEventLoop");
+    private final List<VoiceSender> senders = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean added = false;
+
+    public VoiceEventLoop(@NotNull String name) {
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void add(@NotNull VoiceSender sender) {
+        senders.add(sender);
+        added = true;
+        // Wake the loop up so the new sender doesn't have to wait for the current park to finish
+        LockSupport.unpark(thread);
+    }
+
+    public void remove(@NotNull VoiceSender sender) {
+        senders.remove(sender);
+    }
+
+    /**
+     * Returns the amount of connections this loop is sending for.
+     */
+    public int size() {
+        return senders.size();
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            added = false;
+            long now = System.nanoTime();
+            long next = now + VoiceSender.FRAME_NANOS;
+            for (VoiceSender sender : senders) {
+                if (!sender.isSending()) {
+                    senders.remove(sender);
+                    continue;
+                }
+                long due;
+                try {
+                    due = sender.tick(now);
+                } catch (RuntimeException e) {
+                    logger.log(Level.SEVERE, "[discord.jar] Voice sender threw an exception and was stopped. Other connections on this loop are unaffected.", e);
+                    senders.remove(sender);
+                    sender.stop();
+                    continue;
+                }
+                if (due - next < 0) next = due;
+            }
+
+            long remaining;
+            while (running && !added && (remaining = next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.seailz.discordjar.voice.udp;
+
+import com.seailz.discordjar.voice.model.receiver.VoiceReceiver;
+import com.seailz.discordjar.voice.udp.encryption.VoiceEncryption;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives the audio of a voice connection.
+ * <br>Packets are read into a buffer owned by the {@link VoiceReceiveLoop}, decrypted, and put back in order by a small
+ * <br>jitter buffer for every SSRC before they are passed to the {@link VoiceReceiver}. Jitter buffers are allocated once per SSRC
+ * <br>and reused for every packet.
+ *
+ * @author Seailz
+ */
+public class VoiceReceiveHandler {
+
+    private static final int RTP_HEADER_LENGTH = 12;
+    private static final int OPUS_PAYLOAD_TYPE = 0x78;
+    private static final int MAX_PACKET_LENGTH = 2048;
+
+    private volatile DatagramChannel channel;
+    private final VoiceReceiver receiver;
+    private final Map<Integer, String> users = new ConcurrentHashMap<>();
+    private final Map<Integer, JitterBuffer> buffers = new ConcurrentHashMap<>();
+    private final byte[] decrypted = new byte[MAX_PACKET_LENGTH];
+    private volatile VoiceEncryption encryption;
+
+    private volatile long packetsReceived = 0;
+    private volatile long packetsMissed = 0;
+
+    public VoiceReceiveHandler(@NotNull DatagramChannel channel, @NotNull VoiceReceiver receiver) {
+        this.channel = channel;
+        this.receiver = receiver;
+    }
+
+    /**
+     * Sets the encryption used for audio. The instance must not be shared with anything else, since it isn't thread safe.
+     */
+    public void setEncryption(@NotNull VoiceEncryption encryption) {
+        this.encryption = encryption;
+    }
+
+    /**
+     * Moves this handler to a new channel, after the voice gateway had to identify again.
+     * <br>The handler has to be registered with the receive loop again afterwards.
+     */
+    public void setChannel(@NotNull DatagramChannel channel) {
+        this.channel = channel;
+    }
+
+    @NotNull
+    public DatagramChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Handles a SPEAKING payload, which tells us which user an SSRC belongs to.
+     */
+    public void speaking(@NotNull String userId, int ssrc, boolean speaking) {
+        users.put(ssrc, userId);
+        receiver.onSpeaking(userId, ssrc, speaking);
+    }
+
+    /**
+     * Forgets a user who left the channel.
+     */
+    public void removeUser(@NotNull String userId) {
+        users.entrySet().removeIf(entry -> {
+            if (!entry.getValue().equals(userId)) return false;
+            buffers.remove(entry.getKey());
+            return true;
+        });
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    /**
+     * Returns the amount of packets that never arrived, or arrived too late to be played.
+     */
+    public long getPacketsMissed() {
+        return packetsMissed;
+    }
+
+    /**
+     * Reads every packet that is waiting on the channel.
+     * @param buffer A heap buffer to read into, owned by the calling thread
+     */
+    void read(ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.clear();
+            if (channel.receive(buffer) == null) return;
+            buffer.flip();
+            handle(buffer);
+        }
+    }
+
+    private void handle(ByteBuffer packet) {
+        VoiceEncryption encryption = this.encryption;
+        if (encryption == null || packet.remaining() < RTP_HEADER_LENGTH) return;
+        byte[] data = packet.array();
+        // Ignore anything that isn't RTP audio, such as RTCP
+        if ((data[0] & 0xC0) != 0x80 || (data[1] & 0x7F) != OPUS_PAYLOAD_TYPE) return;
+
+        char sequence = packet.getChar(2);
+        int timestamp = packet.getInt(4);
+        int ssrc = packet.getInt(8);
+        int headerLength = RTP_HEADER_LENGTH + (data[0] & 0x0F) * 4;
+        boolean extension = (data[0] & 0x10) != 0;
+        // The rtpsize modes send the header extension's preamble unencrypted
+        if (extension && encryption.rtpSize()) headerLength += 4;
+        if (packet.limit() <= headerLength) return;
+
+        int length = encryption.open(data, headerLength, packet.limit(), decrypted);
+        if (length < 0) return;
+
+        int offset = 0;
+        if (extension) {
+            // Skip the header extension, the part of it that was encrypted is in front of the audio
+            if (encryption.rtpSize()) {
+                offset = (((data[headerLength - 2] & 0xFF) << 8) | (data[headerLength - 1] & 0xFF)) * 4;
+            } else {
+                if (length < 4) return;
+                offset = 4 + (((decrypted[2] & 0xFF) << 8) | (decrypted[3] & 0xFF)) * 4;
+            }
+            if (offset >= length) return;
+        }
+
+        packetsReceived++;
+        buffers.computeIfAbsent(ssrc, JitterBuffer::new).offer(sequence, timestamp, decrypted, offset, length - offset);
+    }
+
+    /**
+     * Puts the packets of a single SSRC back in order.
+     * <br>Packets are delivered as soon as every packet before them has been delivered. If a packet is missing while more than
+     * <br>{@link #DEPTH} later packets are waiting, it is considered lost and skipped.
+     */
+    private class JitterBuffer {
+
+        private static final int SLOTS = 16;
+        private static final int MASK = SLOTS - 1;
+        private static final int DEPTH = 3;
+        private static final int MAX_FRAME_LENGTH = 1500;
+
+        private final int ssrc;
+        private final byte[][] frames = new byte[SLOTS][MAX_FRAME_LENGTH];
+        private final ByteBuffer[] views = new ByteBuffer[SLOTS];
+        private final int[] timestamps = new int[SLOTS];
+        private final int[] sequences = new int[SLOTS];
+        private final boolean[] filled = new boolean[SLOTS];
+        private int next = -1;
+        private int waiting = 0;
+
+        JitterBuffer(int ssrc) {
+            this.ssrc = ssrc;
+            for (int i = 0; i < SLOTS; i++) views[i] = ByteBuffer.wrap(frames[i]);
+        }
+
+        void offer(char sequence, int timestamp, byte[] src, int offset, int length) {
+            if (length > MAX_FRAME_LENGTH) return;
+            if (next == -1) next = sequence;
+
+            int distance = (char) (sequence - next);
+            // Older than what has already been delivered, or a duplicate
+            if (distance >= Character.MAX_VALUE / 2) return;
+            // Too far ahead to fit, give up on the packets in between
+            while (distance >= SLOTS) {
+                skip();
+                distance = (char) (sequence - next);
+            }
+
+            int slot = sequence & MASK;
+            if (filled[slot]) return;
+            System.arraycopy(src, offset, frames[slot], 0, length);
+            views[slot].limit(length);
+            timestamps[slot] = timestamp;
+            sequences[slot] = sequence;
+            filled[slot] = true;
+            waiting++;
+
+            drain();
+            while (waiting > DEPTH) {
+                skip();
+                drain();
+            }
+        }
+
+        private void drain() {
+            int slot = next & MASK;
+            while (filled[slot] && sequences[slot] == next) {
+                filled[slot] = false;
+                waiting--;
+                ByteBuffer view = views[slot];
+                view.position(0);
+                receiver.onAudio(users.get(ssrc), ssrc, timestamps[slot], view);
+                next = (next + 1) & 0xFFFF;
+                slot = next & MASK;
+            }
+        }
+
+        private void skip() {
+            int slot = next & MASK;
+            if (filled[slot] && sequences[slot] == next) {
+                drain();
+                return;
+            }
+            packetsMissed++;
+            next = (next + 1) & 0xFFFF;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.seailz.discordjar.voice.udp;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * A thread that receives audio for many voice connections using a single {@link Selector}.
+ * <br>Every packet is read into the same buffer, so receiving doesn't allocate per packet.
+ * <br>This is an internal class, use {@link com.seailz.discordjar.voice.VoiceConnectionManager VoiceConnectionManager} instead.
+ *
+ * @author Seailz
+ */
+public class VoiceReceiveLoop {
+
+    private static final int MAX_PACKET_LENGTH = 2048;
+
+    private final Logger logger = Logger.getLogger("VoiceReceiveLoop");
+    private final Selector selector;
+    private final Queue<VoiceReceiveHandler> pending = new ConcurrentLinkedQueue<>();
+    private final Queue<VoiceReceiveHandler> removed = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_PACKET_LENGTH);
+    private volatile boolean running = true;
+
+    public VoiceReceiveLoop(@NotNull String name) throws IOException {
+        this.selector = Selector.open();
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts receiving for a connection. The channel is switched to non-blocking mode.
+     */
+    public void add(@NotNull VoiceReceiveHandler handler) {
+        // Channels can only be registered while the selector isn't blocked, so that's done by the loop itself
+        pending.add(handler);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops receiving for a connection. Its channel is deregistered from the selector the next time the loop wakes up.
+     */
+    public void remove(@NotNull VoiceReceiveHandler handler) {
+        removed.add(handler);
+        selector.wakeup();
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                logger.warning("[discord.jar] Voice receive selector failed: " + e.getMessage());
+                break;
+            }
+
+            VoiceReceiveHandler handler;
+            while ((handler = pending.poll()) != null) {
+                try {
+                    handler.getChannel().configureBlocking(false);
+                    handler.getChannel().register(selector, SelectionKey.OP_READ, handler);
+                } catch (ClosedChannelException ignored) {
+                } catch (IOException e) {
+                    logger.warning("[discord.jar] Failed to start receiving voice: " + e.getMessage());
+                }
+            }
+
+            boolean cancelled = false;
+            while ((handler = removed.poll()) != null) {
+                pending.remove(handler);
+                SelectionKey key = handler.getChannel().keyFor(selector);
+                if (key != null) {
+                    key.cancel();
+                    cancelled = true;
+                }
+            }
+            if (cancelled) {
+                // Completes the deregistration of the cancelled keys, so their channels can be closed
+                try {
+                    selector.selectNow();
+                } catch (IOException ignored) {}
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) continue;
+                try {
+                    ((VoiceReceiveHandler) key.attachment()).read(buffer);
+                } catch (IOException e) {
+                    // The connection was closed
+                    key.cancel();
+                } catch (Exception e) {
+                    logger.warning("[discord.jar] Voice receiver threw an exception: " + e.getMessage());
+                }
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (IOException ignored) {}
+    }
+}
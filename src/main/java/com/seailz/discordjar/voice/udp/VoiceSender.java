@@ -0,0 +1,225 @@
+package com.seailz.discordjar.voice.udp;
+
+import com.seailz.discordjar.voice.VoiceConnectionManager;
+import com.seailz.discordjar.voice.model.provider.VoiceProvider;
+import com.seailz.discordjar.voice.udp.encryption.VoiceEncryption;
+import com.seailz.discordjar.voice.ws.VoiceGatewayFactory;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Sends the audio of a {@link VoiceProvider} over a voice connection's UDP channel.
+ * <br>Every frame is written into the same packet buffer, and the {@link VoiceEncryption} reuses its cipher and nonce between frames.
+ * <br>Frames are sent on a fixed 20ms schedule measured in nanoseconds, so small delays are corrected on the next frame
+ * <br>instead of accumulating. The schedule is driven by one of the {@link VoiceEventLoop}s of a {@link VoiceConnectionManager},
+ * <br>which send for many connections at once.
+ *
+ * <p>A few frames are taken from the provider ahead of time and kept in a small queue, so a provider that is
+ * <br>occasionally slow doesn't cause gaps in the audio.
+ *
+ * @author Seailz
+ */
+public class VoiceSender {
+
+    public static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    /**
+     * The amount of samples in a 20ms Opus frame at 48kHz.
+     */
+    public static final int FRAME_SAMPLES = 960;
+    public static final int DEFAULT_PREBUFFER = 3;
+    private static final int MAX_PACKET_LENGTH = 1500;
+    /**
+     * If sending falls behind by more than this, the schedule is reset instead of sending a burst of frames to catch up.
+     */
+    private static final long MAX_DRIFT_NANOS = FRAME_NANOS * 5;
+    /**
+     * Discord recommends sending 5 frames of silence after speaking, to avoid unintended Opus interpolation.
+     */
+    private static final byte[] SILENCE = {(byte) 0xF8, (byte) 0xFF, (byte) 0xFE};
+    private static final int SILENCE_FRAMES = 5;
+
+    private final Logger logger = Logger.getLogger("VoiceSender");
+    private final VoiceConnectionManager manager;
+    private DatagramChannel channel;
+    private final VoiceProvider provider;
+    private final VoiceGatewayFactory voiceGateway;
+    private int ssrc;
+    private final int prebuffer;
+    private final ArrayDeque<byte[]> queue;
+    private final ByteBuffer packet = ByteBuffer.allocate(MAX_PACKET_LENGTH);
+
+    private volatile VoiceEncryption encryption;
+    private volatile boolean sending = false;
+    private boolean speaking = false;
+    private int silenceLeft = 0;
+    private char sequence = 0;
+    private int timestamp = 0;
+    private long nextFrameAt;
+
+    private volatile long packetsSent = 0;
+    private volatile long packetsLost = 0;
+    private volatile long underruns = 0;
+
+    public VoiceSender(@NotNull VoiceConnectionManager manager, @NotNull DatagramChannel channel, @NotNull VoiceProvider provider, int ssrc, @NotNull VoiceGatewayFactory voiceGateway, int prebuffer) {
+        this.manager = manager;
+        this.channel = channel;
+        this.provider = provider;
+        this.ssrc = ssrc;
+        this.voiceGateway = voiceGateway;
+        this.prebuffer = Math.max(1, prebuffer);
+        this.queue = new ArrayDeque<>(this.prebuffer);
+    }
+
+    /**
+     * Sets the encryption used for audio. The instance must not be shared with anything else, since it isn't thread safe.
+     */
+    public void setEncryption(@NotNull VoiceEncryption encryption) {
+        this.encryption = encryption;
+    }
+
+    /**
+     * Starts sending on one of the manager's event loops.
+     */
+    public void start() {
+        if (sending) return;
+        nextFrameAt = System.nanoTime();
+        sending = true;
+        manager.register(this);
+    }
+
+    public void stop() {
+        sending = false;
+        manager.unregister(this);
+    }
+
+    /**
+     * Moves this sender to a new channel and SSRC, after the voice gateway had to identify again.
+     * <br>Audio that was already taken from the provider stays queued, and the sequence and timestamp carry on,
+     * <br>so playback resumes where it left off. Must only be called while the sender is stopped.
+     */
+    public void rebind(@NotNull DatagramChannel channel, int ssrc) {
+        if (sending) throw new IllegalStateException("Cannot rebind a sender while it is sending");
+        this.channel = channel;
+        this.ssrc = ssrc;
+        // Discord expects a new speaking payload for the new SSRC
+        this.speaking = false;
+    }
+
+    public boolean isSending() {
+        return sending;
+    }
+
+    /**
+     * Returns the amount of packets that were sent.
+     */
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    /**
+     * Returns the amount of packets that couldn't be sent, or were skipped because sending fell too far behind.
+     */
+    public long getPacketsLost() {
+        return packetsLost;
+    }
+
+    /**
+     * Returns how often the provider had no audio ready while it was still speaking.
+     * <br>The silence sent after the provider stops speaking isn't counted.
+     */
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * Sends a frame if one is due. Called by the event loop this sender is registered to.
+     *
+     * @param now The current time, from {@link System#nanoTime()}
+     * @return When the next frame is due
+     */
+    long tick(long now) {
+        if (now - nextFrameAt < 0) return nextFrameAt;
+        sendFrame();
+
+        nextFrameAt += FRAME_NANOS;
+        long behind = now - nextFrameAt;
+        if (behind > MAX_DRIFT_NANOS) {
+            packetsLost += behind / FRAME_NANOS;
+            nextFrameAt = now;
+        }
+        return nextFrameAt;
+    }
+
+    /**
+     * Sends the next frame, if there is one.
+     */
+    private void sendFrame() {
+        fill();
+        byte[] frame = queue.poll();
+
+        if (frame == null) {
+            if (!speaking) return;
+            // The provider says it's still speaking, but had nothing ready in time
+            if (provider.canProvide()) underruns++;
+            if (silenceLeft-- > 0) {
+                frame = SILENCE;
+            } else {
+                speaking = false;
+                voiceGateway.speaking(false);
+                return;
+            }
+        } else if (!speaking) {
+            speaking = true;
+            silenceLeft = SILENCE_FRAMES;
+            voiceGateway.speaking(true);
+        } else {
+            silenceLeft = SILENCE_FRAMES;
+        }
+
+        VoiceEncryption encryption = this.encryption;
+        if (encryption == null) {
+            logger.severe("[discord.jar] Encryption hasn't been set up, cannot encrypt audio packet. This is a bug, packet will be skipped.");
+            return;
+        }
+
+        packet.clear();
+        packet.put((byte) 0x80)
+                .put((byte) 0x78)
+                .putChar(sequence)
+                .putInt(timestamp)
+                .putInt(ssrc);
+        if (!encryption.seal(packet, frame)) {
+            logger.warning("[discord.jar] Audio frame of " + frame.length + " bytes could not be encrypted, it will be skipped.");
+            return;
+        }
+        packet.flip();
+
+        sequence++;
+        timestamp += FRAME_SAMPLES;
+        try {
+            // The channel may be non-blocking if audio is also received, in which case a full send buffer drops the packet
+            if (channel.write(packet) == 0) packetsLost++;
+            else packetsSent++;
+        } catch (IOException e) {
+            packetsLost++;
+            if (channel.isOpen()) logger.warning("[discord.jar] Failed to send audio packet: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tops up the prebuffer from the provider.
+     */
+    private void fill() {
+        while (queue.size() < prebuffer && provider.canProvide()) {
+            byte[] frame = provider.provide20ms();
+            if (frame == null) break;
+            queue.add(frame);
+        }
+    }
+}
@@ -1,137 +1,144 @@
 package com.seailz.discordjar.voice.udp;
 
-import com.codahale.xsalsa20poly1305.SecretBox;
-import com.seailz.discordjar.voice.model.packet.AudioPacket;
+import com.seailz.discordjar.voice.VoiceConnectionManager;
 import com.seailz.discordjar.voice.model.provider.VoiceProvider;
+import com.seailz.discordjar.voice.model.receiver.VoiceReceiver;
+import com.seailz.discordjar.voice.udp.encryption.VoiceEncryption;
 import com.seailz.discordjar.voice.ws.VoiceGatewayFactory;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
-import java.util.logging.Logger;
+import java.nio.channels.DatagramChannel;
 
 public class VoiceUDP {
 
-    private DatagramSocket socket;
-    private VoiceProvider provider;
-    private InetSocketAddress address;
-    private int ssrc;
-
-    private byte[] secretKey;
-    private char sequence = 0;
-    private volatile boolean sending = false;
-    private volatile boolean speaking = false;
+    private volatile DatagramChannel channel;
+    private final VoiceProvider provider;
+    private volatile InetSocketAddress address;
+    private volatile int ssrc;
+    private final VoiceSender sender;
     private final VoiceGatewayFactory voiceGateway;
+    private final VoiceConnectionManager manager;
+    private final VoiceReceiveHandler receiveHandler;
+
+    public VoiceUDP(InetSocketAddress address, VoiceProvider provider, int srrc, VoiceGatewayFactory voiceGateway) throws IOException {
+        this(address, provider, srrc, voiceGateway, VoiceConnectionManager.getDefault(), null);
+    }
 
-    public VoiceUDP(InetSocketAddress address, VoiceProvider provider, int srrc, VoiceGatewayFactory voiceGateway) throws SocketException {
+    /**
+     * @param receiver The receiver to pass received audio to, or null if audio shouldn't be received
+     */
+    public VoiceUDP(InetSocketAddress address, VoiceProvider provider, int srrc, VoiceGatewayFactory voiceGateway, VoiceConnectionManager manager, VoiceReceiver receiver) throws IOException {
         this.address = address;
         this.provider = provider;
         provider.setUdp(this);
         this.ssrc = srrc;
-        this.socket = new DatagramSocket();
+        this.channel = DatagramChannel.open();
         this.voiceGateway = voiceGateway;
+        this.manager = manager;
+        this.sender = new VoiceSender(manager, channel, provider, srrc, voiceGateway, VoiceSender.DEFAULT_PREBUFFER);
+        this.receiveHandler = receiver == null ? null : new VoiceReceiveHandler(channel, receiver);
     }
 
+    /**
+     * Sets up the encryption for this connection with the legacy {@code xsalsa20_poly1305} mode.
+     * @deprecated Use {@link #setEncryption(String, byte[])} with the mode from the session description.
+     */
+    @Deprecated
     public void setSecretKey(byte[] secretKey) {
-        this.secretKey = secretKey;
+        setEncryption(VoiceEncryption.XSALSA20_POLY1305, secretKey);
+    }
+
+    /**
+     * Sets up the encryption for this connection.
+     * @param mode The encryption mode from the session description
+     * @param secretKey The secret key from the session description
+     */
+    public void setEncryption(String mode, byte[] secretKey) {
+        // Ciphers aren't thread safe, so sending and receiving each get their own
+        sender.setEncryption(VoiceEncryption.create(mode, secretKey));
+        if (receiveHandler != null) receiveHandler.setEncryption(VoiceEncryption.create(mode, secretKey));
     }
 
     public InetSocketAddress discoverAddress() throws IOException {
-        socket.connect(this.address);
-        byte[] buffer = new byte[74];
-        InetSocketAddress address = this.address;
-        ByteBuffer.wrap(buffer).putShort((short) 1).putShort((short) 70).putInt(ssrc);
-        socket.send(new DatagramPacket(buffer, buffer.length, address));
-        buffer = new byte[74];
-        socket.receive(new DatagramPacket(buffer, buffer.length));
-
-        String ip = new String(buffer, 8, buffer.length - 10).trim();
-        int port = ByteBuffer.wrap(new byte[] {buffer[buffer.length - 1], buffer[buffer.length - 2]}).getShort() & 0xffff;
-        address = new InetSocketAddress(ip, port);
-        return address;
+        if (!channel.isConnected()) channel.connect(this.address);
+        ByteBuffer buffer = ByteBuffer.allocate(74);
+        buffer.putShort((short) 1).putShort((short) 70).putInt(ssrc).clear();
+        channel.write(buffer);
+        buffer.clear();
+        channel.read(buffer);
+
+        byte[] response = buffer.array();
+        String ip = new String(response, 8, response.length - 10).trim();
+        int port = ByteBuffer.wrap(new byte[] {response[response.length - 1], response[response.length - 2]}).getShort() & 0xffff;
+        return new InetSocketAddress(ip, port);
     }
 
     public void start() throws IOException {
-        if (!socket.isConnected()) {
-            socket.connect(address);
+        if (!channel.isConnected()) {
+            channel.connect(address);
         }
-        sending = true;
-        new Thread(() -> {
-            long nextFrameTimestamp = System.nanoTime();
-            while (sending) {
-                if (!provider.canProvide()) {
-                    try {
-                        Thread.sleep(20);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                    continue;
-                }
-                byte[] frame = provider.provide20ms();
-                if (frame == null) {
-                    continue;
-                }
-
-                AudioPacket packet = null;
-
-                if (!speaking && frame != null) {
-                    speaking = true;
-                    voiceGateway.speaking(true);
-                }
-                packet = new AudioPacket(frame, ssrc, sequence, ((int) sequence) * 960);
-
-                if (secretKey == null) {
-                    Logger.getLogger("VoiceUDPConnection (discord.jar)").severe("Secret key is set to null, cannot encrypt audio packet. This is a bug, packet will be skipped.");
-                    continue;
-                }
-
-                if (packet != null) {
-                    packet.encrypt(secretKey);
-                }
-                if (socket.isClosed()) {
-                    continue;
-                }
-
-                nextFrameTimestamp = nextFrameTimestamp + 20_000_000;
-                try {
-                    Thread.sleep(Math.max(0, (nextFrameTimestamp - System.nanoTime()) / 1_000_000));
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-
-                if (sequence + 1 > Character.MAX_VALUE)
-                    sequence = 0;
-                else
-                    sequence++;
-
-
-                if (packet != null) {
-                    try {
-                        socket.send(packet.toDatagramPacket(address));
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-
-
-            }
-        }).start();
+        sender.start();
+        if (receiveHandler != null) manager.registerReceiver(receiveHandler);
+    }
+
+    /**
+     * Moves this connection to the voice server of a new session, after the voice gateway couldn't resume and had to identify again.
+     * <br>The {@link VoiceSender} is kept along with the audio it has queued, so nothing already taken from the provider is lost.
+     * <br>Sending stops until {@link #start()} is called with the new session's encryption set up.
+     */
+    public synchronized void rebind(InetSocketAddress address, int ssrc) throws IOException {
+        sender.stop();
+        DatagramChannel old = channel;
+        DatagramChannel channel = DatagramChannel.open();
+        this.channel = channel;
+        this.address = address;
+        this.ssrc = ssrc;
+        sender.rebind(channel, ssrc);
+        if (receiveHandler != null) receiveHandler.setChannel(channel);
+        // Closing the old channel also removes it from the receive loop
+        try {
+            old.close();
+        } catch (IOException ignored) {}
     }
 
     public void disconnect() {
+        sender.stop();
         voiceGateway.close(1001);
-        socket.disconnect();
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
     }
 
     public void stop() {
-        sending = false;
+        sender.stop();
+    }
+
+    /**
+     * Stops sending and receiving, and closes the UDP channel. The connection can't be started again afterwards.
+     */
+    public void close() {
+        sender.stop();
+        if (receiveHandler != null) manager.unregisterReceiver(receiveHandler);
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
     }
 
+    public DatagramChannel getChannel() {
+        return channel;
+    }
 
+    public VoiceSender getSender() {
+        return sender;
+    }
 
+    /**
+     * Returns the handler for received audio, or null if audio isn't being received.
+     */
+    public VoiceReceiveHandler getReceiveHandler() {
+        return receiveHandler;
+    }
 
 }
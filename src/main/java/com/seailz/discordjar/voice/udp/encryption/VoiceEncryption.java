@@ -0,0 +1,88 @@
+package com.seailz.discordjar.voice.udp.encryption;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Encrypts and decrypts the audio of voice packets, using one of the encryption modes Discord supports.
+ * <br>Implementations reuse their cipher and nonce between packets, so an instance must only be used by one thread.
+ * <br>The sender and the receiver of a connection each have their own instance.
+ *
+ * @author Seailz
+ * @see <a href="https://discord.com/developers/docs/topics/voice-connections#transport-encryption-modes">Transport Encryption Modes</a>
+ */
+public interface VoiceEncryption {
+
+    String AES256_GCM_RTPSIZE = "aead_aes256_gcm_rtpsize";
+    String XCHACHA20_POLY1305_RTPSIZE = "aead_xchacha20_poly1305_rtpsize";
+    /**
+     * Deprecated by Discord, only used if the voice server doesn't offer any of the other modes.
+     */
+    String XSALSA20_POLY1305 = "xsalsa20_poly1305";
+
+    /**
+     * Returns the name of the mode, as used by the voice gateway.
+     */
+    @NotNull
+    String mode();
+
+    /**
+     * Whether the 4 byte header extension preamble is sent unencrypted, as part of the RTP header.
+     * <br>This is the case for the {@code _rtpsize} modes.
+     */
+    boolean rtpSize();
+
+    /**
+     * Encrypts a frame of audio into a packet.
+     *
+     * @param packet A heap buffer containing the RTP header between 0 and its position. The encrypted audio, and the nonce
+     *               if the mode needs one, are written after it.
+     * @param audio The audio to encrypt
+     * @return false if the encrypted audio doesn't fit in the packet
+     */
+    boolean seal(@NotNull ByteBuffer packet, @NotNull byte[] audio);
+
+    /**
+     * Decrypts the audio of a received packet.
+     *
+     * @param packet The packet
+     * @param headerLength The length of the unencrypted header at the start of the packet
+     * @param length The length of the packet
+     * @param out The array to write the decrypted audio to
+     * @return The length of the decrypted audio, or -1 if the packet couldn't be decrypted
+     */
+    int open(@NotNull byte[] packet, int headerLength, int length, @NotNull byte[] out);
+
+    /**
+     * Creates an instance of an encryption mode.
+     *
+     * @param mode The mode sent in the session description
+     * @param secretKey The secret key sent in the session description
+     * @throws IllegalArgumentException If the mode isn't supported
+     */
+    @NotNull
+    static VoiceEncryption create(@NotNull String mode, @NotNull byte[] secretKey) {
+        return switch (mode) {
+            case AES256_GCM_RTPSIZE -> new AesGcmEncryption(secretKey);
+            case XCHACHA20_POLY1305_RTPSIZE -> new XChaCha20Poly1305Encryption(secretKey);
+            case XSALSA20_POLY1305 -> new XSalsa20Poly1305Encryption(secretKey);
+            default -> throw new IllegalArgumentException("Unsupported voice encryption mode: " + mode);
+        };
+    }
+
+    /**
+     * Picks the best mode out of the ones offered by the voice server.
+     * <br>AES-GCM is preferred since the JDK accelerates it with AES-NI/CLMUL instructions where available, then XChaCha20-Poly1305,
+     * <br>which Discord requires every voice server to support. The deprecated {@link #XSALSA20_POLY1305} is only used as a fallback.
+     *
+     * @param modes The modes sent in the voice gateway's ready payload
+     */
+    @NotNull
+    static String negotiate(@NotNull Collection<String> modes) {
+        if (modes.contains(AES256_GCM_RTPSIZE) && AesGcmEncryption.isAvailable()) return AES256_GCM_RTPSIZE;
+        if (modes.contains(XCHACHA20_POLY1305_RTPSIZE) && XChaCha20Poly1305Encryption.isAvailable()) return XCHACHA20_POLY1305_RTPSIZE;
+        return XSALSA20_POLY1305;
+    }
+}
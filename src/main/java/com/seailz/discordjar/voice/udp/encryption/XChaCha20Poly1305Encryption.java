@@ -0,0 +1,158 @@
+package com.seailz.discordjar.voice.udp.encryption;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * The {@code aead_xchacha20_poly1305_rtpsize} encryption mode.
+ * <br>The RTP header is authenticated but not encrypted, and a 32 bit counter is appended to every packet as the nonce.
+ * <br>The JDK only implements ChaCha20-Poly1305 with 12 byte nonces, so the extended 24 byte nonce is handled by deriving a
+ * <br>subkey with HChaCha20 from the first 16 bytes, and passing the remaining 8 to the JDK's cipher.
+ * <br>A single {@link Cipher} is reused for every packet.
+ *
+ * @author Seailz
+ * @see <a href="https://datatracker.ietf.org/doc/html/draft-irtf-cfrg-xchacha">XChaCha: eXtended-nonce ChaCha and AEAD_XChaCha20_Poly1305</a>
+ */
+public class XChaCha20Poly1305Encryption implements VoiceEncryption {
+
+    private static final String TRANSFORMATION = "ChaCha20-Poly1305";
+    private static final int TAG_LENGTH = 16;
+    private static final int NONCE_LENGTH = 4;
+    /**
+     * The last 8 bytes of the extended nonce are always zero, so the nonce passed to the JDK's cipher never changes.
+     */
+    private static final IvParameterSpec CHACHA_NONCE = new IvParameterSpec(new byte[12]);
+
+    private final Cipher cipher;
+    private final int[] key = new int[8];
+    private final int[] state = new int[16];
+    private final byte[] subKey = new byte[32];
+    private int counter = 0;
+
+    public XChaCha20Poly1305Encryption(@NotNull byte[] secretKey) {
+        if (secretKey.length != 32) throw new IllegalArgumentException("Secret key must be 32 bytes");
+        for (int i = 0; i < 8; i++) key[i] = littleEndian(secretKey, i * 4);
+        try {
+            this.cipher = Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("ChaCha20-Poly1305 isn't available in this JVM", e);
+        }
+    }
+
+    static boolean isAvailable() {
+        try {
+            Cipher.getInstance(TRANSFORMATION);
+            return true;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    @NotNull
+    @Override
+    public String mode() {
+        return XCHACHA20_POLY1305_RTPSIZE;
+    }
+
+    @Override
+    public boolean rtpSize() {
+        return true;
+    }
+
+    @Override
+    public boolean seal(@NotNull ByteBuffer packet, @NotNull byte[] audio) {
+        int headerLength = packet.position();
+        if (audio.length + TAG_LENGTH + NONCE_LENGTH > packet.remaining()) return false;
+
+        int counter = this.counter++;
+        try {
+            byte[] data = packet.array();
+            cipher.init(Cipher.ENCRYPT_MODE, deriveKey(counter), CHACHA_NONCE);
+            cipher.updateAAD(data, 0, headerLength);
+            int written = cipher.doFinal(audio, 0, audio.length, data, headerLength);
+            packet.position(headerLength + written);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+        packet.putInt(counter);
+        return true;
+    }
+
+    @Override
+    public int open(@NotNull byte[] packet, int headerLength, int length, @NotNull byte[] out) {
+        int nonceAt = length - NONCE_LENGTH;
+        if (nonceAt - headerLength < TAG_LENGTH) return -1;
+
+        int counter = ((packet[nonceAt] & 0xFF) << 24) | ((packet[nonceAt + 1] & 0xFF) << 16)
+                | ((packet[nonceAt + 2] & 0xFF) << 8) | (packet[nonceAt + 3] & 0xFF);
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, deriveKey(counter), CHACHA_NONCE);
+            cipher.updateAAD(packet, 0, headerLength);
+            return cipher.doFinal(packet, headerLength, nonceAt - headerLength, out, 0);
+        } catch (GeneralSecurityException e) {
+            // Tampered with, or not meant for us
+            return -1;
+        }
+    }
+
+    /**
+     * Derives the subkey for a packet with HChaCha20. The first 16 bytes of the nonce are the big endian counter followed by zeroes.
+     */
+    private SecretKeySpec deriveKey(int counter) {
+        int[] s = state;
+        s[0] = 0x61707865;
+        s[1] = 0x3320646e;
+        s[2] = 0x79622d32;
+        s[3] = 0x6b206574;
+        System.arraycopy(key, 0, s, 4, 8);
+        // The nonce words are little endian, while Discord's counter is big endian
+        s[12] = Integer.reverseBytes(counter);
+        s[13] = 0;
+        s[14] = 0;
+        s[15] = 0;
+
+        for (int i = 0; i < 10; i++) {
+            quarterRound(s, 0, 4, 8, 12);
+            quarterRound(s, 1, 5, 9, 13);
+            quarterRound(s, 2, 6, 10, 14);
+            quarterRound(s, 3, 7, 11, 15);
+            quarterRound(s, 0, 5, 10, 15);
+            quarterRound(s, 1, 6, 11, 12);
+            quarterRound(s, 2, 7, 8, 13);
+            quarterRound(s, 3, 4, 9, 14);
+        }
+
+        for (int i = 0; i < 4; i++) {
+            writeLittleEndian(s[i], subKey, i * 4);
+            writeLittleEndian(s[12 + i], subKey, 16 + i * 4);
+        }
+        return new SecretKeySpec(subKey, "ChaCha20");
+    }
+
+    private static void quarterRound(int[] s, int a, int b, int c, int d) {
+        s[a] += s[b];
+        s[d] = Integer.rotateLeft(s[d] ^ s[a], 16);
+        s[c] += s[d];
+        s[b] = Integer.rotateLeft(s[b] ^ s[c], 12);
+        s[a] += s[b];
+        s[d] = Integer.rotateLeft(s[d] ^ s[a], 8);
+        s[c] += s[d];
+        s[b] = Integer.rotateLeft(s[b] ^ s[c], 7);
+    }
+
+    private static int littleEndian(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | ((b[offset + 1] & 0xFF) << 8) | ((b[offset + 2] & 0xFF) << 16) | ((b[offset + 3] & 0xFF) << 24);
+    }
+
+    private static void writeLittleEndian(int value, byte[] b, int offset) {
+        b[offset] = (byte) value;
+        b[offset + 1] = (byte) (value >>> 8);
+        b[offset + 2] = (byte) (value >>> 16);
+        b[offset + 3] = (byte) (value >>> 24);
+    }
+}
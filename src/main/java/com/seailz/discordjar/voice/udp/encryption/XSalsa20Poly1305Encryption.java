@@ -0,0 +1,58 @@
+package com.seailz.discordjar.voice.udp.encryption;
+
+import com.codahale.xsalsa20poly1305.SecretBox;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The {@code xsalsa20_poly1305} encryption mode, which Discord has deprecated.
+ * <br>The nonce is the RTP header padded with zeroes. {@link SecretBox} allocates for every packet, so this mode is only
+ * <br>used when the voice server doesn't offer any of the {@code _rtpsize} modes.
+ *
+ * @author Seailz
+ */
+public class XSalsa20Poly1305Encryption implements VoiceEncryption {
+
+    private static final int RTP_HEADER_LENGTH = 12;
+
+    private final SecretBox box;
+    private final byte[] nonce = new byte[24];
+
+    public XSalsa20Poly1305Encryption(@NotNull byte[] secretKey) {
+        this.box = new SecretBox(secretKey);
+    }
+
+    @NotNull
+    @Override
+    public String mode() {
+        return XSALSA20_POLY1305;
+    }
+
+    @Override
+    public boolean rtpSize() {
+        return false;
+    }
+
+    @Override
+    public boolean seal(@NotNull ByteBuffer packet, @NotNull byte[] audio) {
+        // The padding never changes
+        System.arraycopy(packet.array(), 0, nonce, 0, RTP_HEADER_LENGTH);
+        byte[] encrypted = box.seal(nonce, audio);
+        if (encrypted.length > packet.remaining()) return false;
+        packet.put(encrypted);
+        return true;
+    }
+
+    @Override
+    public int open(@NotNull byte[] packet, int headerLength, int length, @NotNull byte[] out) {
+        System.arraycopy(packet, 0, nonce, 0, RTP_HEADER_LENGTH);
+        Optional<byte[]> opened = box.open(nonce, Arrays.copyOfRange(packet, headerLength, length));
+        if (opened.isEmpty() || opened.get().length > out.length) return -1;
+        byte[] decrypted = opened.get();
+        System.arraycopy(decrypted, 0, out, 0, decrypted.length);
+        return decrypted.length;
+    }
+}
@@ -2,9 +2,13 @@ package com.seailz.discordjar.voice.ws;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.seailz.discordjar.voice.model.packet.AudioPacket;
+import com.seailz.discordjar.voice.VoiceConnectionManager;
+import com.seailz.discordjar.voice.VoiceConnectionStats;
 import com.seailz.discordjar.voice.model.provider.VoiceProvider;
+import com.seailz.discordjar.voice.model.receiver.VoiceReceiver;
+import com.seailz.discordjar.voice.udp.VoiceReceiveHandler;
 import com.seailz.discordjar.voice.udp.VoiceUDP;
+import com.seailz.discordjar.voice.udp.encryption.VoiceEncryption;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.web.socket.CloseStatus;
@@ -12,22 +16,36 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.client.WebSocketClient;
-import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
-import com.codahale.xsalsa20poly1305.SecretBox;
 
 import java.io.IOException;
 import java.net.*;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 // TODO: at some point this should be converted to use the WebSocket class
+/**
+ * The voice gateway connection for a single guild.
+ * <br>If the connection drops, it is resumed (op 7) where possible. If the session can't be resumed, the gateway identifies again
+ * <br>and the existing {@link VoiceUDP} is moved to the new voice server, keeping the audio it has already buffered. Reconnect attempts
+ * <br>back off exponentially and run on the {@link VoiceConnectionManager}'s timer. Audio keeps being sent over UDP while the gateway resumes.
+ *
+ * @author Seailz
+ */
 public class VoiceGatewayFactory extends TextWebSocketHandler {
 
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60000;
+    private static final int MAX_RECONNECT_ATTEMPTS = 10;
+
     private final String serverId;
     private final String userId;
     private final String sessionId;
@@ -38,27 +56,61 @@ public class VoiceGatewayFactory extends TextWebSocketHandler {
 
     private VoiceProvider provider;
     private int ssrc;
+    private String mode = VoiceEncryption.XSALSA20_POLY1305;
 
     private List<Consumer<JSONObject>> onSessionDescription = new ArrayList<>();
-    private boolean speaking = true;
+    private volatile boolean speaking = false;
     private VoiceUDP socket;
 
+    private final Logger logger = Logger.getLogger("VoiceGateway");
+    private final VoiceConnectionManager manager;
+    private final VoiceReceiver receiver;
+    private ScheduledFuture<?> heartbeatTask;
+    private volatile long lastHeartbeatNonce;
+    private volatile long lastHeartbeatSentAt;
+    private volatile long rttNanos = -1;
+    private String endpoint;
+    private volatile State state = State.CONNECTING;
+    private volatile boolean closing = false;
+    private volatile int reconnectAttempts = 0;
+
     public VoiceGatewayFactory(String serverId, String userId, String sessionId, String token, String endpoint, VoiceProvider prov) throws ExecutionException, InterruptedException {
+        this(serverId, userId, sessionId, token, endpoint, prov, VoiceConnectionManager.getDefault());
+    }
+
+    public VoiceGatewayFactory(String serverId, String userId, String sessionId, String token, String endpoint, VoiceProvider prov, VoiceConnectionManager manager) throws ExecutionException, InterruptedException {
+        this(serverId, userId, sessionId, token, endpoint, prov, manager, null);
+    }
+
+    /**
+     * @param receiver The receiver to pass audio received from the channel to, or null if audio shouldn't be received
+     */
+    public VoiceGatewayFactory(String serverId, String userId, String sessionId, String token, String endpoint, VoiceProvider prov, VoiceConnectionManager manager, VoiceReceiver receiver) throws ExecutionException, InterruptedException {
         this.serverId = serverId;
         this.userId = userId;
         this.sessionId = sessionId;
         this.token = token;
         this.provider = prov;
+        this.manager = manager;
+        this.receiver = receiver;
+        manager.addConnection(serverId, this);
         connect(endpoint);
     }
 
     public void connect(String endpoint) throws ExecutionException, InterruptedException {
-        endpoint = "wss://" + endpoint + "?v=4";
-        WebSocketClient client = new StandardWebSocketClient();
+        this.endpoint = "wss://" + endpoint + "?v=4";
+        // The client is shared between every voice connection
+        WebSocketClient client = manager.getWebSocketClient();
         this.client = client;
-        this.session = client.execute(this, new WebSocketHttpHeaders(), URI.create(endpoint)).get();
+        client.execute(this, new WebSocketHttpHeaders(), URI.create(this.endpoint)).get();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // Set here rather than when the handshake future completes, since HELLO can arrive before that
         session.setTextMessageSizeLimit(1000000);
         session.setBinaryMessageSizeLimit(1000000);
+        this.session = session;
     }
 
     @Override
@@ -71,9 +123,20 @@ public class VoiceGatewayFactory extends TextWebSocketHandler {
                 JSONObject finalPayload = payload;
                 VoiceUDP udp = null;
                 ssrc = finalPayload.getInt("ssrc");
+                JSONArray modes = finalPayload.optJSONArray("modes");
+                List<String> offered = new ArrayList<>();
+                if (modes != null) for (int i = 0; i < modes.length(); i++) offered.add(modes.getString(i));
+                mode = VoiceEncryption.negotiate(offered);
                 try {
-                    udp = new VoiceUDP(new InetSocketAddress(InetAddress.getByName(finalPayload.getString("ip")), finalPayload.getInt("port")), provider, finalPayload.getInt("ssrc"), this);
-                } catch (SocketException | UnknownHostException e) {
+                    InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(finalPayload.getString("ip")), finalPayload.getInt("port"));
+                    if (socket == null) {
+                        udp = new VoiceUDP(address, provider, ssrc, this, manager, receiver);
+                    } else {
+                        // We identified again after a session couldn't be resumed, keep the sender and its buffered audio
+                        udp = socket;
+                        udp.rebind(address, ssrc);
+                    }
+                } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
 
@@ -91,35 +154,16 @@ public class VoiceGatewayFactory extends TextWebSocketHandler {
             }
             case 8: {
                 int hbInterval = payload.getJSONObject("d").getInt("heartbeat_interval");
-                new Thread(() -> {
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                    JSONObject firstHeartbeat = new JSONObject();
-                    firstHeartbeat.put("op", 3);
-                    long firstNonce = System.currentTimeMillis();
-                    firstHeartbeat.put("d", firstNonce);
-                    try {
-                        session.sendMessage(new TextMessage(firstHeartbeat.toString()));
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                    while (session.isOpen()) {
-                        try {
-                            Thread.sleep(hbInterval);
-                            JSONObject heartbeat = new JSONObject();
-                            heartbeat.put("op", 3);
-                            long nonce = System.currentTimeMillis();
-                            heartbeat.put("d", nonce);
-                            session.sendMessage(new TextMessage(firstHeartbeat.toString()));
-                        } catch (InterruptedException | IOException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }).start();
-
+                if (heartbeatTask != null) heartbeatTask.cancel(false);
+                heartbeatTask = manager.scheduleHeartbeat(this::heartbeat, Math.min(1000, hbInterval), hbInterval);
+
+                if (state == State.RESUMING) {
+                    send(new JSONObject().put("op", 7).put("d", new JSONObject()
+                            .put("server_id", serverId)
+                            .put("session_id", sessionId)
+                            .put("token", token)));
+                    break;
+                }
 
                 JSONObject identify = new JSONObject();
                 identify.put("op", 0);
@@ -129,11 +173,7 @@ public class VoiceGatewayFactory extends TextWebSocketHandler {
                 data.put("session_id", sessionId);
                 data.put("token", token);
                 identify.put("d", data);
-                try {
-                    session.sendMessage(new TextMessage(identify.toString()));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+                send(identify);
                 break;
             }
             case 4: {
@@ -144,8 +184,35 @@ public class VoiceGatewayFactory extends TextWebSocketHandler {
 
                 JsonNode data = packet.get("d");
                 byte[] secretKey = new ObjectMapper().convertValue(data.get("secret_key"), byte[].class);
-                socket.setSecretKey(secretKey);
+                socket.setEncryption(data.has("mode") ? data.get("mode").asText() : mode, secretKey);
                 socket.start();
+                state = State.CONNECTED;
+                reconnectAttempts = 0;
+                break;
+            }
+            case 5: {
+                // Another user started or stopped speaking, this is how SSRCs are mapped to users
+                VoiceReceiveHandler handler = socket == null ? null : socket.getReceiveHandler();
+                JSONObject d = payload.getJSONObject("d");
+                if (handler != null && d.has("user_id")) handler.speaking(d.getString("user_id"), d.getInt("ssrc"), d.optInt("speaking") != 0);
+                break;
+            }
+            case 6: {
+                // Heartbeat ACK, d is the nonce that was sent
+                if (payload.optLong("d", -1) == lastHeartbeatNonce) rttNanos = System.nanoTime() - lastHeartbeatSentAt;
+                break;
+            }
+            case 9: {
+                // Resumed, the UDP connection was never interrupted
+                state = State.CONNECTED;
+                reconnectAttempts = 0;
+                if (speaking) speaking(true);
+                break;
+            }
+            case 13: {
+                // A user disconnected
+                VoiceReceiveHandler handler = socket == null ? null : socket.getReceiveHandler();
+                if (handler != null) handler.removeUser(payload.getJSONObject("d").getString("user_id"));
                 break;
             }
             case 18: {
@@ -163,9 +230,115 @@ public class VoiceGatewayFactory extends TextWebSocketHandler {
         data.put("data", new JSONObject()
                 .put("address", address.getAddress().getHostAddress())
                 .put("port", address.getPort())
-                .put("mode", "xsalsa20_poly1305"));
+                .put("mode", mode));
         selectProtocol.put("d", data);
-        session.sendMessage(new TextMessage(selectProtocol.toString()));
+        send(selectProtocol);
+    }
+
+    private void heartbeat() {
+        if (!session.isOpen()) return;
+        long nonce = System.currentTimeMillis();
+        lastHeartbeatNonce = nonce;
+        lastHeartbeatSentAt = System.nanoTime();
+        send(new JSONObject().put("op", 3).put("d", nonce));
+    }
+
+    /**
+     * Sends a payload. Websocket sessions don't allow concurrent sends, so this is synchronized.
+     */
+    private synchronized void send(JSONObject payload) {
+        try {
+            session.sendMessage(new TextMessage(payload.toString()));
+        } catch (IOException | IllegalStateException e) {
+            logger.warning("[discord.jar] Failed to send voice gateway payload: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        if (session != this.session) return;
+        if (heartbeatTask != null) heartbeatTask.cancel(false);
+
+        if (closing || !canReconnect(status.getCode())) {
+            if (!closing) logger.warning("[discord.jar] Voice gateway for guild " + serverId + " closed with " + status.getCode() + " " + status.getReason() + ", not reconnecting.");
+            terminate();
+            return;
+        }
+
+        // A session that was never established can't be resumed
+        state = canResume(status.getCode()) && socket != null ? State.RESUMING : State.RECONNECTING;
+        scheduleReconnect();
+    }
+
+    /**
+     * Close codes after which reconnecting is pointless, since the voice session has ended or the request was invalid.
+     * <br>4014 is sent when the bot was disconnected from the channel, so a new voice state update is needed to rejoin.
+     */
+    private static boolean canReconnect(int code) {
+        return switch (code) {
+            case 4004, 4006, 4011, 4012, 4014, 4016 -> false;
+            default -> true;
+        };
+    }
+
+    /**
+     * Whether the session can still be resumed, rather than having to identify again.
+     */
+    private static boolean canResume(int code) {
+        return switch (code) {
+            case 4003, 4005, 4009 -> false;
+            default -> true;
+        };
+    }
+
+    private void scheduleReconnect() {
+        if (++reconnectAttempts > MAX_RECONNECT_ATTEMPTS) {
+            logger.warning("[discord.jar] Giving up on reconnecting to the voice gateway for guild " + serverId + " after " + MAX_RECONNECT_ATTEMPTS + " attempts.");
+            terminate();
+            return;
+        }
+        long delay = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(reconnectAttempts - 1, 16));
+        // Jitter so that every connection dropped by the same outage doesn't reconnect at once
+        delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+        manager.schedule(this::reconnect, delay);
+    }
+
+    private void reconnect() {
+        if (closing) return;
+        // Not waited for, since this runs on the shared voice timer
+        client.execute(this, new WebSocketHttpHeaders(), URI.create(endpoint)).whenComplete((session, e) -> {
+            if (e == null) return;
+            logger.warning("[discord.jar] Failed to reconnect to the voice gateway for guild " + serverId + ": " + e.getMessage());
+            scheduleReconnect();
+        });
+    }
+
+    private void terminate() {
+        state = State.CLOSED;
+        if (socket != null) socket.close();
+        manager.removeConnection(serverId, this);
+    }
+
+    /**
+     * Returns the state of the connection to the voice gateway.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the round trip time and packet statistics of this connection.
+     */
+    public VoiceConnectionStats getStats() {
+        long rtt = rttNanos;
+        return new VoiceConnectionStats(
+                rtt < 0 ? null : Duration.ofNanos(rtt),
+                socket == null ? 0 : socket.getSender().getPacketsSent(),
+                socket == null ? 0 : socket.getSender().getPacketsLost(),
+                socket == null ? 0 : socket.getSender().getUnderruns(),
+                socket == null || socket.getReceiveHandler() == null ? 0 : socket.getReceiveHandler().getPacketsReceived(),
+                socket == null || socket.getReceiveHandler() == null ? 0 : socket.getReceiveHandler().getPacketsMissed()
+        );
     }
 
     /*public void start(String ip, int ssrc, int port, List<String> modes, VoiceProvider vp) {
@@ -295,27 +468,38 @@ public class VoiceGatewayFactory extends TextWebSocketHandler {
     }*/
 
     public void speaking(boolean speak) {
-        new Thread(() -> {
-            JSONObject speaking = new JSONObject();
-            speaking.put("op", 5);
-            JSONObject speakingData = new JSONObject();
-            speakingData.put("speaking", speak ? 1 : 0);
-            speakingData.put("ssrc", ssrc);
-            speakingData.put("delay", 0);
-            speaking.put("d", speakingData);
-            try {
-                session.sendMessage(new TextMessage(speaking.toString()));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }).start();
+        this.speaking = speak;
+        JSONObject payload = new JSONObject();
+        payload.put("op", 5);
+        JSONObject speakingData = new JSONObject();
+        speakingData.put("speaking", speak ? 1 : 0);
+        speakingData.put("ssrc", ssrc);
+        speakingData.put("delay", 0);
+        payload.put("d", speakingData);
+        // Called from voice event loops, which shouldn't wait on the websocket
+        manager.execute(() -> send(payload));
     }
 
     public void close(int code) {
+        closing = true;
         try {
             session.close(new CloseStatus(code, null));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
-}
\ No newline at end of file
+
+    public enum State {
+        CONNECTING,
+        CONNECTED,
+        /**
+         * The connection dropped and will be resumed. Audio is still being sent.
+         */
+        RESUMING,
+        /**
+         * The session couldn't be resumed, so the gateway will identify again and move to a new voice server.
+         */
+        RECONNECTING,
+        CLOSED
+    }
+}
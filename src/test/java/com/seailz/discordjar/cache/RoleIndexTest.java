@@ -0,0 +1,128 @@
+package com.seailz.discordjar.cache;
+
+import com.seailz.discordjar.model.role.Role;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoleIndexTest {
+
+    @Test
+    void emptyIndexIsNotPopulated() {
+        RoleIndex index = new RoleIndex();
+        assertFalse(index.isPopulated());
+        assertNull(index.get("1"));
+        assertTrue(index.roles().isEmpty());
+    }
+
+    @Test
+    void setRolesCanBeLookedUp() {
+        RoleIndex index = new RoleIndex();
+        Role first = role("1", "first");
+        Role second = role("2", "second");
+        index.set(List.of(first, second));
+
+        assertTrue(index.isPopulated());
+        assertSame(first, index.get("1"));
+        assertSame(second, index.get("2"));
+        assertNull(index.get("3"));
+        assertEquals(List.of(first, second), index.roles());
+    }
+
+    @Test
+    void putReplacesRoleWithTheSameId() {
+        RoleIndex index = new RoleIndex();
+        index.set(List.of(role("1", "first"), role("2", "second")));
+        Role renamed = role("1", "renamed");
+        index.put(renamed);
+
+        assertSame(renamed, index.get("1"));
+        assertEquals(2, index.roles().size());
+    }
+
+    @Test
+    void changesAreIgnoredUntilPopulated() {
+        RoleIndex index = new RoleIndex();
+        index.put(role("1", "first"));
+        index.remove("2");
+
+        assertFalse(index.isPopulated());
+        assertNull(index.get("1"));
+    }
+
+    @Test
+    void removedRoleIsGone() {
+        RoleIndex index = new RoleIndex();
+        index.set(List.of(role("1", "first"), role("2", "second")));
+        index.remove("1");
+        index.remove("3");
+
+        assertNull(index.get("1"));
+        assertEquals(1, index.roles().size());
+        assertEquals("2", index.roles().get(0).id());
+    }
+
+    @Test
+    void returnedRolesAreNotModifiedLater() {
+        RoleIndex index = new RoleIndex();
+        index.set(List.of(role("1", "first")));
+        List<Role> before = index.roles();
+        index.put(role("2", "second"));
+
+        assertEquals(1, before.size());
+        assertEquals(2, index.roles().size());
+        assertThrows(UnsupportedOperationException.class, () -> before.add(role("3", "third")));
+    }
+
+    @Test
+    void rawRolesAreDecodedWhenRead() {
+        RoleIndex index = new RoleIndex();
+        index.setRaw(new JSONArray().put(raw("1", "first")).put(raw("2", "second")));
+
+        assertTrue(index.isPopulated());
+        assertEquals("first", index.get("1").name());
+        assertEquals(2, index.roles().size());
+    }
+
+    @Test
+    void putAfterSetRawKeepsRawRoles() {
+        RoleIndex index = new RoleIndex();
+        index.setRaw(new JSONArray().put(raw("1", "first")));
+        index.put(role("2", "second"));
+
+        assertEquals("first", index.get("1").name());
+        assertEquals("second", index.get("2").name());
+    }
+
+    @Test
+    void setReplacesRawRoles() {
+        RoleIndex index = new RoleIndex();
+        index.setRaw(new JSONArray().put(raw("1", "first")));
+        index.set(List.of(role("2", "second")));
+
+        assertNull(index.get("1"));
+        assertEquals(1, index.roles().size());
+    }
+
+    private static Role role(String id, String name) {
+        return new Role(id, name, 0, false, null, 0, 0, false, false, null, EnumSet.noneOf(Role.Flag.class), 0);
+    }
+
+    private static JSONObject raw(String id, String name) {
+        return new JSONObject()
+                .put("id", id)
+                .put("name", name)
+                .put("color", 0)
+                .put("hoist", false)
+                .put("position", 0)
+                .put("permissions", "0")
+                .put("managed", false)
+                .put("mentionable", false)
+                .put("flags", 0);
+    }
+}
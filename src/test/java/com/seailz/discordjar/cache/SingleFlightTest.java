@@ -0,0 +1,181 @@
+package com.seailz.discordjar.cache;
+
+import com.seailz.discordjar.utils.rest.DiscordRequest;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void foundObjectsAreLookedUpAgain() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        SingleFlight.Lookup<String> lookup = () -> "user" + calls.incrementAndGet();
+
+        assertEquals("user1", flight.get("1", lookup));
+        assertEquals("user2", flight.get("1", lookup));
+    }
+
+    @Test
+    void concurrentLookupsAreCoalesced() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SingleFlight.Lookup<String> lookup = () -> {
+            calls.incrementAndGet();
+            entered.countDown();
+            await(release);
+            return "user";
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> flight.get("1", lookup)));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            List<Thread> waiters = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> {
+                    synchronized (waiters) {
+                        waiters.add(Thread.currentThread());
+                    }
+                    return flight.get("1", lookup);
+                }));
+            }
+            awaitWaiting(waiters, 7);
+            release.countDown();
+
+            for (Future<String> result : results) assertEquals("user", result.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitersGetTheException() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> flight.get("1", () -> {
+                entered.countDown();
+                await(release);
+                throw error(500);
+            }));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            List<Thread> waiters = new ArrayList<>();
+            Future<String> second = executor.submit(() -> {
+                synchronized (waiters) {
+                    waiters.add(Thread.currentThread());
+                }
+                return flight.get("1", () -> "user");
+            });
+            awaitWaiting(waiters, 1);
+            release.countDown();
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(DiscordRequest.UnhandledDiscordAPIErrorException.class, e.getCause());
+            e = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(DiscordRequest.UnhandledDiscordAPIErrorException.class, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void missesAreRemembered() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        SingleFlight.Lookup<String> lookup = () -> {
+            calls.incrementAndGet();
+            return null;
+        };
+
+        assertNull(flight.get("1", lookup));
+        assertNull(flight.get("1", lookup));
+        assertEquals(1, calls.get());
+        assertEquals("other", flight.get("2", () -> "other"));
+    }
+
+    @Test
+    void missesExpire() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>(20);
+        assertNull(flight.get("1", () -> null));
+        Thread.sleep(50);
+        assertEquals("user", flight.get("1", () -> "user"));
+    }
+
+    @Test
+    void forgottenMissesAreLookedUpAgain() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        assertNull(flight.get("1", () -> null));
+        assertNull(flight.get("2", () -> null));
+        assertNull(flight.get("3", () -> null));
+
+        flight.forget("1");
+        assertEquals("first", flight.get("1", () -> "first"));
+        assertNull(flight.get("2", () -> "second"));
+
+        flight.clear();
+        assertEquals("second", flight.get("2", () -> "second"));
+        assertEquals("third", flight.get("3", () -> "third"));
+    }
+
+    @Test
+    void failuresAreNotRemembered() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        DiscordRequest.UnhandledDiscordAPIErrorException error = error(500);
+
+        assertSame(error, assertThrows(DiscordRequest.UnhandledDiscordAPIErrorException.class, () -> flight.get("1", () -> {
+            throw error;
+        })));
+        assertThrows(IllegalStateException.class, () -> flight.get("1", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals("user", flight.get("1", () -> "user"));
+    }
+
+    private static DiscordRequest.UnhandledDiscordAPIErrorException error(int httpCode) {
+        return new DiscordRequest.UnhandledDiscordAPIErrorException(
+                new JSONObject().put("code", 0).put("message", "Internal Server Error"), httpCode);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until every waiter is blocked on the lookup in flight.
+     */
+    private static void awaitWaiting(List<Thread> waiters, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (waiters) {
+                if (waiters.size() == count && waiters.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) return;
+            }
+            Thread.sleep(5);
+        }
+        fail("Waiters didn't block on the lookup in flight");
+    }
+}
@@ -0,0 +1,136 @@
+package com.seailz.discordjar.cache.snapshot;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storedObjectsAreRestored() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        CacheSnapshot snapshot = CacheSnapshot.open(file);
+        snapshot.putGuild(new JSONObject().put("id", "1").put("name", "first"));
+        snapshot.putGuild(new JSONObject().put("id", "2").put("name", "second"));
+        snapshot.putChannel(new JSONObject().put("id", "10").put("guild_id", "1").put("name", "general"));
+        snapshot.putMember("1", new JSONObject().put("user", new JSONObject().put("id", "100")).put("nick", "someone"));
+        snapshot.removeGuild("2");
+        snapshot.close();
+
+        CacheSnapshot restored = CacheSnapshot.open(file);
+        assertEquals("first", restored.guilds().take("1").getString("name"));
+        assertNull(restored.guilds().take("2"));
+        assertEquals("general", restored.channels().take("10").getString("name"));
+        assertEquals("someone", restored.members("1").take("100").getString("nick"));
+        assertTrue(restored.members("2").isEmpty());
+        restored.close();
+    }
+
+    @Test
+    void objectsAreOnlyTakenOnce() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        CacheSnapshot snapshot = CacheSnapshot.open(file);
+        snapshot.putGuild(new JSONObject().put("id", "1").put("name", "first"));
+        snapshot.close();
+
+        CacheSnapshot restored = CacheSnapshot.open(file);
+        assertNotNull(restored.guilds().take("1"));
+        assertNull(restored.guilds().take("1"));
+        restored.close();
+    }
+
+    @Test
+    void laterRecordsReplaceEarlierOnes() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        CacheSnapshot snapshot = CacheSnapshot.open(file);
+        snapshot.putGuild(new JSONObject().put("id", "1").put("name", "old"));
+        snapshot.putGuild(new JSONObject().put("id", "1").put("name", "new"));
+        snapshot.close();
+
+        CacheSnapshot restored = CacheSnapshot.open(file);
+        assertEquals("new", restored.guilds().take("1").getString("name"));
+        restored.close();
+    }
+
+    @Test
+    void compactionWritesANewGeneration() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        CacheSnapshot snapshot = CacheSnapshot.open(file);
+        snapshot.putGuild(new JSONObject().put("id", "1").put("name", "first"));
+        snapshot.compact();
+        assertTrue(Files.exists(dir.resolve("cache.bin.1")));
+
+        snapshot.putGuild(new JSONObject().put("id", "3").put("name", "third"));
+        snapshot.close();
+
+        CacheSnapshot restored = CacheSnapshot.open(file);
+        assertEquals("first", restored.guilds().take("1").getString("name"));
+        assertEquals("third", restored.guilds().take("3").getString("name"));
+        restored.close();
+    }
+
+    @Test
+    void rolesAreStoredSeparatelyFromTheGuild() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        CacheSnapshot snapshot = CacheSnapshot.open(file);
+        snapshot.putGuild(new JSONObject().put("id", "1").put("name", "first")
+                .put("roles", new JSONArray().put(new JSONObject().put("id", "1").put("name", "@everyone"))));
+        snapshot.putGuild(new JSONObject().put("id", "2").put("name", "second")
+                .put("roles", new JSONArray().put(new JSONObject().put("id", "2").put("name", "@everyone"))));
+        // A role was created after GUILD_CREATE
+        snapshot.putRoles("1", new JSONArray()
+                .put(new JSONObject().put("id", "1").put("name", "@everyone"))
+                .put(new JSONObject().put("id", "10").put("name", "created")));
+        snapshot.removeGuild("2");
+        snapshot.close();
+
+        CacheSnapshot restored = CacheSnapshot.open(file);
+        assertFalse(restored.guilds().take("1").has("roles"));
+        JSONArray roles = restored.roles().take("1").getJSONArray("roles");
+        assertEquals(2, roles.length());
+        assertEquals("created", roles.getJSONObject(1).getString("name"));
+        assertNull(restored.roles().take("2"));
+        restored.close();
+    }
+
+    @Test
+    void truncatedRecordIsIgnored() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        CacheSnapshot snapshot = CacheSnapshot.open(file);
+        snapshot.putGuild(new JSONObject().put("id", "1").put("name", "first"));
+        snapshot.close();
+
+        // A record that was cut off by a crash
+        Files.write(newestGeneration(), new byte[] {1, 0, 0, 0, 0}, StandardOpenOption.APPEND);
+
+        CacheSnapshot restored = CacheSnapshot.open(file);
+        assertEquals("first", restored.guilds().take("1").getString("name"));
+        restored.close();
+    }
+
+    private Path newestGeneration() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().matches("cache\\.bin(\\.\\d+)?"))
+                    .max(Comparator.comparingInt(CacheSnapshotTest::generation))
+                    .orElseThrow();
+        }
+    }
+
+    private static int generation(Path path) {
+        String name = path.getFileName().toString();
+        return name.equals("cache.bin") ? 0 : Integer.parseInt(name.substring("cache.bin.".length()));
+    }
+}
@@ -0,0 +1,144 @@
+package com.seailz.discordjar.gateway.events;
+
+import com.seailz.discordjar.DiscordJar;
+import com.seailz.discordjar.DiscordJarBuilder;
+import com.seailz.discordjar.cache.snapshot.CacheSnapshot;
+import com.seailz.discordjar.model.application.Intent;
+import com.seailz.discordjar.model.guild.Guild;
+import com.seailz.discordjar.utils.HTTPOnlyInfo;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuildRoleEventsTest {
+
+    private static final String GUILD_ID = "100000000000000001";
+    private static final String ROLE_ID = "100000000000000002";
+    private static final String OTHER_ROLE_ID = "100000000000000003";
+    /**
+     * The public key of the first test vector of RFC 8032, only used to start the interaction server.
+     */
+    private static final String PUBLIC_KEY = "d75a980182b10ab7d54bfed3c964073a0ee172f3daa62325af021a68f707511a";
+
+    @TempDir
+    Path dir;
+
+    private DiscordJar discordJar;
+
+    @AfterEach
+    void stop() {
+        if (discordJar != null && discordJar.getInteractionServer() != null) discordJar.getInteractionServer().stop(0);
+    }
+
+    @Test
+    void roleUpdateSurvivesHydrationOfDeferredGuild() {
+        discordJar = discordJar(true);
+        dispatch(DispatchedEvents.GUILD_CREATE, guildCreate());
+        dispatch(DispatchedEvents.GUILD_ROLE_UPDATE, new JSONObject()
+                .put("guild_id", GUILD_ID)
+                .put("role", role(ROLE_ID, "renamed")));
+
+        Guild guild = discordJar.getGuildById(GUILD_ID);
+        assertNotNull(guild);
+        assertEquals("renamed", guild.getRoleById(ROLE_ID).name());
+        assertEquals("renamed", discordJar.getRoleIndex(GUILD_ID).get(ROLE_ID).name());
+    }
+
+    @Test
+    void roleDeleteSurvivesDecodingGuildCreateAgain() {
+        discordJar = discordJar(false);
+        JSONObject guildCreate = guildCreate();
+        dispatch(DispatchedEvents.GUILD_CREATE, guildCreate);
+        dispatch(DispatchedEvents.GUILD_ROLE_DELETE, new JSONObject()
+                .put("guild_id", GUILD_ID)
+                .put("role_id", OTHER_ROLE_ID));
+
+        // As done by GuildCreateEvent#getGuild
+        Guild.decompile(guildCreate, discordJar);
+        assertNull(discordJar.getRoleIndex(GUILD_ID).get(OTHER_ROLE_ID));
+        assertEquals(1, discordJar.getRoleIndex(GUILD_ID).roles().size());
+    }
+
+    @Test
+    void guildUpdateReplacesRoles() {
+        discordJar = discordJar(false);
+        dispatch(DispatchedEvents.GUILD_CREATE, guildCreate());
+        dispatch(DispatchedEvents.GUILD_UPDATE, new JSONObject()
+                .put("id", GUILD_ID)
+                .put("name", "guild")
+                .put("roles", new JSONArray().put(role(ROLE_ID, "updated"))));
+
+        assertEquals("updated", discordJar.getRoleIndex(GUILD_ID).get(ROLE_ID).name());
+        assertNull(discordJar.getRoleIndex(GUILD_ID).get(OTHER_ROLE_ID));
+    }
+
+    @Test
+    void roleChangesAreRestoredFromTheCacheSnapshot() throws IOException {
+        Path file = dir.resolve("cache.bin");
+        discordJar = discordJar(false, CacheSnapshot.open(file));
+        dispatch(DispatchedEvents.GUILD_CREATE, guildCreate());
+        dispatch(DispatchedEvents.GUILD_ROLE_UPDATE, new JSONObject()
+                .put("guild_id", GUILD_ID)
+                .put("role", role(ROLE_ID, "renamed")));
+        dispatch(DispatchedEvents.GUILD_ROLE_DELETE, new JSONObject()
+                .put("guild_id", GUILD_ID)
+                .put("role_id", OTHER_ROLE_ID));
+        discordJar.getCacheSnapshot().close();
+        stop();
+
+        // A resumed session doesn't receive GUILD_CREATE again
+        discordJar = discordJar(false, CacheSnapshot.open(file));
+        assertEquals("renamed", discordJar.getRoleIndex(GUILD_ID).get(ROLE_ID).name());
+        assertNull(discordJar.getRoleIndex(GUILD_ID).get(OTHER_ROLE_ID));
+        discordJar.getCacheSnapshot().close();
+    }
+
+    private void dispatch(DispatchedEvents event, JSONObject data) {
+        event.getEvent().apply(new JSONObject().put("d", data), null, discordJar);
+    }
+
+    private static DiscordJar discordJar(boolean lazyGuildHydration) {
+        return discordJar(lazyGuildHydration, null);
+    }
+
+    private static DiscordJar discordJar(boolean lazyGuildHydration, CacheSnapshot cacheSnapshot) {
+        return new DiscordJarBuilder("token")
+                .setIntents(EnumSet.of(Intent.GUILDS))
+                .setHTTPOnly(true)
+                .setHTTPOnlyInfo(HTTPOnlyInfo.lightweight("/interactions", PUBLIC_KEY, 0))
+                .setLazyGuildHydration(lazyGuildHydration)
+                .setCacheSnapshot(cacheSnapshot)
+                .build();
+    }
+
+    private static JSONObject guildCreate() {
+        return new JSONObject()
+                .put("id", GUILD_ID)
+                .put("name", "guild")
+                .put("roles", new JSONArray().put(role(ROLE_ID, "original")).put(role(OTHER_ROLE_ID, "other")))
+                .put("channels", new JSONArray())
+                .put("members", new JSONArray())
+                .put("voice_states", new JSONArray());
+    }
+
+    private static JSONObject role(String id, String name) {
+        return new JSONObject()
+                .put("id", id)
+                .put("name", name)
+                .put("color", 0)
+                .put("hoist", false)
+                .put("position", 0)
+                .put("permissions", "0")
+                .put("managed", false)
+                .put("mentionable", false)
+                .put("flags", 0);
+    }
+}
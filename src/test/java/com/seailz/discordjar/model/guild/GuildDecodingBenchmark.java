@@ -0,0 +1,294 @@
+package com.seailz.discordjar.model.guild;
+
+import com.seailz.discordjar.model.guild.filter.ExplicitContentFilterLevel;
+import com.seailz.discordjar.model.guild.mfa.MFALevel;
+import com.seailz.discordjar.model.guild.notification.DefaultMessageNotificationLevel;
+import com.seailz.discordjar.model.guild.premium.PremiumTier;
+import com.seailz.discordjar.model.guild.verification.VerificationLevel;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the fields of a guild by catching a {@link JSONException} for every missing field, as
+ * <br>{@link Guild#decompile(JSONObject, com.seailz.discordjar.DiscordJar)} used to, with the {@code opt*} and {@code isNull} checks it uses now.
+ * <br>Nested objects are left out, since both read them the same way.
+ *
+ * <p>Run it with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.seailz.discordjar.model.guild.GuildDecodingBenchmark}.
+ *
+ * @author Seailz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuildDecodingBenchmark {
+
+    /**
+     * {@code partial} is a guild as sent with an invite, where most fields are missing. {@code full} is a guild as sent with GUILD_CREATE.
+     */
+    @Param({"partial", "full"})
+    public String payload;
+
+    private JSONObject guild;
+
+    @Setup
+    public void setup() {
+        JSONObject partial = new JSONObject()
+                .put("id", "197038439483310086")
+                .put("name", "discord.jar")
+                .put("icon", "a_1269e74af4df4417b13759eae50c83dc")
+                .put("splash", JSONObject.NULL)
+                .put("banner", JSONObject.NULL)
+                .put("description", "A Java wrapper for Discord's API")
+                .put("features", new JSONArray().put("COMMUNITY").put("NEWS").put("INVITE_SPLASH"))
+                .put("verification_level", 1)
+                .put("vanity_url_code", JSONObject.NULL)
+                .put("premium_subscription_count", 3);
+        guild = payload.equals("partial") ? partial : new JSONObject(partial.toString())
+                .put("icon_hash", JSONObject.NULL)
+                .put("discovery_splash", JSONObject.NULL)
+                .put("owner_id", "80351110224678912")
+                .put("afk_channel_id", JSONObject.NULL)
+                .put("afk_timeout", 300)
+                .put("widget_enabled", false)
+                .put("widget_channel_id", JSONObject.NULL)
+                .put("default_message_notifications", 1)
+                .put("explicit_content_filter", 2)
+                .put("mfa_level", 1)
+                .put("application_id", JSONObject.NULL)
+                .put("system_channel_id", "197038439483310086")
+                .put("max_members", 500000)
+                .put("premium_tier", 1)
+                .put("preferred_locale", "en-US")
+                .put("public_updates_channel_id", "281283303326089216")
+                .put("max_video_channel_users", 25)
+                .put("premium_progress_bar_enabled", true);
+    }
+
+    @Benchmark
+    public void catchingExceptions(Blackhole blackhole) {
+        JSONObject obj = guild;
+        try {
+            blackhole.consume(obj.getString("id"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("name"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("icon"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("icon_hash"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("splash"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("discovery_splash"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getBoolean("owner"));
+        } catch (JSONException e) {
+            blackhole.consume(false);
+        }
+        try {
+            blackhole.consume(obj.getString("permissions"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getInt("afk_timeout"));
+        } catch (JSONException e) {
+            blackhole.consume(0);
+        }
+        try {
+            blackhole.consume(obj.getBoolean("widget_enabled"));
+        } catch (JSONException e) {
+            blackhole.consume(false);
+        }
+        try {
+            blackhole.consume(obj.getString("widget_channel_id"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(VerificationLevel.getVerificationLevel(obj.getInt("verification_level")));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(DefaultMessageNotificationLevel.getDefaultMessageNotificationLevel(obj.getInt("default_message_notifications")));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(ExplicitContentFilterLevel.getExplicitContentFilterLevel(obj.getInt("explicit_content_filter")));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(GuildFeature.getGuildFeatures(obj.getJSONArray("features").toList().toArray(new String[0])));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(MFALevel.getMFALevel(obj.getInt("mfa_level")));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("application_id"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("system_channel_id"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getInt("max_presences"));
+        } catch (JSONException e) {
+            blackhole.consume(0);
+        }
+        try {
+            blackhole.consume(obj.getInt("max_members"));
+        } catch (JSONException e) {
+            blackhole.consume(0);
+        }
+        try {
+            blackhole.consume(obj.getString("vanity_url_code"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("description"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("banner"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(PremiumTier.getPremiumTier(obj.getInt("premium_tier")));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getInt("premium_subscription_count"));
+        } catch (JSONException e) {
+            blackhole.consume(0);
+        }
+        try {
+            blackhole.consume(obj.getString("preferred_locale"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getString("public_updates_channel_id"));
+        } catch (JSONException e) {
+            blackhole.consume((Object) null);
+        }
+        try {
+            blackhole.consume(obj.getInt("max_video_channel_users"));
+        } catch (JSONException e) {
+            blackhole.consume(0);
+        }
+        try {
+            blackhole.consume(obj.getInt("approximate_member_count"));
+        } catch (JSONException e) {
+            blackhole.consume(0);
+        }
+        try {
+            blackhole.consume(obj.getInt("approximate_presence_count"));
+        } catch (JSONException e) {
+            blackhole.consume(0);
+        }
+        try {
+            blackhole.consume(obj.getBoolean("premium_progress_bar_enabled"));
+        } catch (JSONException e) {
+            blackhole.consume(false);
+        }
+    }
+
+    @Benchmark
+    public void checkingPresence(Blackhole blackhole) {
+        JSONObject obj = guild;
+        blackhole.consume(obj.optString("id", null));
+        blackhole.consume(obj.optString("name", null));
+        blackhole.consume(obj.optString("icon", null));
+        blackhole.consume(obj.optString("icon_hash", null));
+        blackhole.consume(obj.optString("splash", null));
+        blackhole.consume(obj.optString("discovery_splash", null));
+        blackhole.consume(obj.optBoolean("owner"));
+        blackhole.consume(obj.optString("permissions", null));
+        blackhole.consume(obj.optInt("afk_timeout"));
+        blackhole.consume(obj.optBoolean("widget_enabled"));
+        blackhole.consume(obj.optString("widget_channel_id", null));
+        blackhole.consume(obj.isNull("verification_level") ? null : VerificationLevel.getVerificationLevel(obj.getInt("verification_level")));
+        blackhole.consume(obj.isNull("default_message_notifications") ? null : DefaultMessageNotificationLevel.getDefaultMessageNotificationLevel(obj.getInt("default_message_notifications")));
+        blackhole.consume(obj.isNull("explicit_content_filter") ? null : ExplicitContentFilterLevel.getExplicitContentFilterLevel(obj.getInt("explicit_content_filter")));
+        JSONArray featuresArray = obj.optJSONArray("features");
+        if (featuresArray != null) {
+            String[] featureNames = new String[featuresArray.length()];
+            for (int i = 0; i < featureNames.length; i++) featureNames[i] = featuresArray.getString(i);
+            blackhole.consume(GuildFeature.getGuildFeatures(featureNames));
+        } else {
+            blackhole.consume((Object) null);
+        }
+        blackhole.consume(obj.isNull("mfa_level") ? null : MFALevel.getMFALevel(obj.getInt("mfa_level")));
+        blackhole.consume(obj.optString("application_id", null));
+        blackhole.consume(obj.optString("system_channel_id", null));
+        blackhole.consume(obj.optInt("max_presences"));
+        blackhole.consume(obj.optInt("max_members"));
+        blackhole.consume(obj.optString("vanity_url_code", null));
+        blackhole.consume(obj.optString("description", null));
+        blackhole.consume(obj.optString("banner", null));
+        blackhole.consume(obj.isNull("premium_tier") ? null : PremiumTier.getPremiumTier(obj.getInt("premium_tier")));
+        blackhole.consume(obj.optInt("premium_subscription_count"));
+        blackhole.consume(obj.optString("preferred_locale", null));
+        blackhole.consume(obj.optString("public_updates_channel_id", null));
+        blackhole.consume(obj.optInt("max_video_channel_users"));
+        blackhole.consume(obj.optInt("approximate_member_count"));
+        blackhole.consume(obj.optInt("approximate_presence_count"));
+        blackhole.consume(obj.optBoolean("premium_progress_bar_enabled"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GuildDecodingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,57 @@
+package com.seailz.discordjar.model.permission;
+
+import com.seailz.discordjar.utils.permission.Permission;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermissionOverwriteTest {
+
+    @Test
+    void decompiledBitsetsAreKept() {
+        long allow = Permission.MODERATE_MEMBERS.bit() | Permission.VIEW_CHANNEL.bit();
+        PermissionOverwrite overwrite = PermissionOverwrite.decompile(new JSONObject()
+                .put("id", "100000000000000000")
+                .put("type", 0)
+                .put("allow", String.valueOf(allow))
+                .put("deny", String.valueOf(Permission.SEND_MESSAGES.bit())));
+
+        assertEquals(allow, overwrite.allowRaw());
+        assertEquals(Permission.SEND_MESSAGES.bit(), overwrite.denyRaw());
+        assertEquals(EnumSet.of(Permission.MODERATE_MEMBERS, Permission.VIEW_CHANNEL), overwrite.allow());
+    }
+
+    @Test
+    void bitsetsAreComputedFromPermissions() {
+        PermissionOverwrite overwrite = new PermissionOverwrite("100000000000000000", OverwriteType.MEMBER,
+                EnumSet.of(Permission.SEND_VOICE_MESSAGES), EnumSet.noneOf(Permission.class));
+
+        assertEquals(Permission.SEND_VOICE_MESSAGES.bit(), overwrite.allowRaw());
+        assertEquals(0, overwrite.denyRaw());
+    }
+
+    @Test
+    void allowAndDenyReturnCopies() {
+        PermissionOverwrite empty = new PermissionOverwrite("100000000000000000", OverwriteType.ROLE);
+        PermissionOverwrite overwrite = empty.allow(Permission.VIEW_CHANNEL).deny(Permission.SEND_MESSAGES);
+
+        assertEquals(Permission.VIEW_CHANNEL.bit(), overwrite.allowRaw());
+        assertEquals(Permission.SEND_MESSAGES.bit(), overwrite.denyRaw());
+        assertEquals(EnumSet.of(Permission.VIEW_CHANNEL), overwrite.allow());
+        assertEquals(EnumSet.of(Permission.SEND_MESSAGES), overwrite.deny());
+        assertEquals(0, empty.allowRaw());
+        assertTrue(empty.allow().isEmpty());
+    }
+
+    @Test
+    void compiledBitsetsAreStrings() {
+        PermissionOverwrite overwrite = new PermissionOverwrite("100000000000000000", OverwriteType.ROLE).allow(Permission.MODERATE_MEMBERS);
+        JSONObject compiled = overwrite.compile();
+
+        assertEquals(String.valueOf(Permission.MODERATE_MEMBERS.bit()), compiled.getString("allow"));
+        assertEquals(overwrite, PermissionOverwrite.decompile(compiled));
+    }
+}
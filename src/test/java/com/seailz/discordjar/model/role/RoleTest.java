@@ -0,0 +1,48 @@
+package com.seailz.discordjar.model.role;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoleTest {
+
+    @Test
+    void permissionsAboveBit31AreKept() {
+        long permissions = 1L << 40 | 1L << 3;
+        Role role = Role.decompile(role().put("permissions", String.valueOf(permissions)));
+        assertEquals(permissions, role.permissionsRaw());
+    }
+
+    @Test
+    void compiledRoleDecompilesToTheSameRole() {
+        Role role = Role.decompile(role()
+                .put("permissions", String.valueOf(1L << 40))
+                .put("flags", 1)
+                .put("tags", new JSONObject().put("bot_id", "200000000000000000").put("premium_subscriber", JSONObject.NULL)));
+
+        assertEquals(role, Role.decompile(role.compile()));
+        assertTrue(role.tags().isPremiumSubscriber());
+        assertTrue(role.flags().contains(Role.Flag.IN_PROMPT));
+    }
+
+    @Test
+    void roleWithoutTagsCanBeCompiled() {
+        Role role = Role.decompile(role());
+        assertNull(role.tags());
+        assertEquals(role, Role.decompile(role.compile()));
+    }
+
+    private static JSONObject role() {
+        return new JSONObject()
+                .put("id", "100000000000000000")
+                .put("name", "role")
+                .put("color", 0xFF0000)
+                .put("hoist", true)
+                .put("position", 3)
+                .put("permissions", "0")
+                .put("managed", false)
+                .put("mentionable", true)
+                .put("flags", 0);
+    }
+}
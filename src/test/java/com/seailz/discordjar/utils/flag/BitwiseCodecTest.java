@@ -0,0 +1,125 @@
+package com.seailz.discordjar.utils.flag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitwiseCodecTest {
+
+    private static final BitwiseCodec<TestFlag> CODEC = BitwiseCodec.of(TestFlag.class);
+
+    @Test
+    void codecIsCreatedOncePerEnum() {
+        assertSame(CODEC, BitwiseCodec.of(TestFlag.class));
+    }
+
+    @Test
+    void maskOnlyHoldsKnownBits() {
+        assertEquals(1L | 1L << 3 | 1L << 40 | 1L << 63, CODEC.mask());
+    }
+
+    @Test
+    void decodeIgnoresUnknownBits() {
+        long raw = 1L | 1L << 3 | 1L << 5 | 1L << 40;
+        assertEquals(EnumSet.of(TestFlag.FIRST, TestFlag.FOURTH, TestFlag.HIGH), CODEC.decode(raw));
+    }
+
+    @Test
+    void encodeIsTheInverseOfDecode() {
+        long raw = 1L << 3 | 1L << 63;
+        assertEquals(raw, CODEC.encode(CODEC.decode(raw)));
+        assertEquals(0, CODEC.encode(List.of()));
+    }
+
+    @Test
+    void flagsWithoutABitAreNeverSet() {
+        assertEquals(0, TestFlag.UNKNOWN.bit());
+        assertEquals(1L, CODEC.encode(List.of(TestFlag.FIRST, TestFlag.UNKNOWN)));
+        assertFalse(CODEC.view(-1L).has(TestFlag.UNKNOWN));
+    }
+
+    @Test
+    void viewHoldsTheSameFlagsAsDecode() {
+        long raw = 1L | 1L << 40 | 1L << 63;
+        FlagSet<TestFlag> view = CODEC.view(raw);
+
+        assertEquals(CODEC.decode(raw), view);
+        assertEquals(view, CODEC.decode(raw));
+        assertEquals(3, view.size());
+        assertTrue(view.has(TestFlag.HIGH));
+        assertTrue(view.contains(TestFlag.HIGHEST));
+        assertFalse(view.contains(TestFlag.FOURTH));
+        assertFalse(view.contains(TestFlag.UNKNOWN));
+        assertFalse(view.contains("FIRST"));
+    }
+
+    @Test
+    void viewIteratesInBitOrder() {
+        List<TestFlag> flags = new ArrayList<>();
+        for (TestFlag flag : CODEC.view(-1L)) flags.add(flag);
+        assertEquals(List.of(TestFlag.FIRST, TestFlag.FOURTH, TestFlag.HIGH, TestFlag.HIGHEST), flags);
+    }
+
+    @Test
+    void viewDropsUnknownBits() {
+        FlagSet<TestFlag> view = CODEC.view(1L << 3 | 1L << 5);
+        assertEquals(1L << 3, view.raw());
+        assertEquals(1, view.size());
+        assertEquals(view, CODEC.view(1L << 3));
+    }
+
+    @Test
+    void encodingAViewReturnsItsRawValue() {
+        long raw = 1L << 3 | 1L << 40;
+        assertEquals(raw, CODEC.encode(CODEC.view(raw)));
+    }
+
+    @Test
+    void emptyView() {
+        FlagSet<TestFlag> view = CODEC.view(0);
+        assertTrue(view.isEmpty());
+        assertFalse(view.iterator().hasNext());
+        assertEquals(Set.of(), view);
+    }
+
+    @Test
+    void viewCantBeModified() {
+        FlagSet<TestFlag> view = CODEC.view(1L);
+        assertThrows(UnsupportedOperationException.class, () -> view.add(TestFlag.FOURTH));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(TestFlag.FIRST));
+        assertThrows(UnsupportedOperationException.class, view::clear);
+        assertTrue(view.has(TestFlag.FIRST));
+    }
+
+    private enum TestFlag implements Bitwiseable<TestFlag> {
+
+        FIRST(0),
+        FOURTH(3),
+        HIGH(40),
+        HIGHEST(63),
+        DUPLICATE(3),
+        UNKNOWN(-1)
+        ;
+
+        private final int id;
+
+        TestFlag(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int getLeftShiftId() {
+            return 1 << id;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.seailz.discordjar.utils.rest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaginatorTest {
+
+    @Test
+    void iteratesEveryPage() {
+        Pages pages = new Pages(7);
+        Paginator<Integer> paginator = new Paginator<>(pages, String::valueOf, 3);
+
+        List<Integer> items = new ArrayList<>();
+        paginator.forEachRemaining(items::add);
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), items);
+        assertEquals(Arrays.asList(null, "3", "6"), pages.cursors);
+        assertFalse(paginator.hasNext());
+        assertThrows(NoSuchElementException.class, paginator::next);
+    }
+
+    @Test
+    void shortPageIsTheLastOne() {
+        Pages pages = new Pages(2);
+        Paginator<Integer> paginator = new Paginator<>(pages, String::valueOf, 3);
+
+        assertEquals(List.of(1, 2), paginator.stream().collect(Collectors.toList()));
+        assertEquals(1, pages.cursors.size());
+    }
+
+    @Test
+    void fullLastPageEndsWithAnEmptyPage() {
+        Pages pages = new Pages(6);
+        Paginator<Integer> paginator = new Paginator<>(pages, String::valueOf, 3);
+
+        assertEquals(6, paginator.stream().count());
+        assertEquals(3, pages.cursors.size());
+    }
+
+    @Test
+    void limitStopsPaging() {
+        Pages pages = new Pages(100);
+        Paginator<Integer> paginator = new Paginator<>(pages, String::valueOf, 3, 9);
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9), paginator.stream().collect(Collectors.toList()));
+        assertEquals(Arrays.asList(null, "3", "6"), pages.cursors);
+    }
+
+    @Test
+    void limitWithinAPageTruncatesIt() {
+        Pages pages = new Pages(100);
+        Paginator<Integer> paginator = new Paginator<>(pages, String::valueOf, 3, 4);
+
+        assertEquals(List.of(1, 2, 3, 4), paginator.stream().collect(Collectors.toList()));
+        assertEquals(Arrays.asList(null, "3"), pages.cursors);
+    }
+
+    @Test
+    void limitPastTheEndStopsAtTheShortPage() {
+        Pages pages = new Pages(5);
+        Paginator<Integer> paginator = new Paginator<>(pages, String::valueOf, 3, 9);
+
+        assertEquals(5, paginator.stream().count());
+        assertEquals(2, pages.cursors.size());
+    }
+
+    @Test
+    void zeroLimitRequestsNothing() {
+        Pages pages = new Pages(100);
+        Paginator<Integer> paginator = new Paginator<>(pages, String::valueOf, 3, 0);
+
+        assertFalse(paginator.hasNext());
+        assertTrue(pages.cursors.isEmpty());
+    }
+
+    @Test
+    void emptyEndpoint() {
+        Paginator<Integer> paginator = new Paginator<>(new Pages(0), String::valueOf, 3);
+        assertFalse(paginator.hasNext());
+    }
+
+    @Test
+    void closingStopsTheIteration() {
+        Paginator<Integer> paginator = new Paginator<>(new Pages(100), String::valueOf, 3);
+        assertEquals(1, paginator.next());
+        paginator.close();
+
+        assertEquals(2, paginator.next());
+        assertEquals(3, paginator.next());
+        assertFalse(paginator.hasNext());
+    }
+
+    @Test
+    void closingTheStreamClosesThePaginator() {
+        Paginator<Integer> paginator = new Paginator<>(new Pages(100), String::valueOf, 3);
+        try (var stream = paginator.stream()) {
+            assertEquals(List.of(1, 2), stream.limit(2).collect(Collectors.toList()));
+        }
+        assertTrue(paginator.hasNext());
+        paginator.next();
+        assertFalse(paginator.hasNext());
+    }
+
+    @Test
+    void fetcherExceptionIsThrown() {
+        Paginator<Integer> paginator = new Paginator<>(after -> {
+            throw new IllegalStateException("rate limited");
+        }, String::valueOf, 3);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, paginator::hasNext);
+        assertEquals("rate limited", e.getMessage());
+    }
+
+    @Test
+    void publisherDeliversItemsAsTheyAreRequested() throws Exception {
+        Paginator<Integer> paginator = new Paginator<>(new Pages(7), String::valueOf, 3);
+        Collector collector = new Collector();
+        paginator.publisher().subscribe(collector);
+
+        collector.subscription.request(2);
+        collector.await(2);
+        assertEquals(List.of(1, 2), collector.items);
+        assertFalse(collector.done.isDone());
+
+        collector.subscription.request(Long.MAX_VALUE);
+        collector.done.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), collector.items);
+    }
+
+    @Test
+    void publisherOnlyAcceptsOneSubscriber() throws Exception {
+        Paginator<Integer> paginator = new Paginator<>(new Pages(1), String::valueOf, 3);
+        Flow.Publisher<Integer> publisher = paginator.publisher();
+        publisher.subscribe(new Collector());
+
+        Collector second = new Collector();
+        publisher.subscribe(second);
+        Exception e = assertThrows(Exception.class, () -> second.done.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        paginator.close();
+    }
+
+    @Test
+    void publisherSignalsFetcherException() {
+        Paginator<Integer> paginator = new Paginator<>(after -> {
+            throw new IllegalStateException("rate limited");
+        }, String::valueOf, 3);
+        Collector collector = new Collector();
+        paginator.publisher().subscribe(collector);
+        collector.subscription.request(1);
+
+        Exception e = assertThrows(Exception.class, () -> collector.done.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    /**
+     * An endpoint of the items 1 to {@code total}, returning the items after the cursor.
+     */
+    private static class Pages implements Function<String, List<Integer>> {
+        private final int total;
+        private final List<String> cursors = Collections.synchronizedList(new ArrayList<>());
+
+        private Pages(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public List<Integer> apply(String after) {
+            cursors.add(after);
+            int from = after == null ? 1 : Integer.parseInt(after) + 1;
+            return IntStream.rangeClosed(from, Math.min(total, from + 2)).boxed().collect(Collectors.toList());
+        }
+    }
+
+    private static class Collector implements Flow.Subscriber<Integer> {
+        private final List<Integer> items = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+
+        private void await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (items.size() < count && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        }
+    }
+}
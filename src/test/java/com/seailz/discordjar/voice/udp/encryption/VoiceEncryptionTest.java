@@ -0,0 +1,139 @@
+package com.seailz.discordjar.voice.udp.encryption;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VoiceEncryptionTest {
+
+    private static final int HEADER_LENGTH = 12;
+    private static final List<String> MODES = List.of(
+            VoiceEncryption.AES256_GCM_RTPSIZE,
+            VoiceEncryption.XCHACHA20_POLY1305_RTPSIZE,
+            VoiceEncryption.XSALSA20_POLY1305
+    );
+
+    @Test
+    void sealedPacketsOpenWithTheSameKey() {
+        byte[] audio = audio();
+        for (String mode : MODES) {
+            ByteBuffer packet = seal(VoiceEncryption.create(mode, key()), audio);
+
+            byte[] out = new byte[1500];
+            int length = VoiceEncryption.create(mode, key()).open(packet.array(), HEADER_LENGTH, packet.position(), out);
+            assertEquals(audio.length, length, mode);
+            assertArrayEquals(audio, Arrays.copyOf(out, length));
+        }
+    }
+
+    @Test
+    void everyPacketUsesANewNonce() {
+        byte[] audio = audio();
+        for (String mode : List.of(VoiceEncryption.AES256_GCM_RTPSIZE, VoiceEncryption.XCHACHA20_POLY1305_RTPSIZE)) {
+            VoiceEncryption encryption = VoiceEncryption.create(mode, key());
+            ByteBuffer first = seal(encryption, audio);
+            ByteBuffer second = seal(encryption, audio);
+            assertFalse(Arrays.equals(first.array(), second.array()), mode);
+        }
+    }
+
+    @Test
+    void tamperedPacketsAreRejected() {
+        byte[] audio = audio();
+        for (String mode : MODES) {
+            ByteBuffer packet = seal(VoiceEncryption.create(mode, key()), audio);
+            packet.array()[HEADER_LENGTH + 1] ^= 1;
+            assertEquals(-1, VoiceEncryption.create(mode, key()).open(packet.array(), HEADER_LENGTH, packet.position(), new byte[1500]), mode);
+        }
+    }
+
+    @Test
+    void rtpSizeModesAuthenticateTheHeader() {
+        byte[] audio = audio();
+        for (String mode : List.of(VoiceEncryption.AES256_GCM_RTPSIZE, VoiceEncryption.XCHACHA20_POLY1305_RTPSIZE)) {
+            ByteBuffer packet = seal(VoiceEncryption.create(mode, key()), audio);
+            // The sequence number, which isn't part of the nonce
+            packet.array()[2] ^= 1;
+            assertEquals(-1, VoiceEncryption.create(mode, key()).open(packet.array(), HEADER_LENGTH, packet.position(), new byte[1500]), mode);
+        }
+    }
+
+    @Test
+    void packetsWithoutRoomForTheAudioAreNotSealed() {
+        for (String mode : List.of(VoiceEncryption.AES256_GCM_RTPSIZE, VoiceEncryption.XCHACHA20_POLY1305_RTPSIZE)) {
+            ByteBuffer packet = ByteBuffer.allocate(HEADER_LENGTH + 20);
+            packet.put(header());
+            assertFalse(VoiceEncryption.create(mode, key()).seal(packet, audio()), mode);
+        }
+    }
+
+    /**
+     * Expected packets were computed with an independent AES-GCM and XChaCha20-Poly1305 implementation, using a nonce of the
+     * <br>big endian counter followed by zeroes, as Discord does.
+     */
+    @Test
+    void firstPacketMatchesKnownAnswer() {
+        byte[] header = new byte[HEADER_LENGTH];
+        header[0] = (byte) 0x80;
+        header[11] = 42;
+        byte[] audio = {1, 2, 3, 4, 5};
+
+        assertEquals("80000000000000000000002a0fbeb6dab00e2b1adb3caaa6522ae3c191df3b32b400000000",
+                sealHex(VoiceEncryption.AES256_GCM_RTPSIZE, header, audio));
+        assertEquals("80000000000000000000002a94048fc3e9c28ee2465ccee62e19c23e83764a340400000000",
+                sealHex(VoiceEncryption.XCHACHA20_POLY1305_RTPSIZE, header, audio));
+    }
+
+    @Test
+    void negotiatePrefersAesGcm() {
+        assertEquals(VoiceEncryption.AES256_GCM_RTPSIZE, VoiceEncryption.negotiate(MODES));
+        assertEquals(VoiceEncryption.XCHACHA20_POLY1305_RTPSIZE, VoiceEncryption.negotiate(List.of(
+                VoiceEncryption.XSALSA20_POLY1305, VoiceEncryption.XCHACHA20_POLY1305_RTPSIZE)));
+        assertEquals(VoiceEncryption.XSALSA20_POLY1305, VoiceEncryption.negotiate(List.of("aead_unknown")));
+    }
+
+    @Test
+    void unsupportedModesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> VoiceEncryption.create("aead_unknown", key()));
+    }
+
+    private static ByteBuffer seal(VoiceEncryption encryption, byte[] audio) {
+        ByteBuffer packet = ByteBuffer.allocate(1500);
+        packet.put(header());
+        assertTrue(encryption.seal(packet, audio));
+        return packet;
+    }
+
+    private static String sealHex(String mode, byte[] header, byte[] audio) {
+        ByteBuffer packet = ByteBuffer.allocate(1500);
+        packet.put(header);
+        assertTrue(VoiceEncryption.create(mode, key()).seal(packet, audio));
+        return HexFormat.of().formatHex(packet.array(), 0, packet.position());
+    }
+
+    private static byte[] header() {
+        byte[] header = new byte[HEADER_LENGTH];
+        header[0] = (byte) 0x80;
+        header[1] = 0x78;
+        header[3] = 1;
+        header[11] = 42;
+        return header;
+    }
+
+    private static byte[] key() {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) key[i] = (byte) i;
+        return key;
+    }
+
+    private static byte[] audio() {
+        byte[] audio = new byte[160];
+        for (int i = 0; i < audio.length; i++) audio[i] = (byte) (i * 7);
+        return audio;
+    }
+}